@@ -7,9 +7,12 @@ CREATE TABLE IF NOT EXISTS raw_telegrams (
     arr_raw_text TEXT,
     file_name VARCHAR(255),
     processed_at TIMESTAMP WITH TIME ZONE,
-    processing_status VARCHAR(50)
+    processing_status VARCHAR(50),
+    telegram_hash VARCHAR(64) -- SHA-256 нормализованных полей телеграммы для отсева повторов
     );
 
+CREATE UNIQUE INDEX idx_raw_telegrams_hash ON raw_telegrams(telegram_hash);
+
 -- Создание таблицы регионов с площадью для расчета Flight Density
 CREATE TABLE IF NOT EXISTS regions (
     region_id BIGSERIAL PRIMARY KEY,
@@ -23,6 +26,17 @@ CREATE TABLE IF NOT EXISTS regions (
 -- Создание индексов для ускорения пространственных запросов
 CREATE INDEX idx_regions_geometry ON regions USING GIST (geometry);
 
+-- Упрощенные границы регионов (ST_SimplifyPreserveTopology) для отображения; уровень 0 - полная геометрия в regions
+CREATE TABLE IF NOT EXISTS region_geometry_levels (
+    region_id BIGINT NOT NULL REFERENCES regions(region_id) ON DELETE CASCADE,
+    level SMALLINT NOT NULL CHECK (level > 0),
+    tolerance DOUBLE PRECISION NOT NULL, -- Допуск упрощения в градусах
+    geometry GEOMETRY(Geometry, 4326) NOT NULL,
+    num_points INTEGER NOT NULL,
+    built_at TIMESTAMP WITH TIME ZONE DEFAULT NOW(),
+    PRIMARY KEY (region_id, level)
+    );
+
 -- Таблица пользователей (операторы, аналитики, администраторы)
 CREATE TABLE IF NOT EXISTS users (
     user_id BIGSERIAL PRIMARY KEY,
@@ -81,6 +95,8 @@ CREATE TABLE IF NOT EXISTS flights (
     departure_region_id BIGINT REFERENCES regions(region_id),
     arrival_region_id BIGINT REFERENCES regions(region_id),
 
+    processing_status VARCHAR(50),
+
 -- Технические поля
     created_at TIMESTAMP WITH TIME ZONE DEFAULT NOW(),
     updated_at TIMESTAMP WITH TIME ZONE DEFAULT NOW()
@@ -93,6 +109,8 @@ CREATE INDEX idx_flights_departure_region ON flights(departure_region_id);
 CREATE INDEX idx_flights_arrival_region ON flights(arrival_region_id);
 CREATE INDEX idx_flights_date ON flights(flight_date);
 CREATE INDEX idx_flights_drone_type ON flights(drone_type);
+-- Один полет на телеграмму: повторная обработка обновляет полет по raw_id (INSERT ... ON CONFLICT)
+CREATE UNIQUE INDEX idx_flights_raw_id ON flights(raw_id);
 
 -- Таблица для хранения предварительно рассчитанных метрик (оптимизация производительности)
 CREATE TABLE IF NOT EXISTS region_metrics (
@@ -118,5 +136,87 @@ CREATE TABLE IF NOT EXISTS region_metrics (
 CREATE INDEX idx_region_metrics_composite ON region_metrics(region_id, metric_date, metric_type);
 CREATE UNIQUE INDEX idx_region_metrics_unique ON region_metrics(region_id, metric_date, metric_type);
 
+-- Задания фоновой загрузки файлов с телеграммами
+CREATE TABLE IF NOT EXISTS ingest_jobs (
+    job_id BIGSERIAL PRIMARY KEY,
+    file_name VARCHAR(255),
+    file_path VARCHAR(500), -- Временная копия загруженного файла
+    file_sha256 VARCHAR(64), -- SHA-256 содержимого файла
+    status VARCHAR(50) NOT NULL CHECK (status IN ('QUEUED', 'RUNNING', 'COMPLETED', 'FAILED', 'CANCELLED', 'INTERRUPTED', 'SKIPPED')),
+    stage VARCHAR(50), -- Этап: PARSE, GEOLOCATE, PERSIST
+    rows_read BIGINT NOT NULL DEFAULT 0,
+    rows_processed BIGINT NOT NULL DEFAULT 0,
+    rows_failed BIGINT NOT NULL DEFAULT 0,
+    rows_duplicate BIGINT NOT NULL DEFAULT 0, -- Телеграммы, уже загруженные ранее
+    error_message TEXT,
+    created_at TIMESTAMP WITH TIME ZONE DEFAULT NOW(),
+    started_at TIMESTAMP WITH TIME ZONE,
+    finished_at TIMESTAMP WITH TIME ZONE,
+    updated_at TIMESTAMP WITH TIME ZONE DEFAULT NOW()
+    );
+
+CREATE INDEX idx_ingest_jobs_status ON ingest_jobs(status);
+CREATE INDEX idx_ingest_jobs_created_at ON ingest_jobs(created_at);
 
+-- Телеграммы, которые не удалось разобрать или сохранить (dead-letter)
+CREATE TABLE IF NOT EXISTS rejected_telegrams (
+    rejected_id BIGSERIAL PRIMARY KEY,
+    raw_id BIGINT, -- Телеграмма в raw_telegrams, если она уже была сохранена
+    center VARCHAR(255),
+    shr_raw_text TEXT,
+    dep_raw_text TEXT,
+    arr_raw_text TEXT,
+    file_name VARCHAR(255),
+    stage VARCHAR(50) NOT NULL, -- Этап: PARSE, PERSIST
+    reason TEXT,
+    status VARCHAR(50) NOT NULL CHECK (status IN ('REJECTED', 'REDRIVEN')),
+    attempts INT NOT NULL DEFAULT 1, -- Неудачных попыток обработки, включая повторные
+    created_at TIMESTAMP WITH TIME ZONE DEFAULT NOW(),
+    redriven_at TIMESTAMP WITH TIME ZONE
+    );
+
+CREATE INDEX idx_rejected_telegrams_status ON rejected_telegrams(status, attempts, rejected_id);
+
+-- Успешно загруженные файлы: повторная загрузка того же содержимого пропускается
+CREATE TABLE IF NOT EXISTS ingested_files (
+    file_id BIGSERIAL PRIMARY KEY,
+    sha256 VARCHAR(64) NOT NULL UNIQUE,
+    file_name VARCHAR(255),
+    rows_read BIGINT NOT NULL DEFAULT 0,
+    rows_processed BIGINT NOT NULL DEFAULT 0,
+    ingested_at TIMESTAMP WITH TIME ZONE DEFAULT NOW()
+    );
+
+-- Задания повторной обработки сохраненных телеграмм (пересборка flights из raw_telegrams)
+CREATE TABLE IF NOT EXISTS reprocess_jobs (
+    job_id BIGSERIAL PRIMARY KEY,
+    status VARCHAR(50) NOT NULL CHECK (status IN ('QUEUED', 'RUNNING', 'COMPLETED', 'FAILED', 'CANCELLED', 'INTERRUPTED')),
+    from_raw_id BIGINT NOT NULL, -- Диапазон raw_telegrams.id, включительно
+    to_raw_id BIGINT NOT NULL,
+    rows_read BIGINT NOT NULL DEFAULT 0,
+    rows_processed BIGINT NOT NULL DEFAULT 0,
+    rows_failed BIGINT NOT NULL DEFAULT 0,
+    error_message TEXT,
+    created_at TIMESTAMP WITH TIME ZONE DEFAULT NOW(),
+    started_at TIMESTAMP WITH TIME ZONE,
+    finished_at TIMESTAMP WITH TIME ZONE,
+    updated_at TIMESTAMP WITH TIME ZONE DEFAULT NOW()
+    );
+
+CREATE INDEX idx_reprocess_jobs_created_at ON reprocess_jobs(created_at);
+
+-- Контрольные точки повторной обработки: одна строка на диапазон id, обрабатываемый одним потоком
+CREATE TABLE IF NOT EXISTS reprocess_checkpoints (
+    checkpoint_id BIGSERIAL PRIMARY KEY,
+    job_id BIGINT NOT NULL REFERENCES reprocess_jobs(job_id) ON DELETE CASCADE,
+    range_start BIGINT NOT NULL,
+    range_end BIGINT NOT NULL,
+    last_raw_id BIGINT NOT NULL, -- Последний обработанный id; продолжение - с last_raw_id + 1
+    rows_read BIGINT NOT NULL DEFAULT 0,
+    rows_processed BIGINT NOT NULL DEFAULT 0,
+    rows_failed BIGINT NOT NULL DEFAULT 0,
+    completed BOOLEAN NOT NULL DEFAULT FALSE,
+    updated_at TIMESTAMP WITH TIME ZONE DEFAULT NOW()
+    );
 
+CREATE INDEX idx_reprocess_checkpoints_job ON reprocess_checkpoints(job_id);
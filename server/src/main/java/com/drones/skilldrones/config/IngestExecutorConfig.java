@@ -0,0 +1,20 @@
+package com.drones.skilldrones.config;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+@Configuration
+public class IngestExecutorConfig {
+
+    /**
+     * Исполнитель заданий загрузки: отдельный виртуальный поток на задание.
+     * Задания в основном ждут диск и базу данных, поэтому платформенные потоки не расходуются
+     */
+    @Bean(name = "ingestExecutor", destroyMethod = "close")
+    public ExecutorService ingestExecutor() {
+        return Executors.newVirtualThreadPerTaskExecutor();
+    }
+}
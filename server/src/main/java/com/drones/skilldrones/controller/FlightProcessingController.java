@@ -1,8 +1,12 @@
 package com.drones.skilldrones.controller;
 
-import com.drones.skilldrones.model.RawTelegram;
-import com.drones.skilldrones.service.FileParserService;
+import com.drones.skilldrones.dto.response.IngestJobResponse;
+import com.drones.skilldrones.dto.response.ReprocessJobResponse;
+import com.drones.skilldrones.dto.response.StreamBatchAck;
 import com.drones.skilldrones.service.FlightProcessingService;
+import com.drones.skilldrones.service.IngestJobService;
+import com.drones.skilldrones.service.ReprocessingService;
+import com.drones.skilldrones.service.TelegramStreamService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.media.Content;
@@ -10,10 +14,14 @@ import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.List;
 import java.util.Map;
 
@@ -21,18 +29,25 @@ import java.util.Map;
 @RequestMapping("/api/processing")
 @Tag(name = "Обработка полетов", description = "API для обработки и преобразования данных о полетах БПЛА")
 public class FlightProcessingController {
-    private final FileParserService fileParserService;
     private final FlightProcessingService flightProcessingService;
+    private final IngestJobService ingestJobService;
+    private final TelegramStreamService telegramStreamService;
+    private final ReprocessingService reprocessingService;
 
-    public FlightProcessingController(FileParserService fileParserService,
-                                      FlightProcessingService flightProcessingService) {
-        this.fileParserService = fileParserService;
+    public FlightProcessingController(FlightProcessingService flightProcessingService,
+                                      IngestJobService ingestJobService,
+                                      TelegramStreamService telegramStreamService,
+                                      ReprocessingService reprocessingService) {
         this.flightProcessingService = flightProcessingService;
+        this.ingestJobService = ingestJobService;
+        this.telegramStreamService = telegramStreamService;
+        this.reprocessingService = reprocessingService;
     }
 
     @Operation(
             summary = "Обработка файла с полетами",
-            description = "Загружает Excel файл с телеграммами полетов, парсит данные и сохраняет в базу данных"
+            description = "Загружает Excel (.xlsx, .xls) или CSV файл с телеграммами полетов, парсит данные и сохраняет в базу данных. "
+                    + "Файл может быть сжат (.gz, .zst) или быть ZIP архивом из нескольких файлов - они загружаются параллельно"
     )
     @ApiResponses(value = {
             @ApiResponse(
@@ -49,26 +64,33 @@ public class FlightProcessingController {
     @PostMapping(value = "/process-file", consumes = "multipart/form-data")
     public ResponseEntity<Map<String, Object>> processFlightFile(
             @Parameter(
-                    description = "Excel файл с данными полетов в формате телеграмм",
+                    description = "Excel или CSV файл (в т.ч. .gz, .zst или ZIP архив) с данными полетов в формате телеграмм",
                     required = true,
                     content = @Content(mediaType = "multipart/form-data")
             )
             @RequestParam("file") MultipartFile file) {
 
         try {
-            // 1. Парсим Excel файл
-            List<RawTelegram> telegrams = fileParserService.parseExcelFile(file);
-
-            // 2. Обрабатываем телеграммы в полеты
-            int processedCount = flightProcessingService.processBatch(telegrams);
+            // 1-2. Читаем файл и обрабатываем телеграммы конвейером: разбор, геопривязка и запись идут одновременно
+            IngestJobResponse job = ingestJobService.process(file);
+            if ("FAILED".equals(job.status())) {
+                return ResponseEntity.badRequest()
+                        .body(Map.of(
+                                "error", "Ошибка обработки файла",
+                                "details", String.valueOf(job.errorMessage())
+                        ));
+            }
+            long totalRecords = job.rowsRead();
+            long processedCount = job.rowsProcessed();
 
             // 3. Возвращаем результат
             return ResponseEntity.ok(Map.of(
-                    "message", "Файл успешно обработан",
-                    "totalRecords", telegrams.size(),
+                    "message", "SKIPPED".equals(job.status()) ? job.errorMessage() : "Файл успешно обработан",
+                    "totalRecords", totalRecords,
                     "processedSuccessfully", processedCount,
-                    "failed", telegrams.size() - processedCount,
-                    "successRate", String.format("%.2f%%", (double) processedCount / telegrams.size() * 100)
+                    "duplicates", job.rowsDuplicate(),
+                    "failed", job.rowsFailed(),
+                    "successRate", String.format("%.2f%%", totalRecords > 0 ? (double) processedCount / totalRecords * 100 : 0)
             ));
 
         } catch (Exception e) {
@@ -80,6 +102,247 @@ public class FlightProcessingController {
         }
     }
 
+    @Operation(
+            summary = "Фоновая обработка файла с полетами",
+            description = "Сохраняет файл и сразу возвращает ID задания; разбор, геопривязка и сохранение выполняются в фоне"
+    )
+    @ApiResponses(value = {
+            @ApiResponse(
+                    responseCode = "202",
+                    description = "Задание поставлено в очередь",
+                    content = @Content(schema = @Schema(implementation = IngestJobResponse.class))
+            ),
+            @ApiResponse(
+                    responseCode = "400",
+                    description = "Ошибка загрузки файла",
+                    content = @Content(schema = @Schema(implementation = ErrorResponse.class))
+            )
+    })
+    @PostMapping(value = "/jobs", consumes = "multipart/form-data")
+    public ResponseEntity<?> submitJob(
+            @Parameter(
+                    description = "Файл с данными полетов в формате телеграмм",
+                    required = true,
+                    content = @Content(mediaType = "multipart/form-data")
+            )
+            @RequestParam("file") MultipartFile file) {
+        try {
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(ingestJobService.submit(file));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest()
+                    .body(Map.of(
+                            "error", "Ошибка загрузки файла",
+                            "details", e.getMessage()
+                    ));
+        }
+    }
+
+    @Operation(
+            summary = "Потоковая загрузка телеграмм",
+            description = "Принимает chunked-поток application/x-ndjson: одна телеграмма на строку "
+                    + "({\"center\", \"shr\", \"dep\", \"arr\"}). Строки сохраняются микропакетами по мере поступления, "
+                    + "на каждый пакет в ответный поток сразу пишется строка подтверждения"
+    )
+    @ApiResponses(value = {
+            @ApiResponse(
+                    responseCode = "200",
+                    description = "Поток подтверждений пакетов",
+                    content = @Content(mediaType = "application/x-ndjson",
+                            schema = @Schema(implementation = StreamBatchAck.class))
+            )
+    })
+    @PostMapping(value = "/stream", consumes = "application/x-ndjson", produces = "application/x-ndjson")
+    public void streamTelegrams(InputStream body, HttpServletResponse response) throws IOException {
+        response.setContentType("application/x-ndjson");
+        response.setCharacterEncoding("UTF-8");
+        // Отправляем заголовки сразу: подтверждения идут, пока клиент еще передает телеграммы
+        response.flushBuffer();
+        telegramStreamService.ingest(body, response.getOutputStream());
+    }
+
+    @Operation(
+            summary = "Состояние задания загрузки",
+            description = "Возвращает этап, количество прочитанных, сохраненных и ошибочных строк и скорость обработки"
+    )
+    @ApiResponses(value = {
+            @ApiResponse(
+                    responseCode = "200",
+                    description = "Состояние задания",
+                    content = @Content(schema = @Schema(implementation = IngestJobResponse.class))
+            ),
+            @ApiResponse(responseCode = "404", description = "Задание не найдено")
+    })
+    @GetMapping("/jobs/{jobId}")
+    public ResponseEntity<IngestJobResponse> getJob(
+            @Parameter(description = "ID задания", required = true, example = "42")
+            @PathVariable Long jobId) {
+        return ingestJobService.getJob(jobId)
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+    @Operation(
+            summary = "Последние задания загрузки",
+            description = "Возвращает последние 50 заданий загрузки"
+    )
+    @GetMapping("/jobs")
+    public ResponseEntity<List<IngestJobResponse>> getRecentJobs() {
+        return ResponseEntity.ok(ingestJobService.getRecentJobs());
+    }
+
+    @Operation(
+            summary = "Отмена задания загрузки",
+            description = "Останавливает задание; уже сохраненные порции остаются в базе"
+    )
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "202", description = "Отмена запрошена"),
+            @ApiResponse(responseCode = "409", description = "Задание не выполняется или не найдено")
+    })
+    @PostMapping("/jobs/{jobId}/cancel")
+    public ResponseEntity<Map<String, Object>> cancelJob(
+            @Parameter(description = "ID задания", required = true, example = "42")
+            @PathVariable Long jobId) {
+        if (ingestJobService.cancel(jobId)) {
+            return ResponseEntity.status(HttpStatus.ACCEPTED)
+                    .body(Map.of("message", "Отмена задания запрошена", "jobId", jobId));
+        }
+        return ResponseEntity.status(HttpStatus.CONFLICT)
+                .body(Map.of("error", "Задание не выполняется или не найдено", "jobId", jobId));
+    }
+
+    @Operation(
+            summary = "Повторная обработка отклоненных телеграмм",
+            description = "Повторно разбирает и сохраняет телеграммы из таблицы rejected_telegrams"
+    )
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Повторная обработка выполнена"),
+            @ApiResponse(responseCode = "400", description = "Ошибка повторной обработки")
+    })
+    @PostMapping("/rejected/redrive")
+    public ResponseEntity<Map<String, Object>> redriveRejected(
+            @Parameter(description = "Максимальное количество телеграмм", example = "1000")
+            @RequestParam(defaultValue = "1000") int limit) {
+        try {
+            int processedCount = flightProcessingService.redriveRejected(limit);
+            return ResponseEntity.ok(Map.of(
+                    "message", "Повторная обработка выполнена",
+                    "processedSuccessfully", processedCount
+            ));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest()
+                    .body(Map.of(
+                            "error", "Ошибка повторной обработки",
+                            "details", e.getMessage()
+                    ));
+        }
+    }
+
+    @Operation(
+            summary = "Повторная обработка сохраненных телеграмм",
+            description = "Заново строит полеты из raw_telegrams (после изменения правил разбора): диапазон id "
+                    + "обрабатывается параллельными партициями с ограничением скорости, полеты обновляются по raw_id, "
+                    + "прогресс сохраняется в контрольных точках"
+    )
+    @ApiResponses(value = {
+            @ApiResponse(
+                    responseCode = "202",
+                    description = "Задание запущено",
+                    content = @Content(schema = @Schema(implementation = ReprocessJobResponse.class))
+            ),
+            @ApiResponse(responseCode = "400", description = "Пустой диапазон id"),
+            @ApiResponse(responseCode = "409", description = "Уже выполняется другое задание")
+    })
+    @PostMapping("/reprocess")
+    public ResponseEntity<?> startReprocessing(
+            @Parameter(description = "Первый id телеграммы (по умолчанию - самый первый)", example = "1")
+            @RequestParam(required = false) Long fromId,
+            @Parameter(description = "Последний id телеграммы (по умолчанию - последний)", example = "50000000")
+            @RequestParam(required = false) Long toId) {
+        try {
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(reprocessingService.start(fromId, toId));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    @Operation(
+            summary = "Продолжение повторной обработки",
+            description = "Продолжает прерванное, отмененное или завершившееся ошибкой задание с контрольных точек"
+    )
+    @ApiResponses(value = {
+            @ApiResponse(
+                    responseCode = "202",
+                    description = "Задание продолжено",
+                    content = @Content(schema = @Schema(implementation = ReprocessJobResponse.class))
+            ),
+            @ApiResponse(responseCode = "404", description = "Задание не найдено"),
+            @ApiResponse(responseCode = "409", description = "Задание нельзя продолжить или выполняется другое")
+    })
+    @PostMapping("/reprocess/{jobId}/resume")
+    public ResponseEntity<?> resumeReprocessing(
+            @Parameter(description = "ID задания", required = true, example = "7")
+            @PathVariable Long jobId) {
+        try {
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(reprocessingService.resume(jobId));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(Map.of("error", e.getMessage()));
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    @Operation(
+            summary = "Состояние повторной обработки",
+            description = "Возвращает число завершенных партиций, обработанных строк и скорость"
+    )
+    @ApiResponses(value = {
+            @ApiResponse(
+                    responseCode = "200",
+                    description = "Состояние задания",
+                    content = @Content(schema = @Schema(implementation = ReprocessJobResponse.class))
+            ),
+            @ApiResponse(responseCode = "404", description = "Задание не найдено")
+    })
+    @GetMapping("/reprocess/{jobId}")
+    public ResponseEntity<ReprocessJobResponse> getReprocessJob(
+            @Parameter(description = "ID задания", required = true, example = "7")
+            @PathVariable Long jobId) {
+        return reprocessingService.getJob(jobId)
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+    @Operation(
+            summary = "Последние задания повторной обработки",
+            description = "Возвращает последние 20 заданий повторной обработки"
+    )
+    @GetMapping("/reprocess")
+    public ResponseEntity<List<ReprocessJobResponse>> getRecentReprocessJobs() {
+        return ResponseEntity.ok(reprocessingService.getRecentJobs());
+    }
+
+    @Operation(
+            summary = "Остановка повторной обработки",
+            description = "Останавливает задание после текущей порции; его можно продолжить позже"
+    )
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "202", description = "Остановка запрошена"),
+            @ApiResponse(responseCode = "409", description = "Задание не выполняется или не найдено")
+    })
+    @PostMapping("/reprocess/{jobId}/cancel")
+    public ResponseEntity<Map<String, Object>> cancelReprocessing(
+            @Parameter(description = "ID задания", required = true, example = "7")
+            @PathVariable Long jobId) {
+        if (reprocessingService.cancel(jobId)) {
+            return ResponseEntity.status(HttpStatus.ACCEPTED)
+                    .body(Map.of("message", "Остановка задания запрошена", "jobId", jobId));
+        }
+        return ResponseEntity.status(HttpStatus.CONFLICT)
+                .body(Map.of("error", "Задание не выполняется или не найдено", "jobId", jobId));
+    }
+
     @Operation(
             summary = "Статистика обработки",
             description = "Возвращает статистику по обработанным полетам и телеграммам"
@@ -118,6 +381,9 @@ public class FlightProcessingController {
         @Schema(description = "Успешно обработано", example = "145")
         public Integer processedSuccessfully;
 
+        @Schema(description = "Пропущено повторов ранее загруженных телеграмм", example = "0")
+        public Integer duplicates;
+
         @Schema(description = "Не удалось обработать", example = "5")
         public Integer failed;
 
@@ -1,9 +1,11 @@
 package com.drones.skilldrones.controller;
 
 import com.drones.skilldrones.dto.ParsedFlightData;
+import com.drones.skilldrones.dto.response.RegionGeometryLevelResponse;
 import com.drones.skilldrones.dto.response.RegionResponse;
 import com.drones.skilldrones.service.FileParserService;
 import com.drones.skilldrones.service.RegionAnalysisService;
+import com.drones.skilldrones.service.RegionGeometryService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.media.Content;
@@ -28,11 +30,14 @@ public class RegionAnalysisController {
 
     private final FileParserService fileParserService;
     private final RegionAnalysisService regionAnalysisService;
+    private final RegionGeometryService regionGeometryService;
 
     public RegionAnalysisController(FileParserService fileParserService,
-                                    RegionAnalysisService regionAnalysisService) {
+                                    RegionAnalysisService regionAnalysisService,
+                                    RegionGeometryService regionGeometryService) {
         this.fileParserService = fileParserService;
         this.regionAnalysisService = regionAnalysisService;
+        this.regionGeometryService = regionGeometryService;
     }
 
     @Operation(summary = "Анализ топ регионов из файла",
@@ -132,4 +137,53 @@ public class RegionAnalysisController {
             return ResponseEntity.badRequest().build();
         }
     }
+
+    @Operation(summary = "Границы всех регионов (GeoJSON)",
+            description = "Возвращает FeatureCollection границ на заданном уровне детализации. "
+                    + "Уровень 0 - полная геометрия, по умолчанию - самый грубый уровень для отображения на карте")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Границы регионов"),
+            @ApiResponse(responseCode = "400", description = "Нет такого уровня детализации")
+    })
+    @GetMapping(value = "/regions/geometry", produces = "application/geo+json")
+    public ResponseEntity<String> getRegionGeometries(
+            @Parameter(description = "Уровень детализации (0 - полная геометрия)", example = "3")
+            @RequestParam(required = false) Integer level) {
+        try {
+            int resolved = level != null ? level : regionGeometryService.getCoarsestLevel();
+            return ResponseEntity.ok(regionGeometryService.getGeoJson(resolved));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    @Operation(summary = "Граница региона (GeoJSON)",
+            description = "Возвращает FeatureCollection из одного региона на заданном уровне детализации")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Граница региона"),
+            @ApiResponse(responseCode = "400", description = "Нет такого уровня детализации"),
+            @ApiResponse(responseCode = "404", description = "Регион не найден")
+    })
+    @GetMapping(value = "/regions/{regionId}/geometry", produces = "application/geo+json")
+    public ResponseEntity<String> getRegionGeometry(
+            @Parameter(description = "ID региона", required = true, example = "1")
+            @PathVariable Long regionId,
+            @Parameter(description = "Уровень детализации (0 - полная геометрия)", example = "1")
+            @RequestParam(required = false) Integer level) {
+        try {
+            int resolved = level != null ? level : regionGeometryService.getCoarsestLevel();
+            return regionGeometryService.getGeoJson(regionId, resolved)
+                    .map(ResponseEntity::ok)
+                    .orElse(ResponseEntity.notFound().build());
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    @Operation(summary = "Уровни детализации границ",
+            description = "Возвращает допуск упрощения и количество вершин на каждом уровне")
+    @GetMapping("/regions/geometry/levels")
+    public ResponseEntity<List<RegionGeometryLevelResponse>> getRegionGeometryLevels() {
+        return ResponseEntity.ok(regionGeometryService.getLevels());
+    }
 }
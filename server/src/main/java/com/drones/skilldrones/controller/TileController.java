@@ -0,0 +1,69 @@
+package com.drones.skilldrones.controller;
+
+import com.drones.skilldrones.service.VectorTileService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.Duration;
+
+@RestController
+@RequestMapping("/tiles")
+@Tag(name = "Векторные тайлы", description = "Границы регионов с количеством полетов в формате Mapbox Vector Tile")
+public class TileController {
+
+    private static final MediaType MVT = MediaType.parseMediaType("application/vnd.mapbox-vector-tile");
+
+    private final VectorTileService vectorTileService;
+    private final CacheControl cacheControl;
+
+    public TileController(VectorTileService vectorTileService,
+                          @Value("${app.tiles.max-age-seconds:60}") long maxAgeSeconds) {
+        this.vectorTileService = vectorTileService;
+        this.cacheControl = CacheControl.maxAge(Duration.ofSeconds(maxAgeSeconds)).cachePrivate();
+    }
+
+    @Operation(summary = "Векторный тайл регионов",
+            description = "Возвращает тайл (схема XYZ, Web Mercator) со слоем regions: границы регионов, "
+                    + "упрощенные под масштаб, и атрибуты name, departures, arrivals. "
+                    + "ETag - версия данных; при совпадении If-None-Match возвращается 304")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Тайл"),
+            @ApiResponse(responseCode = "304", description = "Данные не изменились"),
+            @ApiResponse(responseCode = "400", description = "Неверные координаты тайла")
+    })
+    @GetMapping("/{z}/{x}/{y}.mvt")
+    public ResponseEntity<byte[]> getTile(
+            @Parameter(description = "Масштаб", required = true, example = "3") @PathVariable int z,
+            @Parameter(description = "Номер столбца", required = true, example = "5") @PathVariable int x,
+            @Parameter(description = "Номер строки", required = true, example = "2") @PathVariable int y,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        try {
+            String eTag = eTag(vectorTileService.getDataVersion());
+            if (eTag.equals(ifNoneMatch)) {
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(eTag).cacheControl(cacheControl).build();
+            }
+            VectorTileService.VectorTile tile = vectorTileService.getTile(z, x, y);
+            return ResponseEntity.ok()
+                    .contentType(MVT)
+                    .eTag(eTag(tile.version()))
+                    .cacheControl(cacheControl)
+                    .body(tile.data());
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    private static String eTag(long version) {
+        return "\"" + version + "\"";
+    }
+}
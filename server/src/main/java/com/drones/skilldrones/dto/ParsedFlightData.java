@@ -1,13 +1,21 @@
 package com.drones.skilldrones.dto;
+import com.drones.skilldrones.geo.Geometries;
 import com.drones.skilldrones.model.RawTelegram;
 import java.time.LocalDate;
+import java.time.LocalTime;
 
 public class ParsedFlightData {
 
         private String flightId;
         private String droneType;
         private LocalDate flightDate;
+        // Координаты в угловых минутах (точность SHR), строка строится только по запросу
+        private boolean hasCoordinates;
+        private int latMinutes;
+        private int lonMinutes;
         private String coordinates;
+        private LocalTime departureTime;
+        private LocalTime arrivalTime;
         private RawTelegram rawTelegram;
 
         // геттеры и сеттеры
@@ -20,8 +28,31 @@ public class ParsedFlightData {
         public LocalDate getFlightDate() { return flightDate; }
         public void setFlightDate(LocalDate flightDate) { this.flightDate = flightDate; }
 
-        public String getCoordinates() { return coordinates; }
-        public void setCoordinates(String coordinates) { this.coordinates = coordinates; }
+        public boolean hasCoordinates() { return hasCoordinates; }
+        public int getLatMinutes() { return latMinutes; }
+        public int getLonMinutes() { return lonMinutes; }
+        public double getLatitude() { return latMinutes / 60.0; }
+        public double getLongitude() { return lonMinutes / 60.0; }
+
+        public void setCoordinates(int latMinutes, int lonMinutes) {
+                this.hasCoordinates = true;
+                this.latMinutes = latMinutes;
+                this.lonMinutes = lonMinutes;
+                this.coordinates = null;
+        }
+
+        public String getCoordinates() {
+                if (coordinates == null && hasCoordinates) {
+                        coordinates = Geometries.formatLatLon(getLatitude(), getLongitude());
+                }
+                return coordinates;
+        }
+
+        public LocalTime getDepartureTime() { return departureTime; }
+        public void setDepartureTime(LocalTime departureTime) { this.departureTime = departureTime; }
+
+        public LocalTime getArrivalTime() { return arrivalTime; }
+        public void setArrivalTime(LocalTime arrivalTime) { this.arrivalTime = arrivalTime; }
 
         public RawTelegram getRawTelegram() { return rawTelegram; }
         public void setRawTelegram(RawTelegram rawTelegram) { this.rawTelegram = rawTelegram; }
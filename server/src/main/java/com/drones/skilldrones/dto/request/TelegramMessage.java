@@ -0,0 +1,16 @@
+package com.drones.skilldrones.dto.request;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+@Schema(description = "Телеграмма в потоке NDJSON (одна строка - один объект)")
+public record TelegramMessage(
+        @Schema(description = "Центр ЕС ОрВД", example = "Московский")
+        String center,
+        @Schema(description = "Текст телеграммы SHR")
+        String shr,
+        @Schema(description = "Текст телеграммы DEP")
+        String dep,
+        @Schema(description = "Текст телеграммы ARR")
+        String arr
+) {
+}
@@ -0,0 +1,36 @@
+package com.drones.skilldrones.dto.response;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+import java.time.LocalDateTime;
+
+@Schema(description = "Состояние задания загрузки файла")
+public record IngestJobResponse(
+        @Schema(description = "ID задания", example = "42")
+        Long jobId,
+        @Schema(description = "Имя загруженного файла", example = "2025.xlsx")
+        String fileName,
+        @Schema(description = "Статус задания; SKIPPED - файл уже был загружен", example = "RUNNING")
+        String status,
+        @Schema(description = "Текущий этап: PARSE, GEOLOCATE, PERSIST", example = "PERSIST")
+        String stage,
+        @Schema(description = "Прочитано строк", example = "120000")
+        long rowsRead,
+        @Schema(description = "Сохранено полетов", example = "119500")
+        long rowsProcessed,
+        @Schema(description = "Не удалось обработать", example = "500")
+        long rowsFailed,
+        @Schema(description = "Пропущено повторов ранее загруженных телеграмм", example = "0")
+        long rowsDuplicate,
+        @Schema(description = "Скорость обработки, строк в секунду", example = "8500.0")
+        double rowsPerSecond,
+        @Schema(description = "Текст ошибки")
+        String errorMessage,
+        @Schema(description = "Дата создания")
+        LocalDateTime createdAt,
+        @Schema(description = "Дата запуска")
+        LocalDateTime startedAt,
+        @Schema(description = "Дата завершения")
+        LocalDateTime finishedAt
+) {
+}
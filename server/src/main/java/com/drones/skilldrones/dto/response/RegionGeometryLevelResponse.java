@@ -0,0 +1,16 @@
+package com.drones.skilldrones.dto.response;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+@Schema(description = "Уровень детализации границ регионов")
+public record RegionGeometryLevelResponse(
+        @Schema(description = "Уровень: 0 - полная геометрия, чем больше, тем грубее", example = "2")
+        int level,
+        @Schema(description = "Допуск упрощения в градусах", example = "0.01")
+        double tolerance,
+        @Schema(description = "Регионов на уровне", example = "85")
+        long regions,
+        @Schema(description = "Вершин во всех границах уровня", example = "48000")
+        long points
+) {
+}
@@ -0,0 +1,38 @@
+package com.drones.skilldrones.dto.response;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+import java.time.LocalDateTime;
+
+@Schema(description = "Состояние задания повторной обработки телеграмм")
+public record ReprocessJobResponse(
+        @Schema(description = "ID задания", example = "7")
+        Long jobId,
+        @Schema(description = "Статус задания", example = "RUNNING")
+        String status,
+        @Schema(description = "Первый id телеграммы диапазона", example = "1")
+        long fromRawId,
+        @Schema(description = "Последний id телеграммы диапазона", example = "50000000")
+        long toRawId,
+        @Schema(description = "Диапазонов (партиций) всего", example = "16")
+        int partitions,
+        @Schema(description = "Диапазонов завершено", example = "5")
+        int partitionsCompleted,
+        @Schema(description = "Прочитано телеграмм", example = "12000000")
+        long rowsRead,
+        @Schema(description = "Вставлено или обновлено полетов", example = "11990000")
+        long rowsProcessed,
+        @Schema(description = "Не удалось разобрать", example = "10000")
+        long rowsFailed,
+        @Schema(description = "Скорость обработки, строк в секунду", example = "2500.0")
+        double rowsPerSecond,
+        @Schema(description = "Текст ошибки")
+        String errorMessage,
+        @Schema(description = "Дата создания")
+        LocalDateTime createdAt,
+        @Schema(description = "Дата запуска")
+        LocalDateTime startedAt,
+        @Schema(description = "Дата завершения")
+        LocalDateTime finishedAt
+) {
+}
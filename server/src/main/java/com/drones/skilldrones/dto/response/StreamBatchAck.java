@@ -0,0 +1,24 @@
+package com.drones.skilldrones.dto.response;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+@Schema(description = "Подтверждение пакета потоковой загрузки (одна строка NDJSON на пакет)")
+public record StreamBatchAck(
+        @Schema(description = "Номер пакета в потоке", example = "1")
+        long batch,
+        @Schema(description = "Номер первой строки пакета", example = "1")
+        long firstLine,
+        @Schema(description = "Номер последней строки пакета", example = "500")
+        long lastLine,
+        @Schema(description = "Сохранено полетов", example = "498")
+        int saved,
+        @Schema(description = "Пропущено повторов", example = "1")
+        int duplicates,
+        @Schema(description = "Не удалось обработать", example = "1")
+        int failed,
+        @Schema(description = "Наибольшая задержка от приема строки до сохранения, мс", example = "42")
+        long maxLatencyMs,
+        @Schema(description = "Текст ошибки")
+        String error
+) {
+}
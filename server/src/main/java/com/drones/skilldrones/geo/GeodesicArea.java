@@ -0,0 +1,69 @@
+package com.drones.skilldrones.geo;
+
+import org.locationtech.jts.geom.CoordinateSequence;
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.geom.GeometryCollection;
+import org.locationtech.jts.geom.Polygon;
+
+/**
+ * Площадь геометрии в координатах WGS 84 на эллипсоиде.
+ * Вершины переводятся в равновеликую цилиндрическую проекцию Ламберта для эллипсоида
+ * (x = a·λ, y = a·q(φ)/2), где площадь фигуры сохраняется, и площадь считается по формуле Гаусса.
+ * В отличие от getArea() в градусах, не завышает площадь северных регионов.
+ */
+public final class GeodesicArea {
+    // Большая полуось и эксцентриситет WGS 84, км
+    private static final double A = 6378.137;
+    private static final double E2 = 0.00669437999014;
+    private static final double E = Math.sqrt(E2);
+
+    private GeodesicArea() {
+    }
+
+    /**
+     * Площадь полигонов геометрии в км² (дырки вычитаются, точки и линии не учитываются)
+     */
+    public static double km2(Geometry geometry) {
+        double area = 0;
+        for (int i = 0; i < geometry.getNumGeometries(); i++) {
+            Geometry part = geometry.getGeometryN(i);
+            if (part instanceof Polygon polygon) {
+                area += ringArea(polygon.getExteriorRing().getCoordinateSequence());
+                for (int h = 0; h < polygon.getNumInteriorRing(); h++) {
+                    area -= ringArea(polygon.getInteriorRingN(h).getCoordinateSequence());
+                }
+            } else if (part instanceof GeometryCollection) {
+                area += km2(part);
+            }
+        }
+        return area;
+    }
+
+    private static double ringArea(CoordinateSequence ring) {
+        int n = ring.size();
+        if (n < 4) {
+            return 0;
+        }
+        double sum = 0;
+        double x0 = Math.toRadians(ring.getX(0));
+        double y0 = q(ring.getY(0));
+        for (int i = 1; i < n; i++) {
+            double x1 = Math.toRadians(ring.getX(i));
+            double y1 = q(ring.getY(i));
+            sum += x0 * y1 - x1 * y0;
+            x0 = x1;
+            y0 = y1;
+        }
+        // x = a·λ, y = a·q/2
+        return Math.abs(sum) * A * A / 4;
+    }
+
+    /**
+     * Функция q(φ) равновеликих проекций эллипсоида
+     */
+    private static double q(double latitudeDegrees) {
+        double sin = Math.sin(Math.toRadians(latitudeDegrees));
+        double eSin = E * sin;
+        return (1 - E2) * (sin / (1 - eSin * eSin) - Math.log((1 - eSin) / (1 + eSin)) / (2 * E));
+    }
+}
@@ -0,0 +1,71 @@
+package com.drones.skilldrones.geo;
+
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.GeometryFactory;
+import org.locationtech.jts.geom.Point;
+import org.locationtech.jts.geom.PrecisionModel;
+import org.locationtech.jts.geom.impl.PackedCoordinateSequenceFactory;
+
+/**
+ * Общая фабрика геометрий (WGS 84) и преобразования координат телеграмм.
+ * GeometryFactory потокобезопасна, поэтому создается один раз на приложение.
+ */
+public final class Geometries {
+    public static final int SRID = 4326;
+
+    public static final GeometryFactory FACTORY = new GeometryFactory(
+            new PrecisionModel(), SRID, PackedCoordinateSequenceFactory.DOUBLE_FACTORY);
+
+    private Geometries() {
+    }
+
+    public static Point point(double lon, double lat) {
+        return FACTORY.createPoint(new Coordinate(lon, lat));
+    }
+
+    /**
+     * Точка из координат в угловых минутах (5957N02905E -> 3597, 1745)
+     */
+    public static Point pointFromArcMinutes(int latMinutes, int lonMinutes) {
+        return point(lonMinutes / 60.0, latMinutes / 60.0);
+    }
+
+    /**
+     * Разбирает строку "широта,долгота" в точку
+     */
+    public static Point parseLatLon(String coordinates) {
+        int comma = coordinates.indexOf(',');
+        double lat = Double.parseDouble(coordinates.substring(0, comma).trim());
+        double lon = Double.parseDouble(coordinates.substring(comma + 1).trim());
+        return point(lon, lat);
+    }
+
+    /**
+     * Строковое представление "широта,долгота" с шестью знаками после точки.
+     * Не зависит от локали и обходится без String.format
+     */
+    public static String formatLatLon(double lat, double lon) {
+        StringBuilder sb = new StringBuilder(24);
+        appendMicroDegrees(sb, Math.round(lat * 1_000_000));
+        sb.append(',');
+        appendMicroDegrees(sb, Math.round(lon * 1_000_000));
+        return sb.toString();
+    }
+
+    public static String formatPoint(Point point) {
+        return formatLatLon(point.getY(), point.getX());
+    }
+
+    private static void appendMicroDegrees(StringBuilder sb, long micro) {
+        if (micro < 0) {
+            sb.append('-');
+            micro = -micro;
+        }
+        sb.append(micro / 1_000_000).append('.');
+        long fraction = micro % 1_000_000;
+        for (long scale = 100_000; scale > fraction && scale > 1; scale /= 10) {
+            sb.append('0');
+        }
+        sb.append(fraction);
+    }
+}
@@ -0,0 +1,9 @@
+package com.drones.skilldrones.geo;
+
+import org.locationtech.jts.geom.Geometry;
+
+/**
+ * Граница региона для загрузки в базу: имя, площадь в км² и геометрия в WGS 84
+ */
+public record RegionBoundary(String name, Double areaKm2, Geometry geometry) {
+}
@@ -0,0 +1,267 @@
+package com.drones.skilldrones.geo;
+
+import com.drones.skilldrones.model.RegionGeometry;
+import org.locationtech.jts.geom.Envelope;
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.geom.Point;
+import org.locationtech.jts.geom.prep.PreparedGeometry;
+import org.locationtech.jts.index.strtree.STRtree;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.ShortBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+/**
+ * Предрасчитанная сетка "угловая минута -> регион".
+ * Координаты SHR задаются с точностью до угловой минуты, поэтому все возможные точки
+ * лежат в узлах этой сетки, и регион для каждого узла можно вычислить заранее.
+ * Сетка хранится в файле и отображается в память (memory-mapped), поэтому после рестарта
+ * не перестраивается. Значение узла: 0 - вне регионов, k - регион с индексом k-1.
+ */
+public final class RegionRaster {
+    private static final int MAGIC = 0x52475244; // "RGRD"
+    private static final int VERSION = 1;
+    private static final int BLOCK = 64;
+
+    private final long fingerprint;
+    private final int minLat;
+    private final int minLon;
+    private final int rows;
+    private final int cols;
+    private final long[] regionIds;
+    private final ShortBuffer cells;
+
+    private RegionRaster(long fingerprint, int minLat, int minLon, int rows, int cols,
+                         long[] regionIds, ShortBuffer cells) {
+        this.fingerprint = fingerprint;
+        this.minLat = minLat;
+        this.minLon = minLon;
+        this.rows = rows;
+        this.cols = cols;
+        this.regionIds = regionIds;
+        this.cells = cells;
+    }
+
+    public long getFingerprint() { return fingerprint; }
+    public long[] getRegionIds() { return regionIds; }
+
+    /**
+     * Индекс региона для узла сетки; -1 - вне регионов, -2 - узел за пределами сетки
+     */
+    public int lookup(int latMinutes, int lonMinutes) {
+        int row = latMinutes - minLat;
+        int col = lonMinutes - minLon;
+        if (row < 0 || row >= rows || col < 0 || col >= cols) {
+            return -2;
+        }
+        return cells.get(row * cols + col) - 1;
+    }
+
+    /**
+     * Открывает ранее построенную сетку; null, если файла нет или он построен для других регионов
+     */
+    public static RegionRaster open(Path file, long expectedFingerprint) throws IOException {
+        if (!Files.exists(file)) {
+            return null;
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+                return null;
+            }
+            long fingerprint = buffer.getLong();
+            if (fingerprint != expectedFingerprint) {
+                return null;
+            }
+            int minLat = buffer.getInt();
+            int minLon = buffer.getInt();
+            int rows = buffer.getInt();
+            int cols = buffer.getInt();
+            long[] regionIds = new long[buffer.getInt()];
+            for (int i = 0; i < regionIds.length; i++) {
+                regionIds[i] = buffer.getLong();
+            }
+            ShortBuffer cells = buffer.slice().asShortBuffer();
+            if (cells.remaining() < (long) rows * cols) {
+                return null;
+            }
+            return new RegionRaster(fingerprint, minLat, minLon, rows, cols, regionIds, cells);
+        }
+    }
+
+    /**
+     * Строит сетку по геометриям регионов и записывает ее в файл.
+     * Блоки узлов, целиком лежащие внутри одного региона или вне всех регионов, заполняются
+     * сразу. Блоки классифицируются по упрощенным границам; полная геометрия проверяется
+     * только для отдельных узлов в полосе у границы.
+     *
+     * @param geometries подготовленные геометрии, индекс в списке - индекс региона
+     * @param boundaries упрощенные границы тех же регионов (null - только полная геометрия)
+     */
+    static RegionRaster build(Path file, long fingerprint, long[] regionIds, List<PreparedGeometry> geometries,
+                              List<SimplifiedBoundary> boundaries, long maxCells) throws IOException {
+        if (regionIds.length >= Short.MAX_VALUE) {
+            return null;
+        }
+
+        STRtree tree = new STRtree();
+        Envelope extent = new Envelope();
+        for (int i = 0; i < geometries.size(); i++) {
+            Envelope envelope = geometries.get(i).getGeometry().getEnvelopeInternal();
+            extent.expandToInclude(envelope);
+            tree.insert(envelope, i);
+        }
+        tree.build();
+        if (extent.isNull()) {
+            return null;
+        }
+
+        int minLat = (int) Math.floor(extent.getMinY() * 60);
+        int minLon = (int) Math.floor(extent.getMinX() * 60);
+        int rows = (int) Math.ceil(extent.getMaxY() * 60) - minLat + 1;
+        int cols = (int) Math.ceil(extent.getMaxX() * 60) - minLon + 1;
+        if ((long) rows * cols > maxCells) {
+            return null;
+        }
+
+        int headerSize = 4 * 2 + 8 + 4 * 5 + 8 * regionIds.length;
+        long fileSize = headerSize + (long) rows * cols * 2;
+
+        Files.createDirectories(file.toAbsolutePath().getParent());
+        Path tmp = Files.createTempFile(file.toAbsolutePath().getParent(), "region-raster", ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, fileSize);
+                buffer.putInt(MAGIC).putInt(VERSION).putLong(fingerprint)
+                        .putInt(minLat).putInt(minLon).putInt(rows).putInt(cols)
+                        .putInt(regionIds.length);
+                for (long regionId : regionIds) {
+                    buffer.putLong(regionId);
+                }
+                ShortBuffer cells = buffer.slice().asShortBuffer();
+
+                Filler filler = new Filler(tree, geometries, boundaries, cells, minLat, minLon, cols);
+                for (int row = 0; row < rows; row += BLOCK) {
+                    for (int col = 0; col < cols; col += BLOCK) {
+                        filler.fill(row, Math.min(row + BLOCK, rows), col, Math.min(col + BLOCK, cols));
+                    }
+                }
+                buffer.force();
+            }
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+
+        return open(file, fingerprint);
+    }
+
+    /**
+     * Рекурсивное заполнение блоков сетки (квадродерево)
+     */
+    private static final class Filler {
+        private final STRtree tree;
+        private final List<PreparedGeometry> geometries;
+        private final List<SimplifiedBoundary> boundaries;
+        private final ShortBuffer cells;
+        private final int minLat;
+        private final int minLon;
+        private final int cols;
+
+        Filler(STRtree tree, List<PreparedGeometry> geometries, List<SimplifiedBoundary> boundaries,
+               ShortBuffer cells, int minLat, int minLon, int cols) {
+            this.tree = tree;
+            this.geometries = geometries;
+            this.boundaries = boundaries;
+            this.cells = cells;
+            this.minLat = minLat;
+            this.minLon = minLon;
+            this.cols = cols;
+        }
+
+        void fill(int row0, int row1, int col0, int col1) {
+            // Прямоугольник, проходящий через крайние узлы блока
+            Envelope block = new Envelope(
+                    (minLon + col0) / 60.0, (minLon + col1 - 1) / 60.0,
+                    (minLat + row0) / 60.0, (minLat + row1 - 1) / 60.0);
+
+            @SuppressWarnings("unchecked")
+            List<Integer> candidates = tree.query(block);
+            if (candidates.isEmpty()) {
+                return; // узлы уже равны 0 - вне регионов
+            }
+
+            if (row1 - row0 == 1 && col1 - col0 == 1) {
+                Point point = Geometries.point(block.getMinX(), block.getMinY());
+                for (Integer candidate : candidates) {
+                    int side = SimplifiedBoundary.classify(boundaries.get(candidate), point);
+                    if (side == SimplifiedBoundary.INSIDE
+                            || side == SimplifiedBoundary.BORDER && geometries.get(candidate).contains(point)) {
+                        cells.put(row0 * cols + col0, (short) (candidate + 1));
+                        return;
+                    }
+                }
+                return;
+            }
+
+            Geometry rectangle = Geometries.FACTORY.toGeometry(block);
+            boolean touched = false;
+            for (Integer candidate : candidates) {
+                SimplifiedBoundary boundary = boundaries.get(candidate);
+                int side;
+                if (boundary != null) {
+                    // Блок у границы делится дальше без проверки по полной геометрии
+                    side = boundary.classify(rectangle);
+                } else {
+                    PreparedGeometry geometry = geometries.get(candidate);
+                    side = geometry.containsProperly(rectangle) ? SimplifiedBoundary.INSIDE
+                            : geometry.intersects(rectangle) ? SimplifiedBoundary.BORDER : SimplifiedBoundary.OUTSIDE;
+                }
+                if (side == SimplifiedBoundary.INSIDE) {
+                    short value = (short) (candidate + 1);
+                    for (int row = row0; row < row1; row++) {
+                        for (int col = col0; col < col1; col++) {
+                            cells.put(row * cols + col, value);
+                        }
+                    }
+                    return;
+                }
+                touched |= side == SimplifiedBoundary.BORDER;
+            }
+            if (!touched) {
+                return;
+            }
+
+            int rowMid = (row0 + row1 + 1) / 2;
+            int colMid = (col0 + col1 + 1) / 2;
+            fill(row0, rowMid, col0, colMid);
+            if (colMid < col1) fill(row0, rowMid, colMid, col1);
+            if (rowMid < row1) fill(rowMid, row1, col0, colMid);
+            if (rowMid < row1 && colMid < col1) fill(rowMid, row1, colMid, col1);
+        }
+    }
+
+    /**
+     * Контрольная сумма набора регионов: при любом изменении файл сетки строится заново
+     */
+    public static long fingerprint(List<RegionGeometry> regions) {
+        long hash = VERSION;
+        for (RegionGeometry region : regions) {
+            Geometry geometry = region.getGeometry();
+            hash = hash * 31 + region.getRegionId();
+            hash = hash * 31 + (region.getUpdatedAt() != null ? region.getUpdatedAt().hashCode() : 0);
+            if (geometry != null) {
+                Envelope envelope = geometry.getEnvelopeInternal();
+                hash = hash * 31 + geometry.getNumPoints();
+                hash = hash * 31 + envelope.hashCode();
+            }
+        }
+        return hash;
+    }
+}
@@ -0,0 +1,296 @@
+package com.drones.skilldrones.geo;
+
+import com.drones.skilldrones.model.Region;
+import com.drones.skilldrones.model.RegionGeometry;
+import com.drones.skilldrones.repository.RegionGeometryRepository;
+import com.drones.skilldrones.repository.RegionRepository;
+import org.locationtech.jts.geom.Envelope;
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.geom.Point;
+import org.locationtech.jts.geom.prep.PreparedGeometry;
+import org.locationtech.jts.geom.prep.PreparedGeometryFactory;
+import org.locationtech.jts.index.strtree.STRtree;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Индекс регионов в памяти: STR-дерево по PreparedGeometry границ.
+ * Поиск региона по точке выполняется без обращения к базе данных.
+ * Снимок индекса неизменяем и заменяется целиком при перестроении (copy-on-write),
+ * поэтому читатели никогда не видят частично построенное дерево.
+ * Для точек в узлах сетки угловых минут (все координаты SHR) сначала проверяется
+ * предрасчитанная сетка RegionRaster, и геометрические вычисления не нужны.
+ * Остальные точки сначала проверяются по упрощенной границе (самый детальный уровень
+ * app.geo.levels.tolerances); полная геометрия нужна только для точек у границы.
+ * Если индекс в памяти отключен (очень большой или часто меняющийся набор регионов),
+ * пакеты точек геопривязываются одним SQL-запросом, а не по запросу на точку.
+ */
+@Component
+public class RegionSpatialIndex {
+
+    private static final int SQL_BATCH_SIZE = 10_000;
+
+    private final RegionRepository regionRepository;
+    private final RegionGeometryRepository regionGeometryRepository;
+    private final boolean indexEnabled;
+    private final boolean rasterEnabled;
+    private final Path rasterFile;
+    private final long rasterMaxCells;
+    private final double boundaryTolerance;
+    private volatile Snapshot snapshot = Snapshot.NOT_LOADED;
+
+    public RegionSpatialIndex(RegionRepository regionRepository,
+                              RegionGeometryRepository regionGeometryRepository,
+                              @Value("${app.geo.index.enabled:true}") boolean indexEnabled,
+                              @Value("${app.geo.raster.enabled:true}") boolean rasterEnabled,
+                              @Value("${app.geo.raster.file:./data/region-raster.bin}") String rasterFile,
+                              @Value("${app.geo.raster.max-cells:150000000}") long rasterMaxCells,
+                              @Value("${app.geo.levels.tolerances:0.001,0.01,0.05}") double[] tolerances) {
+        this.regionRepository = regionRepository;
+        this.regionGeometryRepository = regionGeometryRepository;
+        this.indexEnabled = indexEnabled;
+        this.rasterEnabled = rasterEnabled;
+        this.rasterFile = Path.of(rasterFile);
+        this.rasterMaxCells = rasterMaxCells;
+        this.boundaryTolerance = Arrays.stream(tolerances).filter(tolerance -> tolerance > 0).min().orElse(0);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        rebuild();
+    }
+
+    @EventListener
+    public void onRegionsUpdated(RegionsUpdatedEvent event) {
+        rebuild();
+    }
+
+    /**
+     * Загружает регионы из базы и атомарно подменяет снимок индекса
+     */
+    public synchronized void rebuild() {
+        if (!indexEnabled) {
+            return;
+        }
+
+        Snapshot built;
+        List<RegionGeometry> geometries;
+        try {
+            Map<Long, Region> regionsById = new HashMap<>();
+            regionRepository.findAll().forEach(region -> regionsById.put(region.getRegionId(), region));
+            geometries = regionGeometryRepository.findAllWithGeometry().stream()
+                    .filter(geometry -> !geometry.getGeometry().isEmpty()
+                            && regionsById.containsKey(geometry.getRegionId()))
+                    .toList();
+            built = Snapshot.build(regionsById, geometries, boundaryTolerance);
+            snapshot = built;
+        } catch (Exception e) {
+            // Остается предыдущий снимок; если его нет - работает запрос к базе
+            System.err.println("Ошибка построения индекса регионов: " + e.getMessage());
+            return;
+        }
+
+        if (rasterEnabled) {
+            try {
+                snapshot = built.withRaster(loadOrBuildRaster(built, geometries));
+            } catch (Exception e) {
+                System.err.println("Ошибка построения сетки регионов: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Открывает сетку из файла, если она построена для текущего набора регионов, иначе строит заново
+     */
+    private RegionRaster loadOrBuildRaster(Snapshot built, List<RegionGeometry> geometries) throws Exception {
+        long fingerprint = RegionRaster.fingerprint(geometries);
+        RegionRaster raster = RegionRaster.open(rasterFile, fingerprint);
+        if (raster != null) {
+            return raster;
+        }
+
+        long[] regionIds = built.regions.stream().mapToLong(Region::getRegionId).toArray();
+        return RegionRaster.build(rasterFile, fingerprint, regionIds, built.prepared, built.boundaries,
+                rasterMaxCells);
+    }
+
+    public boolean isReady() {
+        return snapshot.ready;
+    }
+
+    public int size() {
+        return snapshot.size();
+    }
+
+    /**
+     * Находит регион, содержащий точку. Пока индекс не загружен, используется запрос к базе
+     */
+    public Optional<Region> findRegion(Point point) {
+        if (point == null) {
+            return Optional.empty();
+        }
+        Snapshot current = snapshot;
+        if (!current.ready) {
+            return regionRepository.findRegionByPoint(point);
+        }
+
+        if (current.raster != null) {
+            double lat = point.getY() * 60;
+            double lon = point.getX() * 60;
+            long latMinutes = Math.round(lat);
+            long lonMinutes = Math.round(lon);
+            if (Math.abs(lat - latMinutes) < 1e-6 && Math.abs(lon - lonMinutes) < 1e-6) {
+                int index = current.raster.lookup((int) latMinutes, (int) lonMinutes);
+                if (index >= 0) {
+                    return Optional.of(current.regions.get(index));
+                }
+                if (index == -1) {
+                    return Optional.empty();
+                }
+            }
+        }
+        return Optional.ofNullable(current.locate(point));
+    }
+
+    /**
+     * Геопривязка пакета точек. Результат - массив той же длины, null для точек вне регионов
+     */
+    public Region[] findRegions(List<Point> points) {
+        Region[] result = new Region[points.size()];
+        Snapshot current = snapshot;
+        if (current.ready) {
+            for (int i = 0; i < result.length; i++) {
+                result[i] = findRegion(points.get(i)).orElse(null);
+            }
+            return result;
+        }
+
+        for (int from = 0; from < result.length; from += SQL_BATCH_SIZE) {
+            int to = Math.min(from + SQL_BATCH_SIZE, result.length);
+            findRegionsInDatabase(points, from, to, result);
+        }
+        return result;
+    }
+
+    private void findRegionsInDatabase(List<Point> points, int from, int to, Region[] result) {
+        int[] positions = new int[to - from];
+        double[] lons = new double[to - from];
+        double[] lats = new double[to - from];
+        int count = 0;
+        for (int i = from; i < to; i++) {
+            Point point = points.get(i);
+            if (point == null) continue;
+            positions[count] = i;
+            lons[count] = point.getX();
+            lats[count] = point.getY();
+            count++;
+        }
+        if (count == 0) {
+            return;
+        }
+        if (count < positions.length) {
+            lons = Arrays.copyOf(lons, count);
+            lats = Arrays.copyOf(lats, count);
+        }
+
+        List<RegionRepository.PointRegionMatch> matches = regionRepository.findRegionIdsByPoints(lons, lats);
+        if (matches.isEmpty()) {
+            return;
+        }
+
+        List<Long> regionIds = matches.stream()
+                .map(RegionRepository.PointRegionMatch::getRegionId)
+                .distinct()
+                .toList();
+        Map<Long, Region> regionsById = new HashMap<>();
+        regionRepository.findAllById(regionIds).forEach(region -> regionsById.put(region.getRegionId(), region));
+
+        for (RegionRepository.PointRegionMatch match : matches) {
+            result[positions[match.getPointIndex()]] = regionsById.get(match.getRegionId());
+        }
+    }
+
+    private record Entry(Region region, PreparedGeometry geometry, SimplifiedBoundary boundary) {
+    }
+
+    private static final class Snapshot {
+        static final Snapshot NOT_LOADED = new Snapshot(new STRtree(), List.of(), List.of(), List.of(), null, false);
+
+        final STRtree tree;
+        final List<Region> regions;
+        final List<PreparedGeometry> prepared;
+        final List<SimplifiedBoundary> boundaries;
+        final RegionRaster raster;
+        final boolean ready;
+
+        private Snapshot(STRtree tree, List<Region> regions, List<PreparedGeometry> prepared,
+                         List<SimplifiedBoundary> boundaries, RegionRaster raster, boolean ready) {
+            this.tree = tree;
+            this.regions = regions;
+            this.prepared = prepared;
+            this.boundaries = boundaries;
+            this.raster = raster;
+            this.ready = ready;
+        }
+
+        /**
+         * @param geometries границы регионов, индекс в списке становится индексом региона в снимке
+         */
+        static Snapshot build(Map<Long, Region> regionsById, List<RegionGeometry> geometries,
+                              double boundaryTolerance) {
+            List<Region> regions = geometries.stream()
+                    .map(geometry -> regionsById.get(geometry.getRegionId()))
+                    .toList();
+            // Упрощение больших границ - самая долгая часть построения, регионы обрабатываются параллельно
+            List<SimplifiedBoundary> boundaries = Arrays.asList(geometries.parallelStream()
+                    .map(geometry -> SimplifiedBoundary.of(geometry.getGeometry(), boundaryTolerance))
+                    .toArray(SimplifiedBoundary[]::new));
+
+            STRtree tree = new STRtree();
+            List<PreparedGeometry> prepared = new ArrayList<>();
+            for (int i = 0; i < regions.size(); i++) {
+                Region region = regions.get(i);
+                Geometry geometry = geometries.get(i).getGeometry();
+                PreparedGeometry preparedGeometry = PreparedGeometryFactory.prepare(geometry);
+                tree.insert(geometry.getEnvelopeInternal(), new Entry(region, preparedGeometry, boundaries.get(i)));
+                prepared.add(preparedGeometry);
+            }
+            // Дерево строится сразу, после этого оно только читается и безопасно для потоков
+            tree.build();
+            return new Snapshot(tree, regions, List.copyOf(prepared), Collections.unmodifiableList(boundaries),
+                    null, true);
+        }
+
+        Snapshot withRaster(RegionRaster raster) {
+            return new Snapshot(tree, regions, prepared, boundaries, raster, ready);
+        }
+
+        int size() {
+            return regions.size();
+        }
+
+        Region locate(Point point) {
+            @SuppressWarnings("unchecked")
+            List<Entry> candidates = tree.query(new Envelope(point.getCoordinate()));
+            for (Entry candidate : candidates) {
+                int side = SimplifiedBoundary.classify(candidate.boundary(), point);
+                if (side == SimplifiedBoundary.INSIDE
+                        || side == SimplifiedBoundary.BORDER && candidate.geometry().contains(point)) {
+                    return candidate.region();
+                }
+            }
+            return null;
+        }
+    }
+}
@@ -0,0 +1,8 @@
+package com.drones.skilldrones.geo;
+
+/**
+ * Событие изменения набора регионов (загрузка или правка границ).
+ * Компоненты, кэширующие геометрии регионов, перестраиваются по нему
+ */
+public record RegionsUpdatedEvent(int regionCount) {
+}
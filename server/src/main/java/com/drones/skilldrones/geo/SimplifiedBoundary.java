@@ -0,0 +1,61 @@
+package com.drones.skilldrones.geo;
+
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.geom.prep.PreparedGeometry;
+import org.locationtech.jts.geom.prep.PreparedGeometryFactory;
+import org.locationtech.jts.operation.distance.IndexedFacetDistance;
+import org.locationtech.jts.simplify.TopologyPreservingSimplifier;
+
+/**
+ * Упрощенная граница региона для быстрой проверки принадлежности.
+ * TopologyPreservingSimplifier с допуском tolerance сдвигает границу не дальше чем на tolerance,
+ * поэтому объект, отстоящий от упрощенной границы больше чем на 2 * tolerance, лежит по ту же
+ * сторону и от полной границы. Полная геометрия нужна только в полосе у границы (BORDER).
+ */
+final class SimplifiedBoundary {
+    static final int OUTSIDE = 0;
+    static final int INSIDE = 1;
+    static final int BORDER = 2;
+
+    private final PreparedGeometry area;
+    private final IndexedFacetDistance boundary;
+    private final double margin;
+
+    private SimplifiedBoundary(Geometry simplified, double margin) {
+        this.area = PreparedGeometryFactory.prepare(simplified);
+        this.boundary = new IndexedFacetDistance(simplified);
+        this.margin = margin;
+    }
+
+    /**
+     * null, если упрощение отключено (tolerance <= 0) или выродило геометрию
+     */
+    static SimplifiedBoundary of(Geometry geometry, double tolerance) {
+        if (tolerance <= 0) {
+            return null;
+        }
+        Geometry simplified = TopologyPreservingSimplifier.simplify(geometry, tolerance);
+        if (simplified.isEmpty()) {
+            return null;
+        }
+        return new SimplifiedBoundary(simplified, 2 * tolerance);
+    }
+
+    /**
+     * Положение точки или прямоугольника относительно региона: INSIDE, OUTSIDE или BORDER
+     */
+    int classify(Geometry geometry) {
+        if (boundary.isWithinDistance(geometry, margin)) {
+            return BORDER;
+        }
+        if (area.containsProperly(geometry)) {
+            return INSIDE;
+        }
+        // Прямоугольник, внутри которого целиком лежит регион, тоже пересекает его
+        return area.intersects(geometry) ? BORDER : OUTSIDE;
+    }
+
+    static int classify(SimplifiedBoundary boundary, Geometry geometry) {
+        return boundary != null ? boundary.classify(geometry) : BORDER;
+    }
+}
@@ -1,5 +1,6 @@
 package com.drones.skilldrones.model;
 
+import com.drones.skilldrones.geo.Geometries;
 import jakarta.persistence.*;
 import org.locationtech.jts.geom.Point;
 import java.time.LocalDate;
@@ -40,11 +41,12 @@ public class Flight {
     @Column(columnDefinition = "geometry(Point,4326)")
     private Point arrivalPoint;
 
-    @ManyToOne
+    // Регионы загружаются по первому обращению, пачками (@BatchSize у Region)
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "departure_region_id")
     private Region departureRegion;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "arrival_region_id")
     private Region arrivalRegion;
 
@@ -57,6 +59,23 @@ public class Flight {
         this.updatedAt = LocalDateTime.now();
     }
 
+    // Строковые координаты строятся из точек один раз, непосредственно перед сохранением
+    @PrePersist
+    public void onPersist() {
+        fillCoordinates();
+    }
+
+    public void fillCoordinates() {
+        if (departureCoords == null && departurePoint != null) {
+            departureCoords = Geometries.formatPoint(departurePoint);
+        }
+        if (arrivalCoords == null && arrivalPoint != null) {
+            arrivalCoords = departurePoint != null && arrivalPoint.equalsExact(departurePoint)
+                    ? departureCoords
+                    : Geometries.formatPoint(arrivalPoint);
+        }
+    }
+
     public Long getFlightId() {
         return flightId;
     }
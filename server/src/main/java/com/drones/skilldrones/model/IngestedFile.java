@@ -0,0 +1,81 @@
+package com.drones.skilldrones.model;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "ingested_files")
+public class IngestedFile {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long fileId;
+
+    // SHA-256 содержимого файла в hex
+    @Column(name = "sha256", length = 64, unique = true)
+    private String sha256;
+
+    private String fileName;
+    private long rowsRead;
+    private long rowsProcessed;
+    private LocalDateTime ingestedAt;
+
+    public IngestedFile() {
+        this.ingestedAt = LocalDateTime.now();
+    }
+
+    public IngestedFile(String sha256, String fileName, long rowsRead, long rowsProcessed) {
+        this();
+        this.sha256 = sha256;
+        this.fileName = fileName;
+        this.rowsRead = rowsRead;
+        this.rowsProcessed = rowsProcessed;
+    }
+
+    public Long getFileId() {
+        return fileId;
+    }
+
+    public void setFileId(Long fileId) {
+        this.fileId = fileId;
+    }
+
+    public String getSha256() {
+        return sha256;
+    }
+
+    public void setSha256(String sha256) {
+        this.sha256 = sha256;
+    }
+
+    public String getFileName() {
+        return fileName;
+    }
+
+    public void setFileName(String fileName) {
+        this.fileName = fileName;
+    }
+
+    public long getRowsRead() {
+        return rowsRead;
+    }
+
+    public void setRowsRead(long rowsRead) {
+        this.rowsRead = rowsRead;
+    }
+
+    public long getRowsProcessed() {
+        return rowsProcessed;
+    }
+
+    public void setRowsProcessed(long rowsProcessed) {
+        this.rowsProcessed = rowsProcessed;
+    }
+
+    public LocalDateTime getIngestedAt() {
+        return ingestedAt;
+    }
+
+    public void setIngestedAt(LocalDateTime ingestedAt) {
+        this.ingestedAt = ingestedAt;
+    }
+}
@@ -2,6 +2,7 @@ package com.drones.skilldrones.model;
 
 import jakarta.persistence.*;
 import java.time.LocalDateTime;
+import java.util.HexFormat;
 
 @Entity
 @Table(name = "raw_telegrams")
@@ -24,6 +25,14 @@ public class RawTelegram {
     private String fileName;
     private LocalDateTime processedAt;
     private String processingStatus;
+
+    // Нормализованный хеш (SHR id + DOF + координаты) для отсева повторов
+    @Column(name = "telegram_hash", length = 64)
+    private String telegramHash;
+
+    // Тот же хеш в байтах: до сохранения телеграммы hex не строится
+    @Transient
+    private byte[] telegramDigest;
     
     // ДОБАВЬТЕ ЭТИ СЕТТЕРЫ:
     public void setId(Long id) { this.id = id; }
@@ -34,6 +43,14 @@ public class RawTelegram {
     public void setFileName(String fileName) { this.fileName = fileName; }
     public void setProcessedAt(LocalDateTime processedAt) { this.processedAt = processedAt; }
     public void setProcessingStatus(String processingStatus) { this.processingStatus = processingStatus; }
+    public void setTelegramHash(String telegramHash) {
+        this.telegramHash = telegramHash;
+        this.telegramDigest = null;
+    }
+    public void setTelegramDigest(byte[] telegramDigest) {
+        this.telegramDigest = telegramDigest;
+        this.telegramHash = null;
+    }
     
     // И ДОБАВЬТЕ ГЕТТЕРЫ:
     public Long getId() { return id; }
@@ -44,4 +61,21 @@ public class RawTelegram {
     public String getFileName() { return fileName; }
     public LocalDateTime getProcessedAt() { return processedAt; }
     public String getProcessingStatus() { return processingStatus; }
+    public byte[] getTelegramDigest() { return telegramDigest; }
+
+    /**
+     * Хеш в hex; из байтов строится при первом обращении (запрос повторов или запись в базу)
+     */
+    public String getTelegramHash() {
+        if (telegramHash == null && telegramDigest != null) {
+            telegramHash = HexFormat.of().formatHex(telegramDigest);
+        }
+        return telegramHash;
+    }
+
+    @PrePersist
+    @PreUpdate
+    void formatTelegramHash() {
+        getTelegramHash();
+    }
 }
@@ -1,11 +1,22 @@
 package com.drones.skilldrones.model;
 
 import jakarta.persistence.*;
-import org.locationtech.jts.geom.Geometry;
+import org.hibernate.annotations.BatchSize;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import java.time.LocalDateTime;
 
+/**
+ * Регион без границы: полеты ссылаются на него лениво, прокси инициализируются пачками.
+ * Геометрия той же строки regions читается отдельно через RegionGeometry.
+ * Справочник меняется редко и хранится в кэше второго уровня; при загрузке границ
+ * в обход Hibernate (RegionBulkLoader) кэш сбрасывается явно
+ */
 @Entity
 @Table(name = "regions")
+@BatchSize(size = 100)
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
 public class Region {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -16,9 +27,6 @@ public class Region {
     
     private Double areaKm2;
     
-    @Column(columnDefinition = "geometry(Geometry,4326)")
-    private Geometry geometry;
-    
     @Column(name = "created_at")
     private LocalDateTime createdAt;
     
@@ -34,7 +42,6 @@ public class Region {
     public void setRegionId(Long regionId) { this.regionId = regionId; }
     public void setName(String name) { this.name = name; }
     public void setAreaKm2(Double areaKm2) { this.areaKm2 = areaKm2; }
-    public void setGeometry(Geometry geometry) { this.geometry = geometry; }
     public void setCreatedAt(LocalDateTime createdAt) { this.createdAt = createdAt; }
     public void setUpdatedAt(LocalDateTime updatedAt) { this.updatedAt = updatedAt; }
     
@@ -42,7 +49,6 @@ public class Region {
     public Long getRegionId() { return regionId; }
     public String getName() { return name; }
     public Double getAreaKm2() { return areaKm2; }
-    public Geometry getGeometry() { return geometry; }
     public LocalDateTime getCreatedAt() { return createdAt; }
     public LocalDateTime getUpdatedAt() { return updatedAt; }
 }
@@ -0,0 +1,34 @@
+package com.drones.skilldrones.model;
+
+import jakarta.persistence.*;
+import org.hibernate.annotations.Immutable;
+import org.locationtech.jts.geom.Geometry;
+import java.time.LocalDateTime;
+
+/**
+ * Граница региона: сущность только для чтения над той же таблицей regions.
+ * Region (имя, площадь) загружается вместе с полетами и отчетами без геометрии,
+ * а граница читается только там, где она нужна (индекс регионов, сетка).
+ * Границы записываются через RegionBulkLoader.
+ */
+@Entity
+@Immutable
+@Table(name = "regions")
+public class RegionGeometry {
+    @Id
+    @Column(name = "region_id")
+    private Long regionId;
+
+    @Column(columnDefinition = "geometry(Geometry,4326)")
+    private Geometry geometry;
+
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+
+    protected RegionGeometry() {
+    }
+
+    public Long getRegionId() { return regionId; }
+    public Geometry getGeometry() { return geometry; }
+    public LocalDateTime getUpdatedAt() { return updatedAt; }
+}
@@ -0,0 +1,184 @@
+package com.drones.skilldrones.model;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "rejected_telegrams")
+public class RejectedTelegram {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long rejectedId;
+
+    // Телеграмма, если она уже была сохранена в raw_telegrams
+    private Long rawId;
+
+    private String center;
+
+    @Column(name = "shr_raw_text", columnDefinition = "TEXT")
+    private String shrRawText;
+
+    @Column(name = "dep_raw_text", columnDefinition = "TEXT")
+    private String depRawText;
+
+    @Column(name = "arr_raw_text", columnDefinition = "TEXT")
+    private String arrRawText;
+
+    private String fileName;
+
+    // Этап, на котором телеграмма отклонена: PARSE или PERSIST
+    private String stage;
+
+    @Column(columnDefinition = "TEXT")
+    private String reason;
+
+    @Enumerated(EnumType.STRING)
+    private RejectStatus status;
+
+    // Сколько раз телеграмма не прошла обработку (первая ошибка и неудачные повторы)
+    private int attempts;
+
+    private LocalDateTime createdAt;
+    private LocalDateTime redrivenAt;
+
+    public enum RejectStatus {
+        REJECTED, REDRIVEN
+    }
+
+    public RejectedTelegram() {
+        this.createdAt = LocalDateTime.now();
+        this.status = RejectStatus.REJECTED;
+        this.attempts = 1;
+    }
+
+    public RejectedTelegram(RawTelegram telegram, String stage, String reason) {
+        this();
+        this.rawId = telegram.getId();
+        this.center = telegram.getCenter();
+        this.shrRawText = telegram.getShrRawText();
+        this.depRawText = telegram.getDepRawText();
+        this.arrRawText = telegram.getArrRawText();
+        this.fileName = telegram.getFileName();
+        this.stage = stage;
+        this.reason = reason;
+    }
+
+    /**
+     * Восстанавливает телеграмму для повторной обработки
+     */
+    public RawTelegram toRawTelegram() {
+        RawTelegram telegram = new RawTelegram();
+        telegram.setId(rawId);
+        telegram.setCenter(center);
+        telegram.setShrRawText(shrRawText);
+        telegram.setDepRawText(depRawText);
+        telegram.setArrRawText(arrRawText);
+        telegram.setFileName(fileName);
+        telegram.setProcessingStatus("PENDING");
+        return telegram;
+    }
+
+    public Long getRejectedId() {
+        return rejectedId;
+    }
+
+    public void setRejectedId(Long rejectedId) {
+        this.rejectedId = rejectedId;
+    }
+
+    public Long getRawId() {
+        return rawId;
+    }
+
+    public void setRawId(Long rawId) {
+        this.rawId = rawId;
+    }
+
+    public String getCenter() {
+        return center;
+    }
+
+    public void setCenter(String center) {
+        this.center = center;
+    }
+
+    public String getShrRawText() {
+        return shrRawText;
+    }
+
+    public void setShrRawText(String shrRawText) {
+        this.shrRawText = shrRawText;
+    }
+
+    public String getDepRawText() {
+        return depRawText;
+    }
+
+    public void setDepRawText(String depRawText) {
+        this.depRawText = depRawText;
+    }
+
+    public String getArrRawText() {
+        return arrRawText;
+    }
+
+    public void setArrRawText(String arrRawText) {
+        this.arrRawText = arrRawText;
+    }
+
+    public String getFileName() {
+        return fileName;
+    }
+
+    public void setFileName(String fileName) {
+        this.fileName = fileName;
+    }
+
+    public String getStage() {
+        return stage;
+    }
+
+    public void setStage(String stage) {
+        this.stage = stage;
+    }
+
+    public String getReason() {
+        return reason;
+    }
+
+    public void setReason(String reason) {
+        this.reason = reason;
+    }
+
+    public RejectStatus getStatus() {
+        return status;
+    }
+
+    public void setStatus(RejectStatus status) {
+        this.status = status;
+    }
+
+    public int getAttempts() {
+        return attempts;
+    }
+
+    public void setAttempts(int attempts) {
+        this.attempts = attempts;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(LocalDateTime createdAt) {
+        this.createdAt = createdAt;
+    }
+
+    public LocalDateTime getRedrivenAt() {
+        return redrivenAt;
+    }
+
+    public void setRedrivenAt(LocalDateTime redrivenAt) {
+        this.redrivenAt = redrivenAt;
+    }
+}
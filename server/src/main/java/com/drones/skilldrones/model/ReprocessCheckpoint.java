@@ -0,0 +1,121 @@
+package com.drones.skilldrones.model;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * Диапазон телеграмм [rangeStart, rangeEnd] задания повторной обработки и место, где он остановился
+ */
+@Entity
+@Table(name = "reprocess_checkpoints")
+public class ReprocessCheckpoint {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long checkpointId;
+
+    private Long jobId;
+
+    private long rangeStart;
+    private long rangeEnd;
+
+    // Последний обработанный id; продолжение - с lastRawId + 1
+    private long lastRawId;
+
+    private long rowsRead;
+    private long rowsProcessed;
+    private long rowsFailed;
+    private boolean completed;
+    private LocalDateTime updatedAt;
+
+    public ReprocessCheckpoint() {
+        this.updatedAt = LocalDateTime.now();
+    }
+
+    public ReprocessCheckpoint(Long jobId, long rangeStart, long rangeEnd) {
+        this();
+        this.jobId = jobId;
+        this.rangeStart = rangeStart;
+        this.rangeEnd = rangeEnd;
+        this.lastRawId = rangeStart - 1;
+    }
+
+    public Long getCheckpointId() {
+        return checkpointId;
+    }
+
+    public void setCheckpointId(Long checkpointId) {
+        this.checkpointId = checkpointId;
+    }
+
+    public Long getJobId() {
+        return jobId;
+    }
+
+    public void setJobId(Long jobId) {
+        this.jobId = jobId;
+    }
+
+    public long getRangeStart() {
+        return rangeStart;
+    }
+
+    public void setRangeStart(long rangeStart) {
+        this.rangeStart = rangeStart;
+    }
+
+    public long getRangeEnd() {
+        return rangeEnd;
+    }
+
+    public void setRangeEnd(long rangeEnd) {
+        this.rangeEnd = rangeEnd;
+    }
+
+    public long getLastRawId() {
+        return lastRawId;
+    }
+
+    public void setLastRawId(long lastRawId) {
+        this.lastRawId = lastRawId;
+    }
+
+    public long getRowsRead() {
+        return rowsRead;
+    }
+
+    public void setRowsRead(long rowsRead) {
+        this.rowsRead = rowsRead;
+    }
+
+    public long getRowsProcessed() {
+        return rowsProcessed;
+    }
+
+    public void setRowsProcessed(long rowsProcessed) {
+        this.rowsProcessed = rowsProcessed;
+    }
+
+    public long getRowsFailed() {
+        return rowsFailed;
+    }
+
+    public void setRowsFailed(long rowsFailed) {
+        this.rowsFailed = rowsFailed;
+    }
+
+    public boolean isCompleted() {
+        return completed;
+    }
+
+    public void setCompleted(boolean completed) {
+        this.completed = completed;
+    }
+
+    public LocalDateTime getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public void setUpdatedAt(LocalDateTime updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+}
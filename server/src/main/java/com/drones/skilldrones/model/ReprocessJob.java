@@ -0,0 +1,153 @@
+package com.drones.skilldrones.model;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "reprocess_jobs")
+public class ReprocessJob {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long jobId;
+
+    @Enumerated(EnumType.STRING)
+    private JobStatus status;
+
+    // Диапазон raw_telegrams.id, включительно
+    private long fromRawId;
+    private long toRawId;
+
+    private long rowsRead;
+    private long rowsProcessed;
+    private long rowsFailed;
+
+    private String errorMessage;
+    private LocalDateTime createdAt;
+    private LocalDateTime startedAt;
+    private LocalDateTime finishedAt;
+    private LocalDateTime updatedAt;
+
+    public enum JobStatus {
+        QUEUED, RUNNING, COMPLETED, FAILED, CANCELLED, INTERRUPTED
+    }
+
+    public ReprocessJob() {
+        this.createdAt = LocalDateTime.now();
+        this.updatedAt = LocalDateTime.now();
+        this.status = JobStatus.QUEUED;
+    }
+
+    public Long getJobId() {
+        return jobId;
+    }
+
+    public void setJobId(Long jobId) {
+        this.jobId = jobId;
+    }
+
+    public JobStatus getStatus() {
+        return status;
+    }
+
+    public void setStatus(JobStatus status) {
+        this.status = status;
+    }
+
+    public long getFromRawId() {
+        return fromRawId;
+    }
+
+    public void setFromRawId(long fromRawId) {
+        this.fromRawId = fromRawId;
+    }
+
+    public long getToRawId() {
+        return toRawId;
+    }
+
+    public void setToRawId(long toRawId) {
+        this.toRawId = toRawId;
+    }
+
+    public long getRowsRead() {
+        return rowsRead;
+    }
+
+    public void setRowsRead(long rowsRead) {
+        this.rowsRead = rowsRead;
+    }
+
+    public long getRowsProcessed() {
+        return rowsProcessed;
+    }
+
+    public void setRowsProcessed(long rowsProcessed) {
+        this.rowsProcessed = rowsProcessed;
+    }
+
+    public long getRowsFailed() {
+        return rowsFailed;
+    }
+
+    public void setRowsFailed(long rowsFailed) {
+        this.rowsFailed = rowsFailed;
+    }
+
+    public String getErrorMessage() {
+        return errorMessage;
+    }
+
+    public void setErrorMessage(String errorMessage) {
+        this.errorMessage = errorMessage;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(LocalDateTime createdAt) {
+        this.createdAt = createdAt;
+    }
+
+    public LocalDateTime getStartedAt() {
+        return startedAt;
+    }
+
+    public void setStartedAt(LocalDateTime startedAt) {
+        this.startedAt = startedAt;
+    }
+
+    public LocalDateTime getFinishedAt() {
+        return finishedAt;
+    }
+
+    public void setFinishedAt(LocalDateTime finishedAt) {
+        this.finishedAt = finishedAt;
+    }
+
+    public LocalDateTime getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public void setUpdatedAt(LocalDateTime updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+
+    // Вспомогательные методы
+    public boolean isFinished() {
+        return status == JobStatus.COMPLETED || status == JobStatus.FAILED
+                || status == JobStatus.CANCELLED || status == JobStatus.INTERRUPTED;
+    }
+
+    /**
+     * Незавершенное задание можно продолжить с контрольных точек
+     */
+    public boolean isResumable() {
+        return status == JobStatus.FAILED || status == JobStatus.CANCELLED || status == JobStatus.INTERRUPTED;
+    }
+
+    @PreUpdate
+    public void onUpdate() {
+        this.updatedAt = LocalDateTime.now();
+    }
+}
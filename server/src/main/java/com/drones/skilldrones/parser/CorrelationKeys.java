@@ -0,0 +1,107 @@
+package com.drones.skilldrones.parser;
+
+import com.drones.skilldrones.model.RawTelegram;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Ключи, по которым SHR, DEP и ARR одного полета находят друг друга.
+ * Сильный ключ - системный идентификатор SID ("SID/7772187998" в SHR, "-SID 7772187998" в DEP/ARR),
+ * запасной - идентификатор из первой строки ("SHR-RA0001", "DEP-RA0001") вместе с датой
+ * (DOF/ГГММДД, в DEP/ARR также ADD/ADA ГГММДД). Сообщение получает все ключи, которые удалось найти.
+ */
+public final class CorrelationKeys {
+
+    private static final String SID_PREFIX = "SID:";
+
+    private CorrelationKeys() {
+    }
+
+    public static List<String> of(RawTelegram telegram) {
+        List<String> keys = new ArrayList<>(4);
+        collect(telegram.getShrRawText(), keys);
+        collect(telegram.getDepRawText(), keys);
+        collect(telegram.getArrRawText(), keys);
+        return keys;
+    }
+
+    /**
+     * Сильный ли ключ (SID)
+     */
+    public static boolean isSid(String key) {
+        return key.startsWith(SID_PREFIX);
+    }
+
+    /**
+     * Первый SID среди ключей; null, если его нет
+     */
+    public static String sid(List<String> keys) {
+        for (String key : keys) {
+            if (isSid(key)) {
+                return key.substring(SID_PREFIX.length());
+            }
+        }
+        return null;
+    }
+
+    private static void collect(String text, List<String> keys) {
+        if (text == null) {
+            return;
+        }
+        String sid = digitsAfter(text, "SID/", 20);
+        if (sid == null) {
+            sid = digitsAfter(text, "SID ", 20);
+        }
+        if (sid != null) {
+            add(keys, SID_PREFIX + sid);
+        }
+
+        String flightId = messageId(text);
+        String date = digitsAfter(text, "DOF/", 6);
+        if (date == null) {
+            date = digitsAfter(text, "ADD ", 6);
+        }
+        if (date == null) {
+            date = digitsAfter(text, "ADA ", 6);
+        }
+        if (flightId != null && date != null && date.length() == 6) {
+            add(keys, "ID:" + flightId + "/" + date);
+        }
+    }
+
+    /**
+     * Идентификатор после "XXX-" в начале сообщения, до конца строки или следующего поля
+     */
+    private static String messageId(String text) {
+        if (text.length() < 5 || text.charAt(3) != '-') {
+            return null;
+        }
+        int end = 4;
+        while (end < text.length() && text.charAt(end) != '\n' && text.charAt(end) != '-') {
+            end++;
+        }
+        String id = text.substring(4, end).trim().toUpperCase();
+        return id.isEmpty() ? null : id;
+    }
+
+    private static String digitsAfter(String text, String marker, int maxDigits) {
+        int at = text.indexOf(marker);
+        if (at < 0) {
+            return null;
+        }
+        int start = at + marker.length();
+        int end = start;
+        while (end < text.length() && end - start < maxDigits
+                && text.charAt(end) >= '0' && text.charAt(end) <= '9') {
+            end++;
+        }
+        return end > start ? text.substring(start, end) : null;
+    }
+
+    private static void add(List<String> keys, String key) {
+        if (!keys.contains(key)) {
+            keys.add(key);
+        }
+    }
+}
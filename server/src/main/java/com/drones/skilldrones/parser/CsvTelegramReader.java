@@ -0,0 +1,369 @@
+package com.drones.skilldrones.parser;
+
+import com.drones.skilldrones.model.RawTelegram;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Потоковое чтение CSV с телеграммами (центр, SHR, DEP, ARR) через отображение файла в память
+ * (или из потока, если файл сжат).
+ * Файл один раз последовательно просматривается и режется на куски по границам записей
+ * с учетом кавычек (текст телеграммы в кавычках может занимать несколько строк).
+ * Куски разбираются параллельно, телеграммы передаются потребителю в порядке файла.
+ * Байты поля копируются в переиспользуемый буфер и превращаются в String один раз.
+ */
+@Component
+public class CsvTelegramReader {
+    private static final int COLUMNS = 4;
+    private static final long SCAN_WINDOW = 64L * 1024 * 1024;
+    private static final byte[] DELIMITERS = {',', ';', '\t'};
+
+    private final long chunkBytes;
+    private final int parallelism;
+    private final ExecutorService parsers;
+
+    public CsvTelegramReader(@Value("${app.ingest.csv.chunk-bytes:8388608}") long chunkBytes,
+                             @Value("${app.ingest.csv.parallelism:0}") int parallelism) {
+        // Кусок отображается одним MappedByteBuffer (не больше Integer.MAX_VALUE байт) вместе с хвостом
+        // последней записи, а буфер потока вдвое больше куска - поэтому верхняя граница вдвое меньше
+        this.chunkBytes = Math.min((Integer.MAX_VALUE - 8) / 2, Math.max(64 * 1024, chunkBytes));
+        // 0 - по числу ядер
+        this.parallelism = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+        AtomicInteger counter = new AtomicInteger();
+        this.parsers = Executors.newFixedThreadPool(this.parallelism, runnable -> {
+            Thread thread = new Thread(runnable, "csv-parser-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        parsers.shutdownNow();
+    }
+
+    /**
+     * Читает файл с диска. Первая запись - заголовок, по ней определяется разделитель (, ; или табуляция)
+     */
+    public int read(Path file, String fileName, Consumer<RawTelegram> consumer) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            Deque<Future<List<RawTelegram>>> pending = new ArrayDeque<>();
+            int emitted = 0;
+            try {
+                long position = skipBom(channel, size);
+                boolean inQuotes = false;
+                boolean header = true;
+                int[] delimiterCounts = new int[DELIMITERS.length];
+                byte delimiter = ',';
+                long chunkStart = position;
+
+                while (position < size) {
+                    long length = Math.min(SCAN_WINDOW, size - position);
+                    MappedByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+                    for (int i = 0; i < length; i++) {
+                        byte b = window.get(i);
+                        if (b == '"') {
+                            inQuotes = !inQuotes; // экранированная "" переключает дважды
+                        } else if (inQuotes) {
+                            continue;
+                        } else if (b == '\n') {
+                            long recordEnd = position + i + 1;
+                            if (header) {
+                                header = false;
+                                delimiter = pickDelimiter(delimiterCounts);
+                                chunkStart = recordEnd;
+                            } else if (recordEnd - chunkStart >= chunkBytes) {
+                                emitted += submit(pending, channel, chunkStart, recordEnd, delimiter, fileName, consumer);
+                                chunkStart = recordEnd;
+                            }
+                        } else if (header) {
+                            for (int d = 0; d < DELIMITERS.length; d++) {
+                                if (b == DELIMITERS[d]) delimiterCounts[d]++;
+                            }
+                        }
+                    }
+                    position += length;
+                }
+                if (!header && chunkStart < size) {
+                    emitted += submit(pending, channel, chunkStart, size, delimiter, fileName, consumer);
+                }
+                while (!pending.isEmpty()) {
+                    emitted += emit(pending.poll(), consumer);
+                }
+                return emitted;
+            } finally {
+                // Если потребитель прервал чтение - оставшиеся куски не нужны
+                for (Future<List<RawTelegram>> future : pending) {
+                    future.cancel(true);
+                }
+            }
+        }
+    }
+
+    /**
+     * Читает несжатый CSV из потока (распакованный gzip/zstd или файл внутри ZIP).
+     * Поток читается последовательно в буфер кусками по chunk-bytes с теми же правилами,
+     * что и файл: резка по границам записей вне кавычек, параллельный разбор, порядок файла
+     */
+    public int read(InputStream input, String fileName, Consumer<RawTelegram> consumer) throws IOException {
+        Deque<Future<List<RawTelegram>>> pending = new ArrayDeque<>();
+        int emitted = 0;
+        try {
+            byte[] buffer = new byte[(int) (chunkBytes * 2)];
+            int filled = 0;
+            int scanned = 0;
+            int chunkStart = 0;
+            boolean inQuotes = false;
+            boolean header = true;
+            boolean first = true;
+            int[] delimiterCounts = new int[DELIMITERS.length];
+            byte delimiter = ',';
+
+            while (true) {
+                filled += input.readNBytes(buffer, filled, buffer.length - filled);
+                // readNBytes не заполняет буфер целиком только в конце потока
+                boolean end = filled < buffer.length;
+                if (first && filled >= 3) {
+                    first = false;
+                    if (buffer[0] == (byte) 0xEF && buffer[1] == (byte) 0xBB && buffer[2] == (byte) 0xBF) {
+                        chunkStart = scanned = 3;
+                    }
+                }
+
+                for (int i = scanned; i < filled; i++) {
+                    byte b = buffer[i];
+                    if (b == '"') {
+                        inQuotes = !inQuotes;
+                    } else if (inQuotes) {
+                        continue;
+                    } else if (b == '\n') {
+                        if (header) {
+                            header = false;
+                            delimiter = pickDelimiter(delimiterCounts);
+                            chunkStart = i + 1;
+                        } else if (i + 1 - chunkStart >= chunkBytes) {
+                            ByteBuffer chunk = ByteBuffer.wrap(Arrays.copyOfRange(buffer, chunkStart, i + 1));
+                            emitted += submit(pending, chunk, delimiter, fileName, consumer);
+                            chunkStart = i + 1;
+                        }
+                    } else if (header) {
+                        for (int d = 0; d < DELIMITERS.length; d++) {
+                            if (b == DELIMITERS[d]) delimiterCounts[d]++;
+                        }
+                    }
+                }
+                scanned = filled;
+
+                if (end) {
+                    break;
+                }
+                // Неразобранный хвост переносим в начало; запись длиннее буфера - увеличиваем буфер
+                System.arraycopy(buffer, chunkStart, buffer, 0, filled - chunkStart);
+                filled -= chunkStart;
+                scanned -= chunkStart;
+                chunkStart = 0;
+                if (filled == buffer.length) {
+                    if (buffer.length > (Integer.MAX_VALUE - 8) / 2) {
+                        throw new IOException("Запись CSV длиннее " + buffer.length + " байт");
+                    }
+                    buffer = Arrays.copyOf(buffer, buffer.length * 2);
+                }
+            }
+
+            if (!header && chunkStart < filled) {
+                ByteBuffer chunk = ByteBuffer.wrap(Arrays.copyOfRange(buffer, chunkStart, filled));
+                emitted += submit(pending, chunk, delimiter, fileName, consumer);
+            }
+            while (!pending.isEmpty()) {
+                emitted += emit(pending.poll(), consumer);
+            }
+            return emitted;
+        } finally {
+            for (Future<List<RawTelegram>> future : pending) {
+                future.cancel(true);
+            }
+        }
+    }
+
+    /**
+     * Ставит кусок [start, end) в разбор; если в работе слишком много кусков - сначала отдает самый старый
+     */
+    private int submit(Deque<Future<List<RawTelegram>>> pending, FileChannel channel, long start, long end,
+                       byte delimiter, String fileName, Consumer<RawTelegram> consumer) throws IOException {
+        int emitted = drain(pending, consumer);
+        MappedByteBuffer chunk = channel.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+        pending.add(parsers.submit(() -> parseChunk(chunk, delimiter, fileName)));
+        return emitted;
+    }
+
+    private int submit(Deque<Future<List<RawTelegram>>> pending, ByteBuffer chunk,
+                       byte delimiter, String fileName, Consumer<RawTelegram> consumer) throws IOException {
+        int emitted = drain(pending, consumer);
+        pending.add(parsers.submit(() -> parseChunk(chunk, delimiter, fileName)));
+        return emitted;
+    }
+
+    /**
+     * Ограничивает число кусков в работе: отдает самые старые, пока их не станет меньше parallelism * 2
+     */
+    private int drain(Deque<Future<List<RawTelegram>>> pending, Consumer<RawTelegram> consumer) throws IOException {
+        int emitted = 0;
+        while (pending.size() >= parallelism * 2) {
+            emitted += emit(pending.poll(), consumer);
+        }
+        return emitted;
+    }
+
+    private int emit(Future<List<RawTelegram>> future, Consumer<RawTelegram> consumer) throws IOException {
+        List<RawTelegram> telegrams;
+        try {
+            telegrams = future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Чтение CSV прервано", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IOException(e.getCause());
+        }
+        for (RawTelegram telegram : telegrams) {
+            consumer.accept(telegram);
+        }
+        return telegrams.size();
+    }
+
+    /**
+     * Разбирает кусок, который начинается и заканчивается на границе записи
+     */
+    private static List<RawTelegram> parseChunk(ByteBuffer buffer, byte delimiter, String fileName) {
+        List<RawTelegram> telegrams = new ArrayList<>();
+        String[] values = new String[COLUMNS];
+        byte[] scratch = new byte[1024];
+        int field = 0;
+        int i = 0;
+        int n = buffer.limit();
+
+        while (i < n) {
+            int length = 0;
+            if (buffer.get(i) == '"') {
+                i++;
+                while (i < n) {
+                    byte b = buffer.get(i++);
+                    if (b == '"') {
+                        if (i < n && buffer.get(i) == '"') {
+                            i++;
+                        } else {
+                            break;
+                        }
+                    } else if (b == '\r' && i < n && buffer.get(i) == '\n') {
+                        continue; // переносы внутри текста приводим к \n
+                    }
+                    if (length == scratch.length) {
+                        scratch = Arrays.copyOf(scratch, length * 2);
+                    }
+                    scratch[length++] = b;
+                }
+                // Символы между закрывающей кавычкой и разделителем игнорируются
+                while (i < n && buffer.get(i) != delimiter && buffer.get(i) != '\n') {
+                    i++;
+                }
+            } else {
+                int start = i;
+                while (i < n && buffer.get(i) != delimiter && buffer.get(i) != '\n') {
+                    i++;
+                }
+                length = i - start;
+                if (length > scratch.length) {
+                    scratch = new byte[Math.max(length, scratch.length * 2)];
+                }
+                buffer.get(start, scratch, 0, length);
+            }
+
+            if (field < COLUMNS) {
+                values[field] = decodeTrimmed(scratch, length);
+            }
+            field++;
+
+            byte terminator = i < n ? buffer.get(i++) : (byte) '\n';
+            if (terminator == '\n') {
+                // Записи с неполным набором колонок (в т.ч. пустые строки) пропускаем
+                if (field >= COLUMNS) {
+                    telegrams.add(toTelegram(values, fileName));
+                }
+                field = 0;
+            }
+        }
+        // Кусок закончился сразу после разделителя (пустое последнее поле без перевода строки в конце файла)
+        if (field > 0) {
+            if (field < COLUMNS) {
+                values[field] = "";
+            }
+            if (field + 1 >= COLUMNS) {
+                telegrams.add(toTelegram(values, fileName));
+            }
+        }
+        return telegrams;
+    }
+
+    private static RawTelegram toTelegram(String[] values, String fileName) {
+        RawTelegram telegram = new RawTelegram();
+        telegram.setCenter(values[0]);
+        telegram.setShrRawText(values[1]);
+        telegram.setDepRawText(values[2]);
+        telegram.setArrRawText(values[3]);
+        telegram.setFileName(fileName);
+        telegram.setProcessingStatus("PENDING");
+        return telegram;
+    }
+
+    /**
+     * Как String.trim(), но пробелы и \r отбрасываются до создания строки
+     */
+    private static String decodeTrimmed(byte[] bytes, int length) {
+        int from = 0;
+        int to = length;
+        while (from < to && (bytes[from] & 0xFF) <= ' ') from++;
+        while (to > from && (bytes[to - 1] & 0xFF) <= ' ') to--;
+        return from == to ? "" : new String(bytes, from, to - from, StandardCharsets.UTF_8);
+    }
+
+    private static byte pickDelimiter(int[] counts) {
+        int best = 0;
+        for (int d = 1; d < counts.length; d++) {
+            if (counts[d] > counts[best]) best = d;
+        }
+        return DELIMITERS[best];
+    }
+
+    private static long skipBom(FileChannel channel, long size) throws IOException {
+        if (size < 3) {
+            return 0;
+        }
+        ByteBuffer head = ByteBuffer.allocate(3);
+        channel.read(head, 0);
+        return head.get(0) == (byte) 0xEF && head.get(1) == (byte) 0xBB && head.get(2) == (byte) 0xBF ? 3 : 0;
+    }
+}
@@ -0,0 +1,94 @@
+package com.drones.skilldrones.parser;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.YearMonth;
+
+/**
+ * Поля, извлеченные из SHR/DEP/ARR за один проход TelegramTokenizer.
+ * Хранятся в примитивах; объекты (строки, даты) создаются только по запросу.
+ * Экземпляр можно переиспользовать между телеграммами через reset().
+ */
+public final class TelegramFields {
+    public static final int ABSENT = -1;
+
+    CharSequence shrText;
+    int shrIdStart = ABSENT;
+    int shrIdEnd = ABSENT;
+
+    // DOF/ДДММГГ, упакованная как ГГГГММДД
+    int dof = ABSENT;
+
+    // TYP/XXX, три латинские буквы упакованы в int
+    int droneType = ABSENT;
+
+    boolean hasCoordinates;
+    int latMinutes;
+    int lonMinutes;
+
+    // Время в минутах от начала суток
+    int departureMinutes = ABSENT;
+    int arrivalMinutes = ABSENT;
+
+    public void reset() {
+        shrText = null;
+        shrIdStart = ABSENT;
+        shrIdEnd = ABSENT;
+        dof = ABSENT;
+        droneType = ABSENT;
+        hasCoordinates = false;
+        latMinutes = 0;
+        lonMinutes = 0;
+        departureMinutes = ABSENT;
+        arrivalMinutes = ABSENT;
+    }
+
+    public boolean hasFlightId() { return shrIdStart != ABSENT; }
+    public boolean hasFlightDate() { return dof != ABSENT; }
+    public boolean hasDroneType() { return droneType != ABSENT; }
+    public boolean hasCoordinates() { return hasCoordinates; }
+    public boolean hasDepartureTime() { return departureMinutes != ABSENT; }
+    public boolean hasArrivalTime() { return arrivalMinutes != ABSENT; }
+
+    public int getDof() { return dof; }
+    public int getLatMinutes() { return latMinutes; }
+    public int getLonMinutes() { return lonMinutes; }
+    public int getDepartureMinutes() { return departureMinutes; }
+    public int getArrivalMinutes() { return arrivalMinutes; }
+
+    /**
+     * Идентификатор из первой строки "SHR-XXXXX"
+     */
+    public String flightId() {
+        return hasFlightId() ? shrText.subSequence(shrIdStart, shrIdEnd).toString() : null;
+    }
+
+    /**
+     * Дата полета; как и DateTimeFormatter в режиме SMART, день 29-31 приводится к последнему дню месяца.
+     * Несуществующий месяц или день (0, больше 31) вызывает DateTimeException
+     */
+    public LocalDate flightDate() {
+        if (!hasFlightDate()) return null;
+        int year = dof / 10000;
+        int month = dof / 100 % 100;
+        int day = dof % 100;
+        if (day >= 29 && day <= 31 && month >= 1 && month <= 12) {
+            day = Math.min(day, YearMonth.of(year, month).lengthOfMonth());
+        }
+        return LocalDate.of(year, month, day);
+    }
+
+    public String droneType() {
+        if (!hasDroneType()) return null;
+        return new String(new char[]{
+                (char) (droneType >>> 16), (char) ((droneType >>> 8) & 0xFF), (char) (droneType & 0xFF)});
+    }
+
+    public LocalTime departureTime() {
+        return hasDepartureTime() ? LocalTime.of(departureMinutes / 60, departureMinutes % 60) : null;
+    }
+
+    public LocalTime arrivalTime() {
+        return hasArrivalTime() ? LocalTime.of(arrivalMinutes / 60, arrivalMinutes % 60) : null;
+    }
+}
@@ -0,0 +1,178 @@
+package com.drones.skilldrones.parser;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.function.Consumer;
+
+/**
+ * Выделяет телеграммы из непрерывного потока байтов в стиле АФТН: текст сообщения
+ * заключен в круглые скобки, служебные строки между сообщениями (ZCZC, NNNN, адреса) пропускаются.
+ * Сообщения ADEXP (DEP/ARR в российском формате) идут без скобок и начинаются строкой "-TITLE":
+ * такое сообщение продолжается до конца конверта АФТН (NNNN), начала следующего конверта (ZCZC),
+ * следующего "-TITLE" или "(" в начале строки, а последнее в потоке - до finish().
+ * Сообщение может приходить частями в разных чтениях из сокета; буфер сообщения
+ * переиспользуется и растет только до maxMessageBytes.
+ * Экземпляр хранит состояние одного соединения и не потокобезопасен.
+ */
+public final class TelegramFramer {
+
+    private static final byte[] TITLE = "-TITLE".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] ENVELOPE_START = "ZCZC".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] ENVELOPE_END = "NNNN".getBytes(StandardCharsets.US_ASCII);
+
+    private final int maxMessageBytes;
+    private byte[] message;
+    private int length;
+    private int depth;
+    private boolean overflow;
+    // Собирается сообщение ADEXP без скобок
+    private boolean adexp;
+    // Первые значимые байты текущей строки вне скобок и начало этой строки в буфере сообщения
+    private final byte[] head = new byte[TITLE.length];
+    private int headLength;
+    private boolean headDone;
+    private int lineStart;
+
+    public TelegramFramer(int maxMessageBytes) {
+        this.maxMessageBytes = maxMessageBytes;
+        this.message = new byte[Math.min(4096, maxMessageBytes)];
+    }
+
+    /**
+     * Читает все байты из buffer и передает в sink текст каждого завершенного сообщения без внешних скобок.
+     * Возвращает количество сообщений, отброшенных из-за превышения maxMessageBytes
+     */
+    public int feed(ByteBuffer buffer, Consumer<String> sink) {
+        int dropped = 0;
+        while (buffer.hasRemaining()) {
+            byte b = buffer.get();
+            if (depth > 0) {
+                if (b == '(') {
+                    depth++;
+                } else if (b == ')' && --depth == 0) {
+                    dropped += emit(length, false, sink);
+                    // Остаток строки после скобки - не начало строки
+                    headDone = true;
+                    continue;
+                }
+                append(b);
+                continue;
+            }
+
+            if (b == '(' && (!adexp || (!headDone && headLength == 0))) {
+                if (adexp) {
+                    dropped += emit(lineStart, true, sink);
+                    adexp = false;
+                }
+                depth = 1;
+                start();
+                continue;
+            }
+            if (adexp) {
+                append(b);
+            }
+            if (b == '\n') {
+                lineStart = length;
+                headLength = 0;
+                headDone = false;
+                continue;
+            }
+            if (headDone || (headLength == 0 && (b == ' ' || b == '\t' || b == '\r'))) {
+                continue;
+            }
+
+            head[headLength++] = b;
+            if (matches(ENVELOPE_START) || matches(ENVELOPE_END)) {
+                if (adexp) {
+                    dropped += emit(lineStart, true, sink);
+                    adexp = false;
+                }
+                headDone = true;
+            } else if (matches(TITLE)) {
+                if (adexp) {
+                    dropped += emit(lineStart, true, sink);
+                }
+                adexp = true;
+                start();
+                for (byte t : TITLE) {
+                    append(t);
+                }
+                headDone = true;
+            } else if (!startsLike(TITLE) && !startsLike(ENVELOPE_START) && !startsLike(ENVELOPE_END)) {
+                headDone = true;
+            }
+        }
+        return dropped;
+    }
+
+    /**
+     * Завершает поток: передает незаконченное сообщение ADEXP, незакрытая скобка отбрасывается.
+     * Возвращает количество сообщений, отброшенных из-за превышения maxMessageBytes
+     */
+    public int finish(Consumer<String> sink) {
+        int dropped = 0;
+        if (depth == 0 && adexp) {
+            dropped = emit(length, true, sink);
+        }
+        adexp = false;
+        depth = 0;
+        headLength = 0;
+        headDone = false;
+        start();
+        return dropped;
+    }
+
+    private void start() {
+        length = 0;
+        lineStart = 0;
+        overflow = false;
+    }
+
+    private void append(byte b) {
+        if (overflow) {
+            return;
+        }
+        if (length == message.length) {
+            if (length >= maxMessageBytes) {
+                // Остаток сообщения пропускается до его конца
+                overflow = true;
+                return;
+            }
+            message = Arrays.copyOf(message, Math.min(maxMessageBytes, length * 2));
+        }
+        message[length++] = b;
+    }
+
+    /**
+     * Передает первые end байт сообщения (для ADEXP - без завершающих пробелов и переводов строк)
+     */
+    private int emit(int end, boolean trim, Consumer<String> sink) {
+        if (overflow) {
+            return 1;
+        }
+        if (trim) {
+            while (end > 0 && message[end - 1] <= ' ' && message[end - 1] >= 0) {
+                end--;
+            }
+        }
+        sink.accept(new String(message, 0, end, StandardCharsets.UTF_8));
+        return 0;
+    }
+
+    private boolean matches(byte[] token) {
+        return headLength == token.length && startsLike(token);
+    }
+
+    private boolean startsLike(byte[] token) {
+        if (headLength > token.length) {
+            return false;
+        }
+        for (int i = 0; i < headLength; i++) {
+            if (head[i] != token[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
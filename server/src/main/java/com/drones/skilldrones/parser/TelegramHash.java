@@ -0,0 +1,85 @@
+package com.drones.skilldrones.parser;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Locale;
+
+/**
+ * Нормализованный хеш телеграммы для поиска повторов: идентификатор SHR + DOF + координаты.
+ * Одна и та же телеграмма из разных выгрузок дает один хеш независимо от пробелов,
+ * регистра и формата записи координат. Хеш - SHA-256: до сохранения он хранится в телеграмме
+ * как 32 байта, а в hex (64 символа, столбец telegram_hash) переводится только при записи.
+ */
+public final class TelegramHash {
+    private static final ThreadLocal<MessageDigest> SHA_256 = ThreadLocal.withInitial(TelegramHash::newDigest);
+
+    private TelegramHash() {
+    }
+
+    /**
+     * Хеш телеграммы; null, если в SHR нет идентификатора и сравнивать не по чему
+     */
+    public static byte[] of(TelegramFields fields) {
+        if (!fields.hasFlightId()) {
+            return null;
+        }
+
+        StringBuilder key = new StringBuilder(48)
+                .append(fields.flightId().trim().toUpperCase(Locale.ROOT))
+                .append('|');
+        if (fields.hasFlightDate()) {
+            key.append(fields.getDof());
+        }
+        key.append('|');
+        if (fields.hasCoordinates()) {
+            key.append(fields.getLatMinutes()).append(',').append(fields.getLonMinutes());
+        }
+
+        return SHA_256.get().digest(key.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Первые 64 бита хеша (для фильтра Блума)
+     */
+    public static long high(byte[] hash) {
+        return readLong(hash, 0);
+    }
+
+    /**
+     * Следующие 64 бита хеша
+     */
+    public static long low(byte[] hash) {
+        return readLong(hash, 8);
+    }
+
+    /**
+     * Первые 64 бита хеша, записанного в hex (уже сохраненные телеграммы)
+     */
+    public static long high(String hash) {
+        return Long.parseUnsignedLong(hash, 0, 16, 16);
+    }
+
+    /**
+     * Следующие 64 бита хеша
+     */
+    public static long low(String hash) {
+        return Long.parseUnsignedLong(hash, 16, 32, 16);
+    }
+
+    private static long readLong(byte[] bytes, int offset) {
+        long value = 0;
+        for (int i = offset; i < offset + 8; i++) {
+            value = value << 8 | (bytes[i] & 0xFF);
+        }
+        return value;
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
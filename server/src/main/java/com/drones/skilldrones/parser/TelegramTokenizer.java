@@ -0,0 +1,154 @@
+package com.drones.skilldrones.parser;
+
+import com.drones.skilldrones.model.RawTelegram;
+
+/**
+ * Однопроходный разбор SHR/DEP/ARR телеграмм без регулярных выражений и промежуточных строк.
+ * Каждый текст просматривается один раз, найденные значения записываются в примитивные поля TelegramFields.
+ */
+public final class TelegramTokenizer {
+
+    private TelegramTokenizer() {
+    }
+
+    /**
+     * Разбирает все три текста телеграммы
+     */
+    public static TelegramFields tokenize(RawTelegram telegram, TelegramFields fields) {
+        fields.reset();
+        if (telegram.getShrRawText() != null) {
+            scanShr(telegram.getShrRawText(), fields);
+        }
+        if (telegram.getDepRawText() != null) {
+            fields.departureMinutes = scanKeywordTime(telegram.getDepRawText(), 'A', 'T', 'D');
+        }
+        if (telegram.getArrRawText() != null) {
+            fields.arrivalMinutes = scanKeywordTime(telegram.getArrRawText(), 'A', 'T', 'A');
+        }
+        return fields;
+    }
+
+    /**
+     * Разбирает SHR: идентификатор, DOF/ДДММГГ, TYP/XXX и координаты ДДММ[NS]ДДДММ[EW]
+     */
+    public static void scanShr(CharSequence text, TelegramFields fields) {
+        fields.shrText = text;
+        int length = text.length();
+
+        if (startsWith(text, 0, 'S', 'H', 'R', '-')) {
+            int end = 4;
+            while (end < length && text.charAt(end) != '\n') end++;
+            int start = 4;
+            while (start < end && text.charAt(start) <= ' ') start++;
+            while (end > start && text.charAt(end - 1) <= ' ') end--;
+            fields.shrIdStart = start;
+            fields.shrIdEnd = end;
+        }
+
+        boolean needDate = true;
+        boolean needType = true;
+        boolean needCoordinates = true;
+
+        for (int i = 0; i < length && (needDate || needType || needCoordinates); i++) {
+            char c = text.charAt(i);
+            switch (c) {
+                case 'D' -> {
+                    if (needDate && startsWith(text, i, 'D', 'O', 'F', '/') && digits(text, i + 4, 6)) {
+                        int day = number(text, i + 4, 2);
+                        int month = number(text, i + 6, 2);
+                        int year = 2000 + number(text, i + 8, 2);
+                        fields.dof = year * 10000 + month * 100 + day;
+                        needDate = false;
+                    }
+                }
+                case 'T' -> {
+                    if (needType && startsWith(text, i, 'T', 'Y', 'P', '/')
+                            && upper(text, i + 4) && upper(text, i + 5) && upper(text, i + 6)) {
+                        fields.droneType = text.charAt(i + 4) << 16 | text.charAt(i + 5) << 8 | text.charAt(i + 6);
+                        needType = false;
+                    }
+                }
+                case 'N', 'S' -> {
+                    if (needCoordinates && i >= 4 && digits(text, i - 4, 4) && digits(text, i + 1, 5)
+                            && i + 6 < length && (text.charAt(i + 6) == 'E' || text.charAt(i + 6) == 'W')) {
+                        int lat = number(text, i - 4, 2) * 60 + number(text, i - 2, 2);
+                        int lon = number(text, i + 1, 3) * 60 + number(text, i + 4, 2);
+                        fields.latMinutes = c == 'S' ? -lat : lat;
+                        fields.lonMinutes = text.charAt(i + 6) == 'W' ? -lon : lon;
+                        fields.hasCoordinates = true;
+                        needCoordinates = false;
+                    }
+                }
+                default -> {
+                }
+            }
+        }
+    }
+
+    /**
+     * Ищет первое "XXX ЧЧММ" (ATD 0705, ATA 1250) и возвращает минуты от начала суток
+     * или TelegramFields.ABSENT, если значения нет или время некорректно
+     */
+    public static int scanKeywordTime(CharSequence text, char k1, char k2, char k3) {
+        int last = text.length() - 8;
+        for (int i = 0; i <= last; i++) {
+            if (text.charAt(i) == k1 && startsWith(text, i, k1, k2, k3, ' ') && digits(text, i + 4, 4)) {
+                return minutesOfDay(text, i + 4);
+            }
+        }
+        return TelegramFields.ABSENT;
+    }
+
+    /**
+     * Ищет первое "-ЧЧММ" и возвращает минуты от начала суток или TelegramFields.ABSENT
+     */
+    public static int scanDashTime(CharSequence text) {
+        int last = text.length() - 5;
+        for (int i = 0; i <= last; i++) {
+            if (text.charAt(i) == '-' && digits(text, i + 1, 4)) {
+                return minutesOfDay(text, i + 1);
+            }
+        }
+        return TelegramFields.ABSENT;
+    }
+
+    private static int minutesOfDay(CharSequence text, int offset) {
+        int hours = number(text, offset, 2);
+        int minutes = number(text, offset + 2, 2);
+        if (hours > 23 || minutes > 59) {
+            return TelegramFields.ABSENT;
+        }
+        return hours * 60 + minutes;
+    }
+
+    private static boolean startsWith(CharSequence text, int offset, char a, char b, char c, char d) {
+        return offset + 4 <= text.length()
+                && text.charAt(offset) == a
+                && text.charAt(offset + 1) == b
+                && text.charAt(offset + 2) == c
+                && text.charAt(offset + 3) == d;
+    }
+
+    private static boolean digits(CharSequence text, int offset, int count) {
+        if (offset < 0 || offset + count > text.length()) return false;
+        for (int i = offset; i < offset + count; i++) {
+            char c = text.charAt(i);
+            if (c < '0' || c > '9') return false;
+        }
+        return true;
+    }
+
+    private static boolean upper(CharSequence text, int offset) {
+        if (offset >= text.length()) return false;
+        char c = text.charAt(offset);
+        return c >= 'A' && c <= 'Z';
+    }
+
+    private static int number(CharSequence text, int offset, int count) {
+        int value = 0;
+        for (int i = offset; i < offset + count; i++) {
+            value = value * 10 + (text.charAt(i) - '0');
+        }
+        return value;
+    }
+}
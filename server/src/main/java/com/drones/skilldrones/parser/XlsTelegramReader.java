@@ -0,0 +1,174 @@
+package com.drones.skilldrones.parser;
+
+import com.drones.skilldrones.model.RawTelegram;
+import org.apache.poi.hssf.eventusermodel.FormatTrackingHSSFListener;
+import org.apache.poi.hssf.eventusermodel.HSSFEventFactory;
+import org.apache.poi.hssf.eventusermodel.HSSFListener;
+import org.apache.poi.hssf.eventusermodel.HSSFRequest;
+import org.apache.poi.hssf.eventusermodel.MissingRecordAwareHSSFListener;
+import org.apache.poi.hssf.eventusermodel.dummyrecord.LastCellOfRowDummyRecord;
+import org.apache.poi.hssf.record.BOFRecord;
+import org.apache.poi.hssf.record.BoolErrRecord;
+import org.apache.poi.hssf.record.CellValueRecordInterface;
+import org.apache.poi.hssf.record.FormulaRecord;
+import org.apache.poi.hssf.record.LabelRecord;
+import org.apache.poi.hssf.record.LabelSSTRecord;
+import org.apache.poi.hssf.record.NumberRecord;
+import org.apache.poi.hssf.record.Record;
+import org.apache.poi.hssf.record.SSTRecord;
+import org.apache.poi.hssf.record.StringRecord;
+import org.apache.poi.poifs.filesystem.POIFSFileSystem;
+import org.springframework.stereotype.Component;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.function.Consumer;
+
+/**
+ * Потоковое чтение старых книг .xls (BIFF8) через событийную модель HSSF.
+ * Записи книги обрабатываются по одной, HSSFWorkbook не строится; в памяти остаются
+ * только таблица общих строк и значения текущей строки, как и у XlsxTelegramReader.
+ */
+@Component
+public class XlsTelegramReader {
+
+    /**
+     * Читает первый лист файла с диска
+     */
+    public int read(File file, String fileName, Consumer<RawTelegram> consumer) throws IOException {
+        try (POIFSFileSystem fs = new POIFSFileSystem(file, true)) {
+            return read(fs, fileName, consumer);
+        }
+    }
+
+    /**
+     * Читает первый лист из потока (сжатый файл или файл внутри ZIP).
+     * Контейнер POIFS без файла на диске целиком держится в памяти
+     */
+    public int read(InputStream input, String fileName, Consumer<RawTelegram> consumer) throws IOException {
+        try (POIFSFileSystem fs = new POIFSFileSystem(input)) {
+            return read(fs, fileName, consumer);
+        }
+    }
+
+    private int read(POIFSFileSystem fs, String fileName, Consumer<RawTelegram> consumer) throws IOException {
+        RowListener rowListener = new RowListener(fileName, consumer);
+        // Пропущенные ячейки и конец строки приходят как служебные записи
+        FormatTrackingHSSFListener formatListener =
+                new FormatTrackingHSSFListener(new MissingRecordAwareHSSFListener(rowListener));
+        rowListener.formatListener = formatListener;
+
+        HSSFRequest request = new HSSFRequest();
+        request.addListenerForAllRecords(formatListener);
+        new HSSFEventFactory().processWorkbookEvents(request, fs);
+        return rowListener.emitted;
+    }
+
+    /**
+     * Собирает ячейки одной строки (центр, SHR, DEP, ARR) первого листа и отдает готовую телеграмму
+     */
+    private static class RowListener implements HSSFListener {
+        private static final int COLUMNS = 4;
+
+        private final String fileName;
+        private final Consumer<RawTelegram> consumer;
+        private final String[] values = new String[COLUMNS];
+        private FormatTrackingHSSFListener formatListener;
+        private SSTRecord strings;
+        private int sheetIndex = -1;
+        private int cellCount;
+        // Формула со строковым результатом: значение приходит следующей записью StringRecord
+        private int pendingFormulaColumn = -1;
+        private int emitted;
+
+        RowListener(String fileName, Consumer<RawTelegram> consumer) {
+            this.fileName = fileName;
+            this.consumer = consumer;
+            clearRow();
+        }
+
+        @Override
+        public void processRecord(Record record) {
+            if (record instanceof BOFRecord bof) {
+                if (bof.getType() == BOFRecord.TYPE_WORKSHEET) {
+                    sheetIndex++;
+                }
+                return;
+            }
+            if (record instanceof SSTRecord sst) {
+                strings = sst;
+                return;
+            }
+            if (sheetIndex != 0) {
+                return;
+            }
+
+            if (record instanceof LastCellOfRowDummyRecord lastCell) {
+                endRow(lastCell.getRow());
+            } else if (record instanceof StringRecord string) {
+                if (pendingFormulaColumn >= 0) {
+                    setValue(pendingFormulaColumn, string.getString());
+                    pendingFormulaColumn = -1;
+                }
+            } else if (record instanceof CellValueRecordInterface cell) {
+                cellCount++;
+                setValue(cell.getColumn(), value(record));
+            }
+        }
+
+        private String value(Record record) {
+            if (record instanceof LabelSSTRecord label) {
+                return strings != null ? strings.getString(label.getSSTIndex()).getString() : null;
+            }
+            if (record instanceof LabelRecord label) {
+                return label.getValue();
+            }
+            if (record instanceof NumberRecord number) {
+                return formatListener.formatNumberDateCell(number);
+            }
+            if (record instanceof BoolErrRecord boolErr) {
+                return boolErr.isBoolean() ? String.valueOf(boolErr.getBooleanValue()) : null;
+            }
+            if (record instanceof FormulaRecord formula) {
+                if (formula.hasCachedResultString()) {
+                    pendingFormulaColumn = formula.getColumn();
+                    return null;
+                }
+                return formatListener.formatNumberDateCell(formula);
+            }
+            return null;
+        }
+
+        private void setValue(int column, String value) {
+            if (column < COLUMNS && value != null) {
+                values[column] = value.trim();
+            }
+        }
+
+        private void endRow(int rowNum) {
+            // Первая строка - заголовок, строки с неполным набором колонок пропускаем
+            if (rowNum != 0 && cellCount >= COLUMNS) {
+                RawTelegram telegram = new RawTelegram();
+                telegram.setCenter(values[0]);
+                telegram.setShrRawText(values[1]);
+                telegram.setDepRawText(values[2]);
+                telegram.setArrRawText(values[3]);
+                telegram.setFileName(fileName);
+                telegram.setProcessingStatus("PENDING");
+
+                consumer.accept(telegram);
+                emitted++;
+            }
+            clearRow();
+        }
+
+        private void clearRow() {
+            for (int i = 0; i < COLUMNS; i++) {
+                values[i] = "";
+            }
+            cellCount = 0;
+            pendingFormulaColumn = -1;
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package com.drones.skilldrones.parser;
+
+import com.drones.skilldrones.model.RawTelegram;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackageAccess;
+import org.apache.poi.ss.usermodel.DataFormatter;
+import org.apache.poi.ss.util.CellReference;
+import org.apache.poi.util.XMLHelper;
+import org.apache.poi.xssf.eventusermodel.ReadOnlySharedStringsTable;
+import org.apache.poi.xssf.eventusermodel.XSSFReader;
+import org.apache.poi.xssf.eventusermodel.XSSFSheetXMLHandler;
+import org.apache.poi.xssf.model.StylesTable;
+import org.apache.poi.xssf.usermodel.XSSFComment;
+import org.springframework.stereotype.Component;
+import org.xml.sax.InputSource;
+import org.xml.sax.XMLReader;
+
+import java.io.File;
+import java.io.InputStream;
+import java.util.Iterator;
+import java.util.function.Consumer;
+
+/**
+ * Потоковое чтение XLSX через событийную модель POI (SAX).
+ * Строки листа не собираются в DOM: каждая строка превращается в RawTelegram
+ * и сразу передается потребителю, поэтому память не зависит от размера файла.
+ */
+@Component
+public class XlsxTelegramReader {
+
+    /**
+     * Читает первый лист файла с диска (ZIP открывается с произвольным доступом)
+     */
+    public int read(File file, String fileName, Consumer<RawTelegram> consumer) throws Exception {
+        try (OPCPackage pkg = OPCPackage.open(file, PackageAccess.READ)) {
+            return read(pkg, fileName, consumer);
+        }
+    }
+
+    /**
+     * Читает первый лист из потока (используется, когда файла на диске нет).
+     * OPCPackage без произвольного доступа распаковывает весь архив в память,
+     * поэтому загрузки сначала сохраняются на диск (FileParserServiceImpl.spoolUpload)
+     */
+    public int read(InputStream inputStream, String fileName, Consumer<RawTelegram> consumer) throws Exception {
+        try (OPCPackage pkg = OPCPackage.open(inputStream)) {
+            return read(pkg, fileName, consumer);
+        }
+    }
+
+    private int read(OPCPackage pkg, String fileName, Consumer<RawTelegram> consumer) throws Exception {
+        XSSFReader reader = new XSSFReader(pkg);
+        ReadOnlySharedStringsTable strings = new ReadOnlySharedStringsTable(pkg);
+        StylesTable styles = reader.getStylesTable();
+
+        Iterator<InputStream> sheets = reader.getSheetsData();
+        if (!sheets.hasNext()) {
+            return 0;
+        }
+
+        RowHandler rowHandler = new RowHandler(fileName, consumer);
+        try (InputStream sheet = sheets.next()) {
+            XMLReader xmlReader = XMLHelper.newXMLReader();
+            xmlReader.setContentHandler(new XSSFSheetXMLHandler(
+                    styles, strings, rowHandler, new DataFormatter(), false));
+            xmlReader.parse(new InputSource(sheet));
+        }
+        return rowHandler.emitted;
+    }
+
+    /**
+     * Собирает ячейки одной строки (центр, SHR, DEP, ARR) и отдает готовую телеграмму
+     */
+    private static class RowHandler implements XSSFSheetXMLHandler.SheetContentsHandler {
+        private static final int COLUMNS = 4;
+
+        private final String fileName;
+        private final Consumer<RawTelegram> consumer;
+        private final String[] values = new String[COLUMNS];
+        private int cellCount;
+        private int nextColumn;
+        private int emitted;
+
+        RowHandler(String fileName, Consumer<RawTelegram> consumer) {
+            this.fileName = fileName;
+            this.consumer = consumer;
+        }
+
+        @Override
+        public void startRow(int rowNum) {
+            for (int i = 0; i < COLUMNS; i++) {
+                values[i] = "";
+            }
+            cellCount = 0;
+            nextColumn = 0;
+        }
+
+        @Override
+        public void cell(String cellReference, String formattedValue, XSSFComment comment) {
+            int column = cellReference != null
+                    ? new CellReference(cellReference).getCol()
+                    : nextColumn;
+            nextColumn = column + 1;
+            cellCount++;
+
+            if (column < COLUMNS && formattedValue != null) {
+                values[column] = formattedValue.trim();
+            }
+        }
+
+        @Override
+        public void endRow(int rowNum) {
+            // Первая строка - заголовок, строки с неполным набором колонок пропускаем
+            if (rowNum == 0 || cellCount < COLUMNS) return;
+
+            RawTelegram telegram = new RawTelegram();
+            telegram.setCenter(values[0]);
+            telegram.setShrRawText(values[1]);
+            telegram.setDepRawText(values[2]);
+            telegram.setArrRawText(values[3]);
+            telegram.setFileName(fileName);
+            telegram.setProcessingStatus("PENDING");
+
+            consumer.accept(telegram);
+            emitted++;
+        }
+    }
+}
@@ -0,0 +1,323 @@
+package com.drones.skilldrones.pipeline;
+
+import com.drones.skilldrones.model.Flight;
+import com.drones.skilldrones.model.RawTelegram;
+import com.drones.skilldrones.service.DeduplicationService;
+import com.drones.skilldrones.service.FlightProcessingService;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.function.UnaryOperator;
+
+/**
+ * Конвейер загрузки телеграмм: чтение строк -> разбор и отсев повторов -> геопривязка -> сохранение.
+ * Этапы связаны ограниченными очередями пакетов и работают одновременно, поэтому
+ * процессор и соединения с базой заняты параллельно. Когда очередь перед медленным
+ * этапом заполнена, блокируется предыдущий этап и в итоге чтение файла (backpressure).
+ * Для каждого этапа публикуются глубина очереди (ingest.pipeline.queue.depth)
+ * и время обработки пакета (ingest.pipeline.stage.latency).
+ */
+@Component
+public class IngestPipeline {
+
+    public enum Stage {
+        READ, TOKENIZE, GEOLOCATE, PERSIST
+    }
+
+    /**
+     * Уведомления о ходе загрузки. Методы вызываются из потоков конвейера
+     */
+    public interface Listener {
+        Listener NONE = new Listener() {
+        };
+
+        default void onStage(Stage stage) {
+        }
+
+        default void onRowRead() {
+        }
+
+        default void onBatchPersisted(int telegrams, int saved, int duplicates) {
+        }
+    }
+
+    public record Result(long rowsRead, long rowsProcessed, long rowsFailed, long rowsDuplicate) {
+    }
+
+    private static final Batch END = new Batch(List.of(), List.of(), 0);
+    private static final long POLL_MILLIS = 100;
+
+    private final FlightProcessingService flightProcessingService;
+    private final DeduplicationService deduplicationService;
+    private final int batchSize;
+    private final int queueCapacity;
+    private final Map<Stage, Integer> parallelism = new EnumMap<>(Stage.class);
+    private final Map<Stage, AtomicInteger> queueDepth = new EnumMap<>(Stage.class);
+    private final Map<Stage, Timer> stageTimers = new EnumMap<>(Stage.class);
+
+    public IngestPipeline(FlightProcessingService flightProcessingService,
+                          DeduplicationService deduplicationService,
+                          MeterRegistry meterRegistry,
+                          @Value("${app.ingest.pipeline.batch-size:5000}") int batchSize,
+                          @Value("${app.ingest.pipeline.queue-capacity:4}") int queueCapacity,
+                          @Value("${app.ingest.pipeline.tokenizer-threads:0}") int tokenizerThreads,
+                          @Value("${app.ingest.parse.processor-fraction:1.0}") double processorFraction,
+                          @Value("${app.ingest.pipeline.geolocator-threads:2}") int geolocatorThreads,
+                          @Value("${app.ingest.pipeline.writer-threads:2}") int writerThreads) {
+        this.flightProcessingService = flightProcessingService;
+        this.deduplicationService = deduplicationService;
+        this.batchSize = batchSize;
+        this.queueCapacity = queueCapacity;
+        // 0 - по доле ядер, отведенной под разбор (как у пула разбора FileParserServiceImpl)
+        int parseThreads = (int) Math.max(1, Math.round(Runtime.getRuntime().availableProcessors() * processorFraction));
+        parallelism.put(Stage.TOKENIZE, tokenizerThreads > 0 ? tokenizerThreads : parseThreads);
+        parallelism.put(Stage.GEOLOCATE, Math.max(1, geolocatorThreads));
+        parallelism.put(Stage.PERSIST, Math.max(1, writerThreads));
+
+        for (Stage stage : List.of(Stage.TOKENIZE, Stage.GEOLOCATE, Stage.PERSIST)) {
+            String tag = stage.name().toLowerCase();
+            AtomicInteger depth = new AtomicInteger();
+            queueDepth.put(stage, depth);
+            Gauge.builder("ingest.pipeline.queue.depth", depth, AtomicInteger::get)
+                    .description("Пакетов в очереди перед этапом")
+                    .tag("stage", tag)
+                    .register(meterRegistry);
+            stageTimers.put(stage, Timer.builder("ingest.pipeline.stage.latency")
+                    .description("Время обработки пакета этапом")
+                    .tag("stage", tag)
+                    .register(meterRegistry));
+        }
+    }
+
+    /**
+     * Прогоняет телеграммы из источника через конвейер и ждет сохранения последнего пакета.
+     *
+     * @param source потоковый источник: передает телеграммы по одной в полученный приемник
+     *               (например, {@code sink -> fileParserService.streamTelegrams(file, sink)});
+     *               выполняется в вызывающем потоке и блокируется, когда конвейер не успевает
+     */
+    public Result run(Consumer<Consumer<RawTelegram>> source, Listener listener) {
+        Run run = new Run(listener);
+        run.start();
+        try {
+            source.accept(run::accept);
+            run.finishInput();
+        } catch (RuntimeException e) {
+            run.abort(e);
+        }
+        return run.await();
+    }
+
+    private record Batch(List<RawTelegram> telegrams, List<Flight> flights, int duplicates) {
+    }
+
+    /**
+     * Один прогон конвейера: свои очереди и потоки этапов
+     */
+    private final class Run {
+        private final Listener listener;
+        private final BlockingQueue<Batch> tokenizeQueue = new ArrayBlockingQueue<>(queueCapacity);
+        private final BlockingQueue<Batch> geolocateQueue = new ArrayBlockingQueue<>(queueCapacity);
+        private final BlockingQueue<Batch> persistQueue = new ArrayBlockingQueue<>(queueCapacity);
+        private final List<Thread> threads = new ArrayList<>();
+        private final AtomicReference<Throwable> failure = new AtomicReference<>();
+        private final AtomicLong rowsRead = new AtomicLong();
+        private final AtomicLong rowsProcessed = new AtomicLong();
+        private final AtomicLong rowsFailed = new AtomicLong();
+        private final AtomicLong rowsDuplicate = new AtomicLong();
+        private volatile boolean aborted;
+        private List<RawTelegram> current = new ArrayList<>(batchSize);
+
+        Run(Listener listener) {
+            this.listener = listener;
+        }
+
+        void start() {
+            listener.onStage(Stage.READ);
+            startStage(Stage.TOKENIZE, tokenizeQueue, geolocateQueue, Stage.GEOLOCATE, batch -> {
+                // Повторы отсеиваются сразу после разбора, чтобы не тратить на них геопривязку и запись
+                List<Flight> flights = flightProcessingService.buildFlights(batch.telegrams());
+                List<Flight> fresh = deduplicationService.filterNew(flights);
+                return new Batch(batch.telegrams(), fresh, flights.size() - fresh.size());
+            });
+            startStage(Stage.GEOLOCATE, geolocateQueue, persistQueue, Stage.PERSIST, batch -> {
+                flightProcessingService.geolocate(batch.flights());
+                return batch;
+            });
+            startStage(Stage.PERSIST, persistQueue, null, null, batch -> {
+                int saved = flightProcessingService.saveFlights(batch.flights());
+                rowsProcessed.addAndGet(saved);
+                rowsDuplicate.addAndGet(batch.duplicates());
+                rowsFailed.addAndGet(batch.telegrams().size() - batch.duplicates() - saved);
+                listener.onBatchPersisted(batch.telegrams().size(), saved, batch.duplicates());
+                return batch;
+            });
+        }
+
+        /**
+         * Приемник для источника; выполняется в потоке чтения
+         */
+        void accept(RawTelegram telegram) {
+            if (aborted) {
+                throw new IllegalStateException("Конвейер загрузки остановлен");
+            }
+            current.add(telegram);
+            rowsRead.incrementAndGet();
+            listener.onRowRead();
+            if (current.size() >= batchSize) {
+                submit();
+            }
+        }
+
+        void finishInput() {
+            if (!current.isEmpty()) {
+                submit();
+            }
+            put(Stage.TOKENIZE, tokenizeQueue, END);
+            listener.onStage(Stage.TOKENIZE);
+        }
+
+        private void submit() {
+            // Блокируется, пока разбор не освободит место в очереди
+            if (!put(Stage.TOKENIZE, tokenizeQueue, new Batch(current, null, 0))) {
+                throw new IllegalStateException("Конвейер загрузки остановлен");
+            }
+            current = new ArrayList<>(batchSize);
+        }
+
+        private void startStage(Stage stage, BlockingQueue<Batch> input, BlockingQueue<Batch> output,
+                                Stage nextStage, UnaryOperator<Batch> work) {
+            int workers = parallelism.get(stage);
+            AtomicInteger remaining = new AtomicInteger(workers);
+            Timer timer = stageTimers.get(stage);
+            for (int i = 0; i < workers; i++) {
+                threads.add(Thread.ofVirtual()
+                        .name("ingest-" + stage.name().toLowerCase() + "-" + i)
+                        .start(() -> {
+                            try {
+                                while (true) {
+                                    Batch batch = take(stage, input);
+                                    if (batch == null) {
+                                        return; // конвейер остановлен
+                                    }
+                                    if (batch == END) {
+                                        // Возвращаем маркер для остальных потоков этапа
+                                        put(stage, input, END);
+                                        break;
+                                    }
+                                    Batch result;
+                                    try {
+                                        result = timer.record(() -> work.apply(batch));
+                                    } catch (RuntimeException e) {
+                                        release(batch);
+                                        throw e;
+                                    }
+                                    if (output != null && !put(nextStage, output, result)) {
+                                        release(result);
+                                        return;
+                                    }
+                                }
+                                if (remaining.decrementAndGet() == 0 && output != null) {
+                                    listener.onStage(nextStage);
+                                    put(nextStage, output, END);
+                                }
+                            } catch (Throwable e) {
+                                abort(e);
+                            }
+                        }));
+            }
+        }
+
+        private boolean put(Stage stage, BlockingQueue<Batch> queue, Batch batch) {
+            AtomicInteger depth = queueDepth.get(stage);
+            try {
+                while (!aborted) {
+                    if (queue.offer(batch, POLL_MILLIS, TimeUnit.MILLISECONDS)) {
+                        if (batch != END) depth.incrementAndGet();
+                        return true;
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                abort(e);
+            }
+            return false;
+        }
+
+        private Batch take(Stage stage, BlockingQueue<Batch> queue) {
+            try {
+                while (!aborted) {
+                    Batch batch = queue.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+                    if (batch != null) {
+                        if (batch != END) queueDepth.get(stage).decrementAndGet();
+                        return batch;
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                abort(e);
+            }
+            return null;
+        }
+
+        void abort(Throwable e) {
+            failure.compareAndSet(null, e);
+            aborted = true;
+        }
+
+        Result await() {
+            for (Thread thread : threads) {
+                try {
+                    thread.join();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    abort(e);
+                }
+            }
+            if (aborted) {
+                // Пакеты, оставшиеся в очередях, не будут обработаны
+                drain(Stage.TOKENIZE, tokenizeQueue);
+                drain(Stage.GEOLOCATE, geolocateQueue);
+                drain(Stage.PERSIST, persistQueue);
+            }
+
+            Throwable error = failure.get();
+            if (error != null) {
+                throw new RuntimeException("Ошибка конвейера загрузки: " + error.getMessage(), error);
+            }
+            return new Result(rowsRead.get(), rowsProcessed.get(), rowsFailed.get(), rowsDuplicate.get());
+        }
+
+        private void drain(Stage stage, BlockingQueue<Batch> queue) {
+            for (Batch batch = queue.poll(); batch != null; batch = queue.poll()) {
+                if (batch != END) {
+                    queueDepth.get(stage).decrementAndGet();
+                    release(batch);
+                }
+            }
+        }
+
+        /**
+         * Освобождает хеши телеграмм пакета, который уже не дойдет до сохранения
+         */
+        private void release(Batch batch) {
+            if (batch.flights() != null) {
+                deduplicationService.release(batch.flights());
+            }
+        }
+    }
+}
@@ -0,0 +1,137 @@
+package com.drones.skilldrones.pipeline;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * Собирает поступающие по одному элементы в пакеты и передает их обработчику,
+ * когда пакет заполнен или с момента прихода его первого элемента прошло maxDelay.
+ * Пакеты обрабатываются по порядку в отдельном виртуальном потоке, поэтому прием
+ * следующих элементов не ждет сохранения предыдущего пакета. Пока обработчик занят,
+ * копится не больше одного пакета: затем add() блокируется (backpressure).
+ */
+public final class MicroBatcher<T> implements AutoCloseable {
+
+    private final int maxSize;
+    private final long maxDelayNanos;
+    private final Consumer<List<T>> handler;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition changed = lock.newCondition();
+    private final Thread worker;
+    private List<T> current;
+    private long deadline;
+    private boolean closed;
+    private Throwable failure;
+
+    public MicroBatcher(String name, int maxSize, Duration maxDelay, Consumer<List<T>> handler) {
+        this.maxSize = Math.max(1, maxSize);
+        this.maxDelayNanos = maxDelay.toNanos();
+        this.handler = handler;
+        this.current = new ArrayList<>(this.maxSize);
+        this.worker = Thread.ofVirtual().name(name).start(this::work);
+    }
+
+    /**
+     * Добавляет элемент; блокируется, пока предыдущий полный пакет не взят в обработку
+     */
+    public void add(T item) throws InterruptedException {
+        lock.lock();
+        try {
+            while (current.size() >= maxSize && failure == null) {
+                changed.await();
+            }
+            if (failure != null) {
+                throw new IllegalStateException("Ошибка обработки пакета: " + failure.getMessage(), failure);
+            }
+            if (closed) {
+                throw new IllegalStateException("Прием пакетов завершен");
+            }
+            current.add(item);
+            if (current.size() == 1) {
+                deadline = System.nanoTime() + maxDelayNanos;
+                changed.signalAll();
+            } else if (current.size() >= maxSize) {
+                changed.signalAll();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Обрабатывает накопленный остаток и ждет завершения обработчика.
+     * Если ожидание прервано, флаг прерывания восстанавливается и бросается IllegalStateException
+     */
+    @Override
+    public void close() {
+        lock.lock();
+        try {
+            closed = true;
+            changed.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        try {
+            worker.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Ожидание обработки пакета прервано", e);
+        }
+        if (failure != null) {
+            throw new IllegalStateException("Ошибка обработки пакета: " + failure.getMessage(), failure);
+        }
+    }
+
+    private void work() {
+        while (true) {
+            List<T> batch;
+            lock.lock();
+            try {
+                while (true) {
+                    if (current.isEmpty()) {
+                        if (closed) {
+                            return;
+                        }
+                        changed.await();
+                        continue;
+                    }
+                    long wait = deadline - System.nanoTime();
+                    if (closed || wait <= 0 || current.size() >= maxSize) {
+                        break;
+                    }
+                    changed.awaitNanos(wait);
+                }
+                batch = current;
+                current = new ArrayList<>(maxSize);
+                changed.signalAll();
+            } catch (InterruptedException e) {
+                fail(e);
+                return;
+            } finally {
+                lock.unlock();
+            }
+
+            try {
+                handler.accept(batch);
+            } catch (Throwable e) {
+                fail(e);
+                return;
+            }
+        }
+    }
+
+    private void fail(Throwable e) {
+        lock.lock();
+        try {
+            failure = e;
+            closed = true;
+            changed.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+}
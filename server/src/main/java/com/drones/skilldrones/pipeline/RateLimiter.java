@@ -0,0 +1,39 @@
+package com.drones.skilldrones.pipeline;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Ограничение скорости фоновой работы в строках в секунду, общее для всех потоков.
+ * Разрешения выдаются равномерно, без накопления за время простоя, поэтому после паузы
+ * не бывает всплеска нагрузки. Лимит 0 или меньше - без ограничения.
+ */
+public final class RateLimiter {
+
+    private final long nanosPerPermit;
+    private long nextFreeNanos = System.nanoTime();
+
+    public RateLimiter(double permitsPerSecond) {
+        this.nanosPerPermit = permitsPerSecond > 0 ? (long) (TimeUnit.SECONDS.toNanos(1) / permitsPerSecond) : 0;
+    }
+
+    /**
+     * Ждет, пока не освободятся permits разрешений
+     */
+    public void acquire(int permits) throws InterruptedException {
+        if (nanosPerPermit == 0) {
+            return;
+        }
+        long waitNanos;
+        synchronized (this) {
+            long now = System.nanoTime();
+            if (nextFreeNanos < now) {
+                nextFreeNanos = now;
+            }
+            waitNanos = nextFreeNanos - now;
+            nextFreeNanos += permits * nanosPerPermit;
+        }
+        if (waitNanos > 0) {
+            TimeUnit.NANOSECONDS.sleep(waitNanos);
+        }
+    }
+}
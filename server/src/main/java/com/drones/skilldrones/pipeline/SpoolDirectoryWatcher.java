@@ -0,0 +1,269 @@
+package com.drones.skilldrones.pipeline;
+
+import com.drones.skilldrones.dto.response.IngestJobResponse;
+import com.drones.skilldrones.service.IngestJobService;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+/**
+ * Прием файлов из каталога (например, куда их кладут по SFTP) без ограничения размера HTTP-загрузки.
+ * Каталог отслеживается через WatchService; файл берется в работу, когда его размер и время изменения
+ * перестают меняться. Недокачанные файлы (.part, .tmp, скрытые) пропускаются. После обработки
+ * файл переносится в каталог done или failed (рядом с ним - .error с причиной).
+ * Для каждого файла публикуются время (ingest.spool.file.duration) и скорость (ingest.spool.file.throughput).
+ */
+@Component
+public class SpoolDirectoryWatcher {
+
+    private static final List<String> PARTIAL_SUFFIXES = List.of(".part", ".partial", ".filepart", ".tmp");
+    private static final DateTimeFormatter MOVE_PREFIX = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss-");
+
+    private final IngestJobService ingestJobService;
+    private final ExecutorService ingestExecutor;
+    private final MeterRegistry meterRegistry;
+    private final boolean enabled;
+    private final Path spoolDir;
+    private final Path doneDir;
+    private final Path failedDir;
+    private final List<String> extensions;
+    private final long stableMillis;
+    private final Semaphore slots;
+    private final Set<Path> pending = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger active = new AtomicInteger();
+    private final DistributionSummary throughput;
+    private volatile WatchService watchService;
+
+    public SpoolDirectoryWatcher(IngestJobService ingestJobService,
+                                 @Qualifier("ingestExecutor") ExecutorService ingestExecutor,
+                                 MeterRegistry meterRegistry,
+                                 @Value("${app.ingest.spool.enabled:false}") boolean enabled,
+                                 @Value("${app.ingest.spool.dir:./uploads/spool}") String spoolDir,
+                                 @Value("${app.ingest.spool.done-dir:}") String doneDir,
+                                 @Value("${app.ingest.spool.failed-dir:}") String failedDir,
+                                 @Value("${app.ingest.spool.concurrency:2}") int concurrency,
+                                 @Value("${app.ingest.spool.stable-millis:2000}") long stableMillis,
+                                 @Value("${app.upload.allowed-extensions:.xlsx,.xls,.csv,.zip,.gz,.zst}") List<String> extensions) {
+        this.ingestJobService = ingestJobService;
+        this.ingestExecutor = ingestExecutor;
+        this.meterRegistry = meterRegistry;
+        this.enabled = enabled;
+        this.spoolDir = Path.of(spoolDir);
+        // По умолчанию - подкаталоги каталога приема; наблюдение не рекурсивное, поэтому они не мешают
+        this.doneDir = doneDir.isBlank() ? this.spoolDir.resolve("done") : Path.of(doneDir);
+        this.failedDir = failedDir.isBlank() ? this.spoolDir.resolve("failed") : Path.of(failedDir);
+        this.extensions = extensions.stream().map(String::trim).map(String::toLowerCase).toList();
+        this.stableMillis = stableMillis;
+        this.slots = new Semaphore(Math.max(1, concurrency));
+
+        Gauge.builder("ingest.spool.files.active", active, AtomicInteger::get)
+                .description("Файлов из каталога приема в обработке")
+                .register(meterRegistry);
+        Gauge.builder("ingest.spool.files.pending", pending, Set::size)
+                .description("Файлов из каталога приема, ожидающих обработки")
+                .register(meterRegistry);
+        this.throughput = DistributionSummary.builder("ingest.spool.file.throughput")
+                .description("Скорость обработки файла")
+                .baseUnit("rows_per_second")
+                .register(meterRegistry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            Files.createDirectories(spoolDir);
+            Files.createDirectories(doneDir);
+            Files.createDirectories(failedDir);
+            watchService = FileSystems.getDefault().newWatchService();
+            spoolDir.register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+        } catch (IOException e) {
+            System.err.println("Не удалось запустить прием файлов из каталога " + spoolDir + ": " + e.getMessage());
+            return;
+        }
+        Thread.ofPlatform().daemon().name("spool-watcher").start(this::watch);
+    }
+
+    @PreDestroy
+    public void stop() {
+        WatchService service = watchService;
+        if (service != null) {
+            try {
+                service.close();
+            } catch (IOException e) {
+                System.err.println("Ошибка остановки приема файлов: " + e.getMessage());
+            }
+        }
+    }
+
+    private void watch() {
+        // Файлы, положенные до запуска сервиса
+        scan();
+        while (true) {
+            WatchKey key;
+            try {
+                key = watchService.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (ClosedWatchServiceException e) {
+                return;
+            }
+            for (WatchEvent<?> event : key.pollEvents()) {
+                if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                    // События потеряны - просматриваем каталог заново
+                    scan();
+                } else {
+                    enqueue(spoolDir.resolve((Path) event.context()));
+                }
+            }
+            if (!key.reset()) {
+                System.err.println("Каталог приема больше недоступен: " + spoolDir);
+                return;
+            }
+        }
+    }
+
+    private void scan() {
+        try (Stream<Path> files = Files.list(spoolDir)) {
+            files.forEach(this::enqueue);
+        } catch (IOException e) {
+            System.err.println("Ошибка чтения каталога приема " + spoolDir + ": " + e.getMessage());
+        }
+    }
+
+    private void enqueue(Path file) {
+        // Пока файл дописывается, приходят повторные события; он ставится в работу один раз
+        if (accepts(file) && pending.add(file)) {
+            ingestExecutor.submit(() -> ingest(file));
+        }
+    }
+
+    private boolean accepts(Path file) {
+        String name = file.getFileName().toString().toLowerCase();
+        if (name.startsWith(".") || PARTIAL_SUFFIXES.stream().anyMatch(name::endsWith)) {
+            return false;
+        }
+        return extensions.stream().anyMatch(name::endsWith) && Files.isRegularFile(file);
+    }
+
+    private void ingest(Path file) {
+        try {
+            if (!awaitComplete(file)) {
+                return;
+            }
+            slots.acquire();
+            active.incrementAndGet();
+            try {
+                process(file);
+            } finally {
+                active.decrementAndGet();
+                slots.release();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            System.err.println("Ошибка приема файла " + file + ": " + e.getMessage());
+        } finally {
+            pending.remove(file);
+        }
+    }
+
+    private void process(Path file) {
+        long started = System.nanoTime();
+        IngestJobResponse job = null;
+        String error;
+        try {
+            job = ingestJobService.process(file, file.getFileName().toString());
+            error = job.errorMessage();
+        } catch (Exception e) {
+            error = e.getMessage();
+        }
+        long nanos = System.nanoTime() - started;
+
+        String status = job != null ? job.status() : "FAILED";
+        boolean succeeded = "COMPLETED".equals(status) || "SKIPPED".equals(status);
+        Timer.builder("ingest.spool.file.duration")
+                .description("Время обработки файла из каталога приема")
+                .tag("status", status.toLowerCase())
+                .register(meterRegistry)
+                .record(nanos, TimeUnit.NANOSECONDS);
+        if (job != null && job.rowsRead() > 0 && nanos > 0) {
+            throughput.record(job.rowsRead() * 1e9 / nanos);
+        }
+
+        Path moved = move(file, succeeded ? doneDir : failedDir);
+        if (!succeeded && moved != null) {
+            writeError(moved, error);
+        }
+    }
+
+    /**
+     * Ждет, пока файл перестанет меняться. Возвращает false, если файл исчез
+     */
+    private boolean awaitComplete(Path file) throws InterruptedException, IOException {
+        long size = -1;
+        long modified = -1;
+        while (Files.exists(file)) {
+            long currentSize = Files.size(file);
+            long currentModified = Files.getLastModifiedTime(file).toMillis();
+            if (currentSize == size && currentModified == modified) {
+                return true;
+            }
+            size = currentSize;
+            modified = currentModified;
+            Thread.sleep(stableMillis);
+        }
+        return false;
+    }
+
+    private Path move(Path file, Path dir) {
+        Path target = dir.resolve(file.getFileName());
+        if (Files.exists(target)) {
+            target = dir.resolve(LocalDateTime.now().format(MOVE_PREFIX) + file.getFileName());
+        }
+        try {
+            return Files.move(file, target);
+        } catch (IOException e) {
+            System.err.println("Не удалось перенести файл " + file + " в " + dir + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    private void writeError(Path file, String error) {
+        try {
+            Files.writeString(file.resolveSibling(file.getFileName() + ".error"), String.valueOf(error));
+        } catch (IOException e) {
+            System.err.println("Не удалось записать причину ошибки для " + file + ": " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,389 @@
+package com.drones.skilldrones.pipeline;
+
+import com.drones.skilldrones.model.RawTelegram;
+import com.drones.skilldrones.parser.CorrelationKeys;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Consumer;
+
+/**
+ * Сводит раздельно приходящие SHR, DEP и ARR одного полета в одну телеграмму.
+ * Открытые планы хранятся в памяти и доступны по каждому из своих ключей (CorrelationKeys),
+ * поэтому пришедшее сообщение находит свой план одним обращением к хеш-таблице.
+ * Запасной ключ (идентификатор и дата) не сводит сообщения с разными SID.
+ * Когда у плана есть SHR и ARR, полет завершен и телеграмма передается дальше.
+ * Дальше передается не сам план, а его копия: ее сохраняют в другом потоке, пока план продолжает меняться.
+ * О сохранении копии сообщают через persisted(), и план запоминает id сохраненной телеграммы.
+ * Завершенный план хранится по своим ключам еще ttl: опоздавшее сообщение (например, DEP после ARR)
+ * дописывается в план, и он передается повторно с этим id - обновляются сохраненная телеграмма и ее полет,
+ * а не создается новый план. Пока предыдущая копия не сохранена, повторная передача откладывается
+ * до persisted(), иначе обе копии могли бы попасть в один пакет и вторая была бы отброшена как дубликат.
+ * План, не получивший ARR за ttl, или самый старый план при превышении maxOpenPlans
+ * передается как есть (без прилета или без SHR - тогда он попадет в rejected_telegrams).
+ * Открытые и завершенные планы сохраняются в файл контрольной точки и восстанавливаются после перезапуска.
+ */
+public final class TelegramCorrelator {
+
+    private static final int CHECKPOINT_MAGIC = 0x54434F52;
+    private static final int CHECKPOINT_VERSION = 3;
+
+    private final long ttlMillis;
+    private final int maxOpenPlans;
+    private final Consumer<RawTelegram> emit;
+    private final Map<String, OpenPlan> byKey = new HashMap<>();
+    // Порядок доступа: в начале планы, которые дольше всех не обновлялись
+    private final LinkedHashMap<OpenPlan, Boolean> plans = new LinkedHashMap<>(16, 0.75f, true);
+    // Завершенные планы в том же порядке; ждут опоздавших сообщений до истечения ttl
+    private final LinkedHashMap<OpenPlan, Boolean> closedPlans = new LinkedHashMap<>(16, 0.75f, true);
+    // Переданные копии, о сохранении которых еще не сообщили, и их планы (по ссылке на копию)
+    private final Map<RawTelegram, OpenPlan> inFlight = new IdentityHashMap<>();
+    // Планы, измененные, пока их копия сохранялась; передаются повторно после persisted()
+    private final List<OpenPlan> updated = new ArrayList<>();
+    // Одна запись контрольной точки за раз: все пишут в один временный файл
+    private final Object checkpointLock = new Object();
+
+    /**
+     * @param emit получает копии завершенных и вытесненных телеграмм; вызывается вне блокировки
+     *             и может блокироваться (backpressure), но не должен сам вызывать persisted()
+     */
+    public TelegramCorrelator(Duration ttl, int maxOpenPlans, Consumer<RawTelegram> emit) {
+        this.ttlMillis = ttl.toMillis();
+        this.maxOpenPlans = Math.max(1, maxOpenPlans);
+        this.emit = emit;
+    }
+
+    /**
+     * Принимает одно сообщение (заполнен один из текстов SHR, DEP, ARR)
+     */
+    public void accept(RawTelegram message) {
+        List<RawTelegram> ready = new ArrayList<>(1);
+        List<String> keys = CorrelationKeys.of(message);
+        synchronized (this) {
+            takeUpdated(ready);
+            if (keys.isEmpty()) {
+                // Не с чем сопоставить
+                ready.add(message);
+            } else {
+                OpenPlan complete = merge(message, keys, System.currentTimeMillis());
+                if (complete != null) {
+                    ready.add(emission(complete));
+                }
+                while (plans.size() > maxOpenPlans) {
+                    OpenPlan eldest = plans.keySet().iterator().next();
+                    forget(eldest);
+                    ready.add(emission(eldest));
+                }
+                while (closedPlans.size() > maxOpenPlans) {
+                    // Уже передан дальше; опоздавшее сообщение к нему откроет новый план
+                    forget(closedPlans.keySet().iterator().next());
+                }
+            }
+        }
+        ready.forEach(emit);
+    }
+
+    /**
+     * Сообщает, что переданная копия сохранена (или сохранить ее не удалось - тогда id у нее нет).
+     * План запоминает id; если он изменился за время сохранения, то передается повторно
+     * при следующем accept() или evictExpired() - не из потока, который сохраняет пакеты
+     */
+    public synchronized void persisted(RawTelegram telegram) {
+        OpenPlan plan = inFlight.remove(telegram);
+        if (plan == null) {
+            return;
+        }
+        plan.inFlight = false;
+        if (telegram.getId() != null) {
+            plan.telegramId = telegram.getId();
+        }
+        if (plan.updated) {
+            updated.add(plan);
+        }
+    }
+
+    /**
+     * Передает дальше открытые планы, не обновлявшиеся дольше ttl, и забывает такие же завершенные.
+     * Заодно передает планы, измененные за время сохранения своей копии
+     */
+    public void evictExpired() {
+        List<RawTelegram> ready = new ArrayList<>();
+        long expiredBefore = System.currentTimeMillis() - ttlMillis;
+        synchronized (this) {
+            takeUpdated(ready);
+            for (OpenPlan plan : expired(plans, expiredBefore)) {
+                ready.add(emission(plan));
+            }
+            expired(closedPlans, expiredBefore);
+        }
+        ready.forEach(emit);
+    }
+
+    /**
+     * Удаляет из карты планы, обновленные раньше expiredBefore, и возвращает их
+     */
+    private List<OpenPlan> expired(LinkedHashMap<OpenPlan, Boolean> planMap, long expiredBefore) {
+        List<OpenPlan> expired = new ArrayList<>();
+        Iterator<OpenPlan> iterator = planMap.keySet().iterator();
+        while (iterator.hasNext()) {
+            OpenPlan plan = iterator.next();
+            if (plan.updatedAt > expiredBefore) {
+                break;
+            }
+            iterator.remove();
+            for (String key : plan.keys) {
+                byKey.remove(key, plan);
+            }
+            expired.add(plan);
+        }
+        return expired;
+    }
+
+    public synchronized int openPlans() {
+        return plans.size();
+    }
+
+    public synchronized int closedPlans() {
+        return closedPlans.size();
+    }
+
+    /**
+     * Копии, о сохранении которых еще не сообщили через persisted()
+     */
+    public synchronized int inFlight() {
+        return inFlight.size();
+    }
+
+    /**
+     * Дописывает сообщение в его план; возвращает завершенный план, который нужно передать дальше
+     */
+    private OpenPlan merge(RawTelegram message, List<String> keys, long now) {
+        String sid = CorrelationKeys.sid(keys);
+        OpenPlan plan = null;
+        for (String key : keys) {
+            OpenPlan candidate = byKey.get(key);
+            // Запасной ключ сводит только сообщения без SID с обеих сторон или с одинаковым SID
+            if (candidate != null && (CorrelationKeys.isSid(key) || Objects.equals(sid, candidate.sid()))) {
+                plan = candidate;
+                break;
+            }
+        }
+        if (plan == null) {
+            plan = new OpenPlan(message, now);
+            plans.put(plan, Boolean.TRUE);
+        } else {
+            // Повторное сообщение того же типа заменяет прежнее
+            RawTelegram telegram = plan.telegram;
+            if (message.getShrRawText() != null) telegram.setShrRawText(message.getShrRawText());
+            if (message.getDepRawText() != null) telegram.setDepRawText(message.getDepRawText());
+            if (message.getArrRawText() != null) telegram.setArrRawText(message.getArrRawText());
+            if (telegram.getCenter() == null) telegram.setCenter(message.getCenter());
+            plan.updatedAt = now;
+            (plan.closed ? closedPlans : plans).get(plan);
+        }
+        for (String key : keys) {
+            if (!plan.keys.contains(key)) {
+                plan.keys.add(key);
+            }
+            byKey.put(key, plan);
+        }
+
+        if (plan.telegram.getShrRawText() != null && plan.telegram.getArrRawText() != null) {
+            if (!plan.closed) {
+                plans.remove(plan);
+                plan.closed = true;
+                closedPlans.put(plan, Boolean.TRUE);
+            }
+            if (!plan.inFlight) {
+                // Завершенный план передается повторно с дописанным сообщением
+                return plan;
+            }
+            // Передадим после сохранения предыдущей копии, уже с ее id
+            plan.updated = true;
+        }
+        return null;
+    }
+
+    /**
+     * Копия плана для передачи дальше; копия завершенного плана ждет persisted()
+     */
+    private RawTelegram emission(OpenPlan plan) {
+        RawTelegram telegram = new RawTelegram();
+        telegram.setId(plan.telegramId);
+        telegram.setCenter(plan.telegram.getCenter());
+        telegram.setFileName(plan.telegram.getFileName());
+        telegram.setShrRawText(plan.telegram.getShrRawText());
+        telegram.setDepRawText(plan.telegram.getDepRawText());
+        telegram.setArrRawText(plan.telegram.getArrRawText());
+        plan.updated = false;
+        if (plan.closed) {
+            plan.inFlight = true;
+            inFlight.put(telegram, plan);
+        }
+        return telegram;
+    }
+
+    /**
+     * Забирает на повторную передачу планы, чьи копии уже сохранены
+     */
+    private void takeUpdated(List<RawTelegram> ready) {
+        for (OpenPlan plan : updated) {
+            ready.add(emission(plan));
+        }
+        updated.clear();
+    }
+
+    private void forget(OpenPlan plan) {
+        (plan.closed ? closedPlans : plans).remove(plan);
+        for (String key : plan.keys) {
+            byKey.remove(key, plan);
+        }
+    }
+
+    /**
+     * Записывает открытые и завершенные планы в файл; запись атомарная через временный файл
+     */
+    public void checkpoint(Path file) throws IOException {
+        synchronized (checkpointLock) {
+            writeCheckpoint(file);
+        }
+    }
+
+    private void writeCheckpoint(Path file) throws IOException {
+        List<OpenPlan> snapshot;
+        synchronized (this) {
+            snapshot = new ArrayList<>(plans.size() + closedPlans.size());
+            snapshot.addAll(closedPlans.keySet());
+            snapshot.addAll(plans.keySet());
+        }
+        Files.createDirectories(file.toAbsolutePath().getParent());
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+            out.writeInt(CHECKPOINT_MAGIC);
+            out.writeInt(CHECKPOINT_VERSION);
+            out.writeInt(snapshot.size());
+            for (OpenPlan plan : snapshot) {
+                // Текст плана меняется только под блокировкой
+                synchronized (this) {
+                    out.writeLong(plan.updatedAt);
+                    // id сохраненной телеграммы завершенного плана, чтобы после перезапуска обновлять ее
+                    out.writeLong(plan.telegramId != null ? plan.telegramId : -1);
+                    // Изменения, которые еще не переданы повторно
+                    out.writeBoolean(plan.updated);
+                    writeText(out, plan.telegram.getCenter());
+                    writeText(out, plan.telegram.getFileName());
+                    writeText(out, plan.telegram.getShrRawText());
+                    writeText(out, plan.telegram.getDepRawText());
+                    writeText(out, plan.telegram.getArrRawText());
+                }
+            }
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Восстанавливает планы из файла контрольной точки, если он есть. Возвращает их количество
+     */
+    public int restore(Path file) throws IOException {
+        if (!Files.exists(file)) {
+            return 0;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != CHECKPOINT_MAGIC) {
+                throw new IOException("Неизвестный формат файла " + file);
+            }
+            // Версия 1 - только открытые планы, без id; версия 2 - без признака изменений
+            int version = in.readInt();
+            if (version != 1 && version != CHECKPOINT_VERSION) {
+                throw new IOException("Неизвестная версия " + version + " файла " + file);
+            }
+            int count = in.readInt();
+            synchronized (this) {
+                for (int i = 0; i < count; i++) {
+                    long updatedAt = in.readLong();
+                    long id = version > 1 ? in.readLong() : -1;
+                    boolean changed = version > 2 && in.readBoolean();
+                    RawTelegram telegram = new RawTelegram();
+                    if (id >= 0) {
+                        telegram.setId(id);
+                    }
+                    telegram.setCenter(readText(in));
+                    telegram.setFileName(readText(in));
+                    telegram.setShrRawText(readText(in));
+                    telegram.setDepRawText(readText(in));
+                    telegram.setArrRawText(readText(in));
+                    List<String> keys = CorrelationKeys.of(telegram);
+                    if (!keys.isEmpty()) {
+                        OpenPlan plan = merge(telegram, keys, updatedAt);
+                        // Завершенный план уже передавался; повторно - только если не успел после изменений
+                        if (plan != null && changed) {
+                            plan.updated = true;
+                            updated.add(plan);
+                        }
+                    }
+                }
+            }
+            return count;
+        }
+    }
+
+    private static void writeText(DataOutputStream out, String text) throws IOException {
+        if (text == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readText(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            return null;
+        }
+        return new String(in.readNBytes(length), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * План полета, открытый или завершенный (closed). Сравнивается по ссылке
+     */
+    private static final class OpenPlan {
+        final RawTelegram telegram;
+        final List<String> keys = new ArrayList<>(4);
+        long updatedAt;
+        boolean closed;
+        // id сохраненной телеграммы; у самого telegram не меняется
+        Long telegramId;
+        // Копия передана и еще не сохранена
+        boolean inFlight;
+        // План изменился после передачи последней копии
+        boolean updated;
+
+        OpenPlan(RawTelegram telegram, long updatedAt) {
+            this.telegram = telegram;
+            this.updatedAt = updatedAt;
+            this.telegramId = telegram.getId();
+        }
+
+        String sid() {
+            return CorrelationKeys.sid(keys);
+        }
+    }
+}
@@ -0,0 +1,278 @@
+package com.drones.skilldrones.pipeline;
+
+import com.drones.skilldrones.model.RawTelegram;
+import com.drones.skilldrones.parser.TelegramFramer;
+import com.drones.skilldrones.service.FlightProcessingService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Прием телеграмм SHR/DEP/ARR из сырого TCP-потока в стиле АФТН, без HTTP и multipart.
+ * Каждое соединение обслуживается своим виртуальным потоком с блокирующим чтением;
+ * буфер чтения выделяется один раз на соединение. Сообщения выделяются TelegramFramer
+ * по круглым скобкам, а сообщения ADEXP без скобок - по строке -TITLE и конверту АФТН.
+ * SHR, DEP и ARR одного полета приходят раздельно, поэтому сначала они сводятся TelegramCorrelator,
+ * а собранные телеграммы MicroBatcher группирует в пакеты для FlightProcessingService.
+ * Открытые планы периодически сохраняются в файл контрольной точки и переживают перезапуск.
+ */
+@Component
+public class TelegramFeedServer {
+
+    private static final int READ_BUFFER_BYTES = 64 * 1024;
+
+    private final FlightProcessingService flightProcessingService;
+    private final boolean enabled;
+    private final int port;
+    private final int batchSize;
+    private final Duration maxDelay;
+    private final int maxMessageBytes;
+    private final String center;
+    private final Path checkpointFile;
+    private final Duration checkpointInterval;
+    private final TelegramCorrelator correlator;
+    private final Set<SocketChannel> connections = ConcurrentHashMap.newKeySet();
+    private final Counter shrMessages;
+    private final Counter depMessages;
+    private final Counter arrMessages;
+    private final Counter skippedMessages;
+    private volatile ServerSocketChannel serverChannel;
+    private volatile MicroBatcher<RawTelegram> batcher;
+    private volatile Thread maintenance;
+
+    public TelegramFeedServer(FlightProcessingService flightProcessingService,
+                              MeterRegistry meterRegistry,
+                              @Value("${app.ingest.feed.enabled:false}") boolean enabled,
+                              @Value("${app.ingest.feed.port:7010}") int port,
+                              @Value("${app.ingest.feed.batch-size:500}") int batchSize,
+                              @Value("${app.ingest.feed.max-delay-millis:50}") long maxDelayMillis,
+                              @Value("${app.ingest.feed.max-message-bytes:65536}") int maxMessageBytes,
+                              @Value("${app.ingest.feed.center:}") String center,
+                              @Value("${app.ingest.feed.correlation.ttl-minutes:720}") long ttlMinutes,
+                              @Value("${app.ingest.feed.correlation.max-open-plans:200000}") int maxOpenPlans,
+                              @Value("${app.ingest.feed.correlation.checkpoint-file:./data/feed-correlation.bin}") String checkpointFile,
+                              @Value("${app.ingest.feed.correlation.checkpoint-interval-seconds:30}") long checkpointSeconds) {
+        this.flightProcessingService = flightProcessingService;
+        this.enabled = enabled;
+        this.port = port;
+        this.batchSize = batchSize;
+        this.maxDelay = Duration.ofMillis(maxDelayMillis);
+        this.maxMessageBytes = maxMessageBytes;
+        this.center = center.isBlank() ? null : center;
+        this.checkpointFile = Path.of(checkpointFile);
+        this.checkpointInterval = Duration.ofSeconds(Math.max(1, checkpointSeconds));
+        this.correlator = new TelegramCorrelator(Duration.ofMinutes(ttlMinutes), maxOpenPlans, this::enqueue);
+
+        Gauge.builder("ingest.feed.connections", connections, Set::size)
+                .description("Открытых соединений потока телеграмм")
+                .register(meterRegistry);
+        Gauge.builder("ingest.feed.open.plans", correlator, TelegramCorrelator::openPlans)
+                .description("Планов полетов, ожидающих DEP/ARR")
+                .register(meterRegistry);
+        this.shrMessages = messageCounter(meterRegistry, "shr");
+        this.depMessages = messageCounter(meterRegistry, "dep");
+        this.arrMessages = messageCounter(meterRegistry, "arr");
+        // Сообщения других типов и слишком длинные
+        this.skippedMessages = messageCounter(meterRegistry, "skipped");
+    }
+
+    private static Counter messageCounter(MeterRegistry meterRegistry, String type) {
+        return Counter.builder("ingest.feed.messages")
+                .description("Сообщений, принятых из потока телеграмм")
+                .tag("type", type)
+                .register(meterRegistry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        ServerSocketChannel channel = null;
+        try {
+            channel = ServerSocketChannel.open();
+            channel.bind(new InetSocketAddress(port));
+        } catch (IOException e) {
+            System.err.println("Не удалось открыть порт " + port + " для потока телеграмм: " + e.getMessage());
+            closeQuietly(channel);
+            return;
+        }
+        serverChannel = channel;
+        batcher = new MicroBatcher<>("telegram-feed-batcher", batchSize, maxDelay, this::persist);
+        try {
+            correlator.restore(checkpointFile);
+        } catch (IOException e) {
+            System.err.println("Не удалось восстановить открытые планы из " + checkpointFile + ": " + e.getMessage());
+        }
+        maintenance = Thread.ofVirtual().name("telegram-feed-maintenance").start(this::maintain);
+        Thread.ofVirtual().name("telegram-feed-acceptor").start(this::acceptConnections);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (serverChannel == null) {
+            return;
+        }
+        try {
+            serverChannel.close();
+            for (SocketChannel connection : connections) {
+                connection.close();
+            }
+        } catch (IOException e) {
+            System.err.println("Ошибка закрытия потока телеграмм: " + e.getMessage());
+        }
+        // Прерывание не останавливает уже начатую запись контрольной точки - ждем ее
+        Thread maintenance = this.maintenance;
+        if (maintenance != null) {
+            maintenance.interrupt();
+            try {
+                maintenance.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        MicroBatcher<RawTelegram> batcher = this.batcher;
+        if (batcher == null) {
+            return;
+        }
+        try {
+            // Сохраняет уже принятые телеграммы
+            batcher.close();
+        } catch (IllegalStateException e) {
+            System.err.println("Ошибка сохранения телеграмм при остановке: " + e.getMessage());
+        }
+        // После сохранения, чтобы в контрольную точку попали id последних телеграмм
+        checkpoint();
+    }
+
+    /**
+     * Периодически передает дальше просроченные планы и сохраняет контрольную точку
+     */
+    private void maintain() {
+        while (true) {
+            try {
+                Thread.sleep(checkpointInterval);
+            } catch (InterruptedException e) {
+                return;
+            }
+            correlator.evictExpired();
+            checkpoint();
+        }
+    }
+
+    private static void closeQuietly(ServerSocketChannel channel) {
+        if (channel == null) {
+            return;
+        }
+        try {
+            channel.close();
+        } catch (IOException e) {
+            System.err.println("Ошибка закрытия порта потока телеграмм: " + e.getMessage());
+        }
+    }
+
+    private void checkpoint() {
+        try {
+            correlator.checkpoint(checkpointFile);
+        } catch (IOException e) {
+            System.err.println("Ошибка сохранения контрольной точки планов полетов: " + e.getMessage());
+        }
+    }
+
+    private void acceptConnections() {
+        while (serverChannel.isOpen()) {
+            try {
+                SocketChannel connection = serverChannel.accept();
+                Thread.ofVirtual().name("telegram-feed-connection").start(() -> serve(connection));
+            } catch (ClosedChannelException e) {
+                return;
+            } catch (IOException e) {
+                System.err.println("Ошибка приема соединения потока телеграмм: " + e.getMessage());
+            }
+        }
+    }
+
+    private void serve(SocketChannel connection) {
+        connections.add(connection);
+        TelegramFramer framer = new TelegramFramer(maxMessageBytes);
+        ByteBuffer buffer = ByteBuffer.allocateDirect(READ_BUFFER_BYTES);
+        try (connection) {
+            String source = "feed:" + connection.getRemoteAddress();
+            while (connection.read(buffer) >= 0) {
+                buffer.flip();
+                int dropped = framer.feed(buffer, text -> accept(text, source));
+                skippedMessages.increment(dropped);
+                buffer.clear();
+            }
+            // Последнее сообщение ADEXP завершается закрытием соединения
+            skippedMessages.increment(framer.finish(text -> accept(text, source)));
+        } catch (IOException e) {
+            if (serverChannel.isOpen()) {
+                System.err.println("Ошибка чтения потока телеграмм: " + e.getMessage());
+            }
+        } finally {
+            connections.remove(connection);
+        }
+    }
+
+    private void accept(String text, String source) {
+        RawTelegram telegram = new RawTelegram();
+        telegram.setCenter(center);
+        telegram.setFileName(source);
+        // Сообщения в формате ИКАО (SHR-, DEP-, ARR-) и в российском формате (IDEP, IARR)
+        if (text.startsWith("SHR")) {
+            telegram.setShrRawText(text);
+            shrMessages.increment();
+        } else if (text.startsWith("DEP") || text.startsWith("IDEP") || text.contains("TITLE IDEP")) {
+            telegram.setDepRawText(text);
+            depMessages.increment();
+        } else if (text.startsWith("ARR") || text.startsWith("IARR") || text.contains("TITLE IARR")) {
+            telegram.setArrRawText(text);
+            arrMessages.increment();
+        } else {
+            skippedMessages.increment();
+            return;
+        }
+        correlator.accept(telegram);
+    }
+
+    private void enqueue(RawTelegram telegram) {
+        try {
+            // Блокирует чтение сокета, пока предыдущий пакет не взят в обработку
+            batcher.add(telegram);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Прием потока телеграмм прерван", e);
+        }
+    }
+
+    private void persist(List<RawTelegram> telegrams) {
+        try {
+            flightProcessingService.processBatch(telegrams);
+        } catch (Exception e) {
+            // Ошибки отдельных телеграмм уходят в rejected_telegrams; сюда попадает только сбой всего пакета
+            System.err.println("Ошибка сохранения пакета из потока телеграмм (" + telegrams.size() + " шт.): "
+                    + e.getMessage());
+        } finally {
+            // Планы запоминают id сохраненных телеграмм; измененные за это время передаются повторно
+            telegrams.forEach(correlator::persisted);
+        }
+    }
+}
@@ -0,0 +1,237 @@
+package com.drones.skilldrones.repository;
+
+import com.drones.skilldrones.model.Flight;
+import com.drones.skilldrones.model.RawTelegram;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyManager;
+import org.springframework.jdbc.datasource.DataSourceUtils;
+import org.springframework.stereotype.Repository;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Массовая загрузка полетов и их сырых телеграмм через PostgreSQL COPY (binary).
+ * Идентификаторы резервируются заранее одним запросом к последовательностям,
+ * поэтому COPY не нужно возвращать сгенерированные ключи, а Hibernate не выполняет
+ * отдельный INSERT ... RETURNING на каждую строку.
+ * Работает на соединении текущей Spring-транзакции, если она есть.
+ * Для повторной обработки есть upsert: полеты уже сохраненных телеграмм обновляются по raw_id.
+ */
+@Repository
+public class FlightBulkLoader {
+    private static final String COPY_RAW_TELEGRAMS =
+            "COPY raw_telegrams (id, center, shr_raw_text, dep_raw_text, arr_raw_text, file_name, " +
+            "processed_at, processing_status, telegram_hash) FROM STDIN (FORMAT binary)";
+
+    private static final String FLIGHT_COLUMNS =
+            "flight_id, drone_id, raw_id, flight_code, drone_type, drone_registration, flight_date, " +
+            "departure_time, arrival_time, duration_minutes, departure_coords, arrival_coords, " +
+            "processing_status, departure_point, arrival_point, departure_region_id, arrival_region_id, " +
+            "created_at, updated_at";
+    private static final int FLIGHT_FIELD_COUNT = 19;
+
+    // Временная таблица сессии без ограничений flights: flight_id новых полетов в ней пустой
+    private static final String UPSERT_TABLE = "flights_upsert";
+    private static final String CREATE_UPSERT_TABLE =
+            "CREATE TEMP TABLE IF NOT EXISTS " + UPSERT_TABLE + " ON COMMIT DELETE ROWS AS " +
+            "SELECT " + FLIGHT_COLUMNS + " FROM flights WITH NO DATA";
+    private static final String UPSERT_FLIGHTS = upsertFlightsSql();
+
+    private final DataSource dataSource;
+    private final ZoneId zone = ZoneId.systemDefault();
+
+    public FlightBulkLoader(DataSource dataSource) {
+        this.dataSource = dataSource;
+    }
+
+    /**
+     * Сохраняет полеты и еще не сохраненные телеграммы. Сгенерированные идентификаторы
+     * проставляются в переданные объекты. Возвращает количество вставленных полетов
+     */
+    public int load(List<Flight> flights) {
+        if (flights.isEmpty()) {
+            return 0;
+        }
+
+        Connection connection = DataSourceUtils.getConnection(dataSource);
+        try {
+            CopyManager copyManager = connection.unwrap(PGConnection.class).getCopyAPI();
+
+            List<RawTelegram> telegrams = newTelegrams(flights);
+            if (!telegrams.isEmpty()) {
+                long[] ids = reserveIds(connection, "raw_telegrams", "id", telegrams.size());
+                for (int i = 0; i < telegrams.size(); i++) {
+                    telegrams.get(i).setId(ids[i]);
+                }
+                copyTelegrams(copyManager, telegrams);
+            }
+
+            long[] ids = reserveIds(connection, "flights", "flight_id", flights.size());
+            for (int i = 0; i < flights.size(); i++) {
+                flights.get(i).setFlightId(ids[i]);
+            }
+            return (int) copyFlights(copyManager, "flights", flights);
+        } catch (SQLException e) {
+            throw new RuntimeException("Ошибка массовой загрузки полетов: " + e.getMessage(), e);
+        } finally {
+            DataSourceUtils.releaseConnection(connection, dataSource);
+        }
+    }
+
+    /**
+     * Вставляет или обновляет полеты уже сохраненных телеграмм (по уникальному raw_id).
+     * Полеты пишутся COPY во временную таблицу и переносятся в flights одним INSERT ... ON CONFLICT.
+     * Должен вызываться в транзакции. Возвращает количество вставленных и обновленных полетов
+     */
+    public int upsert(List<Flight> flights) {
+        if (flights.isEmpty()) {
+            return 0;
+        }
+
+        Connection connection = DataSourceUtils.getConnection(dataSource);
+        try {
+            try (Statement statement = connection.createStatement()) {
+                statement.execute(CREATE_UPSERT_TABLE);
+            }
+            CopyManager copyManager = connection.unwrap(PGConnection.class).getCopyAPI();
+            copyFlights(copyManager, UPSERT_TABLE, flights);
+            try (Statement statement = connection.createStatement()) {
+                return statement.executeUpdate(UPSERT_FLIGHTS);
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("Ошибка массового обновления полетов: " + e.getMessage(), e);
+        } finally {
+            DataSourceUtils.releaseConnection(connection, dataSource);
+        }
+    }
+
+    /**
+     * INSERT ... SELECT из временной таблицы: новый полет получает flight_id из последовательности,
+     * существующий обновляет все поля, кроме flight_id, raw_id и created_at
+     */
+    private static String upsertFlightsSql() {
+        List<String> columns = List.of(FLIGHT_COLUMNS.split(",\\s*"));
+        StringBuilder sql = new StringBuilder("INSERT INTO flights (").append(FLIGHT_COLUMNS).append(") SELECT ")
+                .append("nextval(pg_get_serial_sequence('flights', 'flight_id'))");
+        for (String column : columns.subList(1, columns.size())) {
+            sql.append(", ").append(column);
+        }
+        sql.append(" FROM ").append(UPSERT_TABLE).append(" ON CONFLICT (raw_id) DO UPDATE SET ");
+        String separator = "";
+        for (String column : columns) {
+            if (column.equals("flight_id") || column.equals("raw_id") || column.equals("created_at")) {
+                continue;
+            }
+            sql.append(separator).append(column).append(" = EXCLUDED.").append(column);
+            separator = ", ";
+        }
+        return sql.toString();
+    }
+
+    private List<RawTelegram> newTelegrams(List<Flight> flights) {
+        Map<RawTelegram, Boolean> seen = new IdentityHashMap<>();
+        List<RawTelegram> telegrams = new ArrayList<>();
+        for (Flight flight : flights) {
+            RawTelegram telegram = flight.getRawTelegram();
+            if (telegram != null && telegram.getId() == null && seen.put(telegram, Boolean.TRUE) == null) {
+                telegrams.add(telegram);
+            }
+        }
+        return telegrams;
+    }
+
+    /**
+     * Резервирует count значений последовательности serial-колонки одним запросом
+     */
+    private long[] reserveIds(Connection connection, String table, String column, int count) throws SQLException {
+        long[] ids = new long[count];
+        String sql = "SELECT nextval(pg_get_serial_sequence(?, ?)) FROM generate_series(1, ?)";
+        try (PreparedStatement statement = connection.prepareStatement(sql)) {
+            statement.setString(1, table);
+            statement.setString(2, column);
+            statement.setInt(3, count);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                int i = 0;
+                while (resultSet.next()) {
+                    ids[i++] = resultSet.getLong(1);
+                }
+            }
+        }
+        return ids;
+    }
+
+    private void copyTelegrams(CopyManager copyManager, List<RawTelegram> telegrams) throws SQLException {
+        PgBinaryCopyWriter writer = new PgBinaryCopyWriter(copyManager.copyIn(COPY_RAW_TELEGRAMS), zone);
+        try {
+            LocalDateTime now = LocalDateTime.now();
+            for (RawTelegram telegram : telegrams) {
+                if (telegram.getProcessedAt() == null) {
+                    telegram.setProcessedAt(now);
+                }
+                writer.startRow(9);
+                writer.writeLong(telegram.getId());
+                writer.writeText(telegram.getCenter());
+                writer.writeText(telegram.getShrRawText());
+                writer.writeText(telegram.getDepRawText());
+                writer.writeText(telegram.getArrRawText());
+                writer.writeText(telegram.getFileName());
+                writer.writeTimestamp(telegram.getProcessedAt());
+                writer.writeText(telegram.getProcessingStatus());
+                writer.writeText(telegram.getTelegramHash());
+            }
+            writer.finish();
+        } catch (SQLException | RuntimeException e) {
+            writer.cancel();
+            throw e;
+        }
+    }
+
+    /**
+     * Пишет полеты в таблицу table (flights или временную таблицу той же структуры)
+     */
+    long copyFlights(CopyManager copyManager, String table, List<Flight> flights) throws SQLException {
+        String sql = "COPY " + table + " (" + FLIGHT_COLUMNS + ") FROM STDIN (FORMAT binary)";
+        PgBinaryCopyWriter writer = new PgBinaryCopyWriter(copyManager.copyIn(sql), zone);
+        try {
+            for (Flight flight : flights) {
+                flight.fillCoordinates();
+
+                writer.startRow(FLIGHT_FIELD_COUNT);
+                writer.writeLong(flight.getFlightId());
+                writer.writeInt(flight.getDroneId());
+                writer.writeLong(flight.getRawTelegram() != null ? flight.getRawTelegram().getId() : null);
+                writer.writeText(flight.getFlightCode());
+                writer.writeText(flight.getDroneType());
+                writer.writeText(flight.getDroneRegistration());
+                writer.writeDate(flight.getFlightDate());
+                writer.writeTime(flight.getDepartureTime());
+                writer.writeTime(flight.getArrivalTime());
+                writer.writeInt(flight.getDurationMinutes());
+                writer.writeText(flight.getDepartureCoords());
+                writer.writeText(flight.getArrivalCoords());
+                writer.writeText(flight.getProcessingStatus());
+                writer.writeGeometry(flight.getDeparturePoint());
+                writer.writeGeometry(flight.getArrivalPoint());
+                writer.writeLong(flight.getDepartureRegion() != null ? flight.getDepartureRegion().getRegionId() : null);
+                writer.writeLong(flight.getArrivalRegion() != null ? flight.getArrivalRegion().getRegionId() : null);
+                writer.writeTimestamp(flight.getCreatedAt());
+                writer.writeTimestamp(flight.getUpdatedAt());
+            }
+            return writer.finish();
+        } catch (SQLException | RuntimeException e) {
+            writer.cancel();
+            throw e;
+        }
+    }
+}
@@ -2,6 +2,7 @@ package com.drones.skilldrones.repository;
 
 import com.drones.skilldrones.model.Flight;
 import com.drones.skilldrones.model.Region;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
@@ -9,6 +10,9 @@ import java.time.LocalDate;
 import java.util.List;
 
 public interface FlightRepository extends JpaRepository<Flight, Long> {
+    // Отчеты группируют полеты по региону вылета: он подгружается тем же запросом (без границы),
+    // и отчет не зависит от открытой сессии
+    @EntityGraph(attributePaths = "departureRegion")
     List<Flight> findByFlightDateBetween(LocalDate startDate, LocalDate endDate);
 
     @Query("SELECT f FROM Flight f WHERE f.departureRegion = :region OR f.arrivalRegion = :region")
@@ -31,4 +35,13 @@ public interface FlightRepository extends JpaRepository<Flight, Long> {
 
     @Query("SELECT COUNT(f) FROM Flight f WHERE f.departureRegion.regionId = :regionId")
     long countByDepartureRegion(@Param("regionId") Long regionId);
+
+    // Пары [region_id, количество] по всем полетам, для атрибутов векторных тайлов
+    @Query("SELECT f.departureRegion.regionId, COUNT(f) FROM Flight f " +
+            "WHERE f.departureRegion IS NOT NULL GROUP BY f.departureRegion.regionId")
+    List<Object[]> countFlightsByDepartureRegion();
+
+    @Query("SELECT f.arrivalRegion.regionId, COUNT(f) FROM Flight f " +
+            "WHERE f.arrivalRegion IS NOT NULL GROUP BY f.arrivalRegion.regionId")
+    List<Object[]> countFlightsByArrivalRegion();
 }
@@ -0,0 +1,19 @@
+package com.drones.skilldrones.repository;
+
+import com.drones.skilldrones.model.IngestJob;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import java.util.Collection;
+import java.util.List;
+
+public interface IngestJobRepository extends JpaRepository<IngestJob, Long> {
+    /**
+     * Находит задания в указанных статусах (например, незавершенные после рестарта)
+     */
+    List<IngestJob> findByStatusIn(Collection<IngestJob.JobStatus> statuses);
+
+    /**
+     * Последние задания загрузки
+     */
+    List<IngestJob> findTop50ByOrderByCreatedAtDesc();
+}
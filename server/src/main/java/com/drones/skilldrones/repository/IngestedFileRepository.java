@@ -0,0 +1,13 @@
+package com.drones.skilldrones.repository;
+
+import com.drones.skilldrones.model.IngestedFile;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import java.util.Optional;
+
+public interface IngestedFileRepository extends JpaRepository<IngestedFile, Long> {
+    /**
+     * Находит ранее загруженный файл по SHA-256 содержимого
+     */
+    Optional<IngestedFile> findBySha256(String sha256);
+}
@@ -0,0 +1,154 @@
+package com.drones.skilldrones.repository;
+
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.io.ByteOrderValues;
+import org.locationtech.jts.io.WKBWriter;
+import org.postgresql.copy.CopyIn;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.time.temporal.ChronoUnit;
+
+/**
+ * Запись строк в PostgreSQL COPY ... FROM STDIN (FORMAT binary).
+ * Данные копятся в буфере фиксированного размера и отправляются порциями,
+ * поэтому объем памяти не зависит от количества строк.
+ */
+class PgBinaryCopyWriter {
+    private static final byte[] SIGNATURE = {'P', 'G', 'C', 'O', 'P', 'Y', '\n', (byte) 0xFF, '\r', '\n', 0};
+    private static final LocalDate PG_EPOCH_DATE = LocalDate.of(2000, 1, 1);
+    private static final LocalDateTime PG_EPOCH = PG_EPOCH_DATE.atStartOfDay();
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final CopyIn copyIn;
+    private final ZoneId zone;
+    private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+    // EWKB (big-endian, с SRID) принимается функцией geometry_recv PostGIS
+    private final WKBWriter wkbWriter = new WKBWriter(2, ByteOrderValues.BIG_ENDIAN, true);
+
+    PgBinaryCopyWriter(CopyIn copyIn, ZoneId zone) {
+        this.copyIn = copyIn;
+        this.zone = zone;
+        buffer.put(SIGNATURE).putInt(0).putInt(0);
+    }
+
+    void startRow(int fieldCount) throws SQLException {
+        ensure(2);
+        buffer.putShort((short) fieldCount);
+    }
+
+    void writeNull() throws SQLException {
+        ensure(4);
+        buffer.putInt(-1);
+    }
+
+    void writeLong(Long value) throws SQLException {
+        if (value == null) {
+            writeNull();
+            return;
+        }
+        ensure(12);
+        buffer.putInt(8).putLong(value);
+    }
+
+    void writeInt(Integer value) throws SQLException {
+        if (value == null) {
+            writeNull();
+            return;
+        }
+        ensure(8);
+        buffer.putInt(4).putInt(value);
+    }
+
+    void writeText(String value) throws SQLException {
+        writeBytes(value != null ? value.getBytes(StandardCharsets.UTF_8) : null);
+    }
+
+    void writeBytes(byte[] value) throws SQLException {
+        if (value == null) {
+            writeNull();
+            return;
+        }
+        ensure(4);
+        buffer.putInt(value.length);
+        if (value.length <= buffer.remaining()) {
+            buffer.put(value);
+        } else {
+            flush();
+            copyIn.writeToCopy(value, 0, value.length);
+        }
+    }
+
+    void writeGeometry(Geometry value) throws SQLException {
+        writeBytes(value != null ? wkbWriter.write(value) : null);
+    }
+
+    void writeDate(LocalDate value) throws SQLException {
+        if (value == null) {
+            writeNull();
+            return;
+        }
+        ensure(8);
+        buffer.putInt(4).putInt((int) ChronoUnit.DAYS.between(PG_EPOCH_DATE, value));
+    }
+
+    void writeTime(LocalTime value) throws SQLException {
+        if (value == null) {
+            writeNull();
+            return;
+        }
+        ensure(12);
+        buffer.putInt(8).putLong(value.toNanoOfDay() / 1000);
+    }
+
+    /**
+     * timestamptz: микросекунды от 2000-01-01 UTC; LocalDateTime трактуется в зоне JVM, как у Hibernate
+     */
+    void writeTimestamp(LocalDateTime value) throws SQLException {
+        if (value == null) {
+            writeNull();
+            return;
+        }
+        LocalDateTime utc = value.atZone(zone).withZoneSameInstant(ZoneId.of("UTC")).toLocalDateTime();
+        ensure(12);
+        buffer.putInt(8).putLong(ChronoUnit.MICROS.between(PG_EPOCH, utc));
+    }
+
+    /**
+     * Завершает COPY и возвращает количество принятых сервером строк
+     */
+    long finish() throws SQLException {
+        ensure(2);
+        buffer.putShort((short) -1);
+        flush();
+        return copyIn.endCopy();
+    }
+
+    void cancel() {
+        try {
+            if (copyIn.isActive()) {
+                copyIn.cancelCopy();
+            }
+        } catch (SQLException e) {
+            System.err.println("Ошибка отмены COPY: " + e.getMessage());
+        }
+    }
+
+    private void ensure(int bytes) throws SQLException {
+        if (buffer.remaining() < bytes) {
+            flush();
+        }
+    }
+
+    private void flush() throws SQLException {
+        if (buffer.position() > 0) {
+            copyIn.writeToCopy(buffer.array(), 0, buffer.position());
+            buffer.clear();
+        }
+    }
+}
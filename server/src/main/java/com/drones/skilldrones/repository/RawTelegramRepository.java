@@ -0,0 +1,42 @@
+package com.drones.skilldrones.repository;
+
+import com.drones.skilldrones.model.RawTelegram;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.HibernateHints.HINT_FETCH_SIZE;
+
+public interface RawTelegramRepository extends JpaRepository<RawTelegram, Long> {
+    /**
+     * Какие из переданных хешей уже есть в базе
+     */
+    @Query("SELECT t.telegramHash FROM RawTelegram t WHERE t.telegramHash IN :hashes")
+    List<String> findExistingHashes(@Param("hashes") Collection<String> hashes);
+
+    /**
+     * Все хеши телеграмм порциями через курсор (для заполнения фильтра Блума); требует транзакции
+     */
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "10000"))
+    @Query("SELECT t.telegramHash FROM RawTelegram t WHERE t.telegramHash IS NOT NULL")
+    Stream<String> streamTelegramHashes();
+
+    @Query("SELECT MIN(t.id) FROM RawTelegram t")
+    Long findMinId();
+
+    @Query("SELECT MAX(t.id) FROM RawTelegram t")
+    Long findMaxId();
+
+    /**
+     * Порция телеграмм с id в (afterId, toId] по возрастанию id; размер порции задает pageable
+     */
+    @Query("SELECT t FROM RawTelegram t WHERE t.id > :afterId AND t.id <= :toId ORDER BY t.id")
+    List<RawTelegram> findIdRange(@Param("afterId") long afterId, @Param("toId") long toId, Pageable pageable);
+}
@@ -0,0 +1,79 @@
+package com.drones.skilldrones.repository;
+
+import com.drones.skilldrones.geo.RegionBoundary;
+import org.locationtech.jts.io.ByteOrderValues;
+import org.locationtech.jts.io.WKBWriter;
+import org.springframework.jdbc.datasource.DataSourceUtils;
+import org.springframework.stereotype.Repository;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.List;
+
+/**
+ * Сохранение регионов пакетами JDBC: вставка нового региона или замена границ и площади
+ * существующего с тем же именем. Геометрия передается в EWKB, без WKT.
+ * Работает на соединении текущей Spring-транзакции, если она есть.
+ */
+@Repository
+public class RegionBulkLoader {
+    private static final String UPSERT_REGION =
+            "INSERT INTO regions (name, area_km2, geometry, created_at, updated_at) " +
+            "VALUES (?, ?, ST_GeomFromEWKB(?), now(), now()) " +
+            "ON CONFLICT (name) DO UPDATE SET area_km2 = EXCLUDED.area_km2, geometry = EXCLUDED.geometry, " +
+            "updated_at = now()";
+    private static final int BATCH_SIZE = 200;
+
+    private final DataSource dataSource;
+
+    public RegionBulkLoader(DataSource dataSource) {
+        this.dataSource = dataSource;
+    }
+
+    /**
+     * Возвращает количество вставленных и обновленных регионов
+     */
+    public int upsert(List<RegionBoundary> regions) {
+        Connection connection = DataSourceUtils.getConnection(dataSource);
+        // EWKB с SRID: ST_GeomFromEWKB берет систему координат из самой геометрии
+        WKBWriter wkbWriter = new WKBWriter(2, ByteOrderValues.BIG_ENDIAN, true);
+        try (PreparedStatement statement = connection.prepareStatement(UPSERT_REGION)) {
+            int saved = 0;
+            int batched = 0;
+            for (RegionBoundary region : regions) {
+                statement.setString(1, region.name());
+                if (region.areaKm2() != null) {
+                    statement.setDouble(2, region.areaKm2());
+                } else {
+                    statement.setNull(2, Types.DOUBLE);
+                }
+                statement.setBytes(3, region.geometry() != null ? wkbWriter.write(region.geometry()) : null);
+                statement.addBatch();
+                if (++batched == BATCH_SIZE) {
+                    saved += sum(statement.executeBatch());
+                    batched = 0;
+                }
+            }
+            if (batched > 0) {
+                saved += sum(statement.executeBatch());
+            }
+            return saved;
+        } catch (SQLException e) {
+            throw new RuntimeException("Ошибка сохранения регионов: " + e.getMessage(), e);
+        } finally {
+            DataSourceUtils.releaseConnection(connection, dataSource);
+        }
+    }
+
+    private int sum(int[] counts) {
+        int total = 0;
+        for (int count : counts) {
+            // SUCCESS_NO_INFO (-2): строка обработана, но драйвер не вернул количество
+            total += count >= 0 ? count : 1;
+        }
+        return total;
+    }
+}
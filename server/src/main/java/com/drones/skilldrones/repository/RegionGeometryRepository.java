@@ -0,0 +1,13 @@
+package com.drones.skilldrones.repository;
+
+import com.drones.skilldrones.model.RegionGeometry;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+
+import java.util.List;
+
+public interface RegionGeometryRepository extends JpaRepository<RegionGeometry, Long> {
+
+    @Query("SELECT g FROM RegionGeometry g WHERE g.geometry IS NOT NULL ORDER BY g.regionId")
+    List<RegionGeometry> findAllWithGeometry();
+}
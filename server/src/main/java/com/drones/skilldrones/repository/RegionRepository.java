@@ -1,16 +1,152 @@
 package com.drones.skilldrones.repository;
 
 import com.drones.skilldrones.model.Region;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.locationtech.jts.geom.Point;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
+import java.util.List;
 import java.util.Optional;
 
 public interface RegionRepository extends JpaRepository<Region, Long> {
 
+    // Списки регионов берутся из кэша запросов; findById обслуживается кэшем сущностей
+    @Override
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
+    List<Region> findAll();
+
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
     Optional<Region> findByName(String name);
 
-    @Query("SELECT r FROM Region r WHERE within(:point, r.geometry) = true")
+    @Query("SELECT r FROM Region r WHERE r.regionId IN " +
+            "(SELECT g.regionId FROM RegionGeometry g WHERE within(:point, g.geometry) = true)")
     Optional<Region> findRegionByPoint(@Param("point") Point point);
+
+    /**
+     * Геопривязка пакета точек одним запросом: массивы разворачиваются через unnest
+     * и соединяются с regions по ST_Contains (использует GiST-индекс idx_regions_geometry).
+     * Возвращает пары "индекс точки в массиве (с 0) -> region_id" только для найденных точек
+     */
+    @Query(value = """
+            SELECT DISTINCT ON (p.idx) CAST(p.idx - 1 AS integer) AS pointIndex, r.region_id AS regionId
+            FROM unnest(CAST(:lons AS double precision[]), CAST(:lats AS double precision[]))
+                 WITH ORDINALITY AS p(lon, lat, idx)
+            JOIN regions r ON ST_Contains(r.geometry, ST_SetSRID(ST_MakePoint(p.lon, p.lat), 4326))
+            ORDER BY p.idx, r.region_id
+            """, nativeQuery = true)
+    List<PointRegionMatch> findRegionIdsByPoints(@Param("lons") double[] lons, @Param("lats") double[] lats);
+
+    interface PointRegionMatch {
+        Integer getPointIndex();
+        Long getRegionId();
+    }
+
+    /**
+     * Количество регионов, для которых уровень упрощения не построен, построен с другим допуском
+     * или устарел после изменения границ
+     */
+    @Query(value = """
+            SELECT COUNT(*) FROM regions r
+            WHERE r.geometry IS NOT NULL AND NOT EXISTS (
+                SELECT 1 FROM region_geometry_levels l
+                WHERE l.region_id = r.region_id AND l.level = :level AND l.tolerance = :tolerance
+                  AND (r.updated_at IS NULL OR l.built_at >= r.updated_at))
+            """, nativeQuery = true)
+    long countRegionsWithoutGeometryLevel(@Param("level") int level, @Param("tolerance") double tolerance);
+
+    // Без списка затронутых таблиц Hibernate после нативного изменения сбросил бы весь кэш второго уровня
+    @Modifying
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "region_geometry_levels"))
+    @Query(value = "DELETE FROM region_geometry_levels WHERE level = :level OR level > :maxLevel", nativeQuery = true)
+    int deleteGeometryLevels(@Param("level") int level, @Param("maxLevel") int maxLevel);
+
+    /**
+     * Строит уровень упрощения для всех регионов на стороне базы, без передачи полных геометрий в приложение
+     */
+    @Modifying
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "region_geometry_levels"))
+    @Query(value = """
+            INSERT INTO region_geometry_levels (region_id, level, tolerance, geometry, num_points, built_at)
+            SELECT s.region_id, :level, :tolerance, s.geometry, ST_NPoints(s.geometry), now()
+            FROM (SELECT region_id, ST_SimplifyPreserveTopology(geometry, :tolerance) AS geometry
+                  FROM regions WHERE geometry IS NOT NULL) s
+            WHERE s.geometry IS NOT NULL AND NOT ST_IsEmpty(s.geometry)
+            """, nativeQuery = true)
+    int insertGeometryLevel(@Param("level") int level, @Param("tolerance") double tolerance);
+
+    /**
+     * GeoJSON FeatureCollection регионов (или одного региона) на заданном уровне упрощения.
+     * Документ собирается в базе; уровень 0, а также еще не построенный уровень отдают полную геометрию
+     */
+    @Query(value = """
+            SELECT CAST(json_build_object(
+                       'type', 'FeatureCollection',
+                       'features', COALESCE(json_agg(json_build_object(
+                           'type', 'Feature',
+                           'id', r.region_id,
+                           'properties', json_build_object('name', r.name, 'areaKm2', r.area_km2),
+                           'geometry', CAST(ST_AsGeoJSON(COALESCE(l.geometry, r.geometry), :digits) AS json))
+                         ORDER BY r.region_id), CAST('[]' AS json))) AS text)
+            FROM regions r
+            LEFT JOIN region_geometry_levels l ON l.region_id = r.region_id AND l.level = :level
+            WHERE r.geometry IS NOT NULL AND (CAST(:regionId AS bigint) IS NULL OR r.region_id = :regionId)
+            """, nativeQuery = true)
+    String findGeoJson(@Param("level") int level, @Param("digits") int digits, @Param("regionId") Long regionId);
+
+    /**
+     * Размер уровней упрощения: число регионов и вершин; уровень 0 - полные геометрии
+     */
+    @Query(value = """
+            SELECT 0 AS level, CAST(0 AS double precision) AS tolerance,
+                   COUNT(*) AS regions, COALESCE(SUM(ST_NPoints(geometry)), 0) AS points
+            FROM regions WHERE geometry IS NOT NULL
+            UNION ALL
+            SELECT CAST(level AS integer), MIN(tolerance), COUNT(*), COALESCE(SUM(num_points), 0)
+            FROM region_geometry_levels GROUP BY level
+            ORDER BY level
+            """, nativeQuery = true)
+    List<GeometryLevelStats> findGeometryLevelStats();
+
+    /**
+     * Тайл Mapbox Vector Tile (слой regions) в схеме XYZ: границы на уровне детализации level
+     * обрезаются по тайлу с запасом buffer и кодируются ST_AsMVT. Количество полетов передается
+     * массивами region_id -> вылеты/прилеты и попадает в атрибуты departures и arrivals
+     */
+    @Query(value = """
+            WITH bounds AS (
+                SELECT ST_TileEnvelope(:z, :x, :y) AS tile,
+                       ST_Transform(ST_TileEnvelope(:z, :x, :y, margin => :margin), 4326) AS area
+            ),
+            counts AS (
+                SELECT * FROM unnest(CAST(:regionIds AS bigint[]), CAST(:departures AS bigint[]),
+                                     CAST(:arrivals AS bigint[])) AS c(region_id, departures, arrivals)
+            ),
+            features AS (
+                SELECT r.region_id AS id, r.name AS name,
+                       COALESCE(c.departures, 0) AS departures, COALESCE(c.arrivals, 0) AS arrivals,
+                       ST_AsMVTGeom(ST_Transform(ST_ClipByBox2D(COALESCE(l.geometry, r.geometry), b.area), 3857),
+                                    b.tile, :extent, :buffer, true) AS geom
+                FROM regions r
+                CROSS JOIN bounds b
+                LEFT JOIN region_geometry_levels l ON l.region_id = r.region_id AND l.level = :level
+                LEFT JOIN counts c ON c.region_id = r.region_id
+                WHERE r.geometry && b.area
+            )
+            SELECT ST_AsMVT(features, 'regions', :extent, 'geom', 'id') FROM features WHERE geom IS NOT NULL
+            """, nativeQuery = true)
+    byte[] findVectorTile(@Param("z") int z, @Param("x") int x, @Param("y") int y, @Param("level") int level,
+                          @Param("extent") int extent, @Param("buffer") int buffer, @Param("margin") double margin,
+                          @Param("regionIds") long[] regionIds, @Param("departures") long[] departures,
+                          @Param("arrivals") long[] arrivals);
+
+    interface GeometryLevelStats {
+        Integer getLevel();
+        Double getTolerance();
+        Long getRegions();
+        Long getPoints();
+    }
 }
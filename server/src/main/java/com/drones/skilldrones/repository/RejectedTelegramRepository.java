@@ -0,0 +1,19 @@
+package com.drones.skilldrones.repository;
+
+import com.drones.skilldrones.model.RejectedTelegram;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import java.util.List;
+
+public interface RejectedTelegramRepository extends JpaRepository<RejectedTelegram, Long> {
+    /**
+     * Отклоненные телеграммы: сначала с меньшим числом попыток, затем в порядке поступления
+     */
+    List<RejectedTelegram> findByStatusOrderByAttemptsAscRejectedIdAsc(RejectedTelegram.RejectStatus status, Pageable pageable);
+
+    /**
+     * Подсчитывает отклоненные телеграммы по статусу
+     */
+    long countByStatus(RejectedTelegram.RejectStatus status);
+}
@@ -0,0 +1,35 @@
+package com.drones.skilldrones.repository;
+
+import com.drones.skilldrones.model.ReprocessCheckpoint;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.List;
+
+public interface ReprocessCheckpointRepository extends JpaRepository<ReprocessCheckpoint, Long> {
+    List<ReprocessCheckpoint> findByJobIdOrderByRangeStartAsc(Long jobId);
+
+    long countByJobId(Long jobId);
+
+    long countByJobIdAndCompletedTrue(Long jobId);
+
+    /**
+     * Сдвигает контрольную точку после сохраненной порции; выполняется в транзакции вместе с записью полетов
+     */
+    @Modifying
+    @Query("UPDATE ReprocessCheckpoint c SET c.lastRawId = :lastRawId, c.rowsRead = c.rowsRead + :read, " +
+            "c.rowsProcessed = c.rowsProcessed + :processed, c.rowsFailed = c.rowsFailed + :failed, " +
+            "c.updatedAt = CURRENT_TIMESTAMP WHERE c.checkpointId = :checkpointId")
+    int advance(@Param("checkpointId") Long checkpointId,
+                @Param("lastRawId") long lastRawId,
+                @Param("read") long read,
+                @Param("processed") long processed,
+                @Param("failed") long failed);
+
+    @Modifying
+    @Query("UPDATE ReprocessCheckpoint c SET c.completed = true, c.updatedAt = CURRENT_TIMESTAMP " +
+            "WHERE c.checkpointId = :checkpointId")
+    int markCompleted(@Param("checkpointId") Long checkpointId);
+}
@@ -0,0 +1,19 @@
+package com.drones.skilldrones.repository;
+
+import com.drones.skilldrones.model.ReprocessJob;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import java.util.Collection;
+import java.util.List;
+
+public interface ReprocessJobRepository extends JpaRepository<ReprocessJob, Long> {
+    /**
+     * Находит задания в указанных статусах (например, незавершенные после рестарта)
+     */
+    List<ReprocessJob> findByStatusIn(Collection<ReprocessJob.JobStatus> statuses);
+
+    /**
+     * Последние задания повторной обработки
+     */
+    List<ReprocessJob> findTop20ByOrderByCreatedAtDesc();
+}
@@ -0,0 +1,49 @@
+package com.drones.skilldrones.service;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Фильтр Блума по 128-битным хешам. Потокобезопасен: биты выставляются атомарно.
+ * Отрицательный ответ точен, положительный требует проверки в базе данных.
+ * Индексы битов строятся по схеме Кирша-Митценмахера из двух половин хеша.
+ */
+final class BloomFilter {
+    private final AtomicLongArray words;
+    private final long bitCount;
+    private final int hashCount;
+
+    BloomFilter(long expectedInsertions, double falsePositiveRate) {
+        long n = Math.max(1, expectedInsertions);
+        double ln2 = Math.log(2);
+        long bits = (long) Math.ceil(-n * Math.log(falsePositiveRate) / (ln2 * ln2));
+        int wordCount = (int) Math.min(Integer.MAX_VALUE - 8, Math.max(1, (bits + 63) >>> 6));
+        this.words = new AtomicLongArray(wordCount);
+        this.bitCount = (long) wordCount * 64;
+        this.hashCount = (int) Math.max(1, Math.round((double) bitCount / n * ln2));
+    }
+
+    boolean mightContain(long high, long low) {
+        for (int i = 0; i < hashCount; i++) {
+            long bit = index(high, low, i);
+            if ((words.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    void put(long high, long low) {
+        for (int i = 0; i < hashCount; i++) {
+            long bit = index(high, low, i);
+            long mask = 1L << bit;
+            int word = (int) (bit >>> 6);
+            if ((words.get(word) & mask) == 0) {
+                words.getAndAccumulate(word, mask, (current, m) -> current | m);
+            }
+        }
+    }
+
+    private long index(long high, long low, int i) {
+        return ((high + i * low) & Long.MAX_VALUE) % bitCount;
+    }
+}
@@ -0,0 +1,38 @@
+package com.drones.skilldrones.service;
+
+import com.drones.skilldrones.model.Flight;
+import com.drones.skilldrones.model.IngestedFile;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Optional;
+
+public interface DeduplicationService {
+    /**
+     * SHA-256 содержимого файла в hex
+     */
+    String fingerprint(Path file);
+
+    /**
+     * Ранее успешно загруженный файл с таким содержимым
+     */
+    Optional<IngestedFile> findIngestedFile(String sha256);
+
+    /**
+     * Запоминает успешно загруженный файл
+     */
+    void recordIngestedFile(String sha256, String fileName, long rowsRead, long rowsProcessed);
+
+    /**
+     * Убирает полеты, чьи телеграммы уже есть в базе, повторяются в самом пакете
+     * или уже допущены другим пакетом, который еще не сохранен.
+     * Порядок оставшихся полетов сохраняется
+     */
+    List<Flight> filterNew(List<Flight> flights);
+
+    /**
+     * Снимает отметку "сохраняется" с телеграмм, допущенных filterNew.
+     * Вызывается после фиксации (или отказа) сохранения этих полетов
+     */
+    void release(List<Flight> flights);
+}
@@ -0,0 +1,224 @@
+package com.drones.skilldrones.service;
+
+import com.drones.skilldrones.model.Flight;
+import com.drones.skilldrones.model.IngestedFile;
+import com.drones.skilldrones.model.RawTelegram;
+import com.drones.skilldrones.parser.TelegramHash;
+import com.drones.skilldrones.repository.IngestedFileRepository;
+import com.drones.skilldrones.repository.RawTelegramRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.stream.Stream;
+
+/**
+ * Отсев повторных загрузок.
+ * Файл целиком распознается по SHA-256 содержимого (таблица ingested_files).
+ * Телеграммы - по нормализованному хешу TelegramHash: сначала фильтр Блума в памяти,
+ * и только для его положительных ответов - запрос к уникальному индексу raw_telegrams.telegram_hash.
+ * Поэтому новые телеграммы проходят без обращения к базе, а запросом проверяются только вероятные повторы.
+ * Пока пакет не сохранен, его хеши занимают место в таблице "сохраняется": тот же хеш
+ * из параллельного пакета считается повтором, а не нарушает уникальный индекс при записи.
+ */
+@Service
+public class DeduplicationServiceImpl implements DeduplicationService {
+
+    private static final int LOOKUP_BATCH_SIZE = 10_000;
+
+    private final RawTelegramRepository rawTelegramRepository;
+    private final IngestedFileRepository ingestedFileRepository;
+    private final boolean enabled;
+    private final BloomFilter bloomFilter;
+    private final ConcurrentMap<HashKey, RawTelegram> inFlight = new ConcurrentHashMap<>();
+    private volatile boolean filterLoaded;
+
+    public DeduplicationServiceImpl(RawTelegramRepository rawTelegramRepository,
+                                    IngestedFileRepository ingestedFileRepository,
+                                    @Value("${app.ingest.dedup.enabled:true}") boolean enabled,
+                                    @Value("${app.ingest.dedup.expected-telegrams:10000000}") long expectedTelegrams,
+                                    @Value("${app.ingest.dedup.false-positive-rate:0.01}") double falsePositiveRate) {
+        this.rawTelegramRepository = rawTelegramRepository;
+        this.ingestedFileRepository = ingestedFileRepository;
+        this.enabled = enabled;
+        this.bloomFilter = new BloomFilter(expectedTelegrams, falsePositiveRate);
+    }
+
+    /**
+     * Заполняет фильтр хешами уже сохраненных телеграмм
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional(readOnly = true)
+    public void loadTelegramHashes() {
+        if (!enabled) {
+            return;
+        }
+        try (Stream<String> hashes = rawTelegramRepository.streamTelegramHashes()) {
+            hashes.forEach(hash -> remember(HashKey.of(hash)));
+            filterLoaded = true;
+        } catch (Exception e) {
+            // Без фильтра каждая телеграмма проверяется запросом к базе
+            System.err.println("Ошибка загрузки хешей телеграмм: " + e.getMessage());
+        }
+    }
+
+    @Override
+    public String fingerprint(Path file) {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            ByteBuffer buffer = ByteBuffer.allocateDirect(1024 * 1024);
+            while (channel.read(buffer) >= 0) {
+                buffer.flip();
+                digest.update(buffer);
+                buffer.clear();
+            }
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (IOException | NoSuchAlgorithmException e) {
+            throw new RuntimeException("Ошибка вычисления контрольной суммы файла: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public Optional<IngestedFile> findIngestedFile(String sha256) {
+        if (!enabled || sha256 == null) {
+            return Optional.empty();
+        }
+        return ingestedFileRepository.findBySha256(sha256);
+    }
+
+    @Override
+    public void recordIngestedFile(String sha256, String fileName, long rowsRead, long rowsProcessed) {
+        if (!enabled || sha256 == null) {
+            return;
+        }
+        try {
+            ingestedFileRepository.save(new IngestedFile(sha256, fileName, rowsRead, rowsProcessed));
+        } catch (DataIntegrityViolationException e) {
+            // Тот же файл параллельно загрузило другое задание
+        }
+    }
+
+    @Override
+    public List<Flight> filterNew(List<Flight> flights) {
+        if (!enabled || flights.isEmpty()) {
+            return flights;
+        }
+
+        // 0 - новый, 1 - повтор, 2 - нужно проверить в базе.
+        // Хеш занимается до проверки в базе: пакет, занявший его позже, увидит уже зафиксированную запись
+        byte[] decision = new byte[flights.size()];
+        HashKey[] keys = new HashKey[flights.size()];
+        List<String> candidates = new ArrayList<>();
+        for (int i = 0; i < flights.size(); i++) {
+            RawTelegram telegram = flights.get(i).getRawTelegram();
+            HashKey key = keyOf(flights.get(i));
+            if (key == null) {
+                continue;
+            }
+            keys[i] = key;
+            if (inFlight.putIfAbsent(key, telegram) != null) {
+                decision[i] = 1;
+            } else if (!filterLoaded || bloomFilter.mightContain(key.high(), key.low())) {
+                // hex нужен только для запроса в базу
+                decision[i] = 2;
+                candidates.add(telegram.getTelegramHash());
+            }
+        }
+
+        Set<String> existing;
+        try {
+            existing = findExisting(candidates);
+        } catch (RuntimeException e) {
+            release(flights);
+            throw e;
+        }
+        List<Flight> fresh = new ArrayList<>(flights.size());
+        for (int i = 0; i < flights.size(); i++) {
+            Flight flight = flights.get(i);
+            if (decision[i] == 1 || (decision[i] == 2 && existing.contains(flight.getRawTelegram().getTelegramHash()))) {
+                if (decision[i] == 2) {
+                    inFlight.remove(keys[i], flight.getRawTelegram());
+                }
+                flight.getRawTelegram().setProcessingStatus("DUPLICATE");
+                continue;
+            }
+            if (keys[i] != null) {
+                remember(keys[i]);
+            }
+            fresh.add(flight);
+        }
+        return fresh;
+    }
+
+    @Override
+    public void release(List<Flight> flights) {
+        if (!enabled) {
+            return;
+        }
+        for (Flight flight : flights) {
+            RawTelegram telegram = flight.getRawTelegram();
+            HashKey key = telegram != null ? HashKey.of(telegram) : null;
+            if (key != null) {
+                // Снимается только своя отметка: повтор из другого пакета ее не занимал
+                inFlight.remove(key, telegram);
+            }
+        }
+    }
+
+    private Set<String> findExisting(List<String> hashes) {
+        Set<String> existing = new HashSet<>();
+        for (int from = 0; from < hashes.size(); from += LOOKUP_BATCH_SIZE) {
+            existing.addAll(rawTelegramRepository.findExistingHashes(
+                    hashes.subList(from, Math.min(from + LOOKUP_BATCH_SIZE, hashes.size()))));
+        }
+        return existing;
+    }
+
+    /**
+     * Хеш новой телеграммы; у уже сохраненной (повторная обработка) сравнивать не с чем
+     */
+    private HashKey keyOf(Flight flight) {
+        RawTelegram telegram = flight.getRawTelegram();
+        return telegram != null && telegram.getId() == null ? HashKey.of(telegram) : null;
+    }
+
+    private void remember(HashKey key) {
+        bloomFilter.put(key.high(), key.low());
+    }
+
+    /**
+     * Хеш телеграммы как два long: ключ отметок и фильтра Блума без строки hex
+     */
+    private record HashKey(long high, long low) {
+
+        static HashKey of(RawTelegram telegram) {
+            byte[] digest = telegram.getTelegramDigest();
+            if (digest != null) {
+                return new HashKey(TelegramHash.high(digest), TelegramHash.low(digest));
+            }
+            return telegram.getTelegramHash() != null ? of(telegram.getTelegramHash()) : null;
+        }
+
+        static HashKey of(String hash) {
+            return new HashKey(TelegramHash.high(hash), TelegramHash.low(hash));
+        }
+    }
+}
@@ -4,8 +4,10 @@ import com.drones.skilldrones.dto.ParsedFlightData;
 import com.drones.skilldrones.model.RawTelegram;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.nio.file.Path;
 import java.time.LocalTime;
 import java.util.List;
+import java.util.function.Consumer;
 
 public interface FileParserService {
     /**
@@ -13,6 +15,38 @@ public interface FileParserService {
      */
     List<RawTelegram> parseExcelFile(MultipartFile file);
 
+    /**
+     * Потоково читает файл и передает телеграммы по одной, не держа весь файл в памяти.
+     * Возвращает количество прочитанных телеграмм
+     */
+    int streamTelegrams(MultipartFile file, Consumer<RawTelegram> consumer);
+
+    /**
+     * Сохраняет загрузку во временный каталог; удалять файл должен вызывающий код
+     */
+    Path spoolUpload(MultipartFile file);
+
+    /**
+     * Потоково читает файл, уже сохраненный на диск. Формат (XLSX, XLS или CSV) определяется по расширению fileName;
+     * файлы .gz и .zst распаковываются на лету
+     */
+    int streamTelegrams(Path path, String fileName, Consumer<RawTelegram> consumer);
+
+    /**
+     * ZIP архив с несколькими файлами телеграмм
+     */
+    boolean isArchive(String fileName);
+
+    /**
+     * Имена файлов телеграмм внутри архива в порядке архива
+     */
+    List<String> listArchiveMembers(Path archive);
+
+    /**
+     * Потоково читает один файл архива без распаковки на диск. Возвращает количество прочитанных телеграмм
+     */
+    int streamArchiveMember(Path archive, String member, Consumer<RawTelegram> consumer);
+
     /**
      * Парсит Excel файл и возвращает структурированные данные о полетах
      */
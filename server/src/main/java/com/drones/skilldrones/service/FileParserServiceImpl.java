@@ -2,215 +2,367 @@ package com.drones.skilldrones.service;
 
 import com.drones.skilldrones.dto.ParsedFlightData;
 import com.drones.skilldrones.model.RawTelegram;
-import org.apache.poi.ss.usermodel.*;
-import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import com.drones.skilldrones.parser.CsvTelegramReader;
+import com.drones.skilldrones.parser.TelegramFields;
+import com.drones.skilldrones.parser.TelegramHash;
+import com.drones.skilldrones.parser.TelegramTokenizer;
+import com.drones.skilldrones.parser.XlsTelegramReader;
+import com.drones.skilldrones.parser.XlsxTelegramReader;
+import com.github.luben.zstd.ZstdInputStream;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.io.BufferedInputStream;
+import java.io.IOException;
 import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.time.LocalDate;
 import java.time.LocalTime;
-import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
+import java.util.Enumeration;
 import java.util.List;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.Consumer;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
 @Service
 public class FileParserServiceImpl implements FileParserService {
+    // Телеграммы передаются на разбор блоками по мере чтения файла
+    private static final int PARSE_BLOCK = 16_384;
+    // Диапазон, который задача разбирает сама, не разделяя дальше
+    private static final int PARSE_RANGE = 1_024;
+    private static final int DECOMPRESS_BUFFER = 64 * 1024;
+    private static final Set<String> COMPRESSED_EXTENSIONS = Set.of(".gz", ".zst", ".zstd");
+    private static final Set<String> ARCHIVE_MEMBER_FORMATS = Set.of(".csv", ".xls", ".xlsx");
+    // Поля разбора переиспользуются потоком: после extractFlightDataFromTelegram ссылок на них не остается
+    private static final ThreadLocal<TelegramFields> FIELDS = ThreadLocal.withInitial(TelegramFields::new);
+
+    private final XlsxTelegramReader xlsxTelegramReader;
+    private final CsvTelegramReader csvTelegramReader;
+    private final XlsTelegramReader xlsTelegramReader;
+    private final Path tempDir;
+    private final ForkJoinPool parsePool;
+
+    public FileParserServiceImpl(XlsxTelegramReader xlsxTelegramReader,
+                                 CsvTelegramReader csvTelegramReader,
+                                 XlsTelegramReader xlsTelegramReader,
+                                 @Value("${app.upload.temp-dir:./uploads/temp}") String tempDir,
+                                 @Value("${app.ingest.parse.processor-fraction:1.0}") double processorFraction) {
+        this.xlsxTelegramReader = xlsxTelegramReader;
+        this.csvTelegramReader = csvTelegramReader;
+        this.xlsTelegramReader = xlsTelegramReader;
+        this.tempDir = Path.of(tempDir);
+        // Доля ядер под разбор: на общем узле часть процессора остается геопривязке и базе
+        int parallelism = (int) Math.max(1, Math.round(Runtime.getRuntime().availableProcessors() * processorFraction));
+        this.parsePool = new ForkJoinPool(parallelism);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        parsePool.shutdownNow();
+    }
+
     @Override
     public List<RawTelegram> parseExcelFile(MultipartFile file) {
         List<RawTelegram> telegrams = new ArrayList<>();
-
-        try (InputStream inputStream = file.getInputStream();
-             Workbook workbook = new XSSFWorkbook(inputStream)) {
-
-            Sheet sheet = workbook.getSheetAt(0);
-
-            for (int i = 1; i <= sheet.getLastRowNum(); i++) {
-                Row row = sheet.getRow(i);
-                if (row == null) continue;
-
-                RawTelegram telegram = parseRow(row);
-                if (telegram != null) {
-                    telegram.setFileName(file.getOriginalFilename());
-                    telegrams.add(telegram);
-                }
-            }
-
-        } catch (Exception e) {
-            throw new RuntimeException("Ошибка парсинга Excel файла: " + e.getMessage(), e);
-        }
-
+        streamTelegrams(file, telegrams::add);
         return telegrams;
     }
 
     @Override
-    public List<ParsedFlightData> parseFlightData(MultipartFile file) {
-        List<ParsedFlightData> flightDataList = new ArrayList<>();
-        List<RawTelegram> telegrams = parseExcelFile(file);
+    public int streamTelegrams(MultipartFile file, Consumer<RawTelegram> consumer) {
+        Path spooled = spoolUpload(file);
+        try {
+            return streamTelegrams(spooled, file.getOriginalFilename(), consumer);
+        } finally {
+            deleteQuietly(spooled);
+        }
+    }
 
-        for (RawTelegram telegram : telegrams) {
+    @Override
+    public Path spoolUpload(MultipartFile file) {
+        try {
+            // Ридерам нужен файл с произвольным доступом (ZIP для XLSX, mmap для CSV), поэтому сохраняем загрузку на диск
+            Files.createDirectories(tempDir);
+            Path spooled = Files.createTempFile(tempDir, "upload-", spoolSuffix(file.getOriginalFilename()));
             try {
-                ParsedFlightData flightData = extractFlightDataFromTelegram(telegram);
-                if (flightData != null) {
-                    flightDataList.add(flightData);
-                }
-            } catch (Exception e) {
-                System.err.println("Ошибка парсинга телеграммы: " + e.getMessage());
+                file.transferTo(spooled);
+            } catch (IOException e) {
+                deleteQuietly(spooled);
+                throw e;
             }
+            return spooled;
+        } catch (IOException e) {
+            throw new RuntimeException("Ошибка сохранения загруженного файла: " + e.getMessage(), e);
         }
-
-        return flightDataList;
     }
 
-
     @Override
-    public LocalTime extractTimeFromTelegram(String text, String timeType) {
-        if (text == null) return null;
-
+    public int streamTelegrams(Path path, String fileName, Consumer<RawTelegram> consumer) {
+        // Формат определяется по имени исходного файла: у сохраненной копии имя временное
+        String name = fileName != null ? fileName : path.toString();
+        if (isCompressed(name)) {
+            try (InputStream input = Files.newInputStream(path)) {
+                return streamTelegrams(input, name, consumer);
+            } catch (IOException e) {
+                throw new RuntimeException("Ошибка чтения сжатого файла: " + e.getMessage(), e);
+            }
+        }
+        String format = format(name);
+        if (format.equals(".csv")) {
+            try {
+                return csvTelegramReader.read(path, fileName, consumer);
+            } catch (Exception e) {
+                throw new RuntimeException("Ошибка парсинга CSV файла: " + e.getMessage(), e);
+            }
+        }
         try {
-            // Паттерн для времени: -0705 или -0600
-            Pattern pattern = Pattern.compile("-(\\d{4})");
-            Matcher matcher = pattern.matcher(text);
-
-            if (matcher.find()) {
-                String timeStr = matcher.group(1);
-                DateTimeFormatter formatter = DateTimeFormatter.ofPattern("HHmm");
-                return LocalTime.parse(timeStr, formatter);
+            if (format.equals(".xls")) {
+                return xlsTelegramReader.read(path.toFile(), fileName, consumer);
             }
+            return xlsxTelegramReader.read(path.toFile(), fileName, consumer);
         } catch (Exception e) {
-            System.err.println("Ошибка парсинга времени: " + e.getMessage());
+            throw new RuntimeException("Ошибка парсинга Excel файла: " + e.getMessage(), e);
         }
-
-        return null;
     }
 
-    // Обновляем метод extractFlightDataFromTelegram
     @Override
-    public ParsedFlightData extractFlightDataFromTelegram(RawTelegram telegram) {
-        ParsedFlightData data = new ParsedFlightData();
+    public boolean isArchive(String fileName) {
+        return fileName != null && fileName.toLowerCase().endsWith(".zip");
+    }
 
-        if (telegram.getShrRawText() != null) {
-            String coords = extractCoordinates(telegram.getShrRawText());
-            if (coords != null) {
-                data.setCoordinates(coords);
+    @Override
+    public List<String> listArchiveMembers(Path archive) {
+        try (ZipFile zip = new ZipFile(archive.toFile())) {
+            List<String> members = new ArrayList<>();
+            Enumeration<? extends ZipEntry> entries = zip.entries();
+            while (entries.hasMoreElements()) {
+                ZipEntry entry = entries.nextElement();
+                String name = entry.getName();
+                String baseName = name.substring(name.lastIndexOf('/') + 1);
+                // Каталоги, служебные файлы (__MACOSX, .DS_Store) и файлы других форматов пропускаем
+                if (entry.isDirectory() || baseName.startsWith(".") || name.startsWith("__MACOSX/")) {
+                    continue;
+                }
+                if (ARCHIVE_MEMBER_FORMATS.contains(extension(stripCompression(baseName)))) {
+                    members.add(name);
+                }
             }
+            return members;
+        } catch (IOException e) {
+            throw new RuntimeException("Ошибка чтения ZIP архива: " + e.getMessage(), e);
+        }
+    }
 
-            LocalDate flightDate = extractFlightDate(telegram.getShrRawText());
-            data.setFlightDate(flightDate);
-
-            String droneType = extractDroneType(telegram.getShrRawText());
-            data.setDroneType(droneType);
+    @Override
+    public int streamArchiveMember(Path archive, String member, Consumer<RawTelegram> consumer) {
+        // Каждый файл архива читается своим ZipFile: файлы разбираются параллельно
+        try (ZipFile zip = new ZipFile(archive.toFile())) {
+            ZipEntry entry = zip.getEntry(member);
+            if (entry == null) {
+                throw new RuntimeException("Файл " + member + " не найден в архиве");
+            }
+            try (InputStream input = zip.getInputStream(entry)) {
+                return streamTelegrams(input, member, consumer);
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Ошибка чтения файла " + member + " из ZIP архива: " + e.getMessage(), e);
+        }
+    }
 
-            String flightId = extractFlightId(telegram.getShrRawText());
-            data.setFlightId(flightId);
+    /**
+     * Читает телеграммы из потока без сохранения на диск: .gz и .zst распаковываются на лету
+     * (возможны вложенные, например .csv.gz), дальше формат определяется по оставшемуся расширению
+     */
+    private int streamTelegrams(InputStream input, String fileName, Consumer<RawTelegram> consumer) throws IOException {
+        String extension = extension(fileName);
+        if (extension.equals(".gz")) {
+            try (InputStream decompressed = new GZIPInputStream(input, DECOMPRESS_BUFFER)) {
+                return streamTelegrams(decompressed, stripExtension(fileName), consumer);
+            }
+        }
+        if (extension.equals(".zst") || extension.equals(".zstd")) {
+            // Закрытие освобождает нативный контекст распаковки
+            try (InputStream decompressed = new BufferedInputStream(new ZstdInputStream(input), DECOMPRESS_BUFFER)) {
+                return streamTelegrams(decompressed, stripExtension(fileName), consumer);
+            }
         }
 
-        data.setRawTelegram(telegram);
-        return data;
+        String format = format(fileName);
+        if (format.equals(".csv")) {
+            try {
+                return csvTelegramReader.read(input, fileName, consumer);
+            } catch (IOException | RuntimeException e) {
+                throw new RuntimeException("Ошибка парсинга CSV файла: " + e.getMessage(), e);
+            }
+        }
+        try {
+            if (format.equals(".xls")) {
+                return xlsTelegramReader.read(input, fileName, consumer);
+            }
+            return xlsxTelegramReader.read(input, fileName, consumer);
+        } catch (Exception e) {
+            throw new RuntimeException("Ошибка парсинга Excel файла: " + e.getMessage(), e);
+        }
     }
 
-    private RawTelegram parseRow(Row row) {
-        if (row.getPhysicalNumberOfCells() < 4) return null;
+    private boolean isCompressed(String fileName) {
+        return !stripCompression(fileName).equals(fileName);
+    }
 
-        RawTelegram telegram = new RawTelegram();
-        telegram.setCenter(getCellStringValue(row.getCell(0)));
-        telegram.setShrRawText(getCellStringValue(row.getCell(1)));
-        telegram.setDepRawText(getCellStringValue(row.getCell(2)));
-        telegram.setArrRawText(getCellStringValue(row.getCell(3)));
-        telegram.setProcessingStatus("PENDING");
+    /**
+     * Имя без расширений сжатия: flights.csv.gz -> flights.csv
+     */
+    private String stripCompression(String fileName) {
+        String name = fileName;
+        while (COMPRESSED_EXTENSIONS.contains(extension(name))) {
+            name = stripExtension(name);
+        }
+        return name;
+    }
 
-        return telegram;
+    private String stripExtension(String fileName) {
+        return fileName.substring(0, fileName.lastIndexOf('.'));
     }
 
-    private String getCellStringValue(Cell cell) {
-        if (cell == null) return "";
+    private String spoolSuffix(String fileName) {
+        String extension = extension(fileName);
+        return extension.isEmpty() ? ".xlsx" : extension;
+    }
 
-        switch (cell.getCellType()) {
-            case STRING:
-                return cell.getStringCellValue().trim();
-            case NUMERIC:
-                if (DateUtil.isCellDateFormatted(cell)) {
-                    return cell.getLocalDateTimeCellValue().toString();
-                } else {
-                    return String.valueOf((long) cell.getNumericCellValue());
-                }
-            case BOOLEAN:
-                return String.valueOf(cell.getBooleanCellValue());
-            default:
-                return "";
+    /**
+     * Последнее расширение файла в нижнем регистре, пустая строка если его нет
+     */
+    private String extension(String fileName) {
+        if (fileName == null) {
+            return "";
         }
+        int dot = fileName.lastIndexOf('.');
+        return dot < 0 || dot < fileName.lastIndexOf('/') ? "" : fileName.substring(dot).toLowerCase();
     }
 
-    private String extractCoordinates(String text) {
-        if (text == null) return null;
+    /**
+     * Формат содержимого (.csv, .xls или .xlsx) без учета сжатия; без расширения файл считается XLSX
+     */
+    private String format(String fileName) {
+        String extension = extension(stripCompression(fileName));
+        return extension.equals(".csv") || extension.equals(".xls") ? extension : ".xlsx";
+    }
 
-        // Паттерн для координат типа "5957N02905E" или "5548N03730E"
-        Pattern pattern = Pattern.compile("(\\d{4}[NS]\\d{5}[EW])");
-        Matcher matcher = pattern.matcher(text);
+    @Override
+    public List<ParsedFlightData> parseFlightData(MultipartFile file) {
+        // Блоки разбираются на ядрах, пока читается остальной файл; результаты собираются в порядке файла
+        List<ForkJoinTask<List<ParsedFlightData>>> blocks = new ArrayList<>();
+        List<RawTelegram> block = new ArrayList<>(PARSE_BLOCK);
+
+        streamTelegrams(file, telegram -> {
+            block.add(telegram);
+            if (block.size() == PARSE_BLOCK) {
+                blocks.add(parsePool.submit(new ParseRangeTask(List.copyOf(block), 0, PARSE_BLOCK)));
+                block.clear();
+            }
+        });
+        if (!block.isEmpty()) {
+            blocks.add(parsePool.submit(new ParseRangeTask(List.copyOf(block), 0, block.size())));
+        }
 
-        if (matcher.find()) {
-            return normalizeCoordinates(matcher.group(1));
+        List<ParsedFlightData> flightDataList = new ArrayList<>();
+        for (ForkJoinTask<List<ParsedFlightData>> task : blocks) {
+            flightDataList.addAll(task.join());
         }
-        return null;
+        return flightDataList;
     }
 
-    private String normalizeCoordinates(String coords) {
-        try {
-            // Пример: "5957N02905E" -> "59.95,29.08"
-            String latStr = coords.substring(0, 4);
-            String latDir = coords.substring(4, 5);
-            String lonStr = coords.substring(5, 9);
-            String lonDir = coords.substring(9, 10);
-
-            double lat = Double.parseDouble(latStr.substring(0, 2)) +
-                    Double.parseDouble(latStr.substring(2, 4)) / 60.0;
-            double lon = Double.parseDouble(lonStr.substring(0, 3)) +
-                    Double.parseDouble(lonStr.substring(3, 5)) / 60.0;
+    /**
+     * Разбор диапазона телеграмм [from, to): большие диапазоны делятся пополам между потоками пула
+     */
+    private final class ParseRangeTask extends RecursiveTask<List<ParsedFlightData>> {
+        private static final long serialVersionUID = 1L;
+
+        // Задача не сериализуется: она живет только в пуле разбора
+        private final transient List<RawTelegram> telegrams;
+        private final int from;
+        private final int to;
+
+        ParseRangeTask(List<RawTelegram> telegrams, int from, int to) {
+            this.telegrams = telegrams;
+            this.from = from;
+            this.to = to;
+        }
 
-            if ("S".equals(latDir)) lat = -lat;
-            if ("W".equals(lonDir)) lon = -lon;
+        @Override
+        protected List<ParsedFlightData> compute() {
+            if (to - from > PARSE_RANGE) {
+                int middle = (from + to) >>> 1;
+                ParseRangeTask left = new ParseRangeTask(telegrams, from, middle);
+                left.fork();
+                List<ParsedFlightData> right = new ParseRangeTask(telegrams, middle, to).compute();
+                List<ParsedFlightData> result = left.join();
+                result.addAll(right);
+                return result;
+            }
 
-            return String.format("%.6f,%.6f", lat, lon);
-        } catch (Exception e) {
-            return coords; // возвращаем оригинальный формат если не удалось распарсить
+            List<ParsedFlightData> result = new ArrayList<>(to - from);
+            for (int i = from; i < to; i++) {
+                try {
+                    ParsedFlightData flightData = extractFlightDataFromTelegram(telegrams.get(i));
+                    if (flightData != null) {
+                        result.add(flightData);
+                    }
+                } catch (Exception e) {
+                    System.err.println("Ошибка парсинга телеграммы: " + e.getMessage());
+                }
+            }
+            return result;
         }
     }
 
-    private LocalDate extractFlightDate(String text) {
-        if (text == null) return null;
 
-        // Паттерн для даты: DOF/250201 (DDMMYY)
-        Pattern pattern = Pattern.compile("DOF/(\\d{6})");
-        Matcher matcher = pattern.matcher(text);
+    @Override
+    public LocalTime extractTimeFromTelegram(String text, String timeType) {
+        if (text == null) return null;
 
-        if (matcher.find()) {
-            String dateStr = matcher.group(1);
-            DateTimeFormatter formatter = DateTimeFormatter.ofPattern("ddMMyy");
-            return LocalDate.parse(dateStr, formatter);
-        }
-        return LocalDate.now();
+        // Время вида -0705 или -0600
+        int minutes = TelegramTokenizer.scanDashTime(text);
+        return minutes != TelegramFields.ABSENT ? LocalTime.of(minutes / 60, minutes % 60) : null;
     }
 
-    private String extractDroneType(String text) {
-        if (text == null) return "UNKNOWN";
+    @Override
+    public ParsedFlightData extractFlightDataFromTelegram(RawTelegram telegram) {
+        ParsedFlightData data = new ParsedFlightData();
+        TelegramFields fields = TelegramTokenizer.tokenize(telegram, FIELDS.get());
 
-        // Паттерн для типа: TYP/BLA или TYP/SHAR и т.д.
-        Pattern pattern = Pattern.compile("TYP/([A-Z]{3})");
-        Matcher matcher = pattern.matcher(text);
+        if (telegram.getShrRawText() != null) {
+            if (fields.hasCoordinates()) {
+                data.setCoordinates(fields.getLatMinutes(), fields.getLonMinutes());
+            }
 
-        return matcher.find() ? matcher.group(1) : "UNKNOWN";
-    }
+            data.setFlightDate(fields.hasFlightDate() ? fields.flightDate() : LocalDate.now());
+            data.setDroneType(fields.hasDroneType() ? fields.droneType() : "UNKNOWN");
+            data.setFlightId(fields.flightId());
+            telegram.setTelegramDigest(TelegramHash.of(fields));
+        }
 
-    private String extractFlightId(String text) {
-        if (text == null) return null;
+        data.setDepartureTime(fields.departureTime());
+        data.setArrivalTime(fields.arrivalTime());
+        data.setRawTelegram(telegram);
+        return data;
+    }
 
-        // Ищем ID в начале строки SHR-XXXXX
-        String[] lines = text.split("\n");
-        if (lines.length > 0 && lines[0].startsWith("SHR-")) {
-            return lines[0].substring(4).trim();
+    private void deleteQuietly(Path path) {
+        if (path == null) return;
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            System.err.println("Не удалось удалить временный файл " + path + ": " + e.getMessage());
         }
-        return null;
     }
 
 }
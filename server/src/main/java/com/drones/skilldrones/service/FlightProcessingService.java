@@ -16,11 +16,45 @@ public interface FlightProcessingService {
      */
     Flight convertToFlight(RawTelegram telegram);
 
+    /**
+     * Конвертирует пакет телеграмм в полеты с пакетной геопривязкой.
+     * Телеграммы, которые не удалось разобрать, помечаются FAILED и в результат не попадают
+     */
+    List<Flight> convertBatch(List<RawTelegram> telegrams);
+
+    /**
+     * Разбирает пакет телеграмм в полеты без геопривязки.
+     * Телеграммы, которые не удалось разобрать, помечаются FAILED и в результат не попадают
+     */
+    List<Flight> buildFlights(List<RawTelegram> telegrams);
+
+    /**
+     * Пакетная геопривязка полетов к регионам
+     */
+    void geolocate(List<Flight> flights);
+
+    /**
+     * Сохраняет подготовленные полеты вместе с их телеграммами (массовой загрузкой COPY, если она включена).
+     * Каждый пакет из commit-batch-size полетов фиксируется отдельной транзакцией,
+     * после чего хеши телеграмм освобождаются в DeduplicationService.
+     * Полеты уже сохраненных телеграмм (с id) обновляются вместе с телеграммой по raw_id.
+     * Возвращает количество сохраненных полетов
+     */
+    int saveFlights(List<Flight> flights);
+
     /**
      * Пакетная обработка телеграмм
      */
     int processBatch(List<RawTelegram> telegrams);
 
+    /**
+     * Повторно обрабатывает до limit отклоненных телеграмм из rejected_telegrams (сначала с меньшим числом попыток).
+     * Записи обработанных телеграмм помечаются REDRIVEN; при повторной ошибке запись остается REJECTED,
+     * в ней увеличивается attempts и обновляются этап и причина.
+     * Возвращает количество сохраненных полетов
+     */
+    int redriveRejected(int limit);
+
     /**
      * Получает статистику обработки
      */
@@ -2,74 +2,329 @@ package com.drones.skilldrones.service;
 
 import com.drones.skilldrones.dto.ParsedFlightData;
 import com.drones.skilldrones.dto.ProcessingStats;
+import com.drones.skilldrones.geo.RegionSpatialIndex;
 import com.drones.skilldrones.mapper.FlightProcessingMapper;
 import com.drones.skilldrones.model.Flight;
 import com.drones.skilldrones.model.RawTelegram;
 import com.drones.skilldrones.model.Region;
+import com.drones.skilldrones.model.RejectedTelegram;
+import com.drones.skilldrones.repository.FlightBulkLoader;
 import com.drones.skilldrones.repository.FlightRepository;
-import com.drones.skilldrones.repository.RegionRepository;
+import com.drones.skilldrones.repository.RawTelegramRepository;
+import com.drones.skilldrones.repository.RejectedTelegramRepository;
+import org.locationtech.jts.geom.Point;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
 
 
+import java.time.LocalDateTime;
 import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 
+/**
+ * Преобразование телеграмм в полеты и их сохранение.
+ * Сохранение идет короткими транзакциями по commit-batch-size полетов: ошибка одной строки
+ * откатывает только свой пакет, который затем сохраняется по одной строке. Телеграммы,
+ * которые не удалось разобрать или сохранить, попадают в таблицу rejected_telegrams.
+ */
 @Service
 public class FlightProcessingServiceImpl implements FlightProcessingService {
 
     private final FileParserService fileParserService;
-    private final RegionRepository regionRepository;
+    private final RegionSpatialIndex regionSpatialIndex;
     private final FlightRepository flightRepository;
+    private final RawTelegramRepository rawTelegramRepository;
+    private final RejectedTelegramRepository rejectedTelegramRepository;
     private final FlightProcessingMapper flightProcessingMapper;
+    private final FlightBulkLoader flightBulkLoader;
+    private final DeduplicationService deduplicationService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean bulkCopyEnabled;
+    private final int commitBatchSize;
 
     public FlightProcessingServiceImpl(FileParserService fileParserService,
-                                       RegionRepository regionRepository,
+                                       RegionSpatialIndex regionSpatialIndex,
                                        FlightRepository flightRepository,
-                                       FlightProcessingMapper flightProcessingMapper) {
+                                       RawTelegramRepository rawTelegramRepository,
+                                       RejectedTelegramRepository rejectedTelegramRepository,
+                                       FlightProcessingMapper flightProcessingMapper,
+                                       FlightBulkLoader flightBulkLoader,
+                                       DeduplicationService deduplicationService,
+                                       ApplicationEventPublisher eventPublisher,
+                                       PlatformTransactionManager transactionManager,
+                                       @Value("${app.ingest.bulk-copy.enabled:true}") boolean bulkCopyEnabled,
+                                       @Value("${app.ingest.commit-batch-size:5000}") int commitBatchSize) {
         this.fileParserService = fileParserService;
-        this.regionRepository = regionRepository;
+        this.regionSpatialIndex = regionSpatialIndex;
         this.flightRepository = flightRepository;
+        this.rawTelegramRepository = rawTelegramRepository;
+        this.rejectedTelegramRepository = rejectedTelegramRepository;
         this.flightProcessingMapper = flightProcessingMapper;
+        this.flightBulkLoader = flightBulkLoader;
+        this.deduplicationService = deduplicationService;
+        this.eventPublisher = eventPublisher;
+        this.bulkCopyEnabled = bulkCopyEnabled;
+        this.commitBatchSize = Math.max(1, commitBatchSize);
+        // Каждый пакет фиксируется отдельно, даже если вызывающий код уже открыл транзакцию
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
     }
 
     @Override
-    @Transactional
     public void processRawTelegrams(List<RawTelegram> rawTelegrams) {
-        for (RawTelegram telegram : rawTelegrams) {
+        processBatch(rawTelegrams);
+    }
+
+    @Override
+    public int processBatch(List<RawTelegram> telegrams) {
+        Map<RawTelegram, RejectedTelegram> rejected = new IdentityHashMap<>();
+        try {
+            return processBatch(telegrams, rejected);
+        } finally {
+            reject(rejected.values());
+        }
+    }
+
+    /**
+     * Обрабатывает пакет; отклоненные телеграммы собираются в rejected, а не сохраняются сразу
+     */
+    private int processBatch(List<RawTelegram> telegrams, Map<RawTelegram, RejectedTelegram> rejected) {
+        // Повторы отсеиваются до геопривязки; геопривязка всего пакета выполняется до сохранения
+        List<Flight> flights = deduplicationService.filterNew(buildFlights(telegrams, rejected));
+        try {
+            geolocate(flights);
+        } catch (RuntimeException e) {
+            deduplicationService.release(flights);
+            throw e;
+        }
+        return saveFlights(flights, rejected);
+    }
+
+    @Override
+    public int saveFlights(List<Flight> flights) {
+        Map<RawTelegram, RejectedTelegram> rejected = new IdentityHashMap<>();
+        try {
+            return saveFlights(flights, rejected);
+        } finally {
+            reject(rejected.values());
+        }
+    }
+
+    private int saveFlights(List<Flight> flights, Map<RawTelegram, RejectedTelegram> rejected) {
+        int saved = 0;
+        try {
+            for (int from = 0; from < flights.size(); from += commitBatchSize) {
+                saved += saveMicroBatch(flights.subList(from, Math.min(from + commitBatchSize, flights.size())), rejected);
+            }
+        } finally {
+            // Хеши освобождаются только после фиксации: следующий пакет найдет телеграммы в базе
+            deduplicationService.release(flights);
+        }
+        if (saved > 0) {
+            eventPublisher.publishEvent(new FlightsSavedEvent(saved));
+        }
+        return saved;
+    }
+
+    /**
+     * Сохраняет пакет одной транзакцией; если она откатилась - по одной строке, отклоняя ошибочные
+     */
+    private int saveMicroBatch(List<Flight> batch, Map<RawTelegram, RejectedTelegram> rejected) {
+        try {
+            return persistInNewTransaction(batch);
+        } catch (RuntimeException e) {
+            if (batch.size() == 1) {
+                rejection(batch.get(0).getRawTelegram(), "PERSIST", e, rejected);
+                return 0;
+            }
+            System.err.println("Ошибка сохранения пакета из " + batch.size() + " полетов, сохраняем по одному: " + e.getMessage());
+        }
+
+        int saved = 0;
+        for (Flight flight : batch) {
             try {
-                Flight flight = convertToFlight(telegram);
-                flightRepository.save(flight);
+                saved += persistInNewTransaction(List.of(flight));
+            } catch (RuntimeException e) {
+                rejection(flight.getRawTelegram(), "PERSIST", e, rejected);
+            }
+        }
+        return saved;
+    }
+
+    private int persistInNewTransaction(List<Flight> flights) {
+        List<RawTelegram> newTelegrams = new ArrayList<>();
+        for (Flight flight : flights) {
+            RawTelegram telegram = flight.getRawTelegram();
+            if (telegram != null && telegram.getId() == null) {
+                newTelegrams.add(telegram);
+            }
+        }
+
+        try {
+            Integer saved = transactionTemplate.execute(status -> persist(flights, newTelegrams));
+            return saved != null ? saved : 0;
+        } catch (RuntimeException e) {
+            // Идентификаторы, выданные в откаченной транзакции, недействительны
+            for (Flight flight : flights) {
+                flight.setFlightId(null);
+            }
+            for (RawTelegram telegram : newTelegrams) {
+                telegram.setId(null);
+            }
+            throw e;
+        }
+    }
+
+    private int persist(List<Flight> flights, List<RawTelegram> newTelegrams) {
+        Set<RawTelegram> inserted = Collections.newSetFromMap(new IdentityHashMap<>());
+        inserted.addAll(newTelegrams);
+        List<Flight> newFlights = new ArrayList<>(flights.size());
+        List<Flight> updatedFlights = new ArrayList<>();
+        List<RawTelegram> updatedTelegrams = new ArrayList<>();
+        LocalDateTime now = LocalDateTime.now();
+        for (Flight flight : flights) {
+            flight.setProcessingStatus("PROCESSED");
+            RawTelegram telegram = flight.getRawTelegram();
+            if (telegram != null) {
                 telegram.setProcessingStatus("PROCESSED");
-            } catch (Exception e) {
-                telegram.setProcessingStatus("FAILED");
             }
+            if (telegram == null || inserted.contains(telegram)) {
+                newFlights.add(flight);
+                continue;
+            }
+            // Телеграмма уже сохранена: дополнена опоздавшим сообщением или повторно отправлена из rejected_telegrams
+            if (telegram.getProcessedAt() == null) {
+                telegram.setProcessedAt(now);
+            }
+            flight.setUpdatedAt(now);
+            updatedFlights.add(flight);
+            updatedTelegrams.add(telegram);
+        }
+
+        int saved;
+        if (bulkCopyEnabled) {
+            saved = flightBulkLoader.load(newFlights);
+        } else {
+            rawTelegramRepository.saveAll(newTelegrams);
+            flightRepository.saveAll(newFlights);
+            saved = newFlights.size();
+        }
+        if (!updatedFlights.isEmpty()) {
+            // Сохраненная телеграмма обновляется, а ее полет заменяется по raw_id
+            rawTelegramRepository.saveAll(updatedTelegrams);
+            saved += flightBulkLoader.upsert(updatedFlights);
         }
+        return saved;
     }
 
     @Override
-    @Transactional
-    public int processBatch(List<RawTelegram> telegrams) {
-        int successful = 0;
+    public int redriveRejected(int limit) {
+        List<RejectedTelegram> rejected = rejectedTelegramRepository.findByStatusOrderByAttemptsAscRejectedIdAsc(
+                RejectedTelegram.RejectStatus.REJECTED, PageRequest.of(0, limit));
+        if (rejected.isEmpty()) {
+            return 0;
+        }
+
+        List<RawTelegram> telegrams = new ArrayList<>(rejected.size());
+        for (RejectedTelegram rejectedTelegram : rejected) {
+            telegrams.add(rejectedTelegram.toRawTelegram());
+        }
+        Map<RawTelegram, RejectedTelegram> failures = new IdentityHashMap<>();
+        int processed = processBatch(telegrams, failures);
+
+        // Повторная ошибка обновляет исходную запись, а не добавляет новую
+        LocalDateTime now = LocalDateTime.now();
+        for (int i = 0; i < rejected.size(); i++) {
+            RejectedTelegram rejectedTelegram = rejected.get(i);
+            RejectedTelegram failure = failures.get(telegrams.get(i));
+            if (failure != null) {
+                rejectedTelegram.setStage(failure.getStage());
+                rejectedTelegram.setReason(failure.getReason());
+                rejectedTelegram.setAttempts(rejectedTelegram.getAttempts() + 1);
+            } else {
+                rejectedTelegram.setStatus(RejectedTelegram.RejectStatus.REDRIVEN);
+                rejectedTelegram.setRedrivenAt(now);
+            }
+        }
+        rejectedTelegramRepository.saveAll(rejected);
+        return processed;
+    }
+
+    private void rejection(RawTelegram telegram, String stage, Exception e,
+                           Map<RawTelegram, RejectedTelegram> rejected) {
+        telegram.setProcessingStatus("FAILED");
+        String reason = e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName();
+        System.err.println("Ошибка обработки телеграммы " + telegram.getId() + ": " + reason);
+        rejected.put(telegram, new RejectedTelegram(telegram, stage, reason));
+    }
+
+    private void reject(Collection<RejectedTelegram> rejected) {
+        if (rejected.isEmpty()) {
+            return;
+        }
+        try {
+            rejectedTelegramRepository.saveAll(rejected);
+        } catch (Exception e) {
+            System.err.println("Ошибка сохранения отклоненных телеграмм: " + e.getMessage());
+        }
+    }
+
+    @Override
+    public List<Flight> convertBatch(List<RawTelegram> telegrams) {
+        List<Flight> flights = buildFlights(telegrams);
+        geolocate(flights);
+        return flights;
+    }
+
+    @Override
+    public List<Flight> buildFlights(List<RawTelegram> telegrams) {
+        Map<RawTelegram, RejectedTelegram> rejected = new IdentityHashMap<>();
+        List<Flight> flights = buildFlights(telegrams, rejected);
+        reject(rejected.values());
+        return flights;
+    }
 
+    private List<Flight> buildFlights(List<RawTelegram> telegrams, Map<RawTelegram, RejectedTelegram> rejected) {
+        List<Flight> flights = new ArrayList<>(telegrams.size());
         for (RawTelegram telegram : telegrams) {
             try {
-                Flight flight = convertToFlight(telegram);
-                flightRepository.save(flight);
-                telegram.setProcessingStatus("PROCESSED");
-                successful++;
+                flights.add(buildFlight(telegram));
             } catch (Exception e) {
-                telegram.setProcessingStatus("FAILED");
-                System.err.println("Ошибка обработки телеграммы " + telegram.getId() + ": " + e.getMessage());
+                rejection(telegram, "PARSE", e, rejected);
             }
         }
+        return flights;
+    }
 
-        return successful;
+    @Override
+    public void geolocate(List<Flight> flights) {
+        performGeolocation(flights);
     }
 
     @Override
     public Flight convertToFlight(RawTelegram telegram) {
+        Flight flight = buildFlight(telegram);
+        performGeolocation(flight);
+        return flight;
+    }
+
+    /**
+     * Разбирает телеграмму и заполняет полет без геопривязки
+     */
+    private Flight buildFlight(RawTelegram telegram) {
         // Парсим данные из телеграммы
         ParsedFlightData parsedData = fileParserService.extractFlightDataFromTelegram(telegram);
 
@@ -77,8 +332,7 @@ public class FlightProcessingServiceImpl implements FlightProcessingService {
         Flight flight = flightProcessingMapper.toFlight(parsedData);
 
         // Дополнительная бизнес-логика, которая не входит в маппер
-        setFlightTimes(flight, parsedData, telegram);
-        performGeolocation(flight);
+        setFlightTimes(flight, parsedData);
         calculateDuration(flight);
 
         return flight;
@@ -87,10 +341,10 @@ public class FlightProcessingServiceImpl implements FlightProcessingService {
     /**
      * Устанавливает время вылета и прилета
      */
-    private void setFlightTimes(Flight flight, ParsedFlightData parsedData, RawTelegram telegram) {
-        // Парсим время из телеграммы (если есть соответствующая логика в FileParserService)
-        LocalTime departureTime = parseDepartureTime(telegram);
-        LocalTime arrivalTime = parseArrivalTime(telegram);
+    private void setFlightTimes(Flight flight, ParsedFlightData parsedData) {
+        // Время ATD/ATA уже извлечено токенизатором вместе с остальными полями телеграммы
+        LocalTime departureTime = parsedData.getDepartureTime();
+        LocalTime arrivalTime = parsedData.getArrivalTime();
 
         if (departureTime != null) {
             flight.setDepartureTime(departureTime);
@@ -112,7 +366,7 @@ public class FlightProcessingServiceImpl implements FlightProcessingService {
      */
     private void performGeolocation(Flight flight) {
         if (flight.getDeparturePoint() != null) {
-            Optional<Region> departureRegion = regionRepository.findRegionByPoint(flight.getDeparturePoint());
+            Optional<Region> departureRegion = regionSpatialIndex.findRegion(flight.getDeparturePoint());
             departureRegion.ifPresent(flight::setDepartureRegion);
 
             // Для простоты считаем, что вылет и прилет в одном месте
@@ -122,48 +376,35 @@ public class FlightProcessingServiceImpl implements FlightProcessingService {
     }
 
     /**
-     * Рассчитывает продолжительность полета
+     * Геопривязка пакета полетов: индекс в памяти или один SQL-запрос на весь пакет
      */
-    private void calculateDuration(Flight flight) {
-        if (flight.getDepartureTime() != null && flight.getArrivalTime() != null) {
-            long durationMinutes = java.time.Duration.between(
-                    flight.getDepartureTime(), flight.getArrivalTime()
-            ).toMinutes();
-            flight.setDurationMinutes((int) Math.max(0, durationMinutes));
+    private void performGeolocation(List<Flight> flights) {
+        List<Point> points = new ArrayList<>(flights.size());
+        for (Flight flight : flights) {
+            points.add(flight.getDeparturePoint());
         }
-    }
 
-    /**
-     * Парсит время вылета из телеграммы
-     */
-    private LocalTime parseDepartureTime(RawTelegram telegram) {
-        // Реализация парсинга времени из DEP-телеграммы
-        // Пример: поиск паттерна времени в dep_raw_text
-        if (telegram.getDepRawText() != null) {
-            // Паттерн для времени: ATD 0705
-            java.util.regex.Pattern pattern = java.util.regex.Pattern.compile("ATD (\\d{4})");
-            java.util.regex.Matcher matcher = pattern.matcher(telegram.getDepRawText());
-            if (matcher.find()) {
-                return flightProcessingMapper.extractTime(matcher.group(1));
-            }
+        Region[] regions = regionSpatialIndex.findRegions(points);
+        for (int i = 0; i < regions.length; i++) {
+            Flight flight = flights.get(i);
+            if (flight.getDeparturePoint() == null) continue;
+
+            flight.setArrivalPoint(flight.getDeparturePoint());
+            flight.setDepartureRegion(regions[i]);
+            flight.setArrivalRegion(regions[i]);
         }
-        return null;
     }
 
     /**
-     * Парсит время прилета из телеграммы
+     * Рассчитывает продолжительность полета
      */
-    private LocalTime parseArrivalTime(RawTelegram telegram) {
-        // Реализация парсинга времени из ARR-телеграммы
-        if (telegram.getArrRawText() != null) {
-            // Паттерн для времени: ATA 1250
-            java.util.regex.Pattern pattern = java.util.regex.Pattern.compile("ATA (\\d{4})");
-            java.util.regex.Matcher matcher = pattern.matcher(telegram.getArrRawText());
-            if (matcher.find()) {
-                return flightProcessingMapper.extractTime(matcher.group(1));
-            }
+    private void calculateDuration(Flight flight) {
+        if (flight.getDepartureTime() != null && flight.getArrivalTime() != null) {
+            long durationMinutes = java.time.Duration.between(
+                    flight.getDepartureTime(), flight.getArrivalTime()
+            ).toMinutes();
+            flight.setDurationMinutes((int) Math.max(0, durationMinutes));
         }
-        return null;
     }
 
     @Override
@@ -171,7 +412,8 @@ public class FlightProcessingServiceImpl implements FlightProcessingService {
         // Реализация сбора статистики из базы данных
         long totalProcessed = flightRepository.count();
         long successful = flightRepository.countByProcessingStatus("PROCESSED");
-        long failed = flightRepository.countByProcessingStatus("FAILED");
+        long failed = flightRepository.countByProcessingStatus("FAILED")
+                + rejectedTelegramRepository.countByStatus(RejectedTelegram.RejectStatus.REJECTED);
 
         return new ProcessingStats(
                 (int) totalProcessed,
@@ -0,0 +1,8 @@
+package com.drones.skilldrones.service;
+
+/**
+ * Событие сохранения пакета полетов (загрузка, поток телеграмм, повторная обработка).
+ * Публикуется после фиксации транзакции; по нему устаревают агрегаты по полетам
+ */
+public record FlightsSavedEvent(int flightCount) {
+}
@@ -0,0 +1,41 @@
+package com.drones.skilldrones.service;
+
+import com.drones.skilldrones.dto.response.IngestJobResponse;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Optional;
+
+public interface IngestJobService {
+    /**
+     * Сохраняет загруженный файл и ставит задание в очередь.
+     * Возвращает сразу, обработка выполняется в фоне
+     */
+    IngestJobResponse submit(MultipartFile file);
+
+    /**
+     * Загружает файл в вызывающем потоке и возвращает итоговое состояние задания
+     */
+    IngestJobResponse process(MultipartFile file);
+
+    /**
+     * Загружает файл, уже лежащий на диске, в вызывающем потоке. Файл не удаляется
+     */
+    IngestJobResponse process(Path file, String fileName);
+
+    /**
+     * Текущее состояние задания
+     */
+    Optional<IngestJobResponse> getJob(Long jobId);
+
+    /**
+     * Последние задания загрузки
+     */
+    List<IngestJobResponse> getRecentJobs();
+
+    /**
+     * Запрашивает отмену задания. Возвращает false, если задание уже завершено или не найдено
+     */
+    boolean cancel(Long jobId);
+}
@@ -0,0 +1,485 @@
+package com.drones.skilldrones.service;
+
+import com.drones.skilldrones.dto.response.IngestJobResponse;
+import com.drones.skilldrones.model.IngestJob;
+import com.drones.skilldrones.model.IngestedFile;
+import com.drones.skilldrones.model.RawTelegram;
+import com.drones.skilldrones.model.IngestJob.JobStage;
+import com.drones.skilldrones.model.IngestJob.JobStatus;
+import com.drones.skilldrones.pipeline.IngestPipeline;
+import com.drones.skilldrones.repository.IngestJobRepository;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Фоновая загрузка файлов с телеграммами.
+ * Файл читается потоково и проходит через конвейер IngestPipeline (разбор, геопривязка, сохранение).
+ * Каждый пакет сохраняется в своей транзакции, после него в таблицу ingest_jobs
+ * записывается прогресс, поэтому состояние задания видно и после рестарта.
+ * Файл, содержимое которого уже было успешно загружено, не обрабатывается повторно (статус SKIPPED).
+ * Файлы ZIP архива загружаются параллельно в рамках одного задания.
+ */
+@Service
+public class IngestJobServiceImpl implements IngestJobService {
+
+    private final IngestJobRepository ingestJobRepository;
+    private final FileParserService fileParserService;
+    private final IngestPipeline ingestPipeline;
+    private final DeduplicationService deduplicationService;
+    private final ExecutorService ingestExecutor;
+    private final Semaphore slots;
+    private final int archiveParallelism;
+    private final Map<Long, RunningJob> runningJobs = new ConcurrentHashMap<>();
+
+    public IngestJobServiceImpl(IngestJobRepository ingestJobRepository,
+                                FileParserService fileParserService,
+                                IngestPipeline ingestPipeline,
+                                DeduplicationService deduplicationService,
+                                @Qualifier("ingestExecutor") ExecutorService ingestExecutor,
+                                @Value("${app.ingest.jobs.max-concurrent:2}") int maxConcurrent,
+                                @Value("${app.ingest.archive.parallelism:4}") int archiveParallelism) {
+        this.ingestJobRepository = ingestJobRepository;
+        this.fileParserService = fileParserService;
+        this.ingestPipeline = ingestPipeline;
+        this.deduplicationService = deduplicationService;
+        this.ingestExecutor = ingestExecutor;
+        this.slots = new Semaphore(maxConcurrent);
+        this.archiveParallelism = Math.max(1, archiveParallelism);
+    }
+
+    /**
+     * Задания, которые выполнялись до остановки сервиса, помечаются прерванными
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void markInterruptedJobs() {
+        List<IngestJob> jobs = ingestJobRepository.findByStatusIn(List.of(JobStatus.QUEUED, JobStatus.RUNNING));
+        for (IngestJob job : jobs) {
+            job.setStatus(JobStatus.INTERRUPTED);
+            job.setErrorMessage("Задание прервано перезапуском сервиса");
+            job.setFinishedAt(LocalDateTime.now());
+            deleteQuietly(job.getFilePath() != null ? Path.of(job.getFilePath()) : null);
+        }
+        ingestJobRepository.saveAll(jobs);
+    }
+
+    @Override
+    public IngestJobResponse submit(MultipartFile file) {
+        IngestJob job = createUploadJob(file);
+        if (job.isFinished()) {
+            return toResponse(job);
+        }
+
+        RunningJob runningJob = new RunningJob(job, Path.of(job.getFilePath()), true);
+        runningJobs.put(job.getJobId(), runningJob);
+        ingestExecutor.submit(() -> run(runningJob));
+        return toResponse(runningJob);
+    }
+
+    @Override
+    public IngestJobResponse process(MultipartFile file) {
+        IngestJob job = createUploadJob(file);
+        if (job.isFinished()) {
+            return toResponse(job);
+        }
+        return runNow(new RunningJob(job, Path.of(job.getFilePath()), true));
+    }
+
+    @Override
+    public IngestJobResponse process(Path file, String fileName) {
+        IngestJob job = createJob(file, fileName, false);
+        if (job.isFinished()) {
+            return toResponse(job);
+        }
+        return runNow(new RunningJob(job, file, false));
+    }
+
+    private IngestJobResponse runNow(RunningJob runningJob) {
+        runningJobs.put(runningJob.jobId, runningJob);
+        run(runningJob);
+        return toResponse(runningJob);
+    }
+
+    /**
+     * Сохраняет загрузку до ответа: после завершения запроса MultipartFile недоступен
+     */
+    private IngestJob createUploadJob(MultipartFile file) {
+        Path spooled = fileParserService.spoolUpload(file);
+        try {
+            IngestJob job = createJob(spooled, file.getOriginalFilename(), true);
+            if (job.isFinished()) {
+                deleteQuietly(spooled);
+            }
+            return job;
+        } catch (RuntimeException e) {
+            deleteQuietly(spooled);
+            throw e;
+        }
+    }
+
+    /**
+     * Создает задание, сверив контрольную сумму файла с уже загруженными
+     *
+     * @param temporary файл - временная копия, которую задание удаляет по завершении
+     */
+    private IngestJob createJob(Path file, String fileName, boolean temporary) {
+        IngestJob job = new IngestJob();
+        job.setFileName(fileName);
+        job.setFileSha256(deduplicationService.fingerprint(file));
+        Optional<IngestedFile> ingested = deduplicationService.findIngestedFile(job.getFileSha256());
+        if (ingested.isPresent()) {
+            job.setStatus(JobStatus.SKIPPED);
+            job.setErrorMessage("Файл уже был загружен: " + ingested.get().getFileName()
+                    + " (" + ingested.get().getIngestedAt() + ")");
+            job.setFinishedAt(LocalDateTime.now());
+            return ingestJobRepository.save(job);
+        }
+
+        if (temporary) {
+            job.setFilePath(file.toString());
+        }
+        return ingestJobRepository.save(job);
+    }
+
+    @Override
+    public Optional<IngestJobResponse> getJob(Long jobId) {
+        RunningJob runningJob = runningJobs.get(jobId);
+        if (runningJob != null) {
+            return Optional.of(toResponse(runningJob));
+        }
+        return ingestJobRepository.findById(jobId).map(this::toResponse);
+    }
+
+    @Override
+    public List<IngestJobResponse> getRecentJobs() {
+        return ingestJobRepository.findTop50ByOrderByCreatedAtDesc().stream()
+                .map(job -> {
+                    RunningJob runningJob = runningJobs.get(job.getJobId());
+                    return runningJob != null ? toResponse(runningJob) : toResponse(job);
+                })
+                .toList();
+    }
+
+    @Override
+    public boolean cancel(Long jobId) {
+        RunningJob runningJob = runningJobs.get(jobId);
+        if (runningJob == null) {
+            return false;
+        }
+        // Флаг проверяется при чтении каждой строки; уже сохраненные пакеты остаются в базе
+        runningJob.cancelRequested = true;
+        return true;
+    }
+
+    private void run(RunningJob runningJob) {
+        Path file = runningJob.file;
+        try {
+            slots.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            finish(runningJob, JobStatus.INTERRUPTED, "Задание прервано остановкой сервиса");
+            runningJobs.remove(runningJob.jobId);
+            if (runningJob.temporary) {
+                deleteQuietly(file);
+            }
+            return;
+        }
+
+        try {
+            if (runningJob.cancelRequested) {
+                finish(runningJob, JobStatus.CANCELLED, "Задание отменено");
+                return;
+            }
+
+            runningJob.startedAt = LocalDateTime.now();
+            runningJob.status = JobStatus.RUNNING;
+            runningJob.stage = JobStage.PARSE;
+            saveProgress(runningJob);
+
+            String fileName = runningJob.job.getFileName();
+            if (fileParserService.isArchive(fileName)) {
+                List<String> failedMembers = runArchive(runningJob);
+                if (!failedMembers.isEmpty()) {
+                    // Архив не отмечается загруженным: после исправления его можно загрузить повторно,
+                    // уже сохраненные телеграммы отсеет дедупликация
+                    finish(runningJob, JobStatus.COMPLETED, "Не загружены файлы архива: " + String.join("; ", failedMembers));
+                    return;
+                }
+            } else {
+                ingestPipeline.run(sink -> fileParserService.streamTelegrams(file, fileName, cancellable(runningJob, sink)),
+                        new JobListener(runningJob));
+            }
+
+            finish(runningJob, JobStatus.COMPLETED, null);
+            deduplicationService.recordIngestedFile(runningJob.job.getFileSha256(), fileName,
+                    runningJob.rowsRead.get(), runningJob.rowsProcessed.get());
+        } catch (Exception e) {
+            if (isCancellation(e)) {
+                finish(runningJob, JobStatus.CANCELLED, "Задание отменено");
+            } else {
+                System.err.println("Ошибка задания загрузки " + runningJob.jobId + ": " + e.getMessage());
+                finish(runningJob, JobStatus.FAILED, e.getMessage());
+            }
+        } finally {
+            slots.release();
+            runningJobs.remove(runningJob.jobId);
+            if (runningJob.temporary) {
+                deleteQuietly(file);
+            }
+        }
+    }
+
+    /**
+     * Загружает файлы ZIP архива параллельно, не более archiveParallelism одновременно.
+     * Каждый файл читается прямо из архива и проходит свой конвейер; счетчики всех файлов
+     * складываются в одно задание. Возвращает описания ошибок по файлам; если не загрузился
+     * ни один файл - задание завершается ошибкой
+     */
+    private List<String> runArchive(RunningJob runningJob) throws InterruptedException {
+        List<String> members = fileParserService.listArchiveMembers(runningJob.file);
+        if (members.isEmpty()) {
+            throw new RuntimeException("В архиве нет файлов с телеграммами");
+        }
+
+        JobListener listener = new JobListener(runningJob);
+        Semaphore memberSlots = new Semaphore(archiveParallelism);
+        Map<String, Future<?>> tasks = new LinkedHashMap<>();
+        try {
+            for (String member : members) {
+                memberSlots.acquire();
+                if (runningJob.cancelRequested) {
+                    memberSlots.release();
+                    break;
+                }
+                tasks.put(member, ingestExecutor.submit(() -> {
+                    try {
+                        ingestPipeline.run(sink -> fileParserService.streamArchiveMember(runningJob.file, member,
+                                cancellable(runningJob, sink)), listener);
+                    } finally {
+                        memberSlots.release();
+                    }
+                }));
+            }
+
+            List<String> failedMembers = new ArrayList<>();
+            for (Map.Entry<String, Future<?>> task : tasks.entrySet()) {
+                try {
+                    task.getValue().get();
+                } catch (ExecutionException e) {
+                    if (!isCancellation(e)) {
+                        System.err.println("Ошибка загрузки " + task.getKey() + " из архива (задание "
+                                + runningJob.jobId + "): " + e.getCause().getMessage());
+                        failedMembers.add(task.getKey() + ": " + e.getCause().getMessage());
+                    }
+                }
+            }
+            if (runningJob.cancelRequested) {
+                throw new JobCancelledException();
+            }
+            if (failedMembers.size() == members.size()) {
+                throw new RuntimeException("Не загружен ни один файл архива: " + String.join("; ", failedMembers));
+            }
+            return failedMembers;
+        } catch (InterruptedException e) {
+            // Остальные файлы архива останавливаются на следующей строке
+            runningJob.cancelRequested = true;
+            throw e;
+        }
+    }
+
+    /**
+     * Передает телеграммы в конвейер, пока задание не отменено
+     */
+    private Consumer<RawTelegram> cancellable(RunningJob runningJob, Consumer<RawTelegram> sink) {
+        return telegram -> {
+            if (runningJob.cancelRequested) {
+                throw new JobCancelledException();
+            }
+            sink.accept(telegram);
+        };
+    }
+
+    /**
+     * Переносит события конвейера в счетчики задания; прогресс сохраняется после каждого пакета
+     */
+    private final class JobListener implements IngestPipeline.Listener {
+        private final RunningJob runningJob;
+
+        JobListener(RunningJob runningJob) {
+            this.runningJob = runningJob;
+        }
+
+        @Override
+        public void onStage(IngestPipeline.Stage stage) {
+            // Этапы работают одновременно; показываем самый ранний из незавершенных
+            runningJob.stage = switch (stage) {
+                case READ, TOKENIZE -> JobStage.PARSE;
+                case GEOLOCATE -> JobStage.GEOLOCATE;
+                case PERSIST -> JobStage.PERSIST;
+            };
+        }
+
+        @Override
+        public void onRowRead() {
+            runningJob.rowsRead.incrementAndGet();
+        }
+
+        @Override
+        public void onBatchPersisted(int telegrams, int saved, int duplicates) {
+            runningJob.rowsProcessed.addAndGet(saved);
+            runningJob.rowsDuplicate.addAndGet(duplicates);
+            runningJob.rowsFailed.addAndGet(telegrams - duplicates - saved);
+            saveProgress(runningJob);
+        }
+    }
+
+    private void finish(RunningJob runningJob, JobStatus status, String errorMessage) {
+        runningJob.status = status;
+        runningJob.finishedAt = LocalDateTime.now();
+        runningJob.job.setErrorMessage(errorMessage);
+        try {
+            saveProgress(runningJob);
+        } catch (Exception e) {
+            System.err.println("Ошибка сохранения состояния задания " + runningJob.jobId + ": " + e.getMessage());
+        }
+    }
+
+    private void saveProgress(RunningJob runningJob) {
+        // Вызывается из нескольких потоков записи конвейера
+        synchronized (runningJob) {
+            IngestJob job = runningJob.job;
+            job.setStatus(runningJob.status);
+            job.setStage(runningJob.stage);
+            job.setRowsRead(runningJob.rowsRead.get());
+            job.setRowsProcessed(runningJob.rowsProcessed.get());
+            job.setRowsFailed(runningJob.rowsFailed.get());
+            job.setRowsDuplicate(runningJob.rowsDuplicate.get());
+            job.setStartedAt(runningJob.startedAt);
+            job.setFinishedAt(runningJob.finishedAt);
+            job.setUpdatedAt(LocalDateTime.now());
+            ingestJobRepository.save(job);
+        }
+    }
+
+    private IngestJobResponse toResponse(RunningJob runningJob) {
+        long rowsRead = runningJob.rowsRead.get();
+        return new IngestJobResponse(
+                runningJob.jobId,
+                runningJob.job.getFileName(),
+                runningJob.status.name(),
+                runningJob.stage != null ? runningJob.stage.name() : null,
+                rowsRead,
+                runningJob.rowsProcessed.get(),
+                runningJob.rowsFailed.get(),
+                runningJob.rowsDuplicate.get(),
+                rowsPerSecond(rowsRead, runningJob.startedAt, runningJob.finishedAt),
+                runningJob.job.getErrorMessage(),
+                runningJob.job.getCreatedAt(),
+                runningJob.startedAt,
+                runningJob.finishedAt
+        );
+    }
+
+    private IngestJobResponse toResponse(IngestJob job) {
+        return new IngestJobResponse(
+                job.getJobId(),
+                job.getFileName(),
+                job.getStatus().name(),
+                job.getStage() != null ? job.getStage().name() : null,
+                job.getRowsRead(),
+                job.getRowsProcessed(),
+                job.getRowsFailed(),
+                job.getRowsDuplicate(),
+                rowsPerSecond(job.getRowsRead(), job.getStartedAt(), job.getFinishedAt()),
+                job.getErrorMessage(),
+                job.getCreatedAt(),
+                job.getStartedAt(),
+                job.getFinishedAt()
+        );
+    }
+
+    private double rowsPerSecond(long rows, LocalDateTime startedAt, LocalDateTime finishedAt) {
+        if (startedAt == null) {
+            return 0;
+        }
+        LocalDateTime end = finishedAt != null ? finishedAt : LocalDateTime.now();
+        long millis = Duration.between(startedAt, end).toMillis();
+        return millis > 0 ? rows * 1000.0 / millis : 0;
+    }
+
+    private boolean isCancellation(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof JobCancelledException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void deleteQuietly(Path path) {
+        if (path == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            System.err.println("Не удалось удалить временный файл " + path + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Состояние выполняемого задания. Счетчики читаются запросом прогресса из другого потока
+     */
+    private static final class RunningJob {
+        final IngestJob job;
+        final Long jobId;
+        final Path file;
+        // Временную копию задание удаляет само, файл из каталога приема - нет
+        final boolean temporary;
+        final AtomicLong rowsRead = new AtomicLong();
+        final AtomicLong rowsProcessed = new AtomicLong();
+        final AtomicLong rowsFailed = new AtomicLong();
+        final AtomicLong rowsDuplicate = new AtomicLong();
+        volatile JobStatus status = JobStatus.QUEUED;
+        volatile JobStage stage;
+        volatile LocalDateTime startedAt;
+        volatile LocalDateTime finishedAt;
+        volatile boolean cancelRequested;
+
+        RunningJob(IngestJob job, Path file, boolean temporary) {
+            this.job = job;
+            this.jobId = job.getJobId();
+            this.file = file;
+            this.temporary = temporary;
+        }
+    }
+
+    private static final class JobCancelledException extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        JobCancelledException() {
+            super("Задание отменено", null, false, false);
+        }
+    }
+}
@@ -3,6 +3,7 @@ package com.drones.skilldrones.service;
 import com.drones.skilldrones.dto.ParsedFlightData;
 import com.drones.skilldrones.dto.response.RegionResponse;
 import com.drones.skilldrones.model.Region;
+import org.locationtech.jts.geom.Point;
 
 import java.time.LocalDate;
 import java.util.List;
@@ -14,6 +15,11 @@ public interface RegionAnalysisService {
      */
     Optional<Region> findRegionForCoordinates(String coordinates);
 
+    /**
+     * Определяет регион для готовой точки (без разбора строки координат)
+     */
+    Optional<Region> findRegionForPoint(Point point);
+
     /**
      * Анализирует список полетов и возвращает топ-10 регионов
      */
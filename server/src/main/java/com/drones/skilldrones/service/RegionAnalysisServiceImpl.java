@@ -2,11 +2,11 @@ package com.drones.skilldrones.service;
 
 import com.drones.skilldrones.dto.ParsedFlightData;
 import com.drones.skilldrones.dto.response.RegionResponse;
+import com.drones.skilldrones.geo.Geometries;
+import com.drones.skilldrones.geo.RegionSpatialIndex;
 import com.drones.skilldrones.mapper.RegionMapper;
 import com.drones.skilldrones.model.Region;
 import com.drones.skilldrones.repository.RegionRepository;
-import org.locationtech.jts.geom.Coordinate;
-import org.locationtech.jts.geom.GeometryFactory;
 import org.locationtech.jts.geom.Point;
 import org.springframework.stereotype.Service;
 
@@ -19,13 +19,14 @@ public class RegionAnalysisServiceImpl implements RegionAnalysisService {
 
     private final RegionRepository regionRepository;
     private final RegionMapper regionMapper;
-    private final GeometryFactory geometryFactory;
+    private final RegionSpatialIndex regionSpatialIndex;
 
     public RegionAnalysisServiceImpl(RegionRepository regionRepository,
-                                     RegionMapper regionMapper) {
+                                     RegionMapper regionMapper,
+                                     RegionSpatialIndex regionSpatialIndex) {
         this.regionRepository = regionRepository;
         this.regionMapper = regionMapper;
-        this.geometryFactory = new GeometryFactory();
+        this.regionSpatialIndex = regionSpatialIndex;
     }
 
     @Override
@@ -35,14 +36,18 @@ public class RegionAnalysisServiceImpl implements RegionAnalysisService {
         }
 
         try {
-            Point point = createPointFromCoordinates(coordinates);
-            return regionRepository.findRegionByPoint(point);
+            return findRegionForPoint(Geometries.parseLatLon(coordinates));
         } catch (Exception e) {
             System.err.println("Ошибка определения региона для координат: " + coordinates);
             return Optional.empty();
         }
     }
 
+    @Override
+    public Optional<Region> findRegionForPoint(Point point) {
+        return regionSpatialIndex.findRegion(point);
+    }
+
     @Override
     public Map<String, Object> analyzeTopRegions(List<ParsedFlightData> flightData) {
         Map<Region, Integer> regionStats = new HashMap<>();
@@ -50,7 +55,9 @@ public class RegionAnalysisServiceImpl implements RegionAnalysisService {
         int failedGeolocation = 0;
 
         for (ParsedFlightData flight : flightData) {
-            Optional<Region> regionOpt = findRegionForCoordinates(flight.getCoordinates());
+            Optional<Region> regionOpt = flight.hasCoordinates()
+                    ? findRegionForPoint(Geometries.pointFromArcMinutes(flight.getLatMinutes(), flight.getLonMinutes()))
+                    : Optional.empty();
 
             if (regionOpt.isPresent()) {
                 Region region = regionOpt.get();
@@ -146,12 +153,4 @@ public class RegionAnalysisServiceImpl implements RegionAnalysisService {
         return regionRepository.findById(regionId)
                 .map(regionMapper::toResponse);
     }
-
-    private Point createPointFromCoordinates(String coordinates) {
-        String[] parts = coordinates.split(",");
-        double lat = Double.parseDouble(parts[0].trim());
-        double lon = Double.parseDouble(parts[1].trim());
-
-        return geometryFactory.createPoint(new Coordinate(lon, lat));
-    }
 }
@@ -0,0 +1,38 @@
+package com.drones.skilldrones.service;
+
+import com.drones.skilldrones.dto.response.RegionGeometryLevelResponse;
+
+import java.util.List;
+import java.util.Optional;
+
+public interface RegionGeometryService {
+    /**
+     * Перестраивает устаревшие уровни упрощения границ. Возвращает количество перестроенных уровней
+     */
+    int rebuildLevels();
+
+    /**
+     * Номер самого грубого уровня; 0, если уровни упрощения не настроены
+     */
+    int getCoarsestLevel();
+
+    /**
+     * Самый грубый уровень, допуск которого не превышает размера пикселя карты (в градусах)
+     */
+    int getLevelForResolution(double degreesPerPixel);
+
+    /**
+     * GeoJSON FeatureCollection всех регионов на уровне level
+     */
+    String getGeoJson(int level);
+
+    /**
+     * GeoJSON FeatureCollection из одного региона на уровне level; пусто, если региона нет
+     */
+    Optional<String> getGeoJson(Long regionId, int level);
+
+    /**
+     * Уровни детализации с количеством вершин
+     */
+    List<RegionGeometryLevelResponse> getLevels();
+}
@@ -0,0 +1,147 @@
+package com.drones.skilldrones.service;
+
+import com.drones.skilldrones.dto.response.RegionGeometryLevelResponse;
+import com.drones.skilldrones.geo.RegionsUpdatedEvent;
+import com.drones.skilldrones.repository.RegionRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Предрасчитанные уровни детализации границ регионов.
+ * Уровень 0 - полная геометрия из regions, уровни 1..n строятся в базе ST_SimplifyPreserveTopology
+ * с допусками app.geo.levels.tolerances (по возрастанию) и хранятся в region_geometry_levels.
+ * Уровни перестраиваются при старте, если устарели, и после каждого изменения регионов.
+ * GeoJSON собирается в базе из нужного уровня, полные геометрии при этом не читаются;
+ * число знаков после точки согласовано с допуском уровня. Документ со всеми регионами кэшируется.
+ */
+@Service
+public class RegionGeometryServiceImpl implements RegionGeometryService {
+
+    private static final int FULL_DETAIL_DIGITS = 6;
+
+    private final RegionRepository regionRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final double[] tolerances;
+    private final Map<Integer, String> geoJsonCache = new ConcurrentHashMap<>();
+
+    public RegionGeometryServiceImpl(RegionRepository regionRepository,
+                                     PlatformTransactionManager transactionManager,
+                                     @Value("${app.geo.levels.tolerances:0.001,0.01,0.05}") double[] tolerances) {
+        this.regionRepository = regionRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.tolerances = Arrays.stream(tolerances).filter(tolerance -> tolerance > 0).sorted().toArray();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        rebuildSafely();
+    }
+
+    // Уровни перестраиваются раньше остальных слушателей, чтобы тайлы и GeoJSON строились уже по новым границам
+    @EventListener
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    public void onRegionsUpdated(RegionsUpdatedEvent event) {
+        rebuildSafely();
+    }
+
+    private void rebuildSafely() {
+        try {
+            rebuildLevels();
+        } catch (Exception e) {
+            // Пока уровни не построены, вместо них отдается полная геометрия
+            System.err.println("Ошибка построения уровней детализации регионов: " + e.getMessage());
+        }
+    }
+
+    @Override
+    public synchronized int rebuildLevels() {
+        int levels = tolerances.length;
+        // Уровни, убранные из настроек
+        transactionTemplate.executeWithoutResult(status -> regionRepository.deleteGeometryLevels(0, levels));
+
+        int rebuilt = 0;
+        for (int i = 0; i < levels; i++) {
+            int level = i + 1;
+            double tolerance = tolerances[i];
+            if (regionRepository.countRegionsWithoutGeometryLevel(level, tolerance) == 0) {
+                continue;
+            }
+            transactionTemplate.executeWithoutResult(status -> {
+                regionRepository.deleteGeometryLevels(level, levels);
+                regionRepository.insertGeometryLevel(level, tolerance);
+            });
+            rebuilt++;
+        }
+        geoJsonCache.clear();
+        return rebuilt;
+    }
+
+    @Override
+    public int getCoarsestLevel() {
+        return tolerances.length;
+    }
+
+    @Override
+    public int getLevelForResolution(double degreesPerPixel) {
+        for (int level = tolerances.length; level > 0; level--) {
+            if (tolerances[level - 1] <= degreesPerPixel) {
+                return level;
+            }
+        }
+        return 0;
+    }
+
+    @Override
+    public String getGeoJson(int level) {
+        checkLevel(level);
+        return geoJsonCache.computeIfAbsent(level,
+                key -> regionRepository.findGeoJson(key, digits(key), null));
+    }
+
+    @Override
+    public Optional<String> getGeoJson(Long regionId, int level) {
+        checkLevel(level);
+        // findById обслуживается кэшем второго уровня, existsById всегда идет в базу
+        if (regionRepository.findById(regionId).isEmpty()) {
+            return Optional.empty();
+        }
+        return Optional.ofNullable(regionRepository.findGeoJson(level, digits(level), regionId));
+    }
+
+    @Override
+    public List<RegionGeometryLevelResponse> getLevels() {
+        return regionRepository.findGeometryLevelStats().stream()
+                .map(stats -> new RegionGeometryLevelResponse(stats.getLevel(), stats.getTolerance(),
+                        stats.getRegions(), stats.getPoints()))
+                .toList();
+    }
+
+    private void checkLevel(int level) {
+        if (level < 0 || level > tolerances.length) {
+            throw new IllegalArgumentException("Уровень детализации должен быть от 0 до " + tolerances.length);
+        }
+    }
+
+    /**
+     * Знаков после точки в GeoJSON: на порядок точнее допуска уровня (0.01° -> 3 знака)
+     */
+    private int digits(int level) {
+        if (level == 0) {
+            return FULL_DETAIL_DIGITS;
+        }
+        int digits = (int) Math.ceil(-Math.log10(tolerances[level - 1])) + 1;
+        return Math.max(1, Math.min(FULL_DETAIL_DIGITS, digits));
+    }
+}
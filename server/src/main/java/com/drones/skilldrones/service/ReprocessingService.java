@@ -0,0 +1,34 @@
+package com.drones.skilldrones.service;
+
+import com.drones.skilldrones.dto.response.ReprocessJobResponse;
+
+import java.util.List;
+import java.util.Optional;
+
+public interface ReprocessingService {
+    /**
+     * Запускает повторную обработку телеграмм с id в [fromId, toId] (null - от первой / до последней).
+     * Возвращает сразу, обработка выполняется в фоне
+     */
+    ReprocessJobResponse start(Long fromId, Long toId);
+
+    /**
+     * Продолжает прерванное, отмененное или упавшее задание с сохраненных контрольных точек
+     */
+    ReprocessJobResponse resume(Long jobId);
+
+    /**
+     * Текущее состояние задания
+     */
+    Optional<ReprocessJobResponse> getJob(Long jobId);
+
+    /**
+     * Последние задания повторной обработки
+     */
+    List<ReprocessJobResponse> getRecentJobs();
+
+    /**
+     * Запрашивает остановку задания. Возвращает false, если задание не выполняется
+     */
+    boolean cancel(Long jobId);
+}
@@ -0,0 +1,450 @@
+package com.drones.skilldrones.service;
+
+import com.drones.skilldrones.dto.response.ReprocessJobResponse;
+import com.drones.skilldrones.model.Flight;
+import com.drones.skilldrones.model.RawTelegram;
+import com.drones.skilldrones.model.ReprocessCheckpoint;
+import com.drones.skilldrones.model.ReprocessJob;
+import com.drones.skilldrones.model.ReprocessJob.JobStatus;
+import com.drones.skilldrones.pipeline.RateLimiter;
+import com.drones.skilldrones.repository.FlightBulkLoader;
+import com.drones.skilldrones.repository.RawTelegramRepository;
+import com.drones.skilldrones.repository.ReprocessCheckpointRepository;
+import com.drones.skilldrones.repository.ReprocessJobRepository;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Повторная обработка сохраненных телеграмм: полеты заново строятся из raw_telegrams
+ * после изменения правил разбора или геопривязки.
+ * Диапазон id делится на партиции, которые разбирают parallelism потоков. Каждая партиция
+ * читается порциями по page-size в порядке id (WHERE id > последний обработанный), полеты
+ * обновляются по raw_id через COPY и INSERT ... ON CONFLICT, а контрольная точка партиции
+ * сдвигается в той же транзакции. Поэтому прерванное задание продолжается с места остановки
+ * без повторной записи. Общая скорость ограничена max-rows-per-second, чтобы не отнимать
+ * базу и процессор у загрузки новых телеграмм.
+ */
+@Service
+public class ReprocessingServiceImpl implements ReprocessingService {
+
+    private final ReprocessJobRepository reprocessJobRepository;
+    private final ReprocessCheckpointRepository checkpointRepository;
+    private final RawTelegramRepository rawTelegramRepository;
+    private final FlightProcessingService flightProcessingService;
+    private final FlightBulkLoader flightBulkLoader;
+    private final ApplicationEventPublisher eventPublisher;
+    private final ExecutorService ingestExecutor;
+    private final TransactionTemplate transactionTemplate;
+    private final RateLimiter rateLimiter;
+    private final int partitions;
+    private final int parallelism;
+    private final int pageSize;
+    private final boolean resumeOnStartup;
+    private final Map<Long, RunningJob> runningJobs = new ConcurrentHashMap<>();
+    private volatile boolean shuttingDown;
+
+    public ReprocessingServiceImpl(ReprocessJobRepository reprocessJobRepository,
+                                   ReprocessCheckpointRepository checkpointRepository,
+                                   RawTelegramRepository rawTelegramRepository,
+                                   FlightProcessingService flightProcessingService,
+                                   FlightBulkLoader flightBulkLoader,
+                                   ApplicationEventPublisher eventPublisher,
+                                   PlatformTransactionManager transactionManager,
+                                   @Qualifier("ingestExecutor") ExecutorService ingestExecutor,
+                                   @Value("${app.reprocess.partitions:16}") int partitions,
+                                   @Value("${app.reprocess.parallelism:2}") int parallelism,
+                                   @Value("${app.reprocess.page-size:2000}") int pageSize,
+                                   @Value("${app.reprocess.max-rows-per-second:5000}") double maxRowsPerSecond,
+                                   @Value("${app.reprocess.resume-on-startup:false}") boolean resumeOnStartup) {
+        this.reprocessJobRepository = reprocessJobRepository;
+        this.checkpointRepository = checkpointRepository;
+        this.rawTelegramRepository = rawTelegramRepository;
+        this.flightProcessingService = flightProcessingService;
+        this.flightBulkLoader = flightBulkLoader;
+        this.eventPublisher = eventPublisher;
+        this.ingestExecutor = ingestExecutor;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.rateLimiter = new RateLimiter(maxRowsPerSecond);
+        this.partitions = Math.max(1, partitions);
+        this.parallelism = Math.max(1, parallelism);
+        this.pageSize = Math.max(1, pageSize);
+        this.resumeOnStartup = resumeOnStartup;
+    }
+
+    /**
+     * Задания, которые выполнялись до остановки сервиса, помечаются прерванными (и продолжаются, если включено)
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void markInterruptedJobs() {
+        List<ReprocessJob> jobs = reprocessJobRepository.findByStatusIn(List.of(JobStatus.QUEUED, JobStatus.RUNNING));
+        for (ReprocessJob job : jobs) {
+            job.setStatus(JobStatus.INTERRUPTED);
+            job.setErrorMessage("Задание прервано перезапуском сервиса");
+            job.setFinishedAt(LocalDateTime.now());
+        }
+        reprocessJobRepository.saveAll(jobs);
+
+        // Одновременно выполняется одно задание, поэтому продолжается последнее
+        if (resumeOnStartup) {
+            jobs.stream()
+                    .max(Comparator.comparing(ReprocessJob::getCreatedAt))
+                    .ifPresent(job -> resume(job.getJobId()));
+        }
+    }
+
+    /**
+     * Останавливает задания после текущей порции; они остаются прерванными и продолжаются с контрольных точек
+     */
+    @PreDestroy
+    public void shutdown() {
+        shuttingDown = true;
+    }
+
+    @Override
+    public synchronized ReprocessJobResponse start(Long fromId, Long toId) {
+        ensureNothingRunning();
+        Long minId = rawTelegramRepository.findMinId();
+        Long maxId = rawTelegramRepository.findMaxId();
+        if (minId == null) {
+            throw new IllegalStateException("Нет сохраненных телеграмм");
+        }
+        long from = fromId != null ? Math.max(fromId, minId) : minId;
+        long to = toId != null ? Math.min(toId, maxId) : maxId;
+        if (from > to) {
+            throw new IllegalArgumentException("Пустой диапазон id телеграмм: " + from + ".." + to);
+        }
+
+        ReprocessJob job = new ReprocessJob();
+        job.setFromRawId(from);
+        job.setToRawId(to);
+        job = reprocessJobRepository.save(job);
+        List<ReprocessCheckpoint> checkpoints = checkpointRepository.saveAll(split(job.getJobId(), from, to));
+        return launch(job, checkpoints);
+    }
+
+    @Override
+    public synchronized ReprocessJobResponse resume(Long jobId) {
+        ensureNothingRunning();
+        ReprocessJob job = reprocessJobRepository.findById(jobId)
+                .orElseThrow(() -> new IllegalArgumentException("Задание " + jobId + " не найдено"));
+        if (!job.isResumable()) {
+            throw new IllegalStateException("Задание " + jobId + " в статусе " + job.getStatus() + " нельзя продолжить");
+        }
+        List<ReprocessCheckpoint> checkpoints = checkpointRepository.findByJobIdOrderByRangeStartAsc(jobId);
+        // Счетчики задания могли не успеть сохраниться после последней порции; точные значения - в контрольных точках
+        job.setRowsRead(checkpoints.stream().mapToLong(ReprocessCheckpoint::getRowsRead).sum());
+        job.setRowsProcessed(checkpoints.stream().mapToLong(ReprocessCheckpoint::getRowsProcessed).sum());
+        job.setRowsFailed(checkpoints.stream().mapToLong(ReprocessCheckpoint::getRowsFailed).sum());
+        job.setStatus(JobStatus.QUEUED);
+        job.setErrorMessage(null);
+        job.setFinishedAt(null);
+        return launch(job, checkpoints);
+    }
+
+    /**
+     * Одновременно выполняется одно задание: ограничение скорости рассчитано на него
+     */
+    private void ensureNothingRunning() {
+        if (!runningJobs.isEmpty()) {
+            throw new IllegalStateException("Уже выполняется задание повторной обработки "
+                    + runningJobs.keySet().iterator().next());
+        }
+    }
+
+    /**
+     * Делит [from, to] на partitions диапазонов одинаковой ширины
+     */
+    private List<ReprocessCheckpoint> split(Long jobId, long from, long to) {
+        long span = to - from + 1;
+        int count = (int) Math.min(partitions, span);
+        long width = (span + count - 1) / count;
+        List<ReprocessCheckpoint> checkpoints = new ArrayList<>(count);
+        for (long start = from; start <= to; start += width) {
+            checkpoints.add(new ReprocessCheckpoint(jobId, start, Math.min(to, start + width - 1)));
+        }
+        return checkpoints;
+    }
+
+    private ReprocessJobResponse launch(ReprocessJob job, List<ReprocessCheckpoint> checkpoints) {
+        RunningJob runningJob = new RunningJob(job, checkpoints);
+        runningJobs.put(runningJob.jobId, runningJob);
+        saveProgress(runningJob);
+        ingestExecutor.submit(() -> run(runningJob));
+        return toResponse(runningJob);
+    }
+
+    @Override
+    public Optional<ReprocessJobResponse> getJob(Long jobId) {
+        RunningJob runningJob = runningJobs.get(jobId);
+        if (runningJob != null) {
+            return Optional.of(toResponse(runningJob));
+        }
+        return reprocessJobRepository.findById(jobId).map(this::toResponse);
+    }
+
+    @Override
+    public List<ReprocessJobResponse> getRecentJobs() {
+        return reprocessJobRepository.findTop20ByOrderByCreatedAtDesc().stream()
+                .map(job -> {
+                    RunningJob runningJob = runningJobs.get(job.getJobId());
+                    return runningJob != null ? toResponse(runningJob) : toResponse(job);
+                })
+                .toList();
+    }
+
+    @Override
+    public boolean cancel(Long jobId) {
+        RunningJob runningJob = runningJobs.get(jobId);
+        if (runningJob == null) {
+            return false;
+        }
+        // Проверяется перед каждой порцией; сохраненные порции остаются, задание можно продолжить
+        runningJob.cancelRequested = true;
+        return true;
+    }
+
+    private void run(RunningJob runningJob) {
+        try {
+            runningJob.status = JobStatus.RUNNING;
+            runningJob.startedAt = LocalDateTime.now();
+            saveProgress(runningJob);
+
+            Queue<ReprocessCheckpoint> pending = new ConcurrentLinkedQueue<>();
+            for (ReprocessCheckpoint checkpoint : runningJob.checkpoints) {
+                if (!checkpoint.isCompleted()) {
+                    pending.add(checkpoint);
+                }
+            }
+
+            List<Future<?>> workers = new ArrayList<>();
+            for (int i = 0; i < Math.min(parallelism, pending.size()); i++) {
+                workers.add(ingestExecutor.submit(() -> work(runningJob, pending)));
+            }
+            for (Future<?> worker : workers) {
+                worker.get();
+            }
+
+            if (shuttingDown) {
+                finish(runningJob, JobStatus.INTERRUPTED, "Задание прервано остановкой сервиса");
+            } else if (runningJob.cancelRequested) {
+                finish(runningJob, JobStatus.CANCELLED, "Задание отменено");
+            } else if (!runningJob.errors.isEmpty()) {
+                finish(runningJob, JobStatus.FAILED, String.join("; ", runningJob.errors));
+            } else {
+                finish(runningJob, JobStatus.COMPLETED, null);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            runningJob.cancelRequested = true;
+            finish(runningJob, JobStatus.INTERRUPTED, "Задание прервано остановкой сервиса");
+        } catch (ExecutionException | RuntimeException e) {
+            System.err.println("Ошибка задания повторной обработки " + runningJob.jobId + ": " + e.getMessage());
+            runningJob.cancelRequested = true;
+            finish(runningJob, JobStatus.FAILED, e.getMessage());
+        } finally {
+            runningJobs.remove(runningJob.jobId);
+        }
+    }
+
+    /**
+     * Поток задания берет следующую незавершенную партицию, пока они есть.
+     * Ошибка партиции не останавливает остальные: она остается незавершенной и будет повторена при продолжении
+     */
+    private void work(RunningJob runningJob, Queue<ReprocessCheckpoint> pending) {
+        ReprocessCheckpoint checkpoint;
+        while (!runningJob.stopped() && (checkpoint = pending.poll()) != null) {
+            try {
+                processPartition(runningJob, checkpoint);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                String range = checkpoint.getRangeStart() + ".." + checkpoint.getRangeEnd();
+                System.err.println("Ошибка повторной обработки телеграмм " + range + " (задание "
+                        + runningJob.jobId + "): " + e.getMessage());
+                runningJob.errors.add("id " + range + ": " + e.getMessage());
+            }
+        }
+    }
+
+    private void processPartition(RunningJob runningJob, ReprocessCheckpoint checkpoint) throws InterruptedException {
+        long afterId = checkpoint.getLastRawId();
+        while (!runningJob.stopped()) {
+            List<RawTelegram> telegrams = rawTelegramRepository.findIdRange(afterId, checkpoint.getRangeEnd(),
+                    PageRequest.of(0, pageSize));
+            if (telegrams.isEmpty()) {
+                transactionTemplate.executeWithoutResult(status ->
+                        checkpointRepository.markCompleted(checkpoint.getCheckpointId()));
+                checkpoint.setCompleted(true);
+                runningJob.partitionsCompleted.incrementAndGet();
+                return;
+            }
+            rateLimiter.acquire(telegrams.size());
+
+            // Телеграммы, которые не разбираются по новым правилам, попадают в rejected_telegrams
+            List<Flight> flights = flightProcessingService.buildFlights(telegrams);
+            flightProcessingService.geolocate(flights);
+            LocalDateTime now = LocalDateTime.now();
+            for (Flight flight : flights) {
+                flight.setProcessingStatus("PROCESSED");
+                flight.setUpdatedAt(now);
+            }
+
+            long lastId = telegrams.get(telegrams.size() - 1).getId();
+            int failed = telegrams.size() - flights.size();
+            Integer saved = transactionTemplate.execute(status -> {
+                int upserted = flightBulkLoader.upsert(flights);
+                checkpointRepository.advance(checkpoint.getCheckpointId(), lastId, telegrams.size(), upserted, failed);
+                return upserted;
+            });
+
+            if (saved != null && saved > 0) {
+                eventPublisher.publishEvent(new FlightsSavedEvent(saved));
+            }
+            afterId = lastId;
+            checkpoint.setLastRawId(lastId);
+            runningJob.rowsRead.addAndGet(telegrams.size());
+            runningJob.rowsProcessed.addAndGet(saved != null ? saved : 0);
+            runningJob.rowsFailed.addAndGet(failed);
+            saveProgress(runningJob);
+        }
+    }
+
+    private void finish(RunningJob runningJob, JobStatus status, String errorMessage) {
+        runningJob.status = status;
+        runningJob.finishedAt = LocalDateTime.now();
+        runningJob.job.setErrorMessage(errorMessage);
+        try {
+            saveProgress(runningJob);
+        } catch (Exception e) {
+            System.err.println("Ошибка сохранения состояния задания " + runningJob.jobId + ": " + e.getMessage());
+        }
+    }
+
+    private void saveProgress(RunningJob runningJob) {
+        // Вызывается из нескольких потоков задания
+        synchronized (runningJob) {
+            ReprocessJob job = runningJob.job;
+            job.setStatus(runningJob.status);
+            job.setRowsRead(runningJob.rowsRead.get());
+            job.setRowsProcessed(runningJob.rowsProcessed.get());
+            job.setRowsFailed(runningJob.rowsFailed.get());
+            job.setStartedAt(runningJob.startedAt);
+            job.setFinishedAt(runningJob.finishedAt);
+            job.setUpdatedAt(LocalDateTime.now());
+            reprocessJobRepository.save(job);
+        }
+    }
+
+    private ReprocessJobResponse toResponse(RunningJob runningJob) {
+        return new ReprocessJobResponse(
+                runningJob.jobId,
+                runningJob.status.name(),
+                runningJob.job.getFromRawId(),
+                runningJob.job.getToRawId(),
+                runningJob.checkpoints.size(),
+                runningJob.partitionsCompleted.get(),
+                runningJob.rowsRead.get(),
+                runningJob.rowsProcessed.get(),
+                runningJob.rowsFailed.get(),
+                // Скорость текущего запуска, без строк, обработанных до продолжения
+                rowsPerSecond(runningJob.rowsRead.get() - runningJob.rowsReadBefore,
+                        runningJob.startedAt, runningJob.finishedAt),
+                runningJob.job.getErrorMessage(),
+                runningJob.job.getCreatedAt(),
+                runningJob.startedAt,
+                runningJob.finishedAt
+        );
+    }
+
+    private ReprocessJobResponse toResponse(ReprocessJob job) {
+        return new ReprocessJobResponse(
+                job.getJobId(),
+                job.getStatus().name(),
+                job.getFromRawId(),
+                job.getToRawId(),
+                (int) checkpointRepository.countByJobId(job.getJobId()),
+                (int) checkpointRepository.countByJobIdAndCompletedTrue(job.getJobId()),
+                job.getRowsRead(),
+                job.getRowsProcessed(),
+                job.getRowsFailed(),
+                rowsPerSecond(job.getRowsRead(), job.getStartedAt(), job.getFinishedAt()),
+                job.getErrorMessage(),
+                job.getCreatedAt(),
+                job.getStartedAt(),
+                job.getFinishedAt()
+        );
+    }
+
+    private double rowsPerSecond(long rows, LocalDateTime startedAt, LocalDateTime finishedAt) {
+        if (startedAt == null) {
+            return 0;
+        }
+        LocalDateTime end = finishedAt != null ? finishedAt : LocalDateTime.now();
+        long millis = Duration.between(startedAt, end).toMillis();
+        return millis > 0 ? rows * 1000.0 / millis : 0;
+    }
+
+    /**
+     * Состояние выполняемого задания. Счетчики продолжают значения, сохраненные до прерывания
+     */
+    private final class RunningJob {
+        final ReprocessJob job;
+        final Long jobId;
+        final List<ReprocessCheckpoint> checkpoints;
+        final long rowsReadBefore;
+        final AtomicLong rowsRead;
+        final AtomicLong rowsProcessed;
+        final AtomicLong rowsFailed;
+        final AtomicInteger partitionsCompleted = new AtomicInteger();
+        final Queue<String> errors = new ConcurrentLinkedQueue<>();
+        volatile JobStatus status;
+        volatile LocalDateTime startedAt;
+        volatile LocalDateTime finishedAt;
+        volatile boolean cancelRequested;
+
+        RunningJob(ReprocessJob job, List<ReprocessCheckpoint> checkpoints) {
+            this.job = job;
+            this.jobId = job.getJobId();
+            this.checkpoints = checkpoints;
+            this.status = job.getStatus();
+            this.rowsReadBefore = job.getRowsRead();
+            this.rowsRead = new AtomicLong(job.getRowsRead());
+            this.rowsProcessed = new AtomicLong(job.getRowsProcessed());
+            this.rowsFailed = new AtomicLong(job.getRowsFailed());
+            for (ReprocessCheckpoint checkpoint : checkpoints) {
+                if (checkpoint.isCompleted()) {
+                    partitionsCompleted.incrementAndGet();
+                }
+            }
+        }
+
+        boolean stopped() {
+            return cancelRequested || shuttingDown;
+        }
+    }
+}
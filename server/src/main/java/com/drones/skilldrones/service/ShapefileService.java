@@ -1,72 +1,199 @@
 package com.drones.skilldrones.service;
 
+import com.drones.skilldrones.geo.GeodesicArea;
+import com.drones.skilldrones.geo.Geometries;
+import com.drones.skilldrones.geo.RegionBoundary;
+import com.drones.skilldrones.geo.RegionsUpdatedEvent;
 import com.drones.skilldrones.model.Region;
-import org.geotools.data.shapefile.ShapefileDataStore; // ИЗМЕНИТЕ ИМПОРТ
-import org.geotools.data.simple.SimpleFeatureCollection;
+import com.drones.skilldrones.repository.RegionBulkLoader;
+import jakarta.persistence.EntityManagerFactory;
+import org.geotools.data.shapefile.ShapefileDataStore;
 import org.geotools.data.simple.SimpleFeatureIterator;
 import org.geotools.data.simple.SimpleFeatureSource;
+import org.geotools.geometry.jts.JTS;
+import org.geotools.referencing.CRS;
+import org.geotools.referencing.crs.DefaultGeographicCRS;
+import org.hibernate.Cache;
+import org.hibernate.SessionFactory;
 import org.locationtech.jts.geom.Geometry;
-import org.locationtech.jts.io.WKTReader;
+import org.locationtech.jts.geom.Polygon;
+import org.locationtech.jts.geom.util.GeometryFixer;
+import org.opengis.feature.simple.SimpleFeature;
+import org.opengis.referencing.crs.CoordinateReferenceSystem;
+import org.opengis.referencing.crs.GeographicCRS;
+import org.opengis.referencing.operation.MathTransform;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.io.File;
-import java.net.URL;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 
+/**
+ * Загрузка границ регионов из шейп-файла.
+ * Геометрии берутся из объектов шейп-файла напрямую, без WKT, и при необходимости переводятся в WGS 84.
+ * Части одного региона объединяются, геометрия один раз проверяется и исправляется GeometryFixer.
+ * Исправление и расчет площади (равновеликая проекция, GeodesicArea) выполняются параллельно по регионам;
+ * регионы сохраняются пакетами JDBC. Запись идет в обход Hibernate, поэтому кэш второго уровня
+ * и кэш запросов по регионам сбрасываются явно, после чего публикуется RegionsUpdatedEvent.
+ */
 @Service
 public class ShapefileService {
-    
-    public List<Region> loadShapefile(String shapefilePath) {
-        List<Region> regions = new ArrayList<>();
-        
+
+    private final RegionBulkLoader regionBulkLoader;
+    private final ApplicationEventPublisher eventPublisher;
+    private final EntityManagerFactory entityManagerFactory;
+    private final TransactionTemplate transactionTemplate;
+    private final String startupShapefile;
+
+    public ShapefileService(RegionBulkLoader regionBulkLoader,
+                            ApplicationEventPublisher eventPublisher,
+                            EntityManagerFactory entityManagerFactory,
+                            PlatformTransactionManager transactionManager,
+                            @Value("${app.geo.shapefile.startup-path:}") String startupShapefile) {
+        this.regionBulkLoader = regionBulkLoader;
+        this.eventPublisher = eventPublisher;
+        this.entityManagerFactory = entityManagerFactory;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.startupShapefile = startupShapefile;
+    }
+
+    /**
+     * Загружает границы из шейп-файла, указанного в app.geo.shapefile.startup-path
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void importOnStartup() {
+        if (startupShapefile.isBlank()) {
+            return;
+        }
+        try {
+            importShapefile(startupShapefile);
+        } catch (Exception e) {
+            System.err.println("Ошибка загрузки регионов из " + startupShapefile + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Загружает регионы из шейп-файла в базу одной транзакцией (существующие регионы обновляются по имени).
+     * Возвращает количество сохраненных регионов
+     */
+    public int importShapefile(String shapefilePath) {
+        List<RegionBoundary> regions = loadShapefile(shapefilePath);
+        Integer saved = transactionTemplate.execute(status -> regionBulkLoader.upsert(regions));
+        evictRegionCaches();
+        // Индекс и сетка регионов перестраиваются по событию
+        eventPublisher.publishEvent(new RegionsUpdatedEvent(regions.size()));
+        return saved != null ? saved : 0;
+    }
+
+    /**
+     * Сбрасывает закэшированные регионы и результаты запросов; слушатели RegionsUpdatedEvent читают уже новые данные
+     */
+    private void evictRegionCaches() {
+        Cache cache = entityManagerFactory.unwrap(SessionFactory.class).getCache();
+        cache.evictEntityData(Region.class);
+        cache.evictQueryRegions();
+    }
+
+    /**
+     * Читает регионы из шейп-файла без сохранения
+     */
+    public List<RegionBoundary> loadShapefile(String shapefilePath) {
+        Map<String, List<Geometry>> parts = readParts(shapefilePath);
+        return parts.entrySet().parallelStream()
+                .map(entry -> toRegion(entry.getKey(), entry.getValue()))
+                .filter(Objects::nonNull)
+                .toList();
+    }
+
+    /**
+     * Последовательно читает объекты файла и группирует геометрии по имени региона
+     */
+    private Map<String, List<Geometry>> readParts(String shapefilePath) {
+        Map<String, List<Geometry>> parts = new LinkedHashMap<>();
+        ShapefileDataStore store = null;
         try {
-            File file = new File(shapefilePath);
-            URL fileURL = file.toURI().toURL();
-            
-            // ИСПРАВЛЕННАЯ СТРОКА - используем ShapefileDataStore
-            ShapefileDataStore store = new ShapefileDataStore(fileURL);
-            store.setCharset(StandardCharsets.UTF_8); // Теперь этот метод существует
-            
+            store = new ShapefileDataStore(new File(shapefilePath).toURI().toURL());
+            store.setCharset(StandardCharsets.UTF_8);
             SimpleFeatureSource featureSource = store.getFeatureSource();
-            SimpleFeatureCollection collection = featureSource.getFeatures();
-            
-            try (SimpleFeatureIterator iterator = collection.features()) {
-                WKTReader wktReader = new WKTReader();
-                
+            MathTransform toWgs84 = transformToWgs84(featureSource.getSchema().getCoordinateReferenceSystem());
+
+            try (SimpleFeatureIterator iterator = featureSource.getFeatures().features()) {
                 while (iterator.hasNext()) {
-                    var feature = iterator.next();
-                    
-                    Region region = new Region();
-                    
-                    String name = getAttributeValue(feature, "name");
-                    region.setName(name);
-                    
+                    SimpleFeature feature = iterator.next();
                     Geometry geometry = (Geometry) feature.getDefaultGeometry();
-                    if (geometry != null) {
-                        String wkt = geometry.toText();
-                        Geometry normalizedGeometry = wktReader.read(wkt);
-                        region.setGeometry(normalizedGeometry);
-                        
-                        double area = calculateAreaKm2(normalizedGeometry);
-                        region.setAreaKm2(area);
+                    if (geometry == null || geometry.isEmpty()) {
+                        continue;
+                    }
+                    if (toWgs84 != null) {
+                        geometry = JTS.transform(geometry, toWgs84);
                     }
-                    
-                    regions.add(region);
+                    parts.computeIfAbsent(getAttributeValue(feature, "name"), name -> new ArrayList<>()).add(geometry);
                 }
             }
-            
-            store.dispose();
-            
         } catch (Exception e) {
             throw new RuntimeException("Ошибка загрузки шейп-файла: " + e.getMessage(), e);
+        } finally {
+            if (store != null) {
+                store.dispose();
+            }
         }
-        
-        return regions;
+        return parts;
     }
-    
-    private String getAttributeValue(org.opengis.feature.simple.SimpleFeature feature, String attributeName) {
+
+    /**
+     * Преобразование в WGS 84 для файлов в проекции; null, если координаты уже географические
+     */
+    private MathTransform transformToWgs84(CoordinateReferenceSystem crs) throws Exception {
+        if (crs == null || crs instanceof GeographicCRS) {
+            return null;
+        }
+        return CRS.findMathTransform(crs, DefaultGeographicCRS.WGS84, true);
+    }
+
+    private RegionBoundary toRegion(String name, List<Geometry> parts) {
+        List<Polygon> polygons = new ArrayList<>();
+        for (Geometry part : parts) {
+            addPolygons(part, polygons);
+        }
+        if (polygons.isEmpty()) {
+            return null;
+        }
+
+        Geometry geometry = polygons.size() == 1
+                ? polygons.get(0)
+                : Geometries.FACTORY.createMultiPolygon(polygons.toArray(Polygon[]::new));
+        if (!geometry.isValid()) {
+            geometry = GeometryFixer.fix(geometry);
+        }
+        geometry.setSRID(Geometries.SRID);
+
+        return new RegionBoundary(name, Math.round(GeodesicArea.km2(geometry) * 100) / 100.0, geometry);
+    }
+
+    private void addPolygons(Geometry geometry, List<Polygon> polygons) {
+        for (int i = 0; i < geometry.getNumGeometries(); i++) {
+            Geometry part = geometry.getGeometryN(i);
+            if (part instanceof Polygon polygon) {
+                if (!polygon.isEmpty()) {
+                    polygons.add(polygon);
+                }
+            } else if (part != geometry) {
+                addPolygons(part, polygons);
+            }
+        }
+    }
+
+    private String getAttributeValue(SimpleFeature feature, String attributeName) {
         try {
             Object value = feature.getAttribute(attributeName);
             return value != null ? value.toString() : "Unknown";
@@ -74,13 +201,4 @@ public class ShapefileService {
             return "Unknown";
         }
     }
-    
-    private double calculateAreaKm2(Geometry geometry) {
-        try {
-            double area = geometry.getArea() * 111 * 111;
-            return Math.round(area * 100) / 100.0;
-        } catch (Exception e) {
-            return 0.0;
-        }
-    }
 }
@@ -0,0 +1,13 @@
+package com.drones.skilldrones.service;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+
+public interface TelegramStreamService {
+    /**
+     * Читает поток NDJSON (одна телеграмма на строку) по мере поступления, сохраняет
+     * телеграммы микропакетами и пишет в output подтверждение на каждый пакет.
+     * Возвращает, когда входной поток закрыт и последний пакет сохранен
+     */
+    void ingest(InputStream input, OutputStream output);
+}
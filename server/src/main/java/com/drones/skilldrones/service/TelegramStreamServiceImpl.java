@@ -0,0 +1,180 @@
+package com.drones.skilldrones.service;
+
+import com.drones.skilldrones.dto.request.TelegramMessage;
+import com.drones.skilldrones.dto.response.StreamBatchAck;
+import com.drones.skilldrones.model.RawTelegram;
+import com.drones.skilldrones.pipeline.MicroBatcher;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Непрерывная загрузка телеграмм от коммутатора сообщений.
+ * Строки разбираются по мере прихода и собираются в микропакеты, ограниченные размером
+ * и временем ожидания (app.ingest.stream.*); каждый пакет сохраняется в своей транзакции,
+ * после чего клиенту уходит строка подтверждения. Задержка от приема строки до сохранения
+ * публикуется как ingest.stream.latency.
+ */
+@Service
+public class TelegramStreamServiceImpl implements TelegramStreamService {
+
+    private static final String SOURCE_NAME = "stream";
+
+    private final FlightProcessingService flightProcessingService;
+    private final ObjectMapper objectMapper;
+    private final ObjectReader messageReader;
+    private final int batchSize;
+    private final Duration maxDelay;
+    private final Timer latency;
+
+    public TelegramStreamServiceImpl(FlightProcessingService flightProcessingService,
+                                     ObjectMapper objectMapper,
+                                     MeterRegistry meterRegistry,
+                                     @Value("${app.ingest.stream.batch-size:500}") int batchSize,
+                                     @Value("${app.ingest.stream.max-delay-millis:50}") long maxDelayMillis) {
+        this.flightProcessingService = flightProcessingService;
+        this.objectMapper = objectMapper;
+        this.messageReader = objectMapper.readerFor(TelegramMessage.class);
+        this.batchSize = batchSize;
+        this.maxDelay = Duration.ofMillis(maxDelayMillis);
+        this.latency = Timer.builder("ingest.stream.latency")
+                .description("Задержка от приема телеграммы до сохранения")
+                .publishPercentiles(0.5, 0.99)
+                .serviceLevelObjectives(Duration.ofMillis(100))
+                .register(meterRegistry);
+    }
+
+    @Override
+    public void ingest(InputStream input, OutputStream output) {
+        AckWriter acks = new AckWriter(output);
+        AtomicLong batchNumber = new AtomicLong();
+        MicroBatcher<Received> batcher = new MicroBatcher<>("stream-batcher", batchSize, maxDelay,
+                batch -> acks.write(persist(batchNumber.incrementAndGet(), batch)));
+        String error = null;
+        try {
+            read(input, batcher, acks);
+        } catch (RuntimeException e) {
+            error = e.getMessage();
+        }
+        try {
+            // Сохраняет остаток последнего пакета
+            batcher.close();
+        } catch (RuntimeException e) {
+            if (error == null) {
+                error = e.getMessage();
+            }
+        }
+
+        if (error != null) {
+            System.err.println("Ошибка потоковой загрузки: " + error);
+            acks.writeQuietly(new StreamBatchAck(batchNumber.get(), 0, 0, 0, 0, 0, 0, error));
+        }
+    }
+
+    private void read(InputStream input, MicroBatcher<Received> batcher, AckWriter acks) {
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8))) {
+            long line = 0;
+            String text;
+            while ((text = reader.readLine()) != null) {
+                line++;
+                if (text.isBlank()) {
+                    continue;
+                }
+                long receivedAt = System.nanoTime();
+                TelegramMessage message;
+                try {
+                    message = messageReader.readValue(text);
+                } catch (JsonProcessingException e) {
+                    // Некорректная строка не прерывает поток
+                    acks.write(new StreamBatchAck(0, line, line, 0, 0, 1, 0,
+                            "Некорректная строка: " + e.getOriginalMessage()));
+                    continue;
+                }
+                batcher.add(new Received(toRawTelegram(message), line, receivedAt));
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Ошибка чтения потока телеграмм: " + e.getMessage(), e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Потоковая загрузка прервана", e);
+        }
+    }
+
+    private StreamBatchAck persist(long batchNumber, List<Received> batch) {
+        List<RawTelegram> telegrams = batch.stream().map(Received::telegram).toList();
+        int saved = flightProcessingService.processBatch(telegrams);
+        int duplicates = (int) telegrams.stream()
+                .filter(telegram -> "DUPLICATE".equals(telegram.getProcessingStatus()))
+                .count();
+
+        long committedAt = System.nanoTime();
+        long maxLatency = 0;
+        for (Received received : batch) {
+            long nanos = committedAt - received.receivedAt();
+            latency.record(nanos, TimeUnit.NANOSECONDS);
+            maxLatency = Math.max(maxLatency, nanos);
+        }
+        return new StreamBatchAck(batchNumber, batch.get(0).line(), batch.get(batch.size() - 1).line(),
+                saved, duplicates, telegrams.size() - saved - duplicates,
+                TimeUnit.NANOSECONDS.toMillis(maxLatency), null);
+    }
+
+    private RawTelegram toRawTelegram(TelegramMessage message) {
+        RawTelegram telegram = new RawTelegram();
+        telegram.setCenter(message.center());
+        telegram.setShrRawText(message.shr());
+        telegram.setDepRawText(message.dep());
+        telegram.setArrRawText(message.arr());
+        telegram.setFileName(SOURCE_NAME);
+        return telegram;
+    }
+
+    private record Received(RawTelegram telegram, long line, long receivedAt) {
+    }
+
+    /**
+     * Подтверждения пишут поток чтения (ошибки разбора) и поток пакетов, поэтому запись синхронизирована
+     */
+    private final class AckWriter {
+        private final OutputStream output;
+
+        AckWriter(OutputStream output) {
+            this.output = output;
+        }
+
+        synchronized void write(StreamBatchAck ack) {
+            try {
+                output.write(objectMapper.writeValueAsBytes(ack));
+                output.write('\n');
+                // Клиент получает подтверждение сразу, а не при заполнении буфера
+                output.flush();
+            } catch (IOException e) {
+                throw new UncheckedIOException("Ошибка отправки подтверждения: " + e.getMessage(), e);
+            }
+        }
+
+        void writeQuietly(StreamBatchAck ack) {
+            try {
+                write(ack);
+            } catch (UncheckedIOException e) {
+                // Клиент уже отключился
+            }
+        }
+    }
+}
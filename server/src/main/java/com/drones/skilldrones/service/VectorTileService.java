@@ -0,0 +1,16 @@
+package com.drones.skilldrones.service;
+
+public interface VectorTileService {
+    /**
+     * Версия данных тайлов: меняется при изменении регионов и при обновлении количества полетов
+     */
+    long getDataVersion();
+
+    /**
+     * Тайл Mapbox Vector Tile с границами регионов и количеством полетов (схема XYZ)
+     */
+    VectorTile getTile(int z, int x, int y);
+
+    record VectorTile(byte[] data, long version) {
+    }
+}
@@ -0,0 +1,187 @@
+package com.drones.skilldrones.service;
+
+import com.drones.skilldrones.geo.RegionsUpdatedEvent;
+import com.drones.skilldrones.repository.FlightRepository;
+import com.drones.skilldrones.repository.RegionRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Векторные тайлы регионов. Обрезка и кодирование выполняются в PostGIS (ST_AsMVTGeom, ST_AsMVT)
+ * по уровню детализации границ, соответствующему масштабу тайла. Количество полетов по регионам
+ * считается один раз на версию данных и обновляется не чаще counts-refresh-seconds после
+ * сохранения новых полетов. Готовые тайлы хранятся в LRU-кэше по (z, x, y, версия данных)
+ * с ограничением по суммарному размеру.
+ */
+@Service
+public class VectorTileServiceImpl implements VectorTileService {
+
+    private static final int EXTENT = 4096;
+    private static final int BUFFER = 64;
+    // Размер тайла на экране: по размеру пикселя выбирается уровень детализации границ
+    private static final int TILE_PIXELS = 256;
+
+    private final RegionRepository regionRepository;
+    private final FlightRepository flightRepository;
+    private final RegionGeometryService regionGeometryService;
+    private final int maxZoom;
+    private final long countsRefreshMillis;
+    private final TileCache cache;
+    // Начинается с текущего времени, чтобы ETag не повторялись после перезапуска
+    private final AtomicLong versions = new AtomicLong(System.currentTimeMillis());
+    private volatile FlightCounts counts;
+    private volatile boolean flightsChanged;
+
+    public VectorTileServiceImpl(RegionRepository regionRepository,
+                                 FlightRepository flightRepository,
+                                 RegionGeometryService regionGeometryService,
+                                 @Value("${app.tiles.max-zoom:16}") int maxZoom,
+                                 @Value("${app.tiles.counts-refresh-seconds:60}") long countsRefreshSeconds,
+                                 @Value("${app.tiles.cache.max-bytes:67108864}") long cacheMaxBytes) {
+        this.regionRepository = regionRepository;
+        this.flightRepository = flightRepository;
+        this.regionGeometryService = regionGeometryService;
+        this.maxZoom = Math.min(maxZoom, 30);
+        this.countsRefreshMillis = countsRefreshSeconds * 1000;
+        this.cache = new TileCache(cacheMaxBytes);
+    }
+
+    @EventListener
+    public void onRegionsUpdated(RegionsUpdatedEvent event) {
+        synchronized (this) {
+            counts = null;
+            cache.clear();
+        }
+    }
+
+    @EventListener
+    public void onFlightsSaved(FlightsSavedEvent event) {
+        flightsChanged = true;
+    }
+
+    @Override
+    public long getDataVersion() {
+        return currentCounts().version();
+    }
+
+    @Override
+    public VectorTile getTile(int z, int x, int y) {
+        if (z < 0 || z > maxZoom || x < 0 || y < 0 || x >= 1L << z || y >= 1L << z) {
+            throw new IllegalArgumentException("Нет тайла " + z + "/" + x + "/" + y);
+        }
+        FlightCounts current = currentCounts();
+        TileKey key = new TileKey(z, x, y, current.version());
+        byte[] data = cache.get(key);
+        if (data == null) {
+            int level = regionGeometryService.getLevelForResolution(360.0 / ((double) TILE_PIXELS * (1L << z)));
+            data = regionRepository.findVectorTile(z, x, y, level, EXTENT, BUFFER, (double) BUFFER / EXTENT,
+                    current.regionIds(), current.departures(), current.arrivals());
+            if (data == null) {
+                data = new byte[0];
+            }
+            cache.put(key, data);
+        }
+        return new VectorTile(data, current.version());
+    }
+
+    /**
+     * Снимок количества полетов; перечитывается после изменения регионов или, если были
+     * сохранены новые полеты, не чаще раза в counts-refresh-seconds
+     */
+    private FlightCounts currentCounts() {
+        FlightCounts current = counts;
+        if (current != null && !isStale(current)) {
+            return current;
+        }
+        synchronized (this) {
+            current = counts;
+            if (current == null || isStale(current)) {
+                flightsChanged = false;
+                current = loadCounts();
+                counts = current;
+                // Тайлы прежней версии больше не запрашиваются
+                cache.clear();
+            }
+            return current;
+        }
+    }
+
+    private boolean isStale(FlightCounts current) {
+        return flightsChanged && System.currentTimeMillis() - current.loadedAt() >= countsRefreshMillis;
+    }
+
+    private FlightCounts loadCounts() {
+        Map<Long, long[]> byRegion = new TreeMap<>();
+        addCounts(byRegion, flightRepository.countFlightsByDepartureRegion(), 0);
+        addCounts(byRegion, flightRepository.countFlightsByArrivalRegion(), 1);
+
+        long[] regionIds = new long[byRegion.size()];
+        long[] departures = new long[byRegion.size()];
+        long[] arrivals = new long[byRegion.size()];
+        int i = 0;
+        for (Map.Entry<Long, long[]> entry : byRegion.entrySet()) {
+            regionIds[i] = entry.getKey();
+            departures[i] = entry.getValue()[0];
+            arrivals[i] = entry.getValue()[1];
+            i++;
+        }
+        return new FlightCounts(versions.incrementAndGet(), System.currentTimeMillis(),
+                regionIds, departures, arrivals);
+    }
+
+    private static void addCounts(Map<Long, long[]> byRegion, List<Object[]> rows, int column) {
+        for (Object[] row : rows) {
+            long regionId = ((Number) row[0]).longValue();
+            byRegion.computeIfAbsent(regionId, id -> new long[2])[column] = ((Number) row[1]).longValue();
+        }
+    }
+
+    private record FlightCounts(long version, long loadedAt, long[] regionIds, long[] departures, long[] arrivals) {
+    }
+
+    private record TileKey(int z, int x, int y, long version) {
+    }
+
+    /**
+     * LRU-кэш закодированных тайлов с ограничением по суммарному размеру в байтах
+     */
+    private static final class TileCache {
+        private final long maxBytes;
+        private final LinkedHashMap<TileKey, byte[]> tiles = new LinkedHashMap<>(256, 0.75f, true);
+        private long bytes;
+
+        TileCache(long maxBytes) {
+            this.maxBytes = maxBytes;
+        }
+
+        synchronized byte[] get(TileKey key) {
+            return tiles.get(key);
+        }
+
+        synchronized void put(TileKey key, byte[] data) {
+            if (data.length > maxBytes) {
+                return;
+            }
+            byte[] previous = tiles.put(key, data);
+            bytes += data.length - (previous != null ? previous.length : 0);
+            Iterator<byte[]> eldest = tiles.values().iterator();
+            while (bytes > maxBytes && eldest.hasNext()) {
+                bytes -= eldest.next().length;
+                eldest.remove();
+            }
+        }
+
+        synchronized void clear() {
+            tiles.clear();
+            bytes = 0;
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package com.drones.skilldrones.geo;
+
+import org.junit.jupiter.api.Test;
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.io.ParseException;
+import org.locationtech.jts.io.WKTReader;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Площади сверяются с численным интегрированием элемента площади эллипсоида WGS 84 (M·N·cos φ dφ dλ)
+ */
+class GeodesicAreaTest {
+
+	// Ячейки 1°×1° с центром на экваторе и на 60° с.ш.
+	private static final double EQUATOR_CELL_KM2 = 12308.920;
+	private static final double LAT_60_CELL_KM2 = 6216.723;
+
+	@Test
+	void equatorCellMatchesEllipsoidArea() throws ParseException {
+		assertEquals(EQUATOR_CELL_KM2, GeodesicArea.km2(cell(37, -0.5)), 0.01);
+	}
+
+	@Test
+	void cellAt60NorthMatchesEllipsoidArea() throws ParseException {
+		assertEquals(LAT_60_CELL_KM2, GeodesicArea.km2(cell(37, 59.5)), 0.01);
+	}
+
+	@Test
+	void cellAreaShrinksWithCosineOfLatitude() throws ParseException {
+		double ratio = GeodesicArea.km2(cell(37, 59.5)) / GeodesicArea.km2(cell(37, -0.5));
+
+		// cos 60° = 0.5; сплюснутость эллипсоида добавляет около 1%
+		assertEquals(0.5, ratio, 0.01);
+		assertEquals(LAT_60_CELL_KM2 / EQUATOR_CELL_KM2, ratio, 1e-6);
+	}
+
+	@Test
+	void holesAreSubtractedAndCollectionsSummed() throws ParseException {
+		Geometry withHole = read("POLYGON ((37 -0.5, 39 -0.5, 39 0.5, 37 0.5, 37 -0.5),"
+				+ " (38 -0.5, 39 -0.5, 39 0.5, 38 0.5, 38 -0.5))");
+		Geometry twoCells = read("MULTIPOLYGON (((37 -0.5, 38 -0.5, 38 0.5, 37 0.5, 37 -0.5)),"
+				+ " ((37 59.5, 38 59.5, 38 60.5, 37 60.5, 37 59.5)))");
+
+		assertEquals(EQUATOR_CELL_KM2, GeodesicArea.km2(withHole), 0.01);
+		assertEquals(EQUATOR_CELL_KM2 + LAT_60_CELL_KM2, GeodesicArea.km2(twoCells), 0.02);
+	}
+
+	@Test
+	void degenerateAndEmptyGeometriesHaveNoArea() throws ParseException {
+		// Все вершины на одной прямой
+		assertEquals(0, GeodesicArea.km2(read("POLYGON ((37 55, 38 55, 39 55, 37 55))")), 1e-9);
+		assertEquals(0, GeodesicArea.km2(read("POLYGON EMPTY")), 0);
+		assertEquals(0, GeodesicArea.km2(read("GEOMETRYCOLLECTION EMPTY")), 0);
+		assertEquals(0, GeodesicArea.km2(read("LINESTRING (37 55, 38 56)")), 0);
+		assertEquals(0, GeodesicArea.km2(Geometries.point(37, 55)), 0);
+	}
+
+	private static Geometry cell(double lon, double lat) throws ParseException {
+		return read("POLYGON ((" + lon + " " + lat + ", " + (lon + 1) + " " + lat + ", " + (lon + 1) + " " + (lat + 1)
+				+ ", " + lon + " " + (lat + 1) + ", " + lon + " " + lat + "))");
+	}
+
+	private static Geometry read(String wkt) throws ParseException {
+		return new WKTReader(Geometries.FACTORY).read(wkt);
+	}
+}
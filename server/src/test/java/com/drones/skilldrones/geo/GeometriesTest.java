@@ -0,0 +1,70 @@
+package com.drones.skilldrones.geo;
+
+import org.junit.jupiter.api.Test;
+import org.locationtech.jts.geom.Point;
+
+import java.util.Locale;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Координаты в угловых минутах форматируются так же, как прежний String.format("%.6f,%.6f"),
+ * и разбираются обратно в ту же точку
+ */
+class GeometriesTest {
+
+	@Test
+	void northernAndEasternHemispheres() {
+		// 5957N02905E
+		assertEquals("59.950000,29.083333", format(3597, 1745));
+	}
+
+	@Test
+	void southernAndWesternHemispheres() {
+		assertEquals("-59.950000,-29.083333", format(-3597, -1745));
+		assertEquals("-0.016667,-0.983333", format(-1, -59));
+		assertEquals("33.500000,-70.666667", format(2010, -4240));
+	}
+
+	@Test
+	void zeroHasNoSign() {
+		assertEquals("0.000000,0.000000", format(0, 0));
+		assertEquals("0.000000,-0.016667", format(0, -1));
+	}
+
+	@Test
+	void minutesNearSixtyRoundToSixDigits() {
+		assertEquals("0.983333,0.016667", format(59, 1));
+		assertEquals("1.000000,1.016667", format(60, 61));
+		assertEquals("59.983333,179.983333", format(3599, 10799));
+		assertEquals("90.000000,180.000000", format(5400, 10800));
+		assertEquals("-89.983333,-179.983333", format(-5399, -10799));
+	}
+
+	@Test
+	void everyArcMinuteMatchesOriginalFormatAndParsesBack() {
+		for (int lat = -90 * 60; lat <= 90 * 60; lat++) {
+			assertRoundTrip(lat, 37 * 60 + 30);
+		}
+		for (int lon = -180 * 60; lon <= 180 * 60; lon++) {
+			assertRoundTrip(55 * 60 + 45, lon);
+		}
+	}
+
+	private static void assertRoundTrip(int latMinutes, int lonMinutes) {
+		String original = String.format(Locale.ROOT, "%.6f,%.6f", latMinutes / 60.0, lonMinutes / 60.0);
+		String formatted = format(latMinutes, lonMinutes);
+		assertEquals(original, formatted, latMinutes + "," + lonMinutes);
+
+		Point parsed = Geometries.parseLatLon(formatted);
+		assertEquals(Geometries.parseLatLon(original), parsed);
+		assertEquals(latMinutes, Math.round(parsed.getY() * 60));
+		assertEquals(lonMinutes, Math.round(parsed.getX() * 60));
+	}
+
+	private static String format(int latMinutes, int lonMinutes) {
+		String formatted = Geometries.formatLatLon(latMinutes / 60.0, lonMinutes / 60.0);
+		assertEquals(formatted, Geometries.formatPoint(Geometries.pointFromArcMinutes(latMinutes, lonMinutes)));
+		return formatted;
+	}
+}
@@ -0,0 +1,131 @@
+package com.drones.skilldrones.geo;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.geom.Point;
+import org.locationtech.jts.geom.prep.PreparedGeometry;
+import org.locationtech.jts.geom.prep.PreparedGeometryFactory;
+import org.locationtech.jts.io.ParseException;
+import org.locationtech.jts.io.WKTReader;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * Сетка после записи и отображения в память должна давать тот же регион, что и PreparedGeometry.contains
+ */
+class RegionRasterTest {
+
+	// Вогнутый регион, регион с дыркой и треугольник с вершинами не в узлах сетки, вплотную к первому
+	private static final List<String> REGIONS = List.of(
+			"POLYGON ((37 55, 38 55, 38 55.3, 37.3 55.3, 37.3 55.7, 38 55.7, 38 56, 37 56, 37 55))",
+			"POLYGON ((38.2 55.1, 39.4 55.1, 39.4 56.2, 38.2 56.2, 38.2 55.1),"
+					+ " (38.6 55.5, 39.0 55.5, 39.0 55.8, 38.6 55.8, 38.6 55.5))",
+			"POLYGON ((37.3 55.3, 38.0 55.3, 37.6666 55.6913, 37.3 55.3))"
+	);
+	private static final long[] REGION_IDS = {11, 22, 33};
+
+	@TempDir
+	Path tempDir;
+
+	@Test
+	void lookupMatchesContainsWithSimplifiedBoundaries() throws Exception {
+		List<PreparedGeometry> geometries = geometries();
+		List<SimplifiedBoundary> boundaries = geometries.stream()
+				.map(geometry -> SimplifiedBoundary.of(geometry.getGeometry(), 0.01))
+				.toList();
+
+		RegionRaster raster = RegionRaster.build(tempDir.resolve("raster.bin"), 42, REGION_IDS, geometries,
+				boundaries, 1_000_000);
+
+		assertNotNull(raster);
+		assertMatchesContains(raster, geometries);
+	}
+
+	@Test
+	void lookupMatchesContainsWithFullGeometryOnly() throws Exception {
+		List<PreparedGeometry> geometries = geometries();
+
+		RegionRaster raster = RegionRaster.build(tempDir.resolve("raster.bin"), 42, REGION_IDS, geometries,
+				Arrays.asList(new SimplifiedBoundary[geometries.size()]), 1_000_000);
+
+		assertNotNull(raster);
+		assertMatchesContains(raster, geometries);
+	}
+
+	@Test
+	void reopenedRasterGivesSameLookups() throws Exception {
+		List<PreparedGeometry> geometries = geometries();
+		Path file = tempDir.resolve("raster.bin");
+		List<SimplifiedBoundary> boundaries = geometries.stream()
+				.map(geometry -> SimplifiedBoundary.of(geometry.getGeometry(), 0.01))
+				.toList();
+		RegionRaster built = RegionRaster.build(file, 42, REGION_IDS, geometries, boundaries, 1_000_000);
+
+		RegionRaster reopened = RegionRaster.open(file, 42);
+
+		assertNotNull(reopened);
+		assertEquals(42, reopened.getFingerprint());
+		assertArrayEquals(REGION_IDS, reopened.getRegionIds());
+		for (int lat = 55 * 60 - 5; lat <= 56 * 60 + 20; lat++) {
+			for (int lon = 37 * 60 - 5; lon <= 39 * 60 + 30; lon++) {
+				assertEquals(built.lookup(lat, lon), reopened.lookup(lat, lon));
+			}
+		}
+		assertNull(RegionRaster.open(file, 43));
+		assertNull(RegionRaster.open(tempDir.resolve("missing.bin"), 42));
+	}
+
+	@Test
+	void tooLargeRasterIsNotBuilt() throws Exception {
+		List<PreparedGeometry> geometries = geometries();
+
+		assertNull(RegionRaster.build(tempDir.resolve("raster.bin"), 42, REGION_IDS, geometries,
+				Arrays.asList(new SimplifiedBoundary[geometries.size()]), 1000));
+	}
+
+	/**
+	 * Случайные узлы сетки в охвате регионов и немного за ним
+	 */
+	private static void assertMatchesContains(RegionRaster raster, List<PreparedGeometry> geometries) {
+		Random random = new Random(20250101);
+		int minLat = 55 * 60 - 10;
+		int minLon = 37 * 60 - 10;
+		for (int i = 0; i < 50_000; i++) {
+			int lat = minLat + random.nextInt(90);
+			int lon = minLon + random.nextInt(160);
+			int expected = expected(geometries, Geometries.pointFromArcMinutes(lat, lon));
+			int actual = raster.lookup(lat, lon);
+			// Узлы за пределами сетки (-2) лежат вне всех регионов
+			assertEquals(expected, actual == -2 ? -1 : actual, "узел " + lat + "," + lon);
+		}
+	}
+
+	private static int expected(List<PreparedGeometry> geometries, Point point) {
+		for (int i = 0; i < geometries.size(); i++) {
+			if (geometries.get(i).contains(point)) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	private static List<PreparedGeometry> geometries() throws ParseException {
+		WKTReader reader = new WKTReader(Geometries.FACTORY);
+		List<PreparedGeometry> geometries = new ArrayList<>();
+		for (String wkt : REGIONS) {
+			Geometry geometry = reader.read(wkt);
+			geometries.add(PreparedGeometryFactory.prepare(geometry));
+		}
+		return geometries;
+	}
+}
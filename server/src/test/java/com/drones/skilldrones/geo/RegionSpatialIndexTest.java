@@ -0,0 +1,234 @@
+package com.drones.skilldrones.geo;
+
+import com.drones.skilldrones.model.Region;
+import com.drones.skilldrones.model.RegionGeometry;
+import com.drones.skilldrones.repository.RegionGeometryRepository;
+import com.drones.skilldrones.repository.RegionRepository;
+import org.junit.jupiter.api.Test;
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.geom.Point;
+import org.locationtech.jts.io.ParseException;
+import org.locationtech.jts.io.WKTReader;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Пока индекс не загружен, пакет точек геопривязывается запросом findRegionIdsByPoints:
+ * индексы из ответа должны попадать на свои точки с учетом пропущенных null и деления на запросы.
+ * После загрузки регион ищется в снимке по настоящим полигонам JTS (сетка отключена)
+ */
+class RegionSpatialIndexTest {
+
+	// Квадрат 37-38 в.д., 55-56 с.ш. и соседний квадрат с зазором 0.01 градуса
+	private static final String WEST = "POLYGON ((37 55, 38 55, 38 56, 37 56, 37 55))";
+	private static final String EAST = "POLYGON ((38.01 55, 39 55, 39 56, 38.01 56, 38.01 55))";
+
+	private final List<double[]> requestedLons = new ArrayList<>();
+	private final Region north = region(1L);
+	private final Region south = region(2L);
+	private final List<Region> regions = List.of(north, south);
+	private List<RegionGeometry> geometries = List.of();
+	private boolean geometriesFail;
+
+	@Test
+	void matchesAreMappedBackToPointPositions() {
+		RegionSpatialIndex index = index();
+		List<Point> points = Arrays.asList(
+				Geometries.point(37.0, 56.0),
+				null,
+				Geometries.point(37.0, 40.0),
+				Geometries.point(37.0, 10.0),
+				Geometries.point(38.0, 57.0));
+
+		Region[] regions = index.findRegions(points);
+
+		// null не передается в запрос
+		assertArrayEquals(new double[]{37.0, 37.0, 37.0, 38.0}, requestedLons.get(0));
+		assertSame(north, regions[0]);
+		assertNull(regions[1]);
+		assertSame(south, regions[2]);
+		assertNull(regions[3]);
+		assertSame(north, regions[4]);
+	}
+
+	@Test
+	void largeBatchesAreSplitIntoSeveralQueries() {
+		RegionSpatialIndex index = index();
+		List<Point> points = new ArrayList<>();
+		for (int i = 0; i < 25_000; i++) {
+			points.add(Geometries.point(37.0, i % 2 == 0 ? 56.0 : 40.0));
+		}
+
+		Region[] regions = index.findRegions(points);
+
+		assertEquals(3, requestedLons.size());
+		assertEquals(5_000, requestedLons.get(2).length);
+		for (int i = 0; i < regions.length; i++) {
+			assertSame(i % 2 == 0 ? north : south, regions[i], "точка " + i);
+		}
+	}
+
+	@Test
+	void pointsWithoutMatchesStayNull() {
+		Region[] regions = index().findRegions(List.of(Geometries.point(37.0, 10.0)));
+
+		assertNull(regions[0]);
+	}
+
+	@Test
+	void pointInsideRegionIsFound() throws ParseException {
+		geometries = List.of(geometry(1L, WEST), geometry(2L, EAST));
+		RegionSpatialIndex index = index();
+		index.rebuild();
+
+		assertTrue(index.isReady());
+		assertEquals(2, index.size());
+		assertSame(north, index.findRegion(Geometries.point(37.5, 55.5)).orElseThrow());
+		assertSame(south, index.findRegion(Geometries.point(38.5, 55.5)).orElseThrow());
+	}
+
+	@Test
+	void pointOutsideEveryRegionIsNotFound() throws ParseException {
+		geometries = List.of(geometry(1L, WEST), geometry(2L, EAST));
+		RegionSpatialIndex index = index();
+		index.rebuild();
+
+		assertTrue(index.findRegion(Geometries.point(40.0, 50.0)).isEmpty());
+		assertTrue(index.findRegion(Geometries.point(37.5, 56.5)).isEmpty());
+		assertTrue(index.findRegion(null).isEmpty());
+	}
+
+	@Test
+	void pointNearBorderIsCheckedAgainstFullGeometry() throws ParseException {
+		geometries = List.of(geometry(1L, WEST), geometry(2L, EAST));
+		RegionSpatialIndex index = index();
+		index.rebuild();
+		Point inside = Geometries.point(37.995, 55.5);
+		Point gap = Geometries.point(38.005, 55.5);
+
+		// Обе точки ближе 2 * 0.01 к упрощенной границе - решает PreparedGeometry.contains
+		SimplifiedBoundary boundary = SimplifiedBoundary.of(geometries.get(0).getGeometry(), 0.01);
+		assertEquals(SimplifiedBoundary.BORDER, boundary.classify(inside));
+		assertEquals(SimplifiedBoundary.BORDER, boundary.classify(gap));
+		assertSame(north, index.findRegion(inside).orElseThrow());
+		assertTrue(index.findRegion(gap).isEmpty());
+		// Точка на самой границе регионом не содержится
+		assertTrue(index.findRegion(Geometries.point(38.0, 55.5)).isEmpty());
+	}
+
+	@Test
+	void rebuildReplacesSnapshot() throws ParseException {
+		geometries = List.of(geometry(1L, WEST));
+		RegionSpatialIndex index = index();
+		index.rebuild();
+		Point point = Geometries.point(38.5, 55.5);
+		assertTrue(index.findRegion(point).isEmpty());
+
+		geometries = List.of(geometry(1L, WEST), geometry(2L, EAST));
+		index.rebuild();
+
+		assertEquals(2, index.size());
+		assertSame(south, index.findRegion(point).orElseThrow());
+	}
+
+	@Test
+	void failedRebuildKeepsPreviousSnapshot() throws ParseException {
+		geometries = List.of(geometry(1L, WEST));
+		RegionSpatialIndex index = index();
+		index.rebuild();
+
+		geometriesFail = true;
+		index.rebuild();
+
+		assertTrue(index.isReady());
+		assertEquals(1, index.size());
+		assertSame(north, index.findRegion(Geometries.point(37.5, 55.5)).orElseThrow());
+	}
+
+	/**
+	 * Регион 1 - севернее 50 градусов, регион 2 - от 30 до 50; ответ, как у SQL, только для найденных точек
+	 */
+	private RegionSpatialIndex index() {
+		RegionRepository regionRepository = mock(RegionRepository.class);
+		when(regionRepository.findRegionIdsByPoints(any(), any())).thenAnswer(invocation -> {
+			double[] lons = invocation.getArgument(0);
+			double[] lats = invocation.getArgument(1);
+			requestedLons.add(lons);
+			List<RegionRepository.PointRegionMatch> matches = new ArrayList<>();
+			for (int i = 0; i < lats.length; i++) {
+				if (lats[i] > 50) {
+					matches.add(match(i, 1L));
+				} else if (lats[i] > 30) {
+					matches.add(match(i, 2L));
+				}
+			}
+			return matches;
+		});
+		when(regionRepository.findAllById(any())).thenAnswer(invocation -> {
+			List<Region> found = new ArrayList<>();
+			for (Long id : invocation.<Iterable<Long>>getArgument(0)) {
+				found.add(id == 1L ? north : south);
+			}
+			return found;
+		});
+		when(regionRepository.findAll()).thenAnswer(invocation -> regions);
+		RegionGeometryRepository regionGeometryRepository = mock(RegionGeometryRepository.class);
+		when(regionGeometryRepository.findAllWithGeometry()).thenAnswer(invocation -> {
+			if (geometriesFail) {
+				throw new IllegalStateException("база недоступна");
+			}
+			return geometries;
+		});
+		return new RegionSpatialIndex(regionRepository, regionGeometryRepository, true, false,
+				"region-raster.bin", 0, new double[]{0.01});
+	}
+
+	private static RegionRepository.PointRegionMatch match(int pointIndex, long regionId) {
+		return new RegionRepository.PointRegionMatch() {
+			@Override
+			public Integer getPointIndex() {
+				return pointIndex;
+			}
+
+			@Override
+			public Long getRegionId() {
+				return regionId;
+			}
+		};
+	}
+
+	/**
+	 * Граница региона - сущность только для чтения, поэтому значения задаются через подкласс
+	 */
+	private static RegionGeometry geometry(long regionId, String wkt) throws ParseException {
+		Geometry geometry = new WKTReader(Geometries.FACTORY).read(wkt);
+		return new RegionGeometry() {
+			@Override
+			public Long getRegionId() {
+				return regionId;
+			}
+
+			@Override
+			public Geometry getGeometry() {
+				return geometry;
+			}
+		};
+	}
+
+	private static Region region(Long id) {
+		Region region = new Region();
+		region.setRegionId(id);
+		return region;
+	}
+}
@@ -0,0 +1,144 @@
+package com.drones.skilldrones.parser;
+
+import com.drones.skilldrones.model.RawTelegram;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Файл и поток должны разбираться одинаково, в том числе когда запись попадает на границу куска
+ */
+class CsvTelegramReaderTest {
+
+	private static final String HEADER = "center,shr,dep,arr\n";
+	private static final byte[] BOM = {(byte) 0xEF, (byte) 0xBB, (byte) 0xBF};
+
+	@TempDir
+	Path tempDir;
+
+	private final CsvTelegramReader reader = new CsvTelegramReader(64 * 1024, 2);
+
+	@AfterEach
+	void tearDown() {
+		reader.shutdown();
+	}
+
+	@Test
+	void quotedFieldsMayContainDelimitersQuotesAndLineBreaks() throws IOException {
+		String csv = HEADER
+				+ "Москва,\"(SHR-RA0001\n-ZZZZ0700, \"\"тест\"\"\n-DOF/250101)\",,\"ARR-RA0001\"\n"
+				+ "Санкт-Петербург,SHR-2,DEP-2,ARR-2\n";
+
+		assertEquals(List.of(
+				List.of("Москва", "(SHR-RA0001\n-ZZZZ0700, \"тест\"\n-DOF/250101)", "", "ARR-RA0001"),
+				List.of("Санкт-Петербург", "SHR-2", "DEP-2", "ARR-2")), readBoth(bytes(csv)));
+	}
+
+	@Test
+	void crlfLineEndingsAreNormalized() throws IOException {
+		String csv = "center,shr,dep,arr\r\n"
+				+ "Москва,\"SHR-1\r\n-DOF/250101\",DEP-1,ARR-1\r\n"
+				+ "\r\n"
+				+ "Казань,SHR-2,DEP-2,\"ARR-2\"\r\n";
+
+		assertEquals(List.of(
+				List.of("Москва", "SHR-1\n-DOF/250101", "DEP-1", "ARR-1"),
+				List.of("Казань", "SHR-2", "DEP-2", "ARR-2")), readBoth(bytes(csv)));
+	}
+
+	@Test
+	void byteOrderMarkIsSkipped() throws IOException {
+		byte[] csv = concat(BOM, bytes(HEADER + "Москва,SHR-1,DEP-1,ARR-1\n"));
+
+		assertEquals(List.of(List.of("Москва", "SHR-1", "DEP-1", "ARR-1")), readBoth(csv));
+	}
+
+	@Test
+	void delimiterIsDetectedFromHeader() throws IOException {
+		assertEquals(List.of(List.of("Москва", "SHR-1, DOF/250101", "DEP-1", "ARR-1")),
+				readBoth(bytes("center;shr;dep;arr\nМосква;SHR-1, DOF/250101;DEP-1;ARR-1\n")));
+		assertEquals(List.of(List.of("Москва", "SHR-1; DOF/250101", "DEP-1", "ARR-1")),
+				readBoth(bytes("center\tshr\tdep\tarr\nМосква\tSHR-1; DOF/250101\tDEP-1\tARR-1")));
+	}
+
+	@Test
+	void emptyLastFieldAtEndOfFileIsKept() throws IOException {
+		// Последняя запись без перевода строки заканчивается пустым ARR
+		assertEquals(List.of(List.of("C1", "SHR-A", "DEP-A", "ARR-A"), List.of("C2", "SHR-B", "DEP-B", "")),
+				readBoth(bytes(HEADER + "C1,SHR-A,DEP-A,ARR-A\nC2,SHR-B,DEP-B,")));
+		assertEquals(List.of(List.of("C1", "SHR-A", "DEP-A", "")),
+				readBoth(bytes(HEADER + "C1,SHR-A,DEP-A,\n")));
+	}
+
+	@Test
+	void recordsStraddlingChunkBoundariesAreParsedOnce() throws IOException {
+		List<List<String>> expected = new ArrayList<>();
+		StringBuilder csv = new StringBuilder(HEADER);
+		for (int i = 0; i < 3000; i++) {
+			// Длина записей меняется, чтобы граница куска приходилась на разные места, в том числе внутри кавычек
+			String shr = "(SHR-RA" + i + "\n-ZZZZ0700\n" + "-RMK/".repeat(i % 97) + "\"конец\")";
+			String dep = i % 3 == 0 ? "" : "DEP-RA" + i;
+			expected.add(List.of("Центр " + i, shr, dep, "ARR-RA" + i));
+			csv.append("Центр ").append(i).append(",\"").append(shr.replace("\"", "\"\"")).append("\",")
+					.append(dep).append(",ARR-RA").append(i).append(i % 2 == 0 ? "\n" : "\r\n");
+		}
+		byte[] data = bytes(csv.toString());
+
+		assertEquals(expected, readBoth(data));
+	}
+
+	@Test
+	void recordLongerThanStreamBufferIsParsed() throws IOException {
+		String shr = "SHR-RA0001\n" + "-RMK/ДЛИННОЕ ПРИМЕЧАНИЕ\n".repeat(10_000);
+		String csv = HEADER + "Москва,SHR-0,DEP-0,ARR-0\n" + "Москва,\"" + shr + "\",DEP-1,ARR-1\n";
+
+		assertEquals(List.of(
+				List.of("Москва", "SHR-0", "DEP-0", "ARR-0"),
+				List.of("Москва", shr.trim(), "DEP-1", "ARR-1")), readBoth(bytes(csv)));
+	}
+
+	/**
+	 * Читает данные через отображение файла и через поток и проверяет, что результат совпадает
+	 */
+	private List<List<String>> readBoth(byte[] data) throws IOException {
+		Path file = tempDir.resolve("telegrams.csv");
+		Files.write(file, data);
+
+		List<List<String>> mapped = new ArrayList<>();
+		int mappedCount = reader.read(file, "telegrams.csv", telegram -> mapped.add(values(telegram)));
+		List<List<String>> streamed = new ArrayList<>();
+		int streamedCount = reader.read(new ByteArrayInputStream(data), "telegrams.csv",
+				telegram -> streamed.add(values(telegram)));
+
+		assertEquals(mapped.size(), mappedCount);
+		assertEquals(streamed.size(), streamedCount);
+		assertEquals(mapped, streamed);
+		return mapped;
+	}
+
+	private static List<String> values(RawTelegram telegram) {
+		assertEquals("telegrams.csv", telegram.getFileName());
+		return List.of(telegram.getCenter(), telegram.getShrRawText(), telegram.getDepRawText(), telegram.getArrRawText());
+	}
+
+	private static byte[] bytes(String text) {
+		return text.getBytes(StandardCharsets.UTF_8);
+	}
+
+	private static byte[] concat(byte[] first, byte[] second) {
+		byte[] result = new byte[first.length + second.length];
+		System.arraycopy(first, 0, result, 0, first.length);
+		System.arraycopy(second, 0, result, first.length, second.length);
+		return result;
+	}
+}
@@ -0,0 +1,103 @@
+package com.drones.skilldrones.parser;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class TelegramFramerTest {
+
+	private static final String STREAM = """
+			ZCZC ABC001\r
+			FF UUUUZZZZ\r
+			(SHR-RA0001
+			-ZZZZ0700
+			-DEP/5530N03730E DOF/250101 SID/7772187998)\r
+			NNNN\r
+			ZCZC ABC002\r
+			FF UUUUZZZZ\r
+			-TITLE IDEP\r
+			-SID 7772187998\r
+			-ADD 250101\r
+			-ATD 0705\r
+			NNNN\r
+			ZCZC ABC003\r
+			(ARR-RA0001-ZZZZ0700-ATA 0755)\r
+			NNNN\r
+			""";
+
+	@Test
+	void framesParenthesizedAndAdexpMessagesInEnvelopes() {
+		List<String> messages = new ArrayList<>();
+		TelegramFramer framer = new TelegramFramer(65536);
+
+		assertEquals(0, framer.feed(bytes(STREAM), messages::add));
+		assertEquals(0, framer.finish(messages::add));
+
+		assertEquals(List.of(
+				"SHR-RA0001\n-ZZZZ0700\n-DEP/5530N03730E DOF/250101 SID/7772187998",
+				"-TITLE IDEP\r\n-SID 7772187998\r\n-ADD 250101\r\n-ATD 0705",
+				"ARR-RA0001-ZZZZ0700-ATA 0755"), messages);
+	}
+
+	@Test
+	void messagesSplitAcrossReadsAreFramedTheSame() {
+		List<String> whole = new ArrayList<>();
+		TelegramFramer framer = new TelegramFramer(65536);
+		framer.feed(bytes(STREAM), whole::add);
+
+		byte[] data = STREAM.getBytes(StandardCharsets.UTF_8);
+		for (int chunk = 1; chunk <= 7; chunk++) {
+			List<String> split = new ArrayList<>();
+			TelegramFramer splitFramer = new TelegramFramer(65536);
+			for (int from = 0; from < data.length; from += chunk) {
+				splitFramer.feed(ByteBuffer.wrap(data, from, Math.min(chunk, data.length - from)), split::add);
+			}
+			assertEquals(whole, split, "chunk " + chunk);
+		}
+	}
+
+	@Test
+	void adexpMessagesWithoutEnvelopeEndAtNextTitleOrFinish() {
+		List<String> messages = new ArrayList<>();
+		TelegramFramer framer = new TelegramFramer(65536);
+
+		framer.feed(bytes("-TITLE IDEP -SID 7772187998 -ATD 0705\n  -TITLE IARR -SID 7772187998 -ATA 0755\n"),
+				messages::add);
+		assertEquals(List.of("-TITLE IDEP -SID 7772187998 -ATD 0705"), messages);
+
+		framer.finish(messages::add);
+		assertEquals(List.of("-TITLE IDEP -SID 7772187998 -ATD 0705",
+				"-TITLE IARR -SID 7772187998 -ATA 0755"), messages);
+	}
+
+	@Test
+	void parenthesisAtLineStartEndsAdexpMessage() {
+		List<String> messages = new ArrayList<>();
+		TelegramFramer framer = new TelegramFramer(65536);
+
+		framer.feed(bytes("-TITLE IARR\n-RMK (ПОСАДКА)\n(SHR-RA0002)"), messages::add);
+
+		assertEquals(List.of("-TITLE IARR\n-RMK (ПОСАДКА)", "SHR-RA0002"), messages);
+	}
+
+	@Test
+	void tooLongMessagesAreDropped() {
+		List<String> messages = new ArrayList<>();
+		TelegramFramer framer = new TelegramFramer(16);
+
+		int dropped = framer.feed(bytes("(SHR-RA0001-TOO-LONG-MESSAGE)\n-TITLE IDEP -SID 7772187998\nNNNN\n(ARR-1)"),
+				messages::add);
+
+		assertEquals(2, dropped);
+		assertEquals(List.of("ARR-1"), messages);
+	}
+
+	private static ByteBuffer bytes(String text) {
+		return ByteBuffer.wrap(text.getBytes(StandardCharsets.UTF_8));
+	}
+}
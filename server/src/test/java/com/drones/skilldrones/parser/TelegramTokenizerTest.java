@@ -0,0 +1,176 @@
+package com.drones.skilldrones.parser;
+
+import com.drones.skilldrones.model.RawTelegram;
+import org.junit.jupiter.api.Test;
+
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.function.Supplier;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Токенизатор должен извлекать те же поля, что и прежний разбор регулярными выражениями
+ */
+class TelegramTokenizerTest {
+
+	private static final List<String> SHR_TEXTS = List.of(
+			"SHR-00725\n-ZZZZ0705\n-M0000/M0005 /ZONA R0,5 5957N02905E/\n-ZZZZ0830\n"
+					+ "-DEP/5957N02905E DEST/5957N02905E DOF/250201 OPR/ИВАНОВ TYP/BLA RMK/МР11608 SID/7772187998",
+			"SHR-RA0001 \r\n-ZZZZ0600\r\n-K0300M3000 /ZONA 5548N03730E/\r\n-ZZZZ0700\r\n-TYP/SHAR DOF/290224",
+			"SHR-1\n-ZZZZ0600 DEP/15548S03730W DOF/310425",
+			"SHR-2\n-ZZZZ0600 DOF/311225 TYP/AER 4459N03758E",
+			"SHR-3\n-DOF/010125",
+			"SHR-\n-ZZZZ0600 TYP/bla DOF/2502",
+			"FPL-XYZ\n-DOF/150325 5957N02905E",
+			"SHR-4\n-TYP/BL DOF/15032 595N02905E 5957N0290E 5957X02905E"
+	);
+
+	private static final List<String> INVALID_DATES = List.of("320125", "990125", "000125", "011325");
+
+	private static final List<String> DEP_TEXTS = List.of(
+			"DEP-RA0001\n-SID 7772187998\n-ADD 250201\n-ATD 0705",
+			"-TITLE IDEP\n-SID 7772187998\n-ADD 250201\n-ATD 2359\n-ADEP ZZZZ",
+			"DEP-RA0001 ATD 2460 ATD 0705",
+			"DEP-RA0001 ATD 07:05",
+			"DEP-RA0001"
+	);
+
+	private static final List<String> ARR_TEXTS = List.of(
+			"ARR-RA0001\n-SID 7772187998\n-ADA 250201\n-ATA 0830",
+			"-TITLE IARR\n-SID 7772187998\n-ADA 250201\n-ATA 0000",
+			"ARR-RA0001 ATA 123",
+			"ARR-RA0001"
+	);
+
+	@Test
+	void shrFieldsMatchRegexParsing() {
+		for (String text : SHR_TEXTS) {
+			TelegramFields fields = tokenize(text, null, null);
+
+			assertEquals(regexFlightId(text), fields.flightId(), text);
+			assertEquals(outcome(() -> regexFlightDate(text)),
+					outcome(() -> fields.hasFlightDate() ? fields.flightDate() : null), text);
+			assertEquals(regexDroneType(text), fields.hasDroneType() ? fields.droneType() : null, text);
+			assertEquals(regexCoordinates(text), fields.hasCoordinates()
+					? String.format("%.6f,%.6f", fields.getLatMinutes() / 60.0, fields.getLonMinutes() / 60.0)
+					: null, text);
+		}
+	}
+
+	@Test
+	void flightDateMatchesDateTimeFormatter() {
+		for (String date : List.of("250201", "290224", "290225", "310425", "311225", "300625")) {
+			String text = "SHR-1\n-DOF/" + date;
+			assertEquals(regexFlightDate(text), tokenize(text, null, null).flightDate(), date);
+		}
+	}
+
+	@Test
+	void invalidDayOrMonthIsRejected() {
+		for (String date : INVALID_DATES) {
+			String text = "SHR-1\n-DOF/" + date;
+			assertThrows(DateTimeException.class, () -> regexFlightDate(text));
+			assertThrows(DateTimeException.class, () -> tokenize(text, null, null).flightDate());
+		}
+	}
+
+	@Test
+	void departureAndArrivalTimesMatchRegexParsing() {
+		for (String text : DEP_TEXTS) {
+			assertEquals(regexTime(text, "ATD"), tokenize(null, text, null).departureTime(), text);
+		}
+		for (String text : ARR_TEXTS) {
+			assertEquals(regexTime(text, "ATA"), tokenize(null, null, text).arrivalTime(), text);
+		}
+	}
+
+	@Test
+	void dashTimeMatchesRegexParsing() {
+		for (String text : List.of("-ZZZZ0705", "SHR-1\n-0600", "-2505 -0600", "-12", "ZZZZ0705")) {
+			int minutes = TelegramTokenizer.scanDashTime(text);
+			LocalTime time = minutes != TelegramFields.ABSENT ? LocalTime.of(minutes / 60, minutes % 60) : null;
+			assertEquals(regexDashTime(text), time, text);
+		}
+	}
+
+	private static TelegramFields tokenize(String shr, String dep, String arr) {
+		RawTelegram telegram = new RawTelegram();
+		telegram.setShrRawText(shr);
+		telegram.setDepRawText(dep);
+		telegram.setArrRawText(arr);
+		return TelegramTokenizer.tokenize(telegram, new TelegramFields());
+	}
+
+	/**
+	 * Значение или признак DateTimeException, чтобы сравнивать и ошибки
+	 */
+	private static Object outcome(Supplier<Object> supplier) {
+		try {
+			return supplier.get();
+		} catch (DateTimeException e) {
+			return DateTimeException.class;
+		}
+	}
+
+	// Прежний разбор регулярными выражениями (FileParserServiceImpl и FlightProcessingServiceImpl)
+
+	private static String regexFlightId(String text) {
+		String[] lines = text.split("\n");
+		if (lines.length > 0 && lines[0].startsWith("SHR-")) {
+			return lines[0].substring(4).trim();
+		}
+		return null;
+	}
+
+	private static LocalDate regexFlightDate(String text) {
+		Matcher matcher = Pattern.compile("DOF/(\\d{6})").matcher(text);
+		return matcher.find() ? LocalDate.parse(matcher.group(1), DateTimeFormatter.ofPattern("ddMMyy")) : null;
+	}
+
+	private static String regexDroneType(String text) {
+		Matcher matcher = Pattern.compile("TYP/([A-Z]{3})").matcher(text);
+		return matcher.find() ? matcher.group(1) : null;
+	}
+
+	/**
+	 * Прежний normalizeCoordinates из-за ошибки в индексах всегда возвращал найденную строку как есть,
+	 * поэтому здесь найденное регулярным выражением значение переводится в градусы правильно
+	 */
+	private static String regexCoordinates(String text) {
+		Matcher matcher = Pattern.compile("(\\d{4}[NS]\\d{5}[EW])").matcher(text);
+		if (!matcher.find()) {
+			return null;
+		}
+		String coords = matcher.group(1);
+		double lat = Double.parseDouble(coords.substring(0, 2)) + Double.parseDouble(coords.substring(2, 4)) / 60.0;
+		double lon = Double.parseDouble(coords.substring(5, 8)) + Double.parseDouble(coords.substring(8, 10)) / 60.0;
+		if (coords.charAt(4) == 'S') lat = -lat;
+		if (coords.charAt(10) == 'W') lon = -lon;
+		return String.format("%.6f,%.6f", lat, lon);
+	}
+
+	private static LocalTime regexTime(String text, String keyword) {
+		Matcher matcher = Pattern.compile(keyword + " (\\d{4})").matcher(text);
+		return matcher.find() ? parseTime(matcher.group(1)) : null;
+	}
+
+	private static LocalTime regexDashTime(String text) {
+		Matcher matcher = Pattern.compile("-(\\d{4})").matcher(text);
+		return matcher.find() ? parseTime(matcher.group(1)) : null;
+	}
+
+	private static LocalTime parseTime(String text) {
+		try {
+			return LocalTime.parse(text, DateTimeFormatter.ofPattern("HHmm"));
+		} catch (DateTimeException e) {
+			return null;
+		}
+	}
+}
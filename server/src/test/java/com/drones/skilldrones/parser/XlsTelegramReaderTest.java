@@ -0,0 +1,135 @@
+package com.drones.skilldrones.parser;
+
+import com.drones.skilldrones.model.RawTelegram;
+import org.apache.poi.hssf.usermodel.HSSFWorkbook;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Книга .xls создается HSSFWorkbook и читается событийным ридером с диска и из потока
+ */
+class XlsTelegramReaderTest {
+
+	@TempDir
+	Path tempDir;
+
+	private final XlsTelegramReader reader = new XlsTelegramReader();
+
+	@Test
+	void sharedStringsAreResolvedAndHeaderIsSkipped() throws Exception {
+		File file = workbook(sheet -> {
+			row(sheet, 0, "center", "shr", "dep", "arr");
+			// Тексты ячеек хранятся в SST, в строке листа - только индекс (LabelSST)
+			row(sheet, 1, " Москва ", "SHR-RA0001", "DEP-RA0001", "ARR-RA0001");
+			row(sheet, 2, " Москва ", "SHR-RA0002", "DEP-RA0002", "ARR-RA0002");
+		});
+
+		assertEquals(List.of(
+				List.of("Москва", "SHR-RA0001", "DEP-RA0001", "ARR-RA0001"),
+				List.of("Москва", "SHR-RA0002", "DEP-RA0002", "ARR-RA0002")), readBoth(file));
+	}
+
+	@Test
+	void numbersAndFormulaResultsAreRead() throws Exception {
+		File file = workbook(sheet -> {
+			row(sheet, 0, "center", "shr", "dep", "arr");
+			Row row = sheet.createRow(1);
+			// NumberRecord
+			row.createCell(0).setCellValue(1001);
+			// FormulaRecord со строковым результатом, за ним StringRecord
+			row.createCell(1).setCellFormula("\"SHR-\"&\"RA0001\"");
+			// FormulaRecord с числовым результатом
+			row.createCell(2).setCellFormula("2+3");
+			row.createCell(3).setCellFormula("\"ARR-\"&\"RA0001\"");
+			sheet.getWorkbook().getCreationHelper().createFormulaEvaluator().evaluateAll();
+		});
+
+		assertEquals(List.of(List.of("1001", "SHR-RA0001", "5", "ARR-RA0001")), readBoth(file));
+	}
+
+	@Test
+	void rowBoundariesKeepCellsApart() throws Exception {
+		File file = workbook(sheet -> {
+			row(sheet, 0, "center", "shr", "dep", "arr");
+			// Неполная строка не должна дополняться ячейками следующей
+			row(sheet, 1, "Москва", "SHR-RA0001", "DEP-RA0001");
+			Row gap = sheet.createRow(2);
+			gap.createCell(0).setCellValue("Казань");
+			gap.createCell(1).setCellValue("SHR-RA0002");
+			gap.createCell(3).setCellValue("ARR-RA0002");
+			gap.createCell(4).setCellValue("примечание");
+			// Пустые строки между записями
+			row(sheet, 5, "Самара", "SHR-RA0003", "DEP-RA0003", "ARR-RA0003");
+		});
+
+		assertEquals(List.of(
+				List.of("Казань", "SHR-RA0002", "", "ARR-RA0002"),
+				List.of("Самара", "SHR-RA0003", "DEP-RA0003", "ARR-RA0003")), readBoth(file));
+	}
+
+	@Test
+	void onlyFirstSheetIsRead() throws Exception {
+		File file = workbook(sheet -> {
+			row(sheet, 0, "center", "shr", "dep", "arr");
+			row(sheet, 1, "Москва", "SHR-RA0001", "DEP-RA0001", "ARR-RA0001");
+			Sheet second = sheet.getWorkbook().createSheet("Архив");
+			row(second, 0, "center", "shr", "dep", "arr");
+			row(second, 1, "Казань", "SHR-RA0002", "DEP-RA0002", "ARR-RA0002");
+		});
+
+		assertEquals(List.of(List.of("Москва", "SHR-RA0001", "DEP-RA0001", "ARR-RA0001")), readBoth(file));
+	}
+
+	/**
+	 * Читает книгу с диска и из потока и проверяет, что результат совпадает
+	 */
+	private List<List<String>> readBoth(File file) throws Exception {
+		List<List<String>> fromFile = new ArrayList<>();
+		int fileCount = reader.read(file, "telegrams.xls", telegram -> fromFile.add(values(telegram)));
+		List<List<String>> fromStream = new ArrayList<>();
+		int streamCount;
+		try (InputStream input = Files.newInputStream(file.toPath())) {
+			streamCount = reader.read(input, "telegrams.xls", telegram -> fromStream.add(values(telegram)));
+		}
+
+		assertEquals(fromFile.size(), fileCount);
+		assertEquals(fromStream.size(), streamCount);
+		assertEquals(fromFile, fromStream);
+		return fromFile;
+	}
+
+	private File workbook(Consumer<Sheet> filler) throws Exception {
+		Path file = tempDir.resolve("telegrams.xls");
+		try (HSSFWorkbook workbook = new HSSFWorkbook(); OutputStream out = Files.newOutputStream(file)) {
+			filler.accept(workbook.createSheet("Телеграммы"));
+			workbook.write(out);
+		}
+		return file.toFile();
+	}
+
+	private static void row(Sheet sheet, int index, String... values) {
+		Row row = sheet.createRow(index);
+		for (int i = 0; i < values.length; i++) {
+			row.createCell(i).setCellValue(values[i]);
+		}
+	}
+
+	private static List<String> values(RawTelegram telegram) {
+		assertEquals("telegrams.xls", telegram.getFileName());
+		assertEquals("PENDING", telegram.getProcessingStatus());
+		return List.of(telegram.getCenter(), telegram.getShrRawText(), telegram.getDepRawText(), telegram.getArrRawText());
+	}
+}
@@ -0,0 +1,128 @@
+package com.drones.skilldrones.parser;
+
+import com.drones.skilldrones.model.RawTelegram;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Книга создается XSSFWorkbook и читается событийным ридером с диска и из потока
+ */
+class XlsxTelegramReaderTest {
+
+	@TempDir
+	Path tempDir;
+
+	private final XlsxTelegramReader reader = new XlsxTelegramReader();
+
+	@Test
+	void headerIsSkippedAndSharedStringsAreResolved() throws Exception {
+		File file = workbook(sheet -> {
+			row(sheet, 0, "center", "shr", "dep", "arr");
+			row(sheet, 1, " Москва ", "SHR-RA0001", "DEP-RA0001", "ARR-RA0001");
+			// Повтор строки: в таблице общих строк одна запись на оба вхождения
+			row(sheet, 2, " Москва ", "SHR-RA0002", "DEP-RA0002", "ARR-RA0002");
+		});
+
+		assertEquals(List.of(
+				List.of("Москва", "SHR-RA0001", "DEP-RA0001", "ARR-RA0001"),
+				List.of("Москва", "SHR-RA0002", "DEP-RA0002", "ARR-RA0002")), readBoth(file));
+	}
+
+	@Test
+	void shortRowsAreSkippedAndMissingCellsAreEmpty() throws Exception {
+		File file = workbook(sheet -> {
+			row(sheet, 0, "center", "shr", "dep", "arr");
+			// Три ячейки - строка неполная
+			row(sheet, 1, "Москва", "SHR-RA0001", "DEP-RA0001");
+			// Четыре ячейки, но DEP пропущен: недостающая колонка - пустая строка
+			Row gap = sheet.createRow(2);
+			gap.createCell(0).setCellValue("Казань");
+			gap.createCell(1).setCellValue("SHR-RA0002");
+			gap.createCell(3).setCellValue("ARR-RA0002");
+			gap.createCell(4).setCellValue("примечание");
+			// Строка 3 отсутствует в листе
+			row(sheet, 4, "Самара", "SHR-RA0003", "DEP-RA0003", "ARR-RA0003");
+		});
+
+		assertEquals(List.of(
+				List.of("Казань", "SHR-RA0002", "", "ARR-RA0002"),
+				List.of("Самара", "SHR-RA0003", "DEP-RA0003", "ARR-RA0003")), readBoth(file));
+	}
+
+	@Test
+	void formulasAndNumbersAreReadAsCachedValues() throws Exception {
+		File file = workbook(sheet -> {
+			row(sheet, 0, "center", "shr", "dep", "arr");
+			Row row = sheet.createRow(1);
+			row.createCell(0).setCellValue(1001);
+			row.createCell(1).setCellFormula("\"SHR-\"&\"RA0001\"");
+			row.createCell(2).setCellFormula("2+3");
+			row.createCell(3).setCellValue("ARR-RA0001");
+			// Без вычисленного значения формула не дает текста
+			sheet.getWorkbook().getCreationHelper().createFormulaEvaluator().evaluateAll();
+		});
+
+		assertEquals(List.of(List.of("1001", "SHR-RA0001", "5", "ARR-RA0001")), readBoth(file));
+	}
+
+	@Test
+	void sheetWithOnlyHeaderGivesNoTelegrams() throws Exception {
+		File file = workbook(sheet -> row(sheet, 0, "center", "shr", "dep", "arr"));
+
+		assertEquals(List.of(), readBoth(file));
+	}
+
+	/**
+	 * Читает книгу с диска и из потока и проверяет, что результат совпадает
+	 */
+	private List<List<String>> readBoth(File file) throws Exception {
+		List<List<String>> fromFile = new ArrayList<>();
+		int fileCount = reader.read(file, "telegrams.xlsx", telegram -> fromFile.add(values(telegram)));
+		List<List<String>> fromStream = new ArrayList<>();
+		int streamCount;
+		try (InputStream input = Files.newInputStream(file.toPath())) {
+			streamCount = reader.read(input, "telegrams.xlsx", telegram -> fromStream.add(values(telegram)));
+		}
+
+		assertEquals(fromFile.size(), fileCount);
+		assertEquals(fromStream.size(), streamCount);
+		assertEquals(fromFile, fromStream);
+		return fromFile;
+	}
+
+	private File workbook(Consumer<Sheet> filler) throws Exception {
+		Path file = tempDir.resolve("telegrams.xlsx");
+		try (XSSFWorkbook workbook = new XSSFWorkbook(); OutputStream out = Files.newOutputStream(file)) {
+			filler.accept(workbook.createSheet("Телеграммы"));
+			workbook.write(out);
+		}
+		return file.toFile();
+	}
+
+	private static void row(Sheet sheet, int index, String... values) {
+		Row row = sheet.createRow(index);
+		for (int i = 0; i < values.length; i++) {
+			row.createCell(i).setCellValue(values[i]);
+		}
+	}
+
+	private static List<String> values(RawTelegram telegram) {
+		assertEquals("telegrams.xlsx", telegram.getFileName());
+		assertEquals("PENDING", telegram.getProcessingStatus());
+		return List.of(telegram.getCenter(), telegram.getShrRawText(), telegram.getDepRawText(), telegram.getArrRawText());
+	}
+}
@@ -0,0 +1,134 @@
+package com.drones.skilldrones.pipeline;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MicroBatcherTest {
+
+	private final BlockingQueue<List<Integer>> batches = new LinkedBlockingQueue<>();
+
+	@Test
+	void fullBatchIsHandledWithoutWaitingForDelay() throws Exception {
+		try (MicroBatcher<Integer> batcher = new MicroBatcher<>("test-batcher", 3, Duration.ofHours(1), batches::add)) {
+			for (int i = 1; i <= 3; i++) {
+				batcher.add(i);
+			}
+			assertEquals(List.of(1, 2, 3), batches.poll(5, TimeUnit.SECONDS));
+		}
+	}
+
+	@Test
+	void partialBatchIsHandledAfterDelay() throws Exception {
+		try (MicroBatcher<Integer> batcher = new MicroBatcher<>("test-batcher", 100, Duration.ofMillis(20), batches::add)) {
+			long start = System.nanoTime();
+			batcher.add(1);
+			batcher.add(2);
+
+			assertEquals(List.of(1, 2), batches.poll(5, TimeUnit.SECONDS));
+			assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(20));
+		}
+	}
+
+	@Test
+	void closeHandlesRemainderInOrder() throws Exception {
+		MicroBatcher<Integer> batcher = new MicroBatcher<>("test-batcher", 4, Duration.ofHours(1), batches::add);
+		for (int i = 1; i <= 10; i++) {
+			batcher.add(i);
+		}
+		batcher.close();
+
+		List<Integer> handled = new ArrayList<>();
+		for (List<Integer> batch : batches) {
+			assertTrue(batch.size() <= 4);
+			handled.addAll(batch);
+		}
+		assertEquals(List.of(1, 2, 3, 4, 5, 6, 7, 8, 9, 10), handled);
+		assertThrows(IllegalStateException.class, () -> batcher.add(11));
+	}
+
+	@Test
+	void addBlocksWhileHandlerIsBusyAndBatchIsFull() throws Exception {
+		CountDownLatch release = new CountDownLatch(1);
+		AtomicInteger added = new AtomicInteger();
+		MicroBatcher<Integer> batcher = new MicroBatcher<>("test-batcher", 2, Duration.ofHours(1), batch -> {
+			await(release);
+			batches.add(batch);
+		});
+		Thread producer = Thread.ofVirtual().start(() -> {
+			try {
+				for (int i = 1; i <= 6; i++) {
+					batcher.add(i);
+					added.incrementAndGet();
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		});
+
+		// Первый пакет в обработчике, второй накоплен - пятый элемент ждет
+		Thread.sleep(200);
+		assertEquals(4, added.get());
+		assertTrue(producer.isAlive());
+
+		release.countDown();
+		producer.join(5000);
+		batcher.close();
+		assertEquals(6, added.get());
+		assertEquals(List.of(List.of(1, 2), List.of(3, 4), List.of(5, 6)), new ArrayList<>(batches));
+	}
+
+	@Test
+	void handlerFailureIsReportedToProducerAndClose() throws Exception {
+		MicroBatcher<Integer> batcher = new MicroBatcher<>("test-batcher", 1, Duration.ofHours(1), batch -> {
+			throw new IllegalArgumentException("сбой");
+		});
+		batcher.add(1);
+
+		IllegalStateException added = assertThrows(IllegalStateException.class, () -> {
+			for (int i = 2; i < 100; i++) {
+				batcher.add(i);
+				Thread.sleep(10);
+			}
+		});
+		assertTrue(added.getCause() instanceof IllegalArgumentException);
+		IllegalStateException closed = assertThrows(IllegalStateException.class, batcher::close);
+		assertNotNull(closed.getCause());
+	}
+
+	@Test
+	void interruptedCloseRestoresInterruptFlag() throws Exception {
+		CountDownLatch release = new CountDownLatch(1);
+		MicroBatcher<Integer> batcher = new MicroBatcher<>("test-batcher", 1, Duration.ofHours(1), batch -> await(release));
+		batcher.add(1);
+
+		Thread.currentThread().interrupt();
+		try {
+			IllegalStateException e = assertThrows(IllegalStateException.class, batcher::close);
+			assertTrue(e.getCause() instanceof InterruptedException);
+			assertTrue(Thread.interrupted());
+		} finally {
+			release.countDown();
+		}
+	}
+
+	private static void await(CountDownLatch latch) {
+		try {
+			latch.await();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+}
@@ -0,0 +1,234 @@
+package com.drones.skilldrones.pipeline;
+
+import com.drones.skilldrones.model.RawTelegram;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class TelegramCorrelatorTest {
+
+	@TempDir
+	Path tempDir;
+
+	private final List<RawTelegram> emitted = new ArrayList<>();
+	private final TelegramCorrelator correlator = new TelegramCorrelator(Duration.ofHours(1), 100, emitted::add);
+
+	@Test
+	void shrAndArrWithSameSidAreMerged() {
+		correlator.accept(shr("RA0001", "7772187998"));
+		correlator.accept(arr("RA0001", "7772187998"));
+
+		assertEquals(1, emitted.size());
+		assertEquals(0, correlator.openPlans());
+	}
+
+	@Test
+	void idKeyDoesNotMergeDifferentSids() {
+		correlator.accept(shr("RA0001", "7772187998"));
+		correlator.accept(arr("RA0001", "1111111111"));
+
+		assertEquals(List.of(), emitted);
+		assertEquals(2, correlator.openPlans());
+	}
+
+	@Test
+	void idKeyMergesMessagesWithoutSid() {
+		correlator.accept(shr("RA0001", null));
+		correlator.accept(arr("RA0001", null));
+
+		assertEquals(1, emitted.size());
+		assertEquals(0, correlator.openPlans());
+	}
+
+	@Test
+	void idKeyDoesNotMergeSidIntoPlanWithoutSid() {
+		correlator.accept(shr("RA0001", null));
+		correlator.accept(arr("RA0001", "7772187998"));
+
+		assertEquals(List.of(), emitted);
+		assertEquals(2, correlator.openPlans());
+	}
+
+	@Test
+	void lateDepUpdatesClosedPlan() {
+		correlator.accept(shr("RA0001", "7772187998"));
+		correlator.accept(arr("RA0001", "7772187998"));
+		RawTelegram closed = emitted.get(0);
+		closed.setId(42L);
+		correlator.persisted(closed);
+
+		correlator.accept(dep("RA0001", "7772187998"));
+
+		assertEquals(2, emitted.size());
+		// Передается новая копия с id сохраненной телеграммы, а первая копия не меняется
+		assertNotSame(closed, emitted.get(1));
+		assertEquals(Long.valueOf(42), emitted.get(1).getId());
+		assertNotNull(emitted.get(1).getDepRawText());
+		assertNull(closed.getDepRawText());
+		assertEquals(0, correlator.openPlans());
+		assertEquals(1, correlator.closedPlans());
+	}
+
+	@Test
+	void lateDepBeforePersistenceIsEmittedOnceAfterIt() {
+		correlator.accept(shr("RA0001", "7772187998"));
+		correlator.accept(arr("RA0001", "7772187998"));
+		RawTelegram closed = emitted.get(0);
+
+		// Первая копия еще сохраняется: вторую не передаем, чтобы они не попали в один пакет
+		correlator.accept(dep("RA0001", "7772187998"));
+		correlator.evictExpired();
+		assertEquals(1, emitted.size());
+		assertNull(closed.getDepRawText());
+		assertEquals(1, correlator.inFlight());
+
+		closed.setId(42L);
+		correlator.persisted(closed);
+		assertEquals(0, correlator.inFlight());
+		correlator.evictExpired();
+
+		assertEquals(2, emitted.size());
+		RawTelegram updated = emitted.get(1);
+		assertEquals(Long.valueOf(42), updated.getId());
+		assertNotNull(updated.getDepRawText());
+		assertEquals(1, correlator.inFlight());
+		// Повторная передача одна
+		correlator.persisted(updated);
+		correlator.evictExpired();
+		assertEquals(2, emitted.size());
+	}
+
+	@Test
+	void updateWaitingForPersistenceSurvivesCheckpoint() throws IOException {
+		correlator.accept(shr("RA0001", "7772187998"));
+		correlator.accept(arr("RA0001", "7772187998"));
+		correlator.accept(dep("RA0001", "7772187998"));
+		RawTelegram closed = emitted.get(0);
+		closed.setId(42L);
+		correlator.persisted(closed);
+		Path file = tempDir.resolve("correlation.bin");
+		correlator.checkpoint(file);
+
+		List<RawTelegram> restoredEmitted = new ArrayList<>();
+		TelegramCorrelator restored = new TelegramCorrelator(Duration.ofHours(1), 100, restoredEmitted::add);
+		restored.restore(file);
+		restored.evictExpired();
+
+		assertEquals(1, restoredEmitted.size());
+		assertEquals(Long.valueOf(42), restoredEmitted.get(0).getId());
+		assertNotNull(restoredEmitted.get(0).getDepRawText());
+	}
+
+	@Test
+	void closedPlansAreForgottenAfterTtl() {
+		TelegramCorrelator expiring = new TelegramCorrelator(Duration.ZERO, 100, emitted::add);
+		expiring.accept(shr("RA0001", "7772187998"));
+		expiring.accept(arr("RA0001", "7772187998"));
+
+		expiring.evictExpired();
+
+		assertEquals(1, emitted.size());
+		assertEquals(0, expiring.closedPlans());
+		expiring.accept(dep("RA0001", "7772187998"));
+		assertEquals(1, expiring.openPlans());
+	}
+
+	@Test
+	void closedPlansAreBounded() {
+		TelegramCorrelator bounded = new TelegramCorrelator(Duration.ofHours(1), 2, emitted::add);
+		for (int i = 0; i < 5; i++) {
+			bounded.accept(shr("RA000" + i, "777218799" + i));
+			bounded.accept(arr("RA000" + i, "777218799" + i));
+		}
+
+		assertEquals(5, emitted.size());
+		assertEquals(2, bounded.closedPlans());
+	}
+
+	@Test
+	void checkpointRoundTripRestoresOpenAndClosedPlans() throws IOException {
+		correlator.accept(shr("RA0001", "7772187998"));
+		correlator.accept(shr("RA0002", "7772187999"));
+		correlator.accept(arr("RA0002", "7772187999"));
+		emitted.get(0).setId(7L);
+		correlator.persisted(emitted.get(0));
+		Path file = tempDir.resolve("correlation.bin");
+		correlator.checkpoint(file);
+
+		List<RawTelegram> restoredEmitted = new ArrayList<>();
+		TelegramCorrelator restored = new TelegramCorrelator(Duration.ofHours(1), 100, restoredEmitted::add);
+		assertEquals(2, restored.restore(file));
+		assertEquals(1, restored.openPlans());
+		assertEquals(1, restored.closedPlans());
+
+		restored.accept(arr("RA0001", "7772187998"));
+		restored.accept(dep("RA0002", "7772187999"));
+		assertEquals(2, restoredEmitted.size());
+		assertNull(restoredEmitted.get(0).getId());
+		assertEquals(Long.valueOf(7), restoredEmitted.get(1).getId());
+		assertNotNull(restoredEmitted.get(1).getShrRawText());
+		assertEquals(0, restored.openPlans());
+	}
+
+	@Test
+	void concurrentCheckpointsDoNotCorruptFile() throws Exception {
+		for (int i = 0; i < 100; i++) {
+			correlator.accept(shr("RA" + i, String.valueOf(7772180000L + i)));
+		}
+		Path file = tempDir.resolve("correlation.bin");
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			List<Future<?>> writers = new ArrayList<>();
+			for (int i = 0; i < 4; i++) {
+				writers.add(executor.submit(() -> {
+					for (int j = 0; j < 20; j++) {
+						correlator.checkpoint(file);
+					}
+					return null;
+				}));
+			}
+			for (Future<?> writer : writers) {
+				writer.get(30, TimeUnit.SECONDS);
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+
+		TelegramCorrelator restored = new TelegramCorrelator(Duration.ofHours(1), 1000, emitted::add);
+		assertEquals(100, restored.restore(file));
+		assertEquals(100, restored.openPlans());
+	}
+
+	static RawTelegram shr(String id, String sid) {
+		RawTelegram telegram = new RawTelegram();
+		telegram.setShrRawText("SHR-" + id + "\n-ZZZZ0700\n-M0000/M0005 /ZONA 5530N03730E/\n-ZZZZ0800\n"
+				+ "-DEP/5530N03730E DOF/250101" + (sid != null ? " SID/" + sid : "") + ")");
+		return telegram;
+	}
+
+	static RawTelegram dep(String id, String sid) {
+		RawTelegram telegram = new RawTelegram();
+		telegram.setDepRawText("DEP-" + id + (sid != null ? "\n-SID " + sid : "") + "\n-ADD 250101\n-ATD 0705");
+		return telegram;
+	}
+
+	static RawTelegram arr(String id, String sid) {
+		RawTelegram telegram = new RawTelegram();
+		telegram.setArrRawText("ARR-" + id + (sid != null ? "\n-SID " + sid : "") + "\n-ADA 250101\n-ATA 0755");
+		return telegram;
+	}
+}
@@ -0,0 +1,125 @@
+package com.drones.skilldrones.pipeline;
+
+import com.drones.skilldrones.model.RawTelegram;
+import com.drones.skilldrones.service.FlightProcessingService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Поток телеграмм через настоящий сокет: SHR и ARR в скобках, DEP в формате ADEXP без скобок
+ */
+class TelegramFeedServerTest {
+
+	@TempDir
+	Path tempDir;
+
+	private final BlockingQueue<RawTelegram> persisted = new LinkedBlockingQueue<>();
+	private TelegramFeedServer server;
+
+	@AfterEach
+	void tearDown() {
+		if (server != null) {
+			server.stop();
+		}
+	}
+
+	@Test
+	void correlatesMessagesFromSocketClient() throws Exception {
+		int port = freePort();
+		server = new TelegramFeedServer(flightProcessingService(), new SimpleMeterRegistry(),
+				true, port, 10, 10, 65536, "", 60, 1000, tempDir.resolve("feed.bin").toString(), 3600);
+		server.start();
+
+		try (Socket client = new Socket(InetAddress.getLoopbackAddress(), port)) {
+			OutputStream out = client.getOutputStream();
+			out.write(("ZCZC ABC001\r\nFF UUUUZZZZ\r\n"
+					+ "(SHR-RA0001\n-ZZZZ0700\n-DEP/5530N03730E DOF/250101 SID/7772187998)\r\nNNNN\r\n"
+					+ "ZCZC ABC002\r\nFF UUUUZZZZ\r\n"
+					+ "-TITLE IDEP\r\n-SID 7772187998\r\n-ADD 250101\r\n-ATD 0705\r\nNNNN\r\n").getBytes(StandardCharsets.UTF_8));
+			out.flush();
+			// Сообщение разрезано между записями в сокет
+			out.write("ZCZC ABC003\r\n(ARR-RA0001\n-SID 77721".getBytes(StandardCharsets.UTF_8));
+			out.flush();
+			Thread.sleep(50);
+			out.write("87998\n-ADA 250101\n-ATA 0755)\r\nNNNN\r\n".getBytes(StandardCharsets.UTF_8));
+			out.flush();
+
+			RawTelegram telegram = persisted.poll(10, TimeUnit.SECONDS);
+			assertNotNull(telegram, "телеграмма не сохранена");
+			assertTrue(telegram.getShrRawText().startsWith("SHR-RA0001"));
+			assertEquals("-TITLE IDEP\r\n-SID 7772187998\r\n-ADD 250101\r\n-ATD 0705", telegram.getDepRawText());
+			assertTrue(telegram.getArrRawText().endsWith("-ATA 0755"));
+		}
+	}
+
+	@Test
+	void lastAdexpMessageIsFramedWhenClientDisconnects() throws Exception {
+		int port = freePort();
+		server = new TelegramFeedServer(flightProcessingService(), new SimpleMeterRegistry(),
+				true, port, 10, 10, 65536, "", 60, 1000, tempDir.resolve("feed.bin").toString(), 3600);
+		server.start();
+
+		try (Socket client = new Socket(InetAddress.getLoopbackAddress(), port)) {
+			client.getOutputStream().write(
+					"(SHR-RA0002\n-DEP/5530N03730E DOF/250101 SID/7772187999)\n-TITLE IARR -SID 7772187999 -ATA 0755"
+							.getBytes(StandardCharsets.UTF_8));
+		}
+
+		RawTelegram telegram = persisted.poll(10, TimeUnit.SECONDS);
+		assertNotNull(telegram, "телеграмма не сохранена");
+		assertEquals("-TITLE IARR -SID 7772187999 -ATA 0755", telegram.getArrRawText());
+	}
+
+	@Test
+	void stopAfterFailedBindDoesNothing() throws Exception {
+		Path checkpoint = tempDir.resolve("feed.bin");
+		try (ServerSocket occupied = new ServerSocket(0)) {
+			server = new TelegramFeedServer(flightProcessingService(), new SimpleMeterRegistry(),
+					true, occupied.getLocalPort(), 10, 10, 65536, "", 60, 1000, checkpoint.toString(), 3600);
+			server.start();
+
+			assertDoesNotThrow(server::stop);
+		}
+		assertFalse(Files.exists(checkpoint));
+	}
+
+	private FlightProcessingService flightProcessingService() {
+		FlightProcessingService flightProcessingService = mock(FlightProcessingService.class);
+		when(flightProcessingService.processBatch(anyList())).thenAnswer(invocation -> {
+			List<RawTelegram> telegrams = invocation.getArgument(0);
+			persisted.addAll(telegrams);
+			return telegrams.size();
+		});
+		return flightProcessingService;
+	}
+
+	private static int freePort() throws IOException {
+		try (ServerSocket socket = new ServerSocket(0)) {
+			return socket.getLocalPort();
+		}
+	}
+}
@@ -0,0 +1,163 @@
+package com.drones.skilldrones.repository;
+
+import com.drones.skilldrones.geo.Geometries;
+import org.junit.jupiter.api.Test;
+import org.postgresql.copy.CopyIn;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Байты, которые уходят в COPY ... FROM STDIN (FORMAT binary), сверяются с форматом PostgreSQL
+ */
+class PgBinaryCopyWriterTest {
+
+	private static final byte[] SIGNATURE = {'P', 'G', 'C', 'O', 'P', 'Y', '\n', (byte) 0xFF, '\r', '\n', 0};
+
+	private final ByteArrayOutputStream sent = new ByteArrayOutputStream();
+
+	@Test
+	void nullsIntegersAndTextAreLengthPrefixed() throws SQLException {
+		PgBinaryCopyWriter writer = new PgBinaryCopyWriter(copyIn(), ZoneId.of("UTC"));
+		writer.startRow(6);
+		writer.writeNull();
+		writer.writeInt(-2);
+		writer.writeInt(null);
+		writer.writeLong(1L << 40);
+		writer.writeText("Москва");
+		writer.writeText(null);
+
+		assertEquals(1, writer.finish());
+
+		byte[] text = "Москва".getBytes(StandardCharsets.UTF_8);
+		ByteBuffer expected = expected(2 + 4 + 8 + 4 + 12 + 4 + text.length + 4);
+		expected.putShort((short) 6)
+				.putInt(-1)
+				.putInt(4).putInt(-2)
+				.putInt(-1)
+				.putInt(8).putLong(1L << 40)
+				.putInt(text.length).put(text)
+				.putInt(-1);
+		assertArrayEquals(finished(expected), sent.toByteArray());
+	}
+
+	@Test
+	void datesAreDaysAndTimesAreMicrosecondsFrom2000() throws SQLException {
+		PgBinaryCopyWriter writer = new PgBinaryCopyWriter(copyIn(), ZoneId.of("UTC"));
+		writer.startRow(5);
+		writer.writeDate(LocalDate.of(2000, 1, 1));
+		writer.writeDate(LocalDate.of(1999, 12, 31));
+		writer.writeDate(LocalDate.of(2025, 2, 1));
+		writer.writeTime(LocalTime.of(23, 59, 59, 123_456_789));
+		writer.writeTime(null);
+		writer.finish();
+
+		ByteBuffer expected = expected(2 + 8 * 3 + 12 + 4);
+		expected.putShort((short) 5)
+				.putInt(4).putInt(0)
+				.putInt(4).putInt(-1)
+				.putInt(4).putInt(9163)
+				.putInt(8).putLong(86_399_123_456L)
+				.putInt(-1);
+		assertArrayEquals(finished(expected), sent.toByteArray());
+	}
+
+	@Test
+	void timestampsAreUtcMicrosecondsFrom2000() throws SQLException {
+		// LocalDateTime трактуется в зоне JVM: 03:00 по Москве - это полночь UTC
+		PgBinaryCopyWriter writer = new PgBinaryCopyWriter(copyIn(), ZoneId.of("Europe/Moscow"));
+		writer.startRow(3);
+		writer.writeTimestamp(LocalDateTime.of(2000, 1, 1, 3, 0));
+		writer.writeTimestamp(LocalDateTime.of(2025, 2, 1, 12, 30, 0, 1_000));
+		writer.writeTimestamp(null);
+		writer.finish();
+
+		long days = LocalDate.of(2025, 2, 1).toEpochDay() - LocalDate.of(2000, 1, 1).toEpochDay();
+		ByteBuffer expected = expected(2 + 12 * 2 + 4);
+		expected.putShort((short) 3)
+				.putInt(8).putLong(0)
+				.putInt(8).putLong(days * 86_400_000_000L + (9 * 3600 + 30 * 60) * 1_000_000L + 1)
+				.putInt(-1);
+		assertArrayEquals(finished(expected), sent.toByteArray());
+	}
+
+	@Test
+	void geometryIsBigEndianEwkbWithSrid() throws SQLException {
+		PgBinaryCopyWriter writer = new PgBinaryCopyWriter(copyIn(), ZoneId.of("UTC"));
+		writer.startRow(2);
+		writer.writeGeometry(Geometries.point(37.5, 55.75));
+		writer.writeGeometry(null);
+		writer.finish();
+
+		ByteBuffer expected = expected(2 + 4 + 25 + 4);
+		expected.putShort((short) 2)
+				.putInt(25)
+				.put((byte) 0)            // big-endian
+				.putInt(0x20000001)       // Point с признаком SRID
+				.putInt(4326)
+				.putDouble(37.5).putDouble(55.75)
+				.putInt(-1);
+		assertArrayEquals(finished(expected), sent.toByteArray());
+	}
+
+	@Test
+	void valuesLargerThanBufferKeepRowOrder() throws SQLException {
+		PgBinaryCopyWriter writer = new PgBinaryCopyWriter(copyIn(), ZoneId.of("UTC"));
+		byte[] large = new byte[200 * 1024];
+		Arrays.fill(large, (byte) 'x');
+		writer.startRow(3);
+		writer.writeInt(1);
+		writer.writeBytes(large);
+		writer.writeInt(2);
+		writer.finish();
+
+		ByteBuffer expected = expected(2 + 8 + 4 + large.length + 8);
+		expected.putShort((short) 3)
+				.putInt(4).putInt(1)
+				.putInt(large.length).put(large)
+				.putInt(4).putInt(2);
+		assertArrayEquals(finished(expected), sent.toByteArray());
+	}
+
+	/**
+	 * Заголовок COPY: сигнатура, флаги и длина расширения заголовка
+	 */
+	private static ByteBuffer expected(int rowBytes) {
+		ByteBuffer buffer = ByteBuffer.allocate(SIGNATURE.length + 8 + rowBytes + 2);
+		return buffer.put(SIGNATURE).putInt(0).putInt(0);
+	}
+
+	/**
+	 * Признак конца данных (-1 вместо числа полей)
+	 */
+	private static byte[] finished(ByteBuffer expected) {
+		expected.putShort((short) -1);
+		return Arrays.copyOf(expected.array(), expected.position());
+	}
+
+	private CopyIn copyIn() throws SQLException {
+		CopyIn copyIn = mock(CopyIn.class);
+		doAnswer(invocation -> {
+			sent.write(invocation.<byte[]>getArgument(0), invocation.getArgument(1), invocation.getArgument(2));
+			return null;
+		}).when(copyIn).writeToCopy(any(byte[].class), anyInt(), anyInt());
+		when(copyIn.endCopy()).thenReturn(1L);
+		when(copyIn.isActive()).thenReturn(true);
+		return copyIn;
+	}
+}
@@ -0,0 +1,120 @@
+package com.drones.skilldrones.service;
+
+import com.drones.skilldrones.model.Flight;
+import com.drones.skilldrones.model.RawTelegram;
+import com.drones.skilldrones.repository.IngestedFileRepository;
+import com.drones.skilldrones.repository.RawTelegramRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class DeduplicationServiceImplTest {
+
+	private static final String HASH = "a".repeat(64);
+
+	/** Хеши, зафиксированные в raw_telegrams */
+	private final Set<String> committed = ConcurrentHashMap.newKeySet();
+	private volatile CountDownLatch lookupEntered;
+	private volatile CountDownLatch lookupResume;
+	private DeduplicationServiceImpl service;
+
+	@BeforeEach
+	void setUp() {
+		RawTelegramRepository rawTelegrams = mock(RawTelegramRepository.class);
+		when(rawTelegrams.findExistingHashes(anyCollection())).thenAnswer(invocation -> {
+			Collection<String> hashes = invocation.getArgument(0);
+			List<String> found = hashes.stream().filter(committed::contains).toList();
+			CountDownLatch entered = lookupEntered;
+			if (entered != null) {
+				// Первый пакет проверил базу, но еще не сохранен
+				lookupEntered = null;
+				entered.countDown();
+				lookupResume.await(5, TimeUnit.SECONDS);
+			}
+			return found;
+		});
+		service = new DeduplicationServiceImpl(rawTelegrams, mock(IngestedFileRepository.class), true, 1000, 0.01);
+	}
+
+	@Test
+	void sameTelegramInConcurrentBatchesIsAdmittedOnce() throws Exception {
+		lookupEntered = new CountDownLatch(1);
+		lookupResume = new CountDownLatch(1);
+		CountDownLatch entered = lookupEntered;
+		Flight first = flight(HASH);
+		Flight second = flight(HASH);
+
+		ExecutorService executor = Executors.newFixedThreadPool(2);
+		try {
+			Future<List<Flight>> firstBatch = executor.submit(() -> service.filterNew(List.of(first)));
+			assertTrue(entered.await(5, TimeUnit.SECONDS));
+			Future<List<Flight>> secondBatch = executor.submit(() -> service.filterNew(List.of(second)));
+
+			assertEquals(List.of(), secondBatch.get(5, TimeUnit.SECONDS));
+			lookupResume.countDown();
+			assertEquals(List.of(first), firstBatch.get(5, TimeUnit.SECONDS));
+		} finally {
+			executor.shutdownNow();
+		}
+		assertEquals("DUPLICATE", second.getRawTelegram().getProcessingStatus());
+	}
+
+	@Test
+	void releasedHashIsCheckedAgainstDatabase() {
+		Flight saved = flight(HASH);
+		assertEquals(1, service.filterNew(List.of(saved)).size());
+
+		committed.add(HASH);
+		service.release(List.of(saved));
+
+		Flight repeated = flight(HASH);
+		assertEquals(List.of(), service.filterNew(List.of(repeated)));
+		assertEquals("DUPLICATE", repeated.getRawTelegram().getProcessingStatus());
+	}
+
+	@Test
+	void hashOfFailedBatchCanBeAdmittedAgain() {
+		Flight failed = flight(HASH);
+		assertEquals(1, service.filterNew(List.of(failed)).size());
+
+		// Сохранение не удалось: в базе телеграммы нет
+		service.release(List.of(failed));
+
+		Flight retried = flight(HASH);
+		assertEquals(List.of(retried), service.filterNew(List.of(retried)));
+	}
+
+	@Test
+	void releasingDuplicateKeepsOwnerAdmission() {
+		Flight owner = flight(HASH);
+		Flight duplicate = flight(HASH);
+		assertEquals(List.of(owner), service.filterNew(List.of(owner, duplicate)));
+
+		service.release(List.of(duplicate));
+
+		assertEquals(List.of(), service.filterNew(List.of(flight(HASH))));
+	}
+
+	private static Flight flight(String hash) {
+		RawTelegram telegram = new RawTelegram();
+		telegram.setTelegramHash(hash);
+		Flight flight = new Flight();
+		flight.setRawTelegram(telegram);
+		return flight;
+	}
+}
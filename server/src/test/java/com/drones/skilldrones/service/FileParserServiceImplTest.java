@@ -0,0 +1,114 @@
+package com.drones.skilldrones.service;
+
+import com.drones.skilldrones.dto.ParsedFlightData;
+import com.drones.skilldrones.model.RawTelegram;
+import com.drones.skilldrones.parser.CsvTelegramReader;
+import com.drones.skilldrones.parser.TelegramHash;
+import com.drones.skilldrones.parser.XlsTelegramReader;
+import com.drones.skilldrones.parser.XlsxTelegramReader;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.lang.management.ManagementFactory;
+import java.nio.file.Path;
+import java.util.HexFormat;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Разбор телеграммы не создает поля разбора и hex хеша на каждую телеграмму
+ */
+class FileParserServiceImplTest {
+
+	private static final String SHR = "SHR-00725\n-ZZZZ0705\n-M0000/M0005 /ZONA R0,5 5957N02905E/\n-ZZZZ0830\n"
+			+ "-DEP/5957N02905E DEST/5957N02905E DOF/250201 OPR/ИВАНОВ TYP/BLA RMK/МР11608 SID/7772187998";
+	private static final String DEP = "-TITLE IDEP\n-SID 7772187998\n-ADD 250201\n-ATD 0705\n-ADEP ZZZZ";
+	private static final String ARR = "-TITLE IARR\n-SID 7772187998\n-ADA 250201\n-ATA 0830";
+
+	// Выделения на телеграмму: ParsedFlightData, идентификатор и тип, ключ и дайджест SHA-256 - около 540 байт.
+	// Новый TelegramFields добавляет ~56 байт, hex-строка хеша - ~100, и то и другое выводит за предел
+	private static final long BYTES_PER_TELEGRAM = 576;
+
+	@TempDir
+	Path tempDir;
+
+	private CsvTelegramReader csvTelegramReader;
+	private FileParserServiceImpl service;
+
+	@BeforeEach
+	void setUp() {
+		csvTelegramReader = new CsvTelegramReader(64 * 1024, 1);
+		service = new FileParserServiceImpl(new XlsxTelegramReader(), csvTelegramReader, new XlsTelegramReader(),
+				tempDir.toString(), 1.0);
+	}
+
+	@AfterEach
+	void tearDown() {
+		service.shutdown();
+		csvTelegramReader.shutdown();
+	}
+
+	@Test
+	void hashIsKeptAsBytesUntilRequested() {
+		RawTelegram telegram = telegram();
+		ParsedFlightData data = service.extractFlightDataFromTelegram(telegram);
+
+		byte[] digest = telegram.getTelegramDigest();
+		assertEquals("00725", data.getFlightId());
+		assertNotNull(digest);
+		assertEquals(32, digest.length);
+		assertEquals(HexFormat.of().formatHex(digest), telegram.getTelegramHash());
+		assertEquals(TelegramHash.high(digest), TelegramHash.high(telegram.getTelegramHash()));
+		assertEquals(TelegramHash.low(digest), TelegramHash.low(telegram.getTelegramHash()));
+	}
+
+	@Test
+	void sameTelegramGivesSameHashAcrossCalls() {
+		RawTelegram first = telegram();
+		RawTelegram second = telegram();
+		service.extractFlightDataFromTelegram(first);
+		// Поля потока переиспользуются: значения предыдущей телеграммы не должны просочиться
+		RawTelegram other = new RawTelegram();
+		other.setShrRawText("SHR-RA0001\n-ZZZZ0600 DEP/5548N03730E DOF/290224 TYP/SHAR");
+		service.extractFlightDataFromTelegram(other);
+		ParsedFlightData data = service.extractFlightDataFromTelegram(second);
+
+		assertEquals(first.getTelegramHash(), second.getTelegramHash());
+		assertEquals("BLA", data.getDroneType());
+		assertNotEquals(first.getTelegramHash(), other.getTelegramHash());
+	}
+
+	@Test
+	void parsingStaysWithinAllocationBudget() {
+		com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+		RawTelegram[] telegrams = new RawTelegram[10_000];
+		for (int i = 0; i < telegrams.length; i++) {
+			telegrams[i] = telegram();
+		}
+		// Прогрев: JIT и ThreadLocal потока
+		for (RawTelegram telegram : telegrams) {
+			service.extractFlightDataFromTelegram(telegram);
+		}
+
+		long before = threads.getCurrentThreadAllocatedBytes();
+		for (RawTelegram telegram : telegrams) {
+			service.extractFlightDataFromTelegram(telegram);
+		}
+		long perTelegram = (threads.getCurrentThreadAllocatedBytes() - before) / telegrams.length;
+
+		assertTrue(perTelegram < BYTES_PER_TELEGRAM, "Выделено на телеграмму: " + perTelegram + " байт");
+	}
+
+	private static RawTelegram telegram() {
+		RawTelegram telegram = new RawTelegram();
+		telegram.setShrRawText(SHR);
+		telegram.setDepRawText(DEP);
+		telegram.setArrRawText(ARR);
+		return telegram;
+	}
+}
@@ -0,0 +1,245 @@
+package com.drones.skilldrones.service;
+
+import com.drones.skilldrones.dto.response.IngestJobResponse;
+import com.drones.skilldrones.model.Flight;
+import com.drones.skilldrones.model.IngestJob;
+import com.drones.skilldrones.model.IngestJob.JobStatus;
+import com.drones.skilldrones.model.IngestedFile;
+import com.drones.skilldrones.model.RawTelegram;
+import com.drones.skilldrones.pipeline.IngestPipeline;
+import com.drones.skilldrones.repository.IngestJobRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Переходы статуса задания загрузки, сохранение прогресса и отмена
+ */
+class IngestJobServiceImplTest {
+
+	private static final Path FILE = Path.of("telegrams.csv");
+
+	private final Map<Long, IngestJob> jobs = new ConcurrentHashMap<>();
+	// Состояние задания на момент каждого сохранения
+	private final List<Snapshot> saves = new CopyOnWriteArrayList<>();
+	private final List<String> ingestedFiles = new CopyOnWriteArrayList<>();
+	private final AtomicLong ids = new AtomicLong();
+	private final ExecutorService ingestExecutor = Executors.newVirtualThreadPerTaskExecutor();
+
+	private Optional<IngestedFile> ingested = Optional.empty();
+	private Consumer<Consumer<RawTelegram>> source = sink -> {
+	};
+
+	@AfterEach
+	void tearDown() {
+		ingestExecutor.shutdownNow();
+	}
+
+	@Test
+	void completedJobSavesProgressAfterEveryBatch() {
+		source = telegrams(5);
+
+		IngestJobResponse response = service().process(FILE, "telegrams.csv");
+
+		assertEquals("COMPLETED", response.status());
+		assertEquals(5, response.rowsRead());
+		assertEquals(5, response.rowsProcessed());
+		assertEquals(JobStatus.QUEUED, saves.get(0).status());
+		assertEquals(JobStatus.RUNNING, saves.get(1).status());
+		assertEquals(IngestJob.JobStage.PARSE, saves.get(1).stage());
+		// Три пакета по batch-size 2, затем итоговое состояние
+		assertEquals(List.of(2L, 4L, 5L), saves.subList(2, saves.size() - 1).stream()
+				.map(Snapshot::rowsProcessed).sorted().toList());
+		Snapshot last = saves.get(saves.size() - 1);
+		assertEquals(JobStatus.COMPLETED, last.status());
+		assertTrue(last.finished());
+		assertEquals(List.of("sha:telegrams.csv:5:5"), ingestedFiles);
+	}
+
+	@Test
+	void alreadyIngestedFileIsSkipped() {
+		ingested = Optional.of(new IngestedFile("sha", "old.csv", 5, 5));
+		source = sink -> {
+			throw new AssertionError("файл не должен читаться");
+		};
+
+		IngestJobResponse response = service().process(FILE, "telegrams.csv");
+
+		assertEquals("SKIPPED", response.status());
+		assertTrue(response.errorMessage().contains("old.csv"));
+		assertEquals(1, saves.size());
+		assertEquals(List.of(), ingestedFiles);
+	}
+
+	@Test
+	void failedReadFailsJob() {
+		source = sink -> {
+			sink.accept(new RawTelegram());
+			throw new IllegalStateException("файл поврежден");
+		};
+
+		IngestJobResponse response = service().process(FILE, "telegrams.csv");
+
+		assertEquals("FAILED", response.status());
+		assertTrue(response.errorMessage().contains("файл поврежден"));
+		assertEquals(List.of(), ingestedFiles);
+	}
+
+	@Test
+	void runningJobCanBeCancelled() throws Exception {
+		CountDownLatch reading = new CountDownLatch(1);
+		CountDownLatch cancelled = new CountDownLatch(1);
+		source = sink -> {
+			sink.accept(new RawTelegram());
+			sink.accept(new RawTelegram());
+			reading.countDown();
+			try {
+				cancelled.await();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			// Отмена проверяется на следующей строке
+			sink.accept(new RawTelegram());
+			throw new AssertionError("чтение должно остановиться");
+		};
+		IngestJobServiceImpl service = service();
+		Thread worker = Thread.ofVirtual().start(() -> service.process(FILE, "telegrams.csv"));
+
+		assertTrue(reading.await(5, TimeUnit.SECONDS));
+		IngestJobResponse running = service.getJob(1L).orElseThrow();
+		assertEquals("RUNNING", running.status());
+		assertEquals(2, running.rowsRead());
+		assertTrue(service.cancel(1L));
+		cancelled.countDown();
+		worker.join(5000);
+
+		assertFalse(worker.isAlive());
+		IngestJobResponse finished = service.getJob(1L).orElseThrow();
+		assertEquals("CANCELLED", finished.status());
+		assertEquals("Задание отменено", finished.errorMessage());
+		assertFalse(service.cancel(1L));
+		assertEquals(List.of(), ingestedFiles);
+	}
+
+	@Test
+	void unknownJobIsNotCancelled() {
+		IngestJobServiceImpl service = service();
+
+		assertFalse(service.cancel(42L));
+		assertTrue(service.getJob(42L).isEmpty());
+	}
+
+	@Test
+	void unfinishedJobsAreMarkedInterruptedOnStartup() {
+		IngestJob queued = new IngestJob();
+		IngestJob running = new IngestJob();
+		running.setStatus(JobStatus.RUNNING);
+		IngestJobRepository repository = repository(List.of(queued, running));
+
+		new IngestJobServiceImpl(repository, fileParserService(), pipeline(), deduplicationService(),
+				ingestExecutor, 1, 1).markInterruptedJobs();
+
+		assertEquals(JobStatus.INTERRUPTED, queued.getStatus());
+		assertEquals(JobStatus.INTERRUPTED, running.getStatus());
+		assertTrue(queued.isFinished());
+		assertNull(queued.getStartedAt());
+	}
+
+	private IngestJobServiceImpl service() {
+		return new IngestJobServiceImpl(repository(List.of()), fileParserService(), pipeline(), deduplicationService(),
+				ingestExecutor, 1, 1);
+	}
+
+	private Consumer<Consumer<RawTelegram>> telegrams(int count) {
+		return sink -> {
+			for (int i = 0; i < count; i++) {
+				sink.accept(new RawTelegram());
+			}
+		};
+	}
+
+	private IngestPipeline pipeline() {
+		FlightProcessingService flightProcessingService = mock(FlightProcessingService.class);
+		when(flightProcessingService.buildFlights(anyList())).thenAnswer(invocation -> {
+			List<Flight> flights = new ArrayList<>();
+			for (RawTelegram telegram : invocation.<List<RawTelegram>>getArgument(0)) {
+				Flight flight = new Flight();
+				flight.setRawTelegram(telegram);
+				flights.add(flight);
+			}
+			return flights;
+		});
+		when(flightProcessingService.saveFlights(anyList()))
+				.thenAnswer(invocation -> invocation.<List<Flight>>getArgument(0).size());
+		return new IngestPipeline(flightProcessingService, deduplicationService(), new SimpleMeterRegistry(),
+				2, 2, 1, 1.0, 1, 1);
+	}
+
+	private DeduplicationService deduplicationService() {
+		DeduplicationService deduplicationService = mock(DeduplicationService.class);
+		when(deduplicationService.fingerprint(any())).thenReturn("sha");
+		when(deduplicationService.findIngestedFile(anyString())).thenAnswer(invocation -> ingested);
+		when(deduplicationService.filterNew(anyList())).thenAnswer(invocation -> invocation.getArgument(0));
+		doAnswer(invocation -> ingestedFiles.add(invocation.getArgument(0) + ":" + invocation.getArgument(1) + ":"
+				+ invocation.getArgument(2) + ":" + invocation.getArgument(3)))
+				.when(deduplicationService).recordIngestedFile(anyString(), anyString(), anyLong(), anyLong());
+		return deduplicationService;
+	}
+
+	private FileParserService fileParserService() {
+		FileParserService fileParserService = mock(FileParserService.class);
+		when(fileParserService.streamTelegrams(any(Path.class), anyString(), any())).thenAnswer(invocation -> {
+			source.accept(invocation.getArgument(2));
+			return 0;
+		});
+		return fileParserService;
+	}
+
+	private IngestJobRepository repository(List<IngestJob> unfinished) {
+		IngestJobRepository repository = mock(IngestJobRepository.class);
+		when(repository.save(any(IngestJob.class))).thenAnswer(invocation -> {
+			IngestJob job = invocation.getArgument(0);
+			if (job.getJobId() == null) {
+				job.setJobId(ids.incrementAndGet());
+			}
+			jobs.put(job.getJobId(), job);
+			saves.add(new Snapshot(job.getStatus(), job.getStage(), job.getRowsProcessed(), job.getFinishedAt() != null));
+			return job;
+		});
+		when(repository.saveAll(any())).thenAnswer(invocation -> invocation.getArgument(0));
+		when(repository.findById(anyLong()))
+				.thenAnswer(invocation -> Optional.ofNullable(jobs.get(invocation.<Long>getArgument(0))));
+		when(repository.findByStatusIn(anyCollection())).thenReturn(unfinished);
+		return repository;
+	}
+
+	private record Snapshot(JobStatus status, IngestJob.JobStage stage, long rowsProcessed, boolean finished) {
+	}
+}
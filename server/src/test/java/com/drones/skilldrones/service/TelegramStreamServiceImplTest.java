@@ -0,0 +1,165 @@
+package com.drones.skilldrones.service;
+
+import com.drones.skilldrones.dto.response.StreamBatchAck;
+import com.drones.skilldrones.model.RawTelegram;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Подтверждения NDJSON и backpressure: пока пакет сохраняется, поток перестает читать вход
+ */
+class TelegramStreamServiceImplTest {
+
+	private final ObjectMapper objectMapper = new ObjectMapper();
+
+	@Test
+	void everyBatchAndMalformedLineIsAcknowledged() throws IOException {
+		List<List<RawTelegram>> processed = new ArrayList<>();
+		TelegramStreamServiceImpl service = service(telegrams -> {
+			processed.add(telegrams);
+			int saved = 0;
+			for (RawTelegram telegram : telegrams) {
+				if ("Повтор".equals(telegram.getCenter())) {
+					telegram.setProcessingStatus("DUPLICATE");
+				} else {
+					saved++;
+				}
+			}
+			return saved;
+		}, 2);
+		String input = line("Москва") + line("Казань") + "{не json\n" + "\n"
+				+ line("Повтор") + line("Самара") + line("Сочи");
+		ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+		service.ingest(new ByteArrayInputStream(input.getBytes(StandardCharsets.UTF_8)), output);
+
+		List<StreamBatchAck> acks = acks(output);
+		// Ошибка разбора пишется потоком чтения и может обогнать подтверждение пакета
+		acks.sort(Comparator.comparingLong(StreamBatchAck::batch));
+		assertEquals(4, acks.size());
+		assertEquals(List.of(0L, 3L, 3L, 0, 0, 1), fields(acks.get(0)));
+		assertTrue(acks.get(0).error().startsWith("Некорректная строка"));
+		assertEquals(List.of(1L, 1L, 2L, 2, 0, 0), fields(acks.get(1)));
+		assertEquals(List.of(2L, 5L, 6L, 1, 1, 0), fields(acks.get(2)));
+		assertEquals(List.of(3L, 7L, 7L, 1, 0, 0), fields(acks.get(3)));
+		assertEquals(3, processed.size());
+		assertEquals("stream", processed.get(0).get(0).getFileName());
+	}
+
+	@Test
+	void readingStopsWhileBatchIsSaved() throws Exception {
+		CountDownLatch release = new CountDownLatch(1);
+		TelegramStreamServiceImpl service = service(telegrams -> {
+			try {
+				release.await();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			return telegrams.size();
+		}, 1);
+		LineStream input = new LineStream(10);
+		ByteArrayOutputStream output = new ByteArrayOutputStream();
+		Thread ingest = Thread.ofVirtual().start(() -> service.ingest(input, output));
+
+		// Первый пакет сохраняется, второй накоплен, третья строка ждет места в пакете
+		Thread.sleep(200);
+		assertEquals(3, input.served.get());
+		assertEquals(0, output.size());
+
+		release.countDown();
+		ingest.join(5000);
+		assertFalse(ingest.isAlive());
+		assertEquals(10, input.served.get());
+		assertEquals(10, acks(output).size());
+	}
+
+	@Test
+	void persistFailureIsAcknowledgedWithError() throws IOException {
+		TelegramStreamServiceImpl service = service(telegrams -> {
+			throw new IllegalStateException("база недоступна");
+		}, 10);
+		ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+		service.ingest(new ByteArrayInputStream(line("Москва").getBytes(StandardCharsets.UTF_8)), output);
+
+		List<StreamBatchAck> acks = acks(output);
+		assertEquals(1, acks.size());
+		assertTrue(acks.get(0).error().contains("база недоступна"));
+	}
+
+	private TelegramStreamServiceImpl service(BatchHandler handler, int batchSize) {
+		FlightProcessingService flightProcessingService = mock(FlightProcessingService.class);
+		when(flightProcessingService.processBatch(anyList()))
+				.thenAnswer(invocation -> handler.process(invocation.getArgument(0)));
+		return new TelegramStreamServiceImpl(flightProcessingService, objectMapper, new SimpleMeterRegistry(),
+				batchSize, 3_600_000);
+	}
+
+	private List<StreamBatchAck> acks(ByteArrayOutputStream output) throws IOException {
+		List<StreamBatchAck> acks = new ArrayList<>();
+		for (String text : output.toString(StandardCharsets.UTF_8).split("\n")) {
+			if (!text.isEmpty()) {
+				acks.add(objectMapper.readValue(text, StreamBatchAck.class));
+			}
+		}
+		return acks;
+	}
+
+	private static List<Object> fields(StreamBatchAck ack) {
+		return List.of(ack.batch(), ack.firstLine(), ack.lastLine(), ack.saved(), ack.duplicates(), ack.failed());
+	}
+
+	private static String line(String center) {
+		return "{\"center\":\"" + center + "\",\"shr\":\"SHR-" + center + "\",\"dep\":null,\"arr\":null}\n";
+	}
+
+	private interface BatchHandler {
+		int process(List<RawTelegram> telegrams);
+	}
+
+	/**
+	 * Отдает не больше одной строки за чтение и считает отданные строки
+	 */
+	private static final class LineStream extends InputStream {
+		private final int lines;
+		private final AtomicInteger served = new AtomicInteger();
+
+		LineStream(int lines) {
+			this.lines = lines;
+		}
+
+		@Override
+		public int read() {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public int read(byte[] buffer, int offset, int length) {
+			if (served.get() == lines) {
+				return -1;
+			}
+			byte[] bytes = line("Центр " + served.incrementAndGet()).getBytes(StandardCharsets.UTF_8);
+			System.arraycopy(bytes, 0, buffer, offset, bytes.length);
+			return bytes.length;
+		}
+	}
+}